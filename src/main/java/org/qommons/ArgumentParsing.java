@@ -32,6 +32,7 @@ import java.util.stream.Stream;
 import org.qommons.ArgumentParsing.ArgumentTest.BiArgumentTest;
 import org.qommons.ArgumentParsing.Impl.ArgumentTypeHolder;
 import org.qommons.collect.BetterList;
+import org.qommons.collect.QuickSet;
 import org.qommons.collect.QuickSet.QuickMap;
 import org.qommons.ex.ExFunction;
 import org.qommons.io.BetterFile;
@@ -3621,7 +3622,8 @@ public class ArgumentParsing {
 			private boolean isPrintingHelpOnError;
 
 			DefaultArgParser(Map<String, ArgumentTypeHolder<?>> arguments, boolean acceptUnmatched, String description) {
-				theArguments = QuickMap.of(arguments, StringUtils.DISTINCT_NUMBER_TOLERANT);
+				theArguments = QuickSet.of(StringUtils.DISTINCT_NUMBER_TOLERANT, arguments.keySet()).withPerfectHash()
+					.<ArgumentTypeHolder<?>> createMap().withAll(arguments);
 				for (int a = 0; a < theArguments.keySize(); a++)
 					theArguments.get(a).argument.index = a;
 				theArgumentsList = QommonsUtils.map(arguments.values(), v -> v.argument, true);
@@ -7,6 +7,8 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -15,8 +17,16 @@ import org.qommons.ex.ExFunction;
 import org.qommons.ex.ExSupplier;
 
 /**
+ * <p>
  * A map of values to classes. This structure is hierarchical, allowing query of either the most-specific or all values mapped to classes
  * which a given type extends.
+ * </p>
+ * <p>
+ * The results of queries ({@link #get(Class, TypeMatch) get}, {@link #getEntry(Class, TypeMatch) getEntry},
+ * {@link #getAll(Class, TypeMatch) getAll}, and {@link #getAllEntries(Class, TypeMatch) getAllEntries}) are cached by query class and
+ * {@link TypeMatch}, so repeated queries are answered without locking or searching the class hierarchy. The cache is cleared whenever
+ * the map is modified.
+ * </p>
  * 
  * @param <V> The type of values in the map
  */
@@ -261,7 +271,19 @@ public class ClassMap<V> {
 		}
 	}
 
+	private static final int QUERY_GET = 0;
+	private static final int QUERY_ENTRY = 1;
+	private static final int QUERY_ALL = 2;
+	private static final int QUERY_ALL_ENTRIES = 3;
+	private static final int QUERY_TYPES = 4;
+	/** A slot for each {@link TypeMatch}, plus one for null */
+	private static final int MATCH_SLOTS = TypeMatch.values().length + 1;
+	/** Cached for queries with no result, to distinguish them from queries whose result is not cached */
+	private static final Object NO_RESULT = new Object();
+
 	private final ClassMapEntry<Object, V> theRoot = new ClassMapEntry<>(null);
+	/** Query results by query class, each with a slot for each query type and {@link TypeMatch} (including null) */
+	private volatile ConcurrentHashMap<Class<?>, AtomicReferenceArray<Object>> theQueryCache;
 
 	private static <T> Class<T> wrap(Class<T> type) {
 		if (type == null)
@@ -318,14 +340,20 @@ public class ClassMap<V> {
 	 *        </ul>
 	 * @return The value for the queried type
 	 */
-	public synchronized V get(Class<?> type, TypeMatch acceptMatches) {
-		Object[] found = new Object[1];
-		descend(type, //
-			new MatchAcceptingAction<>(acceptMatches, true, (type2, value, match) -> {
-				found[0] = value;
-				return match == TypeMatch.SUPER_TYPE;
-			}));
-		return (V) found[0];
+	public V get(Class<?> type, TypeMatch acceptMatches) {
+		Object cached = getCached(type, QUERY_GET, acceptMatches);
+		if (cached != null)
+			return cached == NO_RESULT ? null : (V) cached;
+		synchronized (this) {
+			Object[] found = new Object[1];
+			descend(type, //
+				new MatchAcceptingAction<>(acceptMatches, true, (type2, value, match) -> {
+					found[0] = value;
+					return match == TypeMatch.SUPER_TYPE;
+				}));
+			cache(type, QUERY_GET, acceptMatches, found[0]);
+			return (V) found[0];
+		}
 	}
 
 	/**
@@ -341,14 +369,20 @@ public class ClassMap<V> {
 	 * @return The value for the queried type (as {@link BiTuple#getValue2() value 2} with the actual class the value was stored under (as
 	 *         {@link BiTuple#getValue1() value 1}
 	 */
-	public synchronized BiTuple<Class<?>, V> getEntry(Class<?> type, TypeMatch acceptMatches) {
-		BiTuple<Class<?>, V>[] found = new BiTuple[1];
-		descend(type, //
-			new MatchAcceptingAction<>(acceptMatches, true, (type2, value, match) -> {
-				found[0] = new BiTuple<>(type2, value);
-				return match == TypeMatch.SUPER_TYPE;
-			}));
-		return found[0];
+	public BiTuple<Class<?>, V> getEntry(Class<?> type, TypeMatch acceptMatches) {
+		Object cached = getCached(type, QUERY_ENTRY, acceptMatches);
+		if (cached != null)
+			return cached == NO_RESULT ? null : (BiTuple<Class<?>, V>) cached;
+		synchronized (this) {
+			BiTuple<Class<?>, V>[] found = new BiTuple[1];
+			descend(type, //
+				new MatchAcceptingAction<>(acceptMatches, true, (type2, value, match) -> {
+					found[0] = new BiTuple<>(type2, value);
+					return match == TypeMatch.SUPER_TYPE;
+				}));
+			cache(type, QUERY_ENTRY, acceptMatches, found[0]);
+			return found[0];
+		}
 	}
 
 	/**
@@ -364,7 +398,7 @@ public class ClassMap<V> {
 	 * @param defaultValue The value to return if no matching value is stored in this map
 	 * @return The value for the queried type
 	 */
-	public synchronized V getOrDefault(Class<?> type, TypeMatch acceptMatches, V defaultValue) {
+	public V getOrDefault(Class<?> type, TypeMatch acceptMatches, V defaultValue) {
 		V value = get(type, acceptMatches);
 		return value != null ? value : defaultValue;
 	}
@@ -380,16 +414,23 @@ public class ClassMap<V> {
 	 *        </ul>
 	 * @return All values mapped to types matching the query
 	 */
-	public synchronized BetterList<V> getAll(Class<?> type, TypeMatch acceptMatches) {
-		List<V>[] values = new List[1];
-		descend(type, //
-			new MatchAcceptingAction<>(acceptMatches, true, (type2, value, match) -> {
-				if (values[0] == null)
-					values[0] = new ArrayList<>(5);
-				values[0].add(value);
-				return true;
-			}));
-		return values[0] == null ? BetterList.empty() : BetterList.of(values[0]);
+	public BetterList<V> getAll(Class<?> type, TypeMatch acceptMatches) {
+		Object cached = getCached(type, QUERY_ALL, acceptMatches);
+		if (cached != null)
+			return (BetterList<V>) cached;
+		synchronized (this) {
+			List<V>[] values = new List[1];
+			descend(type, //
+				new MatchAcceptingAction<>(acceptMatches, true, (type2, value, match) -> {
+					if (values[0] == null)
+						values[0] = new ArrayList<>(5);
+					values[0].add(value);
+					return true;
+				}));
+			BetterList<V> result = values[0] == null ? BetterList.empty() : BetterList.of(values[0]);
+			cache(type, QUERY_ALL, acceptMatches, result);
+			return result;
+		}
 	}
 
 	/** @return A set containing all top-level classes with values in this map */
@@ -410,16 +451,23 @@ public class ClassMap<V> {
 	 *        </ul>
 	 * @return All entries mapped to types matching the query
 	 */
-	public synchronized BetterList<BiTuple<Class<?>, V>> getAllEntries(Class<?> type, TypeMatch acceptMatches) {
-		List<BiTuple<Class<?>, V>>[] entries = new List[1];
-		descend(type, //
-			new MatchAcceptingAction<>(acceptMatches, true, (type2, value, match) -> {
-				if (entries[0] == null)
-					entries[0] = new ArrayList<>(5);
-				entries[0].add(new BiTuple<>(type2, value));
-				return true;
-			}));
-		return entries[0] == null ? BetterList.empty() : BetterList.of(entries[0]);
+	public BetterList<BiTuple<Class<?>, V>> getAllEntries(Class<?> type, TypeMatch acceptMatches) {
+		Object cached = getCached(type, QUERY_ALL_ENTRIES, acceptMatches);
+		if (cached != null)
+			return (BetterList<BiTuple<Class<?>, V>>) cached;
+		synchronized (this) {
+			List<BiTuple<Class<?>, V>>[] entries = new List[1];
+			descend(type, //
+				new MatchAcceptingAction<>(acceptMatches, true, (type2, value, match) -> {
+					if (entries[0] == null)
+						entries[0] = new ArrayList<>(5);
+					entries[0].add(new BiTuple<>(type2, value));
+					return true;
+				}));
+			BetterList<BiTuple<Class<?>, V>> result = entries[0] == null ? BetterList.empty() : BetterList.of(entries[0]);
+			cache(type, QUERY_ALL_ENTRIES, acceptMatches, result);
+			return result;
+		}
 	}
 
 	/**
@@ -427,7 +475,7 @@ public class ClassMap<V> {
 	 * @param type The class to query with
 	 * @return All entries mapped to sub-types of the given type
 	 */
-	public synchronized <C> BetterList<BiTuple<Class<? extends C>, V>> getAllSubEntries(Class<C> type) {
+	public <C> BetterList<BiTuple<Class<? extends C>, V>> getAllSubEntries(Class<C> type) {
 		return (BetterList<BiTuple<Class<? extends C>, V>>) (List<?>) getAllEntries(type, TypeMatch.SUB_TYPE);
 	}
 
@@ -436,12 +484,12 @@ public class ClassMap<V> {
 	 * @param type The class to query with
 	 * @return All entries mapped to sub-types of the given type
 	 */
-	public synchronized <C> BetterList<BiTuple<Class<? super C>, V>> getAllSuperEntries(Class<C> type) {
+	public <C> BetterList<BiTuple<Class<? super C>, V>> getAllSuperEntries(Class<C> type) {
 		return (BetterList<BiTuple<Class<? super C>, V>>) (List<?>) getAllEntries(type, TypeMatch.SUPER_TYPE);
 	}
 
 	/** @return All entries in this map */
-	public synchronized BetterList<BiTuple<Class<?>, V>> getAllEntries() {
+	public BetterList<BiTuple<Class<?>, V>> getAllEntries() {
 		return getAllEntries(Object.class, null);
 	}
 
@@ -461,6 +509,7 @@ public class ClassMap<V> {
 	 */
 	public synchronized ClassMap<V> with(Class<?> type, V value) {
 		theRoot.compute(type, old -> value);
+		invalidate();
 		return this;
 	}
 
@@ -483,7 +532,16 @@ public class ClassMap<V> {
 	 * @return The new value mapped to the class
 	 */
 	public synchronized V computeIfAbsent(Class<?> type, Supplier<V> value) {
-		return theRoot.compute(type, old -> old != null ? old : value.get());
+		boolean[] computed = new boolean[1];
+		V result = theRoot.compute(type, old -> {
+			if (old != null)
+				return old;
+			computed[0] = true;
+			return value.get();
+		});
+		if (computed[0])
+			invalidate();
+		return result;
 	}
 
 	/**
@@ -496,7 +554,16 @@ public class ClassMap<V> {
 	 * @throws E If the supplier throws an exception when attempting to supply the missing value
 	 */
 	public synchronized <E extends Throwable> V computeIfAbsentEx(Class<?> type, ExSupplier<V, E> value) throws E {
-		return theRoot.computeEx(type, old -> old != null ? old : value.get());
+		boolean[] computed = new boolean[1];
+		V result = theRoot.computeEx(type, old -> {
+			if (old != null)
+				return old;
+			computed[0] = true;
+			return value.get();
+		});
+		if (computed[0])
+			invalidate();
+		return result;
 	}
 
 	/**
@@ -507,15 +574,20 @@ public class ClassMap<V> {
 	 * @return The new value mapped to the class
 	 */
 	public synchronized V compute(Class<?> type, Function<? super V, ? extends V> value) {
-		return theRoot.compute(type, value);
+		try {
+			return theRoot.compute(type, value);
+		} finally {
+			invalidate();
+		}
 	}
 
 	/**
 	 * @param other Another subclass map whose values to put in this map
 	 * @return This ClassMap
 	 */
-	public ClassMap<V> putAll(ClassMap<? extends V> other) {
+	public synchronized ClassMap<V> putAll(ClassMap<? extends V> other) {
 		theRoot._putAll(other.theRoot);
+		invalidate();
 		return this;
 	}
 
@@ -529,8 +601,36 @@ public class ClassMap<V> {
 	}
 
 	/** Removes all values from this map */
-	public void clear() {
+	public synchronized void clear() {
 		theRoot.clear();
+		invalidate();
+	}
+
+	private Object getCached(Class<?> type, int query, TypeMatch match) {
+		ConcurrentHashMap<Class<?>, AtomicReferenceArray<Object>> cache = theQueryCache;
+		if (cache == null)
+			return null;
+		AtomicReferenceArray<Object> results = cache.get(type);
+		return results == null ? null : results.get(cacheIndex(query, match));
+	}
+
+	/** Called while holding this map's lock, so a result can never be cached after a modification that would change it */
+	private void cache(Class<?> type, int query, TypeMatch match, Object result) {
+		ConcurrentHashMap<Class<?>, AtomicReferenceArray<Object>> cache = theQueryCache;
+		if (cache == null)
+			theQueryCache = cache = new ConcurrentHashMap<>();
+		cache.computeIfAbsent(type, __ -> new AtomicReferenceArray<>(QUERY_TYPES * MATCH_SLOTS))//
+			.set(cacheIndex(query, match), result == null ? NO_RESULT : result);
+	}
+
+	private static int cacheIndex(int query, TypeMatch match) {
+		return query * MATCH_SLOTS + (match == null ? 0 : match.ordinal() + 1);
+	}
+
+	private void invalidate() {
+		ConcurrentHashMap<Class<?>, AtomicReferenceArray<Object>> cache = theQueryCache;
+		if (cache != null)
+			cache.clear();
 	}
 
 	/** @return An independent copy of this class map */
@@ -0,0 +1,413 @@
+package org.qommons;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.qommons.json.JsonObject;
+
+/**
+ * <p>
+ * A thread-safe statistic accumulator which collects count, mean, standard deviation, min, max and {@link QuantileSketch quantiles} in
+ * double precision with bounded memory.
+ * </p>
+ * <p>
+ * Unlike {@link RunningStatistic}, this class does not keep outliers or trend information. It is designed for recording from many threads
+ * at once (e.g. latency probes), so data are accumulated into a set of striped cells, each thread recording into the cell for its stripe.
+ * Cells are only merged together when a value is requested. For multiple values, it is more efficient to call {@link #snapshot()} and
+ * query that.
+ * </p>
+ */
+public class ConcurrentRunningStatistic {
+	private static final DecimalFormat PERCENT_FORMAT = new DecimalFormat("0.0");
+
+	private final int thePrecision;
+	private final int theMaxBuckets;
+	private final AtomicReferenceArray<Cell> theCells;
+	private final int theStripeMask;
+
+	/** Creates a statistic with default striping and {@link QuantileSketch#DEFAULT_PRECISION default} quantile precision */
+	public ConcurrentRunningStatistic() {
+		this(Runtime.getRuntime().availableProcessors() * 2, QuantileSketch.DEFAULT_PRECISION, QuantileSketch.DEFAULT_MAX_BUCKETS);
+	}
+
+	/**
+	 * @param stripes The number of cells to stripe values into. Will be rounded up to a power of 2.
+	 * @param precision The {@link QuantileSketch#getPrecision() precision} for the quantile sketch
+	 * @param maxBuckets The {@link QuantileSketch#getMaxBuckets() max buckets} for the quantile sketch
+	 */
+	public ConcurrentRunningStatistic(int stripes, int precision, int maxBuckets) {
+		if (stripes < 1)
+			throw new IllegalArgumentException("Stripes must be positive: " + stripes);
+		QuantileSketch.checkParameters(precision, maxBuckets);
+		int stripeCount = Integer.highestOneBit(stripes);
+		if (stripeCount < stripes)
+			stripeCount <<= 1;
+		thePrecision = precision;
+		theMaxBuckets = maxBuckets;
+		theCells = new AtomicReferenceArray<>(stripeCount);
+		theStripeMask = stripeCount - 1;
+	}
+
+	/**
+	 * Adds a datum to this statistic
+	 *
+	 * @param datum The datum to add
+	 */
+	public void add(double datum) {
+		getCell().add(datum);
+	}
+
+	private Cell getCell() {
+		long threadId = Thread.currentThread().getId();
+		int stripe = ((int) ((threadId * 0x9E3779B97F4A7C15L) >>> 32)) & theStripeMask;
+		Cell cell = theCells.get(stripe);
+		if (cell == null) {
+			cell = new Cell(new QuantileSketch(thePrecision, theMaxBuckets));
+			if (!theCells.compareAndSet(stripe, null, cell))
+				cell = theCells.get(stripe);
+		}
+		return cell;
+	}
+
+	/**
+	 * Merges another statistic's data into this one
+	 *
+	 * @param stat The statistic to merge into this one
+	 */
+	public void merge(ConcurrentRunningStatistic stat) {
+		Cell merged = stat.collect();
+		getCell().merge(merged);
+	}
+
+	/**
+	 * @return An independent statistic containing all the data collected by this statistic so far. Queries against the snapshot do not
+	 *         need to merge cells, so this is the most efficient way to get several values.
+	 */
+	public ConcurrentRunningStatistic snapshot() {
+		ConcurrentRunningStatistic ret = new ConcurrentRunningStatistic(1, thePrecision, theMaxBuckets);
+		ret.merge(this);
+		return ret;
+	}
+
+	private Cell collect() {
+		Cell first = null, merged = null;
+		for (int i = 0; i < theCells.length(); i++) {
+			Cell cell = theCells.get(i);
+			if (cell == null)
+				continue;
+			else if (first == null)
+				first = cell;
+			else {
+				if (merged == null) {
+					merged = new Cell(new QuantileSketch(thePrecision, theMaxBuckets));
+					merged.merge(first);
+				}
+				merged.merge(cell);
+			}
+		}
+		if (merged != null)
+			return merged;
+		else if (first != null) {
+			if (theCells.length() == 1)
+				return first; // Snapshots are not shared, so this is safe
+			merged = new Cell(new QuantileSketch(thePrecision, theMaxBuckets));
+			merged.merge(first);
+			return merged;
+		} else
+			return new Cell(new QuantileSketch(thePrecision, theMaxBuckets));
+	}
+
+	/** @return The total number of data points given to this statistic, including NaN and infinite values */
+	public long getCount() {
+		Cell cell = collect();
+		synchronized (cell) {
+			return cell.theCount + cell.theNaNCount + cell.thePosInfCount + cell.theNegInfCount;
+		}
+	}
+
+	/** @return The mean of the finite values in this statistic */
+	public double getMean() {
+		Cell cell = collect();
+		synchronized (cell) {
+			return cell.theCount == 0 ? Double.NaN : cell.theMean;
+		}
+	}
+
+	/** @return The sample variance of the finite values in this statistic */
+	public double getVariance() {
+		Cell cell = collect();
+		synchronized (cell) {
+			return cell.getVariance();
+		}
+	}
+
+	/** @return The sample standard deviation of the finite values in this statistic */
+	public double getSigma() {
+		return Math.sqrt(getVariance());
+	}
+
+	/** @return The minimum of the finite values in this statistic */
+	public double getMin() {
+		Cell cell = collect();
+		synchronized (cell) {
+			return cell.theCount == 0 ? Double.NaN : cell.theMin;
+		}
+	}
+
+	/** @return The maximum of the finite values in this statistic */
+	public double getMax() {
+		Cell cell = collect();
+		synchronized (cell) {
+			return cell.theCount == 0 ? Double.NaN : cell.theMax;
+		}
+	}
+
+	/** @return The number of data points that were {@link Double#NaN} */
+	public long getNaNCount() {
+		Cell cell = collect();
+		synchronized (cell) {
+			return cell.theNaNCount;
+		}
+	}
+
+	/** @return The number of data points that were {@link Double#POSITIVE_INFINITY} */
+	public long getPosInfCount() {
+		Cell cell = collect();
+		synchronized (cell) {
+			return cell.thePosInfCount;
+		}
+	}
+
+	/** @return The number of data points that were {@link Double#NEGATIVE_INFINITY} */
+	public long getNegInfCount() {
+		Cell cell = collect();
+		synchronized (cell) {
+			return cell.theNegInfCount;
+		}
+	}
+
+	/**
+	 * @param quantile The quantile to get, between 0 and 1 (e.g. 0.99 for the 99th percentile)
+	 * @return An estimate of the finite value at the given quantile in this statistic, or {@link Double#NaN} if no finite values have been
+	 *         added
+	 */
+	public double getQuantile(double quantile) {
+		Cell cell = collect();
+		synchronized (cell) {
+			return cell.getQuantile(quantile);
+		}
+	}
+
+	/** @return An estimate of the median of the finite values in this statistic */
+	public double getMedian() {
+		return getQuantile(0.5);
+	}
+
+	/** Clears this statistic so it can be used again */
+	public void clear() {
+		for (int i = 0; i < theCells.length(); i++) {
+			Cell cell = theCells.get(i);
+			if (cell != null)
+				cell.clear();
+		}
+	}
+
+	/**
+	 * @param format The format to print the values with
+	 * @return The representation of this statistic
+	 */
+	public String toString(NumberFormat format) {
+		Cell cell = collect();
+		synchronized (cell) {
+			StringBuilder ret = new StringBuilder();
+			if (cell.theCount == 0)
+				ret.append("no data");
+			else {
+				double sigma = Math.sqrt(cell.getVariance());
+				append(ret, cell.theMin, format).append("<<");
+				append(ret, cell.theMean - sigma, format).append("<mean(");
+				append(ret, cell.theMean, format).append(")<");
+				append(ret, cell.theMean + sigma, format).append("<<");
+				append(ret, cell.theMax, format);
+				append(ret.append(", p50="), cell.getQuantile(0.5), format);
+				append(ret.append(", p99="), cell.getQuantile(0.99), format);
+				append(ret.append(", p99.9="), cell.getQuantile(0.999), format);
+			}
+			if (cell.theNaNCount > 0)
+				ret.append(", ").append(cell.theNaNCount).append("NaN");
+			if (cell.theNegInfCount > 0 || cell.thePosInfCount > 0) {
+				long infCount = cell.theNegInfCount + cell.thePosInfCount;
+				long total = cell.theCount + cell.theNaNCount + infCount;
+				ret.append(", ").append(infCount).append('(').append(PERCENT_FORMAT.format(infCount * 100.0 / total)).append("%)Inf");
+			}
+			return ret.toString();
+		}
+	}
+
+	private static StringBuilder append(StringBuilder str, double value, NumberFormat format) {
+		if (format != null)
+			str.append(format.format(value));
+		else
+			str.append(value);
+		return str;
+	}
+
+	@Override
+	public String toString() {
+		return toString(new DecimalFormat("0.0"));
+	}
+
+	/**
+	 * Serializes this statistic to JSON
+	 *
+	 * @return A JSON representation of this statistic that may be deserialized with {@link #fromJson(JsonObject)}
+	 */
+	public JsonObject toJson() {
+		Cell cell = collect();
+		synchronized (cell) {
+			JsonObject ret = new JsonObject();
+			ret.with("count", Long.valueOf(cell.theCount));
+			if (cell.theCount > 0) {
+				ret.with("mean", Double.valueOf(cell.theMean));
+				ret.with("m2", Double.valueOf(cell.theM2));
+				ret.with("min", Double.valueOf(cell.theMin));
+				ret.with("max", Double.valueOf(cell.theMax));
+			}
+			ret.with("nanCount", Long.valueOf(cell.theNaNCount));
+			ret.with("negInfCount", Long.valueOf(cell.theNegInfCount));
+			ret.with("posInfCount", Long.valueOf(cell.thePosInfCount));
+			ret.with("sketch", cell.theSketch.toJson());
+			return ret;
+		}
+	}
+
+	/**
+	 * Deserializes a statistic from JSON
+	 *
+	 * @param json The JSON representation of a statistic generated with {@link #toJson()}
+	 * @return A statistic whose content is the same as the one that was serialized
+	 */
+	public static ConcurrentRunningStatistic fromJson(JsonObject json) {
+		QuantileSketch sketch = QuantileSketch.fromJson((JsonObject) json.get("sketch"));
+		Cell cell = new Cell(sketch);
+		cell.theCount = ((Number) json.get("count")).longValue();
+		if (cell.theCount > 0) {
+			cell.theMean = ((Number) json.get("mean")).doubleValue();
+			cell.theM2 = ((Number) json.get("m2")).doubleValue();
+			cell.theMin = ((Number) json.get("min")).doubleValue();
+			cell.theMax = ((Number) json.get("max")).doubleValue();
+		}
+		cell.theNaNCount = ((Number) json.get("nanCount")).longValue();
+		cell.theNegInfCount = ((Number) json.get("negInfCount")).longValue();
+		cell.thePosInfCount = ((Number) json.get("posInfCount")).longValue();
+		ConcurrentRunningStatistic ret = new ConcurrentRunningStatistic(Runtime.getRuntime().availableProcessors() * 2,
+			sketch.getPrecision(), sketch.getMaxBuckets());
+		ret.getCell().merge(cell);
+		return ret;
+	}
+
+	/** A single stripe of data in a {@link ConcurrentRunningStatistic}. All access must be synchronized on the cell. */
+	static class Cell {
+		final QuantileSketch theSketch;
+		long theCount;
+		double theMean;
+		double theM2;
+		double theMin = Double.POSITIVE_INFINITY;
+		double theMax = Double.NEGATIVE_INFINITY;
+		long theNaNCount;
+		long thePosInfCount;
+		long theNegInfCount;
+
+		Cell(QuantileSketch sketch) {
+			theSketch = sketch;
+		}
+
+		synchronized void add(double datum) {
+			if (Double.isNaN(datum))
+				theNaNCount++;
+			else if (datum == Double.POSITIVE_INFINITY)
+				thePosInfCount++;
+			else if (datum == Double.NEGATIVE_INFINITY)
+				theNegInfCount++;
+			else {
+				// Welford's algorithm
+				theCount++;
+				double delta = datum - theMean;
+				theMean += delta / theCount;
+				theM2 += delta * (datum - theMean);
+				if (datum < theMin)
+					theMin = datum;
+				if (datum > theMax)
+					theMax = datum;
+				theSketch.add(datum);
+			}
+		}
+
+		void merge(Cell other) {
+			if (other == this)
+				return;
+			long count;
+			double mean, m2, min, max;
+			long nan, posInf, negInf;
+			QuantileSketch sketch;
+			synchronized (other) {
+				count = other.theCount;
+				mean = other.theMean;
+				m2 = other.theM2;
+				min = other.theMin;
+				max = other.theMax;
+				nan = other.theNaNCount;
+				posInf = other.thePosInfCount;
+				negInf = other.theNegInfCount;
+				sketch = count == 0 ? null : other.theSketch.clone();
+			}
+			synchronized (this) {
+				theNaNCount += nan;
+				thePosInfCount += posInf;
+				theNegInfCount += negInf;
+				if (count == 0)
+					return;
+				// Chan et al.'s parallel variance algorithm
+				long newCount = theCount + count;
+				double delta = mean - theMean;
+				theMean += delta * count / newCount;
+				theM2 += m2 + delta * delta * ((double) theCount) * count / newCount;
+				theCount = newCount;
+				if (min < theMin)
+					theMin = min;
+				if (max > theMax)
+					theMax = max;
+				theSketch.merge(sketch);
+			}
+		}
+
+		double getVariance() {
+			if (theCount <= 1)
+				return Double.NaN;
+			return theM2 / (theCount - 1);
+		}
+
+		double getQuantile(double quantile) {
+			double value = theSketch.getQuantile(quantile);
+			// The sketch's representative values may lie slightly outside the actual range
+			if (value < theMin)
+				return theMin;
+			else if (value > theMax)
+				return theMax;
+			return value;
+		}
+
+		synchronized void clear() {
+			theCount = 0;
+			theMean = 0;
+			theM2 = 0;
+			theMin = Double.POSITIVE_INFINITY;
+			theMax = Double.NEGATIVE_INFINITY;
+			theNaNCount = 0;
+			thePosInfCount = 0;
+			theNegInfCount = 0;
+			theSketch.clear();
+		}
+	}
+}
@@ -176,6 +176,57 @@ public class ProgramTracker implements Cloneable {
 		return start(instance, routine);
 	}
 
+	/**
+	 * <p>
+	 * An identifier for a routine. When a routine is {@link ProgramTracker#start(RoutineId) started} with the same ID as the routine last
+	 * started in the same place (e.g. repeatedly in a loop), the tracker finds its node by identity, without hashing or comparing the name.
+	 * Otherwise the routine's node is looked up by name, as for {@link ProgramTracker#start(String)}.
+	 * </p>
+	 * <p>
+	 * IDs are not cached, so to be of benefit an ID should be created once (e.g. as a constant) and used for every execution of the routine.
+	 * </p>
+	 */
+	public static final class RoutineId {
+		private final String theName;
+
+		private RoutineId(String name) {
+			theName = name;
+		}
+
+		/** @return The name of the routine */
+		public String getName() {
+			return theName;
+		}
+
+		@Override
+		public String toString() {
+			return theName;
+		}
+
+		/**
+		 * @param name The name of the routine
+		 * @return A new ID for the routine with the given name
+		 */
+		public static RoutineId of(String name) {
+			return new RoutineId(Objects.requireNonNull(name, "Routine name may not be null"));
+		}
+	}
+
+	/**
+	 * A listener to be notified whenever a tracked routine ends. This may be used to forward routine executions to an external profiling
+	 * system, e.g. as JFR custom events.
+	 */
+	public interface RoutineListener {
+		/**
+		 * @param routine The routine that ended
+		 * @param startTime The time (millis since epoch) at which the routine started
+		 * @param length The length of the routine's execution, in milliseconds
+		 * @param lengthNanos The length of the routine's execution, in nanoseconds, or -1 if the tracker is not
+		 *        {@link ProgramTracker#isWithRTStats() recording run time statistics}
+		 */
+		void routineEnded(TrackNode routine, long startTime, long length, long lengthNanos);
+	}
+
 	/** A configuration class that allows the printing of results of a tracking session to be customized */
 	public static class PrintConfig implements Cloneable {
 		private float theDisplayThreshold;
@@ -332,6 +383,12 @@ public class ProgramTracker implements Cloneable {
 		/** The subroutines of this routine */
 		Map<String, TrackNode> children;
 
+		/** The child most recently started under this routine, to avoid a map lookup for repeated calls */
+		TrackNode lastChild;
+
+		/** The ID this routine was last started with, if any */
+		RoutineId routineId;
+
 		/**
 		 * The number of times that this routine was {@link ProgramTracker#start(String) start}ed but not explicitly
 		 * {@link ProgramTracker#start(String) end}ed
@@ -357,6 +414,8 @@ public class ProgramTracker implements Cloneable {
 			cpuLength = 0;
 			unfinished = 0;
 			isReleased = false;
+			lastChild = null;
+			routineId = null;
 			if(withStats) {
 				if(lengthStats != null)
 					lengthStats.clear();
@@ -451,6 +510,7 @@ public class ProgramTracker implements Cloneable {
 			if(lengthStats != null)
 				lengthStats.clear();
 			children.clear();
+			lastChild = null;
 		}
 
 		/**
@@ -514,7 +574,21 @@ public class ProgramTracker implements Cloneable {
 		 * @return The subtask with the given name
 		 */
 		public TrackNode create(String task) {
-			return children.computeIfAbsent(task, __->newNode(this, task));
+			TrackNode child = lastChild;
+			if (child == null || (child.name != task && !child.name.equals(task))) {
+				child = children.computeIfAbsent(task, __ -> newNode(this, task));
+				lastChild = child;
+			}
+			return child;
+		}
+
+		TrackNode create(RoutineId task) {
+			TrackNode child = lastChild;
+			if (child == null || child.routineId != task) {
+				child = create(task.getName());
+				child.routineId = task;
+			}
+			return child;
 		}
 
 		/**
@@ -553,6 +627,7 @@ public class ProgramTracker implements Cloneable {
 				endTime = node.endTime;
 			}
 			runLength += node.runLength;
+			runLengthNanos += node.runLengthNanos;
 			unfinished += node.unfinished;
 			if(lengthStats != null && node.lengthStats != null)
 				lengthStats.merge(node.lengthStats);
@@ -597,6 +672,7 @@ public class ProgramTracker implements Cloneable {
 			if(lengthStats != null)
 				ret.lengthStats = lengthStats.clone();
 			ret.parent = null;
+			ret.lastChild = null;
 			ret.children = new LinkedHashMap<>();
 			for(TrackNode child : children.values()) {
 				TrackNode childClone = child.clone();
@@ -750,6 +826,22 @@ public class ProgramTracker implements Cloneable {
 
 	private TrackNode INACTIVE = new TrackNode(null, "INACTIVE", false);
 
+	/** Returned for a top-level routine skipped by {@link #setSampleRate(int) sampling} */
+	private final TrackNode theSkippedRoot = new TrackNode(null, "SKIPPED", false);
+
+	/** Returned for routines started within a skipped top-level routine */
+	private final TrackNode theSkippedNode = new TrackNode(null, "SKIPPED", false);
+
+	private TrackNode theLastRoot;
+
+	private int theSampleRate;
+
+	private int theSampleCounter;
+
+	private int theSkipDepth;
+
+	private RoutineListener theListener;
+
 	/**
 	 * Creates a ProgramTracker
 	 *
@@ -771,6 +863,7 @@ public class ProgramTracker implements Cloneable {
 		theNodes = new LinkedHashMap<>();
 		isOn = true;
 		isWithRTStats = withStats;
+		theSampleRate = 1;
 	}
 
 	/** @return This tracker's name */
@@ -833,6 +926,40 @@ public class ProgramTracker implements Cloneable {
 		return this;
 	}
 
+	/** @return The rate at which top-level routines are tracked. 1 means all routines are tracked. */
+	public int getSampleRate() {
+		return theSampleRate;
+	}
+
+	/**
+	 * Puts this tracker in (or out of) a low-overhead sampling mode, in which only 1 in <code>sampleRate</code> executions of top-level
+	 * routines (and everything started within them) are tracked. The other executions cost only a counter increment.
+	 *
+	 * @param sampleRate The rate at which to track top-level routines. 1 to track all routines.
+	 * @return This tracker
+	 */
+	public ProgramTracker setSampleRate(int sampleRate) {
+		if (sampleRate < 1)
+			throw new IllegalArgumentException("Sample rate must be at least 1: " + sampleRate);
+		theSampleRate = sampleRate;
+		theSampleCounter = 0;
+		return this;
+	}
+
+	/** @return The listener notified whenever a tracked routine ends */
+	public RoutineListener getListener() {
+		return theListener;
+	}
+
+	/**
+	 * @param listener The listener to notify whenever a tracked routine ends
+	 * @return This tracker
+	 */
+	public ProgramTracker setListener(RoutineListener listener) {
+		theListener = listener;
+		return this;
+	}
+
 	TrackNode newNode(TrackNode aParent, String aName) {
 		TrackNode ret;
 		if(theCacheNodes.isEmpty())
@@ -870,6 +997,8 @@ public class ProgramTracker implements Cloneable {
 	 */
 	public ProgramTracker clear() {
 		theCurrentNode = null;
+		theLastRoot = null;
+		theSkipDepth = 0;
 		if(!theNodes.isEmpty()) {
 			for(TrackNode node : theNodes.values())
 				releaseNode(node);
@@ -885,6 +1014,20 @@ public class ProgramTracker implements Cloneable {
 	 * @return The routine being run. This will be passed to {@link #end(TrackNode)} when the routine is finished.
 	 */
 	public final TrackNode start(String routine) {
+		return start(routine, null);
+	}
+
+	/**
+	 * Notifies this tracker that a routine is beginning
+	 *
+	 * @param routine The ID of the routine that is beginning
+	 * @return The routine being run. This will be passed to {@link #end(TrackNode)} when the routine is finished.
+	 */
+	public final TrackNode start(RoutineId routine) {
+		return start(routine.getName(), routine);
+	}
+
+	private TrackNode start(String routine, RoutineId id) {
 		if(!isOn)
 			return INACTIVE;
 		/* This code may be quite expensive, since this method is used very often and the call to
@@ -897,9 +1040,29 @@ public class ProgramTracker implements Cloneable {
 		else if(theCurrentThread != ct)
 			throw new IllegalStateException("Program Trackers may not be used by multiple threads!");
 		 */
+		if (theSkipDepth > 0) {
+			theSkipDepth++;
+			return theSkippedNode;
+		}
 		TrackNode ret = null;
-		if(theCurrentNode == null)
-			ret=theNodes.computeIfAbsent(routine, __->newNode(null, routine));
+		if(theCurrentNode == null) {
+			if (theSampleRate > 1) {
+				if (++theSampleCounter < theSampleRate) {
+					theSkipDepth = 1;
+					return theSkippedRoot;
+				}
+				theSampleCounter = 0;
+			}
+			ret = theLastRoot;
+			if (ret == null
+				|| ((id == null || ret.routineId != id) && ret.name != routine && !ret.name.equals(routine))) {
+				ret = theNodes.computeIfAbsent(routine, __ -> newNode(null, routine));
+				theLastRoot = ret;
+			}
+			if (id != null)
+				ret.routineId = id;
+		} else if (id != null)
+			ret = theCurrentNode.create(id);
 		else
 			ret = theCurrentNode.create(routine);
 		ret.start();
@@ -915,6 +1078,15 @@ public class ProgramTracker implements Cloneable {
 	public final void end(TrackNode routine) {
 		if(!isOn || routine == null)
 			return;
+		else if (routine == theSkippedRoot) {
+			// Like tracked routines, ending the top-level routine ends any subroutines that were not ended
+			theSkipDepth = 0;
+			return;
+		} else if (routine == theSkippedNode) {
+			if (theSkipDepth > 1)
+				theSkipDepth--;
+			return;
+		}
 		/*
 		Thread ct = Thread.currentThread();
 		if(theCurrentThread != ct)
@@ -963,6 +1135,8 @@ public class ProgramTracker implements Cloneable {
 				theCurrentNode.runLengthNanos += nanoCost;
 			}
 			theCurrentNode.runLength += time - theCurrentNode.latestStartTime;
+			if (theListener != null)
+				theListener.routineEnded(theCurrentNode, theCurrentNode.latestStartTime, time - theCurrentNode.latestStartTime, nanoCost);
 			theCurrentNode.endTime = time;
 			theCurrentNode = theCurrentNode.parent;
 		}
@@ -1055,8 +1229,12 @@ public class ProgramTracker implements Cloneable {
 				sb.append("No profiling data for tracker " + theName);
 			return sb;
 		}
-		if(config.isWithIntro())
-			sb.append("Profiling data for tracker " + theName + ":");
+		if (config.isWithIntro()) {
+			sb.append("Profiling data for tracker " + theName);
+			if (theSampleRate > 1)
+				sb.append(" (sampled 1 in ").append(theSampleRate).append(')');
+			sb.append(':');
+		}
 		long totalTime = 0;
 		for (TrackNode node : theNodes.values()) {
 			totalTime += node.getRealLength();
@@ -1066,6 +1244,48 @@ public class ProgramTracker implements Cloneable {
 		return sb;
 	}
 
+	/**
+	 * <p>
+	 * Prints the data gathered by this tracker in the collapsed-stack format consumed by flame graph tools (e.g. Brendan Gregg's
+	 * <code>flamegraph.pl</code>).
+	 * </p>
+	 * <p>
+	 * Each line contains the semicolon-separated path of routine names from a top-level routine to a nested one, followed by a space and
+	 * the time spent in the routine exclusive of its subroutines, in microseconds. Nanosecond precision is used for routines that were
+	 * tracked {@link #isWithRTStats() with run time statistics}.
+	 * </p>
+	 *
+	 * @param sb The string builder to append the collapsed stacks to
+	 * @return The string builder passed in
+	 */
+	public final StringBuilder printCollapsedStacks(StringBuilder sb) {
+		StringBuilder path = new StringBuilder();
+		for (TrackNode node : theNodes.values())
+			printCollapsedStack(node, path, sb);
+		return sb;
+	}
+
+	private static void printCollapsedStack(TrackNode node, StringBuilder path, StringBuilder sb) {
+		int preLen = path.length();
+		if (preLen > 0)
+			path.append(';');
+		path.append(node.getName().replace(';', ':').replace('\n', ' '));
+		long localMicros = getMicros(node);
+		for (TrackNode child : node.children.values())
+			localMicros -= getMicros(child);
+		if (localMicros > 0)
+			sb.append(path).append(' ').append(localMicros).append('\n');
+		for (TrackNode child : node.children.values())
+			printCollapsedStack(child, path, sb);
+		path.setLength(preLen);
+	}
+
+	private static long getMicros(TrackNode node) {
+		if (node.runLengthNanos > 0)
+			return node.runLengthNanos / 1000;
+		return node.getRealLength() * 1000;
+	}
+
 	@Override
 	public ProgramTracker clone() {
 		ProgramTracker ret;
@@ -1077,6 +1297,8 @@ public class ProgramTracker implements Cloneable {
 		ret.theCacheNodes = new java.util.ArrayList<>();
 		ret.theNodes = new LinkedHashMap<>();
 		ret.theCurrentNode = null;
+		ret.theLastRoot = null;
+		ret.theSkipDepth = 0;
 		for(TrackNode node : theNodes.values()) {
 			TrackNode clone = node.clone();
 			ret.theNodes.put(node.getName(), clone);
@@ -0,0 +1,345 @@
+package org.qommons;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.qommons.json.JsonObject;
+
+/**
+ * <p>
+ * A mergeable sketch of a distribution of values which can estimate quantiles (e.g. median, 99th percentile) with a bounded relative error
+ * and bounded memory.
+ * </p>
+ * <p>
+ * Values are binned by their binary exponent and the top {@link #getPrecision() precision} bits of their mantissa, so that recording a
+ * value is just a bit shift and an array increment--no logarithms or divisions. Each bin spans a range of at most 2<sup>-precision</sup>
+ * times its lower bound, so quantiles reported by this sketch are within that relative error of a true sample value.
+ * </p>
+ * <p>
+ * When the range of values recorded would require more than {@link #getMaxBuckets() maxBuckets} bins, the bins with the smallest magnitude
+ * are collapsed together, degrading the accuracy of the lowest quantiles first.
+ * </p>
+ * <p>
+ * This class is NOT thread-safe. See {@link ConcurrentRunningStatistic} for a thread-safe accumulator which uses this class.
+ * </p>
+ */
+public class QuantileSketch implements Cloneable {
+	/** The default precision for sketches, giving a relative error of less than 1% */
+	public static final int DEFAULT_PRECISION = 7;
+	/** The default maximum number of buckets for the positive or negative values of a sketch */
+	public static final int DEFAULT_MAX_BUCKETS = 2048;
+
+	private final int thePrecision;
+	private final int theShift;
+	private final int theMaxBuckets;
+	private BucketStore thePositive;
+	private BucketStore theNegative;
+	private long theZeroCount;
+
+	/**
+	 * @param precision The precision for a sketch
+	 * @param maxBuckets The max buckets for a sketch
+	 * @throws IllegalArgumentException If a sketch cannot be created with the given parameters
+	 */
+	static void checkParameters(int precision, int maxBuckets) throws IllegalArgumentException {
+		if (precision < 1 || precision > 16)
+			throw new IllegalArgumentException("Precision must be between 1 and 16, not " + precision);
+		if (maxBuckets < 8)
+			throw new IllegalArgumentException("Max buckets too small: " + maxBuckets);
+	}
+
+	/** Creates a sketch with the {@link #DEFAULT_PRECISION default precision} and {@link #DEFAULT_MAX_BUCKETS default max buckets} */
+	public QuantileSketch() {
+		this(DEFAULT_PRECISION, DEFAULT_MAX_BUCKETS);
+	}
+
+	/**
+	 * @param precision The number of mantissa bits to use to distinguish values. Must be between 1 and 16.
+	 * @param maxBuckets The maximum number of buckets to keep for positive or negative values. Must be at least 8.
+	 */
+	public QuantileSketch(int precision, int maxBuckets) {
+		checkParameters(precision, maxBuckets);
+		thePrecision = precision;
+		theShift = 52 - precision;
+		theMaxBuckets = maxBuckets;
+		thePositive = new BucketStore();
+		theNegative = new BucketStore();
+	}
+
+	/** @return The number of mantissa bits this sketch uses to distinguish values */
+	public int getPrecision() {
+		return thePrecision;
+	}
+
+	/** @return The maximum number of buckets this sketch keeps for positive or negative values */
+	public int getMaxBuckets() {
+		return theMaxBuckets;
+	}
+
+	/** @return The maximum relative error of quantiles reported by this sketch (unless buckets have been collapsed) */
+	public double getRelativeError() {
+		return 1.0 / (1 << thePrecision);
+	}
+
+	/** @return The number of values recorded in this sketch */
+	public long getCount() {
+		return thePositive.total + theNegative.total + theZeroCount;
+	}
+
+	/**
+	 * @param value The value to record
+	 * @return This sketch
+	 * @throws IllegalArgumentException If the value is NaN or infinite
+	 */
+	public QuantileSketch add(double value) throws IllegalArgumentException {
+		return add(value, 1);
+	}
+
+	/**
+	 * @param value The value to record
+	 * @param count The number of times to record the value
+	 * @return This sketch
+	 * @throws IllegalArgumentException If the value is NaN or infinite
+	 */
+	public QuantileSketch add(double value, long count) throws IllegalArgumentException {
+		if (count <= 0)
+			return this;
+		else if (value > 0) {
+			if (value == Double.POSITIVE_INFINITY)
+				throw new IllegalArgumentException("Infinite values cannot be recorded");
+			thePositive.add(indexOf(value), count, theMaxBuckets);
+		} else if (value < 0) {
+			if (value == Double.NEGATIVE_INFINITY)
+				throw new IllegalArgumentException("Infinite values cannot be recorded");
+			theNegative.add(indexOf(-value), count, theMaxBuckets);
+		} else if (value == 0)
+			theZeroCount += count;
+		else
+			throw new IllegalArgumentException("NaN cannot be recorded");
+		return this;
+	}
+
+	private int indexOf(double magnitude) {
+		// For positive doubles, the raw bits are monotonic with the value
+		return (int) (Double.doubleToRawLongBits(magnitude) >>> theShift);
+	}
+
+	private double valueOf(int index) {
+		double low = Double.longBitsToDouble(((long) index) << theShift);
+		double high = Double.longBitsToDouble(((long) index + 1) << theShift);
+		return (low + high) / 2;
+	}
+
+	/**
+	 * @param quantile The quantile to get, between 0 and 1 (e.g. 0.5 for the median or 0.99 for the 99th percentile)
+	 * @return An estimate of the value at the given quantile in this sketch's distribution, or {@link Double#NaN} if this sketch is empty
+	 */
+	public double getQuantile(double quantile) {
+		if (!(quantile >= 0 && quantile <= 1))
+			throw new IllegalArgumentException("Quantile must be between 0 and 1, not " + quantile);
+		long count = getCount();
+		if (count == 0)
+			return Double.NaN;
+		long rank = (long) (quantile * (count - 1));
+		if (rank < theNegative.total) {
+			// Negative values are stored by magnitude, so the most negative values are at the top of the store
+			long cumulative = 0;
+			for (int i = theNegative.max; i >= theNegative.min; i--) {
+				cumulative += theNegative.counts[i - theNegative.offset];
+				if (cumulative > rank)
+					return -valueOf(i);
+			}
+		}
+		rank -= theNegative.total;
+		if (rank < theZeroCount)
+			return 0;
+		rank -= theZeroCount;
+		long cumulative = 0;
+		for (int i = thePositive.min; i <= thePositive.max; i++) {
+			cumulative += thePositive.counts[i - thePositive.offset];
+			if (cumulative > rank)
+				return valueOf(i);
+		}
+		return valueOf(thePositive.max); // Shouldn't get here
+	}
+
+	/**
+	 * Adds all the values recorded in another sketch into this one
+	 *
+	 * @param other The sketch to merge into this one
+	 * @return This sketch
+	 * @throws IllegalArgumentException If the other sketch's precision does not match this sketch's
+	 */
+	public QuantileSketch merge(QuantileSketch other) throws IllegalArgumentException {
+		if (other.thePrecision != thePrecision)
+			throw new IllegalArgumentException("Cannot merge sketches of different precision: " + thePrecision + " and " + other.thePrecision);
+		theZeroCount += other.theZeroCount;
+		thePositive.addAll(other.thePositive, theMaxBuckets);
+		theNegative.addAll(other.theNegative, theMaxBuckets);
+		return this;
+	}
+
+	/** Removes all values from this sketch */
+	public void clear() {
+		thePositive.clear();
+		theNegative.clear();
+		theZeroCount = 0;
+	}
+
+	@Override
+	public QuantileSketch clone() {
+		QuantileSketch ret;
+		try {
+			ret = (QuantileSketch) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException("Clone not supported", e);
+		}
+		ret.thePositive = thePositive.clone();
+		ret.theNegative = theNegative.clone();
+		return ret;
+	}
+
+	/**
+	 * Serializes this sketch to JSON
+	 *
+	 * @return A JSON representation of this sketch that may be deserialized with {@link #fromJson(JsonObject)}
+	 */
+	public JsonObject toJson() {
+		JsonObject ret = new JsonObject();
+		ret.with("precision", Integer.valueOf(thePrecision));
+		ret.with("maxBuckets", Integer.valueOf(theMaxBuckets));
+		ret.with("zeroCount", Long.valueOf(theZeroCount));
+		ret.with("positive", thePositive.toJson());
+		ret.with("negative", theNegative.toJson());
+		return ret;
+	}
+
+	/**
+	 * Deserializes a sketch from JSON
+	 *
+	 * @param json The JSON representation of a sketch generated with {@link #toJson()}
+	 * @return A sketch whose content is the same as the one that was serialized
+	 */
+	public static QuantileSketch fromJson(JsonObject json) {
+		QuantileSketch ret = new QuantileSketch(((Number) json.get("precision")).intValue(), ((Number) json.get("maxBuckets")).intValue());
+		ret.theZeroCount = ((Number) json.get("zeroCount")).longValue();
+		ret.thePositive.fromJson((JsonObject) json.get("positive"), ret.theMaxBuckets);
+		ret.theNegative.fromJson((JsonObject) json.get("negative"), ret.theMaxBuckets);
+		return ret;
+	}
+
+	@Override
+	public String toString() {
+		long count = getCount();
+		if (count == 0)
+			return "empty";
+		return new StringBuilder().append(count).append(" values, p50=").append(getQuantile(0.5))//
+			.append(", p99=").append(getQuantile(0.99)).toString();
+	}
+
+	/** A contiguous, growable array of counts for a range of bucket indexes */
+	static class BucketStore implements Cloneable {
+		long[] counts;
+		int offset;
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		long total;
+
+		void add(int index, long count, int maxBuckets) {
+			int newMin = Math.min(min, index);
+			int newMax = Math.max(max, index);
+			if (newMax - newMin >= maxBuckets) {
+				// Collapse the lowest buckets into one
+				int floor = newMax - maxBuckets + 1;
+				if (index < floor)
+					index = floor;
+				long collapsed = 0;
+				if (total > 0) {
+					for (int i = min; i < floor && i <= max; i++) {
+						collapsed += counts[i - offset];
+						counts[i - offset] = 0;
+					}
+				}
+				if (collapsed > 0) {
+					ensureRange(floor, newMax);
+					counts[floor - offset] += collapsed;
+				}
+				newMin = floor;
+			}
+			ensureRange(newMin, newMax);
+			counts[index - offset] += count;
+			min = newMin;
+			max = newMax;
+			total += count;
+		}
+
+		void addAll(BucketStore other, int maxBuckets) {
+			for (int i = other.min; i <= other.max; i++) {
+				long count = other.counts[i - other.offset];
+				if (count > 0)
+					add(i, count, maxBuckets);
+			}
+		}
+
+		private void ensureRange(int low, int high) {
+			if (counts != null && low >= offset && high < offset + counts.length)
+				return;
+			int span = high - low + 1;
+			int length = Math.max(64, Integer.highestOneBit(span) << 1);
+			long[] newCounts = new long[length];
+			int newOffset = low - (length - span) / 2;
+			if (counts != null) {
+				int copyStart = Math.max(offset, newOffset);
+				int copyEnd = Math.min(offset + counts.length, newOffset + length);
+				if (copyEnd > copyStart)
+					System.arraycopy(counts, copyStart - offset, newCounts, copyStart - newOffset, copyEnd - copyStart);
+			}
+			counts = newCounts;
+			offset = newOffset;
+		}
+
+		void clear() {
+			if (counts != null)
+				java.util.Arrays.fill(counts, 0);
+			min = Integer.MAX_VALUE;
+			max = Integer.MIN_VALUE;
+			total = 0;
+		}
+
+		@Override
+		protected BucketStore clone() {
+			BucketStore ret;
+			try {
+				ret = (BucketStore) super.clone();
+			} catch (CloneNotSupportedException e) {
+				throw new IllegalStateException("Clone not supported", e);
+			}
+			if (counts != null)
+				ret.counts = counts.clone();
+			return ret;
+		}
+
+		JsonObject toJson() {
+			JsonObject ret = new JsonObject();
+			List<Object> jsonCounts = new ArrayList<>(total == 0 ? 0 : max - min + 1);
+			if (total > 0) {
+				ret.with("min", Integer.valueOf(min));
+				for (int i = min; i <= max; i++)
+					jsonCounts.add(Long.valueOf(counts[i - offset]));
+			}
+			ret.with("counts", jsonCounts);
+			return ret;
+		}
+
+		void fromJson(JsonObject json, int maxBuckets) {
+			List<Number> jsonCounts = (List<Number>) json.get("counts");
+			if (jsonCounts.isEmpty())
+				return;
+			int index = ((Number) json.get("min")).intValue();
+			for (Number count : jsonCounts) {
+				add(index, count.longValue(), maxBuckets);
+				index++;
+			}
+		}
+	}
+}
@@ -2838,7 +2838,7 @@ public class TimeUtils {
 		Set<String> tzIds = new TreeSet<>();
 		tzIds.add("Z");
 		tzIds.addAll(Arrays.asList(TimeZone.getAvailableIDs()));
-		TIME_ZONES = QuickSet.of(String::compareToIgnoreCase, tzIds).createMap();
+		TIME_ZONES = QuickSet.of(String::compareToIgnoreCase, tzIds).withPerfectHash(StringUtils::hashCodeIgnoreCase).createMap();
 	}
 
 	private static final String[] DAYS = new String[] { "Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday" };
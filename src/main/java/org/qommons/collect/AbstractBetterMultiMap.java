@@ -143,6 +143,46 @@ public abstract class AbstractBetterMultiMap<K, V> implements BetterMultiMap<K,
 		}
 	};
 
+	/**
+	 * A {@link ValueCollectionSupplier} that creates {@link CompactBetterList}s for each key with the
+	 * {@link CompactBetterList#DEFAULT_THRESHOLD default threshold}
+	 */
+	public static final ValueListSupplier<Object, Object> COMPACT_LIST_SUPPLIER = compactListSupplier(CompactBetterList.DEFAULT_THRESHOLD);
+
+	/**
+	 * For multi-maps where most keys have very few values, a compact supplier uses much less memory per key than the default
+	 * {@link #LIST_SUPPLIER}, which creates a full tree-based list for each key.
+	 * 
+	 * @param threshold The number of values past which a key's values will be stored in a tree instead of inline in an array
+	 * @return A supplier that creates {@link CompactBetterList}s for each key
+	 */
+	public static ValueListSupplier<Object, Object> compactListSupplier(int threshold) {
+		if (threshold < 1)
+			throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+		return new ValueListSupplier<Object, Object>() {
+			@Override
+			public <V2> BetterList<V2> createValuesFor(Object key, CollectionLockingStrategy locking,
+				Iterable<? extends V2> initialValues) {
+				return new CompactBetterList<>(locking, threshold, initialValues);
+			}
+
+			@Override
+			public <V2> BetterList<V2> createEmptyValues() {
+				return BetterList.empty();
+			}
+
+			@Override
+			public <V2 extends Object> BetterList<V2> createWrapperCollection(ValueCollectionBacking<V2> backing) {
+				return new WrappingBetterList<>(backing);
+			}
+
+			@Override
+			public String toString() {
+				return "compact(" + threshold + ")";
+			}
+		};
+	}
+
 	/**
 	 * @param <V> The super-type of value the supplier will support
 	 * @param sorting The sorting for the values
@@ -261,6 +301,29 @@ public abstract class AbstractBetterMultiMap<K, V> implements BetterMultiMap<K,
 			return (B) this;
 		}
 
+		/**
+		 * Specifies that the multi-map should store the values for each key compactly, which saves memory when most keys have few values
+		 * 
+		 * @return This builder
+		 * @see AbstractBetterMultiMap#COMPACT_LIST_SUPPLIER
+		 */
+		public B withCompactValues() {
+			theValues = COMPACT_LIST_SUPPLIER;
+			return (B) this;
+		}
+
+		/**
+		 * Specifies that the multi-map should store the values for each key compactly, which saves memory when most keys have few values
+		 * 
+		 * @param threshold The number of values past which a key's values will be stored in a tree instead of inline in an array
+		 * @return This builder
+		 * @see AbstractBetterMultiMap#compactListSupplier(int)
+		 */
+		public B withCompactValues(int threshold) {
+			theValues = compactListSupplier(threshold);
+			return (B) this;
+		}
+
 		/**
 		 * @param values The value supplier for the multi-map
 		 * @return This builder
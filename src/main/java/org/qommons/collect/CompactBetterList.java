@@ -0,0 +1,489 @@
+package org.qommons.collect;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import org.qommons.Identifiable;
+import org.qommons.Lockable.CoreId;
+import org.qommons.ThreadConstraint;
+import org.qommons.Transaction;
+import org.qommons.collect.MutableCollectionElement.StdMsg;
+import org.qommons.tree.BetterTreeList;
+
+/**
+ * <p>
+ * A {@link BetterList} optimized for memory use when it holds very few values, as is typical of the value collections in a
+ * {@link BetterMultiMap}.
+ * </p>
+ * <p>
+ * Up to a {@link #getThreshold() threshold} number of values, elements are stored inline in a small array, and insertions and removals
+ * shift the array. When the list grows past the threshold, its elements are moved into a {@link BetterTreeList}, which is used until the
+ * list is {@link #clear() cleared}. Element IDs remain valid across the transition.
+ * </p>
+ *
+ * @param <E> The type of values in the list
+ */
+public class CompactBetterList<E> implements BetterList<E> {
+	/** The default size past which a compact list's values are moved into a tree */
+	public static final int DEFAULT_THRESHOLD = 8;
+
+	private final CollectionLockingStrategy theLocking;
+	private final int theThreshold;
+	private Object theIdentity;
+	private Node[] theNodes;
+	private int theSize;
+	private BetterTreeList<Node> theTree;
+
+	/**
+	 * @param locking The locking strategy for the list
+	 * @param threshold The size past which the list's values will be stored in a tree
+	 * @param initialValues The initial values for the list (may be null)
+	 */
+	public CompactBetterList(CollectionLockingStrategy locking, int threshold, Iterable<? extends E> initialValues) {
+		if (threshold < 1)
+			throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+		theLocking = locking;
+		theThreshold = threshold;
+		if (initialValues != null) {
+			for (E value : initialValues)
+				addElement(value, false);
+		}
+	}
+
+	/** @return The size past which this list's values are stored in a tree instead of inline */
+	public int getThreshold() {
+		return theThreshold;
+	}
+
+	/** @return Whether this list's values are currently stored inline, as opposed to in a tree */
+	public boolean isCompact() {
+		return theTree == null;
+	}
+
+	@Override
+	public Object getIdentity() {
+		if (theIdentity == null)
+			theIdentity = Identifiable.baseId("compact-list", this);
+		return theIdentity;
+	}
+
+	@Override
+	public ThreadConstraint getThreadConstraint() {
+		return theLocking.getThreadConstraint();
+	}
+
+	@Override
+	public boolean isLockSupported() {
+		return theLocking.isLockSupported();
+	}
+
+	@Override
+	public Transaction lock(boolean write, Object cause) {
+		return theLocking.lock(write, cause);
+	}
+
+	@Override
+	public Transaction tryLock(boolean write, Object cause) {
+		return theLocking.tryLock(write, cause);
+	}
+
+	@Override
+	public CoreId getCoreId() {
+		return theLocking.getCoreId();
+	}
+
+	@Override
+	public long getStamp() {
+		return theLocking.getStamp();
+	}
+
+	@Override
+	public boolean belongs(Object o) {
+		return true;
+	}
+
+	@Override
+	public boolean isContentControlled() {
+		return false;
+	}
+
+	@Override
+	public int size() {
+		BetterTreeList<Node> tree = theTree;
+		return tree == null ? theSize : tree.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public int getElementsBefore(ElementId id) {
+		Node node = checkNode(id);
+		if (theTree != null)
+			return theTree.getElementsBefore(node.theTreeId);
+		return node.theIndex;
+	}
+
+	@Override
+	public int getElementsAfter(ElementId id) {
+		Node node = checkNode(id);
+		if (theTree != null)
+			return theTree.getElementsAfter(node.theTreeId);
+		return theSize - node.theIndex - 1;
+	}
+
+	@Override
+	public CollectionElement<E> getElement(int index) throws IndexOutOfBoundsException {
+		if (theTree != null)
+			return theTree.get(index).element();
+		if (index < 0 || index >= theSize)
+			throw new IndexOutOfBoundsException(index + " of " + theSize);
+		return theNodes[index].element();
+	}
+
+	@Override
+	public CollectionElement<E> getElement(E value, boolean first) {
+		try (Transaction t = lock(false, null)) {
+			if (theTree != null) {
+				CollectionElement<Node> el = theTree.getTerminalElement(first);
+				while (el != null && !Objects.equals(el.get().theValue, value))
+					el = theTree.getAdjacentElement(el.getElementId(), first);
+				return el == null ? null : el.get().element();
+			}
+			if (first) {
+				for (int i = 0; i < theSize; i++) {
+					if (Objects.equals(theNodes[i].theValue, value))
+						return theNodes[i].element();
+				}
+			} else {
+				for (int i = theSize - 1; i >= 0; i--) {
+					if (Objects.equals(theNodes[i].theValue, value))
+						return theNodes[i].element();
+				}
+			}
+			return null;
+		}
+	}
+
+	@Override
+	public CollectionElement<E> getElement(ElementId id) {
+		return checkNode(id).element();
+	}
+
+	@Override
+	public CollectionElement<E> getTerminalElement(boolean first) {
+		if (theTree != null) {
+			Node node = CollectionElement.get(theTree.getTerminalElement(first));
+			return node == null ? null : node.element();
+		}
+		if (theSize == 0)
+			return null;
+		return theNodes[first ? 0 : theSize - 1].element();
+	}
+
+	@Override
+	public CollectionElement<E> getAdjacentElement(ElementId elementId, boolean next) {
+		Node node = checkNode(elementId, false);
+		if (theTree != null) {
+			if (node.theTreeId == null)
+				throw new IllegalStateException(StdMsg.ELEMENT_REMOVED);
+			Node adj = CollectionElement.get(theTree.getAdjacentElement(node.theTreeId, next));
+			return adj == null ? null : adj.element();
+		}
+		int index;
+		if (node.isRemoved) // The element's index is where it was, now occupied by the element that was after it
+			index = next ? node.theIndex : node.theIndex - 1;
+		else
+			index = node.theIndex + (next ? 1 : -1);
+		if (index < 0 || index >= theSize)
+			return null;
+		return theNodes[index].element();
+	}
+
+	@Override
+	public MutableCollectionElement<E> mutableElement(ElementId id) {
+		Node node = checkNode(id);
+		return new MutableCollectionElement<E>() {
+			@Override
+			public BetterCollection<E> getCollection() {
+				return CompactBetterList.this;
+			}
+
+			@Override
+			public ElementId getElementId() {
+				return node;
+			}
+
+			@Override
+			public E get() {
+				return node.theValue;
+			}
+
+			@Override
+			public String isEnabled() {
+				return null;
+			}
+
+			@Override
+			public String isAcceptable(E value) {
+				return null;
+			}
+
+			@Override
+			public void set(E value) throws UnsupportedOperationException, IllegalArgumentException {
+				try (Transaction t = lock(true, null)) {
+					if (!node.isPresent())
+						throw new IllegalStateException(StdMsg.ELEMENT_REMOVED);
+					node.theValue = value;
+					theLocking.modified();
+				}
+			}
+
+			@Override
+			public String canRemove() {
+				return null;
+			}
+
+			@Override
+			public void remove() throws UnsupportedOperationException {
+				try (Transaction t = lock(true, null)) {
+					if (!node.isPresent())
+						throw new IllegalStateException(StdMsg.ELEMENT_REMOVED);
+					removeNode(node);
+				}
+			}
+
+			@Override
+			public String toString() {
+				return node.toString();
+			}
+		};
+	}
+
+	@Override
+	public BetterList<CollectionElement<E>> getElementsBySource(ElementId sourceEl, BetterCollection<?> sourceCollection) {
+		if (sourceCollection == this)
+			return BetterList.of(getElement(sourceEl));
+		return BetterList.empty();
+	}
+
+	@Override
+	public BetterList<ElementId> getSourceElements(ElementId localElement, BetterCollection<?> sourceCollection) {
+		if (sourceCollection == this)
+			return BetterList.of(checkNode(localElement));
+		return BetterList.empty();
+	}
+
+	@Override
+	public ElementId getEquivalentElement(ElementId equivalentEl) {
+		if (!(equivalentEl instanceof CompactBetterList.Node) || ((Node) equivalentEl).getList() != this)
+			return null;
+		return equivalentEl;
+	}
+
+	@Override
+	public String canAdd(E value, ElementId after, ElementId before) {
+		return null;
+	}
+
+	@Override
+	public CollectionElement<E> addElement(E value, ElementId after, ElementId before, boolean first)
+		throws UnsupportedOperationException, IllegalArgumentException {
+		try (Transaction t = lock(true, null)) {
+			Node afterNode = after == null ? null : checkNode(after);
+			Node beforeNode = before == null ? null : checkNode(before);
+			if (theTree == null && theSize == theThreshold)
+				upgrade();
+			Node node = new Node(value);
+			if (theTree != null)
+				node.theTreeId = theTree.addElement(node, //
+					afterNode == null ? null : afterNode.theTreeId, beforeNode == null ? null : beforeNode.theTreeId, first).getElementId();
+			else {
+				int low = afterNode == null ? 0 : afterNode.theIndex + 1;
+				int high = beforeNode == null ? theSize : beforeNode.theIndex;
+				if (low > high)
+					throw new IllegalArgumentException(after + " is after " + before);
+				insert(node, first ? low : high);
+			}
+			theLocking.modified();
+			return node.element();
+		}
+	}
+
+	@Override
+	public String canMove(ElementId valueEl, ElementId after, ElementId before) {
+		return null;
+	}
+
+	@Override
+	public CollectionElement<E> move(ElementId valueEl, ElementId after, ElementId before, boolean first, Runnable afterRemove)
+		throws UnsupportedOperationException, IllegalArgumentException {
+		try (Transaction t = lock(true, null)) {
+			if (first) {
+				if (valueEl.equals(after) || Objects.equals(CollectionElement.getElementId(getAdjacentElement(valueEl, false)), after))
+					return getElement(valueEl);
+			} else {
+				if (valueEl.equals(before) || Objects.equals(CollectionElement.getElementId(getAdjacentElement(valueEl, true)), before))
+					return getElement(valueEl);
+			}
+			Node node = checkNode(valueEl);
+			removeNode(node);
+			if (afterRemove != null)
+				afterRemove.run();
+			return addElement(node.theValue, after, before, first);
+		}
+	}
+
+	@Override
+	public void clear() {
+		try (Transaction t = lock(true, null)) {
+			if (theTree != null) {
+				theTree.clear(); // Marks all the nodes' tree IDs as removed
+				theTree = null;
+				theNodes = null;
+			} else if (theSize > 0) {
+				for (int i = 0; i < theSize; i++) {
+					theNodes[i].isRemoved = true;
+					theNodes[i] = null;
+				}
+				theSize = 0;
+			} else
+				return;
+			theLocking.modified();
+		}
+	}
+
+	private Node checkNode(ElementId id) {
+		return checkNode(id, true);
+	}
+
+	private Node checkNode(ElementId id, boolean requirePresent) {
+		if (!(id instanceof CompactBetterList.Node) || ((Node) id).getList() != this)
+			throw new NoSuchElementException("Element " + id + " does not belong to this list");
+		Node node = (Node) id;
+		if (requirePresent && !node.isPresent())
+			throw new IllegalStateException(StdMsg.ELEMENT_REMOVED);
+		return node;
+	}
+
+	private void insert(Node node, int index) {
+		if (theNodes == null)
+			theNodes = newArray(2);
+		else if (theSize == theNodes.length)
+			theNodes = Arrays.copyOf(theNodes, Math.min(theThreshold, theSize * 2));
+		if (index < theSize) {
+			System.arraycopy(theNodes, index, theNodes, index + 1, theSize - index);
+			for (int i = index + 1; i <= theSize; i++)
+				theNodes[i].theIndex = i;
+		}
+		theNodes[index] = node;
+		node.theIndex = index;
+		theSize++;
+	}
+
+	private void removeNode(Node node) {
+		if (theTree != null)
+			theTree.mutableElement(node.theTreeId).remove();
+		else {
+			int index = node.theIndex;
+			theSize--;
+			if (index < theSize) {
+				System.arraycopy(theNodes, index + 1, theNodes, index, theSize - index);
+				for (int i = index; i < theSize; i++)
+					theNodes[i].theIndex = i;
+			}
+			theNodes[theSize] = null;
+			node.isRemoved = true;
+		}
+		theLocking.modified();
+	}
+
+	private void upgrade() {
+		BetterTreeList<Node> tree = BetterTreeList.<Node> build().withLocking(theLocking).build();
+		for (int i = 0; i < theSize; i++)
+			theNodes[i].theTreeId = tree.addElement(theNodes[i], false).getElementId();
+		theTree = tree;
+		theNodes = null;
+		theSize = 0;
+	}
+
+	private Node[] newArray(int length) {
+		return new CompactBetterList.Node[length];
+	}
+
+	@Override
+	public int hashCode() {
+		return BetterCollection.hashCode(this);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return BetterCollection.equals(this, obj);
+	}
+
+	@Override
+	public String toString() {
+		return BetterCollection.toString(this);
+	}
+
+	/** The ID of an element in a {@link CompactBetterList}, which also stores the value */
+	class Node implements ElementId {
+		E theValue;
+		/** The index of this node in the inline array (or where it was, if removed). Not used when the list is a tree. */
+		int theIndex;
+		boolean isRemoved;
+		/** The ID of this node in the list's tree, if the list has been upgraded */
+		ElementId theTreeId;
+
+		Node(E value) {
+			theValue = value;
+		}
+
+		CompactBetterList<E> getList() {
+			return CompactBetterList.this;
+		}
+
+		CollectionElement<E> element() {
+			return new CollectionElement<E>() {
+				@Override
+				public ElementId getElementId() {
+					return Node.this;
+				}
+
+				@Override
+				public E get() {
+					return theValue;
+				}
+
+				@Override
+				public String toString() {
+					return String.valueOf(theValue);
+				}
+			};
+		}
+
+		@Override
+		public boolean isPresent() {
+			if (theTreeId != null)
+				return theTreeId.isPresent();
+			return !isRemoved;
+		}
+
+		@Override
+		public int compareTo(ElementId o) {
+			Node other = (Node) o;
+			if (theTreeId != null && other.theTreeId != null)
+				return theTreeId.compareTo(other.theTreeId);
+			// A removed element is ordered just before the element that took its place
+			return Integer.compare(theIndex * 2 - (isRemoved ? 1 : 0), other.theIndex * 2 - (other.isRemoved ? 1 : 0));
+		}
+
+		@Override
+		public String toString() {
+			return String.valueOf(theValue);
+		}
+	}
+}
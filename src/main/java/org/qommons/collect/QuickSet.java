@@ -18,6 +18,7 @@ import java.util.Spliterators;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Function;
 import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -31,6 +32,11 @@ import org.qommons.ArrayUtils;
  * <p>
  * In addition, instances of QuickSet and QuickMap are thread safe without locking because QuickSet is immutable.
  * </p>
+ * <p>
+ * For sets of keys that are known up front and looked up many times, {@link #withPerfectHash()} creates a copy of the set with a minimal
+ * perfect hash over its keys, so that {@link #indexOf(Object) indexOf} (and hence {@link QuickMap#get(Object) QuickMap.get}) costs one
+ * hash and one equality check instead of a binary search. The sorted order is retained for iteration and indexes.
+ * </p>
  * 
  * @param <E> The type of value in the set
  */
@@ -113,6 +119,7 @@ public final class QuickSet<E> extends AbstractSet<E> implements Comparable<Quic
 	final Comparator<? super E> compare;
 	final Object[] theKeys;
 	private final boolean small;
+	private final PerfectHash<E> thePerfectHash;
 	private boolean hashed;
 	private int hashCode;
 	private ConcurrentLinkedQueue<QuickMapImpl<?, ?>> theMapCache;
@@ -126,6 +133,7 @@ public final class QuickSet<E> extends AbstractSet<E> implements Comparable<Quic
 		theKeys = keys.clone();
 		Arrays.sort(theKeys, (o1, o2) -> compare.compare((E) o1, (E) o2));
 		small = keys.length <= 10;
+		thePerfectHash = null;
 	}
 
 	/**
@@ -137,6 +145,47 @@ public final class QuickSet<E> extends AbstractSet<E> implements Comparable<Quic
 		theKeys = keys.toArray();
 		Arrays.sort(theKeys, (o1, o2) -> compare.compare((E) o1, (E) o2));
 		small = theKeys.length <= 10;
+		thePerfectHash = null;
+	}
+
+	private QuickSet(QuickSet<E> source, PerfectHash<E> perfectHash) {
+		compare = source.compare;
+		theKeys = source.theKeys;
+		small = source.small;
+		thePerfectHash = perfectHash;
+	}
+
+	/**
+	 * Creates a copy of this set with a minimal perfect hash over its keys, so that {@link #indexOf(Object)} runs in constant time. The
+	 * key type's {@link Object#hashCode() hashCode} and {@link Object#equals(Object) equals} methods must be consistent with this set's
+	 * comparator. Keys that are equivalent by the comparator but not equal will still be found, just not as quickly.
+	 * 
+	 * @return A set with the same content as this set, but with constant-time lookups. If a perfect hash could not be created (e.g. if
+	 *         two keys have the same hash code), this set is returned.
+	 */
+	public QuickSet<E> withPerfectHash() {
+		return withPerfectHash(null);
+	}
+
+	/**
+	 * Creates a copy of this set with a minimal perfect hash over its keys, so that {@link #indexOf(Object)} runs in constant time.
+	 * 
+	 * @param hasher The hash function for keys, which must return the same value for any 2 keys that are equivalent by this set's
+	 *        comparator. If null, the key type's {@link Object#hashCode() hashCode} and {@link Object#equals(Object) equals} methods will
+	 *        be used.
+	 * @return A set with the same content as this set, but with constant-time lookups. If a perfect hash could not be created (e.g. if
+	 *         two keys have the same hash code), this set is returned.
+	 */
+	public QuickSet<E> withPerfectHash(ToIntFunction<? super E> hasher) {
+		if (theKeys.length == 0)
+			return this;
+		PerfectHash<E> perfectHash = PerfectHash.create(theKeys, hasher);
+		return perfectHash == null ? this : new QuickSet<>(this, perfectHash);
+	}
+
+	/** @return Whether this set uses a perfect hash for lookups */
+	public boolean isPerfectlyHashed() {
+		return thePerfectHash != null;
 	}
 	
 	@Override
@@ -168,6 +217,13 @@ public final class QuickSet<E> extends AbstractSet<E> implements Comparable<Quic
 	 *         where the value would belong in this set.
 	 */
 	public int indexOf(E key) {
+		if (thePerfectHash != null && key != null) {
+			int index = thePerfectHash.indexOf(key);
+			Object found = theKeys[index];
+			if (found == key || (thePerfectHash.hasher == null ? found.equals(key) : compare(index, key) == 0))
+				return index;
+			// Fall through to get the insertion index, or in case the key is equivalent to one of ours by the comparator but not equal
+		}
 		if (small) {
 			for (int i = 0; i < theKeys.length; i++) {
 				if (theKeys[i] == key) {
@@ -597,6 +653,152 @@ public final class QuickSet<E> extends AbstractSet<E> implements Comparable<Quic
 		}
 	}
 
+	/**
+	 * A minimal perfect hash over the keys of a {@link QuickSet}, created with the hash-and-displace technique. Keys are distributed into
+	 * buckets by a first-level hash. Then, starting with the largest buckets, a displacement is found for each bucket which, combined with
+	 * the key hashes, maps all of the bucket's keys to unused slots. Buckets with a single key are simply assigned one of the remaining
+	 * slots directly.
+	 * 
+	 * @param <E> The type of keys in the set
+	 */
+	static final class PerfectHash<E> {
+		private static final int SEED_ATTEMPTS = 4;
+		private static final int MAX_DISPLACEMENT = 1 << 16;
+
+		final ToIntFunction<? super E> hasher;
+		private final int theSeed;
+		/** For each bucket, either the displacement for the bucket's keys or, if negative, <code>-slot-1</code> for a single key */
+		private final int[] theDisplacements;
+		/** The index of the key in each slot */
+		private final int[] theSlots;
+
+		private PerfectHash(ToIntFunction<? super E> hasher, int seed, int[] displacements, int[] slots) {
+			this.hasher = hasher;
+			theSeed = seed;
+			theDisplacements = displacements;
+			theSlots = slots;
+		}
+
+		/**
+		 * @param key The key to find
+		 * @return The index of the only key in the set that the given key may be equal to
+		 */
+		int indexOf(E key) {
+			int hash = hasher == null ? key.hashCode() : hasher.applyAsInt(key);
+			int displacement = theDisplacements[reduce(mix(hash, theSeed), theDisplacements.length)];
+			int slot = displacement < 0 ? -displacement - 1 : reduce(mix(hash, displacement), theSlots.length);
+			return theSlots[slot];
+		}
+
+		static <E> PerfectHash<E> create(Object[] keys, ToIntFunction<? super E> hasher) {
+			int[] hashes = new int[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] == null)
+					return null;
+				hashes[i] = hasher == null ? keys[i].hashCode() : hasher.applyAsInt((E) keys[i]);
+			}
+			int[] sortedHashes = hashes.clone();
+			Arrays.sort(sortedHashes);
+			for (int i = 1; i < sortedHashes.length; i++) {
+				if (sortedHashes[i] == sortedHashes[i - 1])
+					return null; // Keys with the same hash can never be separated
+			}
+			for (int attempt = 1; attempt <= SEED_ATTEMPTS; attempt++) {
+				int seed = attempt * 0x9E3779B9;
+				PerfectHash<E> hash = create(hashes, hasher, seed);
+				if (hash != null)
+					return hash;
+			}
+			return null;
+		}
+
+		private static <E> PerfectHash<E> create(int[] hashes, ToIntFunction<? super E> hasher, int seed) {
+			int n = hashes.length;
+			// Group the keys into buckets
+			int[] bucketStarts = new int[n + 1];
+			int[] keyBuckets = new int[n];
+			for (int i = 0; i < n; i++) {
+				keyBuckets[i] = reduce(mix(hashes[i], seed), n);
+				bucketStarts[keyBuckets[i] + 1]++;
+			}
+			int maxBucketSize = 0;
+			for (int b = 0; b < n; b++) {
+				maxBucketSize = Math.max(maxBucketSize, bucketStarts[b + 1]);
+				bucketStarts[b + 1] += bucketStarts[b];
+			}
+			int[] bucketKeys = new int[n];
+			int[] fill = new int[n];
+			for (int i = 0; i < n; i++) {
+				int b = keyBuckets[i];
+				bucketKeys[bucketStarts[b] + fill[b]++] = i;
+			}
+			// Order the buckets by size, largest first
+			int[] sizeStarts = new int[maxBucketSize + 2];
+			for (int b = 0; b < n; b++)
+				sizeStarts[maxBucketSize - (bucketStarts[b + 1] - bucketStarts[b]) + 1]++;
+			for (int s = 1; s < sizeStarts.length; s++)
+				sizeStarts[s] += sizeStarts[s - 1];
+			int[] bucketOrder = new int[n];
+			for (int b = 0; b < n; b++)
+				bucketOrder[sizeStarts[maxBucketSize - (bucketStarts[b + 1] - bucketStarts[b])]++] = b;
+
+			int[] displacements = new int[n];
+			int[] slots = new int[n];
+			Arrays.fill(slots, -1);
+			int[] trial = new int[maxBucketSize];
+			int nextFree = 0;
+			for (int b : bucketOrder) {
+				int start = bucketStarts[b], size = bucketStarts[b + 1] - start;
+				if (size == 0)
+					break; // Buckets are ordered by size, so all the rest are empty too
+				else if (size == 1) {
+					while (slots[nextFree] >= 0)
+						nextFree++;
+					slots[nextFree] = bucketKeys[start];
+					displacements[b] = -nextFree - 1;
+					continue;
+				}
+				boolean found = false;
+				for (int d = 1; !found && d < MAX_DISPLACEMENT; d++) {
+					found = true;
+					for (int k = 0; found && k < size; k++) {
+						int slot = reduce(mix(hashes[bucketKeys[start + k]], d), n);
+						if (slots[slot] >= 0)
+							found = false;
+						for (int k2 = 0; found && k2 < k; k2++) {
+							if (trial[k2] == slot)
+								found = false;
+						}
+						trial[k] = slot;
+					}
+					if (found) {
+						for (int k = 0; k < size; k++)
+							slots[trial[k]] = bucketKeys[start + k];
+						displacements[b] = d;
+					}
+				}
+				if (!found)
+					return null;
+			}
+			return new PerfectHash<>(hasher, seed, displacements, slots);
+		}
+
+		private static int mix(int hash, int seed) {
+			int h = hash ^ seed;
+			h ^= h >>> 16;
+			h *= 0x85ebca6b;
+			h ^= h >>> 13;
+			h *= 0xc2b2ae35;
+			h ^= h >>> 16;
+			return h;
+		}
+
+		/** Maps a hash uniformly into [0, n) without a division */
+		private static int reduce(int hash, int n) {
+			return (int) (((hash & 0xffffffffL) * n) >>> 32);
+		}
+	}
+
 	private static final class EmptyQuickMap<K, T> implements QuickMap<K, T> {
 		@Override
 		public QuickSet<K> keySet() {
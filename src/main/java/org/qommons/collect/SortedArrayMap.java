@@ -0,0 +1,316 @@
+package org.qommons.collect;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import org.qommons.Identifiable;
+import org.qommons.collect.MutableCollectionElement.StdMsg;
+import org.qommons.collect.QuickSet.QuickMap;
+
+/**
+ * An immutable {@link BetterSortedMap} whose keys are a {@link SortedArraySet} and whose values are stored in a parallel array. See
+ * {@link SortedArraySet} for details on the search strategies used.
+ *
+ * @param <K> The key type of the map
+ * @param <V> The value type of the map
+ */
+public class SortedArrayMap<K, V> implements BetterSortedMap<K, V> {
+	private final SortedArraySet<K> theKeys;
+	private final Object[] theValues;
+	private final Object theIdentity;
+
+	SortedArrayMap(SortedArraySet<K> keys, Object[] values) {
+		theKeys = keys;
+		theValues = values;
+		theIdentity = Identifiable.baseId("sorted array map", this);
+	}
+
+	/**
+	 * @param <K> The key type of the map
+	 * @param <V> The value type of the map
+	 * @param map The quick map whose content to copy
+	 * @return An immutable {@link BetterSortedMap} with the same content as the given map
+	 */
+	public static <K, V> SortedArrayMap<K, V> of(QuickMap<K, V> map) {
+		return of(map, null);
+	}
+
+	/**
+	 * @param <K> The key type of the map
+	 * @param <V> The value type of the map
+	 * @param map The quick map whose content to copy
+	 * @param numericKey The numeric key for keys in the map, for interpolation search (may be null)
+	 * @return An immutable {@link BetterSortedMap} with the same content as the given map
+	 * @see SortedArraySet.Builder#withNumericKey(ToDoubleFunction)
+	 */
+	public static <K, V> SortedArrayMap<K, V> of(QuickMap<K, V> map, ToDoubleFunction<? super K> numericKey) {
+		Object[] values = new Object[map.keySize()];
+		for (int i = 0; i < values.length; i++)
+			values[i] = map.get(i);
+		return new SortedArrayMap<>(SortedArraySet.of(map.keySet(), numericKey), values);
+	}
+
+	/**
+	 * @param <K> The key type of the map
+	 * @param <V> The value type of the map
+	 * @param compare The sorting for the map's keys
+	 * @return A builder to create a {@link SortedArrayMap}
+	 */
+	public static <K, V> Builder<K, V> build(Comparator<? super K> compare) {
+		return new Builder<>(compare);
+	}
+
+	@Override
+	public Object getIdentity() {
+		return theIdentity;
+	}
+
+	@Override
+	public SortedArraySet<K> keySet() {
+		return theKeys;
+	}
+
+	/**
+	 * @param index The index of the entry to get the value of
+	 * @return The value of the entry at the given index in this map
+	 */
+	public V getValue(int index) {
+		if (index < 0 || index >= theValues.length)
+			throw new IndexOutOfBoundsException(index + " of " + theValues.length);
+		return (V) theValues[index];
+	}
+
+	@Override
+	public V get(Object key) {
+		int index = theKeys.find((K) key);
+		return index < 0 ? null : (V) theValues[index];
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return theKeys.find((K) key) >= 0;
+	}
+
+	@Override
+	public MapEntryHandle<K, V> getEntry(K key) {
+		int index = theKeys.find(key);
+		return index < 0 ? null : new ImmutableEntry(index);
+	}
+
+	@Override
+	public MapEntryHandle<K, V> getEntryById(ElementId entryId) {
+		return new ImmutableEntry(theKeys.checkId(entryId));
+	}
+
+	@Override
+	public MapEntryHandle<K, V> searchEntries(Comparable<? super Map.Entry<K, V>> search, BetterSortedList.SortedSearchFilter filter) {
+		int index = theKeys.searchIndex(i -> search.compareTo(new ImmutableEntry(i)), filter);
+		return index < 0 ? null : new ImmutableEntry(index);
+	}
+
+	@Override
+	public MapEntryHandle<K, V> getOrPutEntry(K key, Function<? super K, ? extends V> value, ElementId afterKey, ElementId beforeKey,
+		boolean first, Runnable preAdd, Runnable postAdd) {
+		return getEntry(key);
+	}
+
+	@Override
+	public MutableMapEntryHandle<K, V> mutableEntry(ElementId entryId) {
+		return new ImmutableEntry(theKeys.checkId(entryId));
+	}
+
+	@Override
+	public MapEntryHandle<K, V> putEntry(K key, V value, ElementId after, ElementId before, boolean first) {
+		throw new UnsupportedOperationException(StdMsg.UNSUPPORTED_OPERATION);
+	}
+
+	@Override
+	public String canPut(K key, V value) {
+		return StdMsg.UNSUPPORTED_OPERATION;
+	}
+
+	@Override
+	public int hashCode() {
+		return BetterMap.hashCode(this);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return BetterMap.equals(this, obj);
+	}
+
+	@Override
+	public String toString() {
+		return entrySet().toString();
+	}
+
+	class ImmutableEntry implements MutableMapEntryHandle<K, V> {
+		private final int theIndex;
+
+		ImmutableEntry(int index) {
+			theIndex = index;
+		}
+
+		@Override
+		public BetterCollection<V> getCollection() {
+			return values();
+		}
+
+		@Override
+		public ElementId getElementId() {
+			return theKeys.idFor(theIndex);
+		}
+
+		@Override
+		public K getKey() {
+			return theKeys.get(theIndex);
+		}
+
+		@Override
+		public V get() {
+			return (V) theValues[theIndex];
+		}
+
+		@Override
+		public String isEnabled() {
+			return StdMsg.UNSUPPORTED_OPERATION;
+		}
+
+		@Override
+		public String isAcceptable(V value) {
+			return StdMsg.UNSUPPORTED_OPERATION;
+		}
+
+		@Override
+		public void set(V value) throws UnsupportedOperationException, IllegalArgumentException {
+			throw new UnsupportedOperationException(StdMsg.UNSUPPORTED_OPERATION);
+		}
+
+		@Override
+		public String canRemove() {
+			return StdMsg.UNSUPPORTED_OPERATION;
+		}
+
+		@Override
+		public void remove() throws UnsupportedOperationException {
+			throw new UnsupportedOperationException(StdMsg.UNSUPPORTED_OPERATION);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(getKey()) ^ Objects.hashCode(get());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Map.Entry))
+				return false;
+			Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+			return Objects.equals(getKey(), other.getKey()) && Objects.equals(get(), other.getValue());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + get();
+		}
+	}
+
+	/**
+	 * Builds a {@link SortedArrayMap}
+	 *
+	 * @param <K> The key type of the map
+	 * @param <V> The value type of the map
+	 */
+	public static class Builder<K, V> {
+		private final Comparator<? super K> theCompare;
+		private final List<K> theKeys;
+		private final List<V> theValues;
+		private ToDoubleFunction<? super K> theNumericKey;
+		private int theEytzingerThreshold;
+
+		Builder(Comparator<? super K> compare) {
+			if (compare == null)
+				throw new NullPointerException("Comparator cannot be null");
+			theCompare = compare;
+			theKeys = new ArrayList<>();
+			theValues = new ArrayList<>();
+			theEytzingerThreshold = SortedArraySet.DEFAULT_EYTZINGER_THRESHOLD;
+		}
+
+		/**
+		 * @param numericKey The numeric key for keys in the map, for interpolation search
+		 * @return This builder
+		 * @see SortedArraySet.Builder#withNumericKey(ToDoubleFunction)
+		 */
+		public Builder<K, V> withNumericKey(ToDoubleFunction<? super K> numericKey) {
+			theNumericKey = numericKey;
+			return this;
+		}
+
+		/**
+		 * @param threshold The minimum size at which the map will use an Eytzinger-ordered copy of its keys to speed up key lookups
+		 * @return This builder
+		 */
+		public Builder<K, V> withEytzingerThreshold(int threshold) {
+			theEytzingerThreshold = threshold;
+			return this;
+		}
+
+		/**
+		 * @param key The key to add to the map
+		 * @param value The value for the key. If the key has already been added, this value will replace the previous one.
+		 * @return This builder
+		 */
+		public Builder<K, V> put(K key, V value) {
+			theKeys.add(key);
+			theValues.add(value);
+			return this;
+		}
+
+		/**
+		 * @param map The map whose entries to add to the map
+		 * @return This builder
+		 */
+		public Builder<K, V> putAll(Map<? extends K, ? extends V> map) {
+			for (Map.Entry<? extends K, ? extends V> entry : map.entrySet())
+				put(entry.getKey(), entry.getValue());
+			return this;
+		}
+
+		/**
+		 * @return The new map
+		 * @throws IllegalArgumentException If a {@link #withNumericKey(ToDoubleFunction) numeric key} is used and it is inconsistent
+		 *         with the comparator
+		 */
+		public SortedArrayMap<K, V> build() throws IllegalArgumentException {
+			Integer[] order = new Integer[theKeys.size()];
+			for (int i = 0; i < order.length; i++)
+				order[i] = i;
+			// Stable, so that later puts of equivalent keys sort after earlier ones
+			java.util.Arrays.sort(order, (i1, i2) -> theCompare.compare(theKeys.get(i1), theKeys.get(i2)));
+			Object[] keys = new Object[order.length];
+			Object[] values = new Object[order.length];
+			int size = 0;
+			for (Integer index : order) {
+				K key = theKeys.get(index);
+				if (size > 0 && theCompare.compare((K) keys[size - 1], key) == 0)
+					values[size - 1] = theValues.get(index); // Replace
+				else {
+					keys[size] = key;
+					values[size] = theValues.get(index);
+					size++;
+				}
+			}
+			if (size < keys.length) {
+				keys = java.util.Arrays.copyOf(keys, size);
+				values = java.util.Arrays.copyOf(values, size);
+			}
+			return new SortedArrayMap<>(new SortedArraySet<>(theCompare, keys, theNumericKey, theEytzingerThreshold), values);
+		}
+	}
+}
@@ -0,0 +1,681 @@
+package org.qommons.collect;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import org.qommons.ArrayUtils.IntComparable;
+import org.qommons.Identifiable;
+import org.qommons.Lockable.CoreId;
+import org.qommons.ThreadConstraint;
+import org.qommons.Transaction;
+import org.qommons.collect.MutableCollectionElement.StdMsg;
+
+/**
+ * <p>
+ * An immutable {@link BetterSortedSet} backed by a sorted array, intended for read-only lookup tables that are queried very frequently.
+ * </p>
+ * <p>
+ * Since the content can never change, this set needs no locking and all of its range APIs ({@link #subSet(Comparable, Comparable)
+ * subSet}, {@link #search(Comparable, BetterSortedList.SortedSearchFilter) search}, {@link ElementId}-based access) are simple index
+ * arithmetic.
+ * </p>
+ * <p>
+ * Searches use a branch-free binary search (the loop body is a single conditional assignment, which the JIT can compile to a conditional
+ * move). Value lookups ({@link #getElement(Object, boolean) getElement}, {@link #contains(Object) contains}) in large sets additionally use
+ * a copy of the values in Eytzinger (breadth-first) order, so that the first several probes of each lookup hit the same few cache lines.
+ * If a {@link Builder#withNumericKey(ToDoubleFunction) numeric key} is given for the values, value lookups instead use interpolation search
+ * over a primitive array of the keys, which for evenly-distributed keys finds the value in a few probes without dereferencing any values.
+ * </p>
+ *
+ * @param <E> The type of values in the set
+ */
+public class SortedArraySet<E> implements BetterSortedSet<E> {
+	/** The default minimum size at which value lookups use an Eytzinger-ordered copy of the values */
+	public static final int DEFAULT_EYTZINGER_THRESHOLD = 256;
+	/** The maximum number of interpolation probes before a numeric-keyed lookup falls back to binary search */
+	static final int MAX_INTERPOLATION_PROBES = 4;
+
+	private final Comparator<? super E> theCompare;
+	private final Object[] theValues;
+	private final double[] theNumericKeys;
+	private final ToDoubleFunction<? super E> theNumericKey;
+	private final Object[] theEytzingerValues;
+	private final int[] theEytzingerIndexes;
+	private final Object theIdentity;
+
+	SortedArraySet(Comparator<? super E> compare, Object[] sortedValues, ToDoubleFunction<? super E> numericKey, int eytzingerThreshold) {
+		theCompare = compare;
+		theValues = sortedValues;
+		theIdentity = Identifiable.baseId("sorted array set", this);
+		if (numericKey != null) {
+			theNumericKey = numericKey;
+			theNumericKeys = new double[sortedValues.length];
+			for (int i = 0; i < sortedValues.length; i++) {
+				double key = numericKey.applyAsDouble((E) sortedValues[i]);
+				if (Double.isNaN(key))
+					throw new IllegalArgumentException("NaN numeric key for " + sortedValues[i]);
+				else if (i > 0 && key < theNumericKeys[i - 1])
+					throw new IllegalArgumentException("Numeric key is inconsistent with the comparator: " + sortedValues[i - 1] + " ("
+						+ theNumericKeys[i - 1] + ") sorts before " + sortedValues[i] + " (" + key + ")");
+				theNumericKeys[i] = key;
+			}
+			theEytzingerValues = null;
+			theEytzingerIndexes = null;
+		} else {
+			theNumericKey = null;
+			theNumericKeys = null;
+			if (sortedValues.length >= eytzingerThreshold) {
+				theEytzingerValues = new Object[sortedValues.length + 1];
+				theEytzingerIndexes = new int[sortedValues.length + 1];
+				layOutEytzinger(0, 1);
+			} else {
+				theEytzingerValues = null;
+				theEytzingerIndexes = null;
+			}
+		}
+	}
+
+	private int layOutEytzinger(int index, int node) {
+		if (node <= theValues.length) {
+			index = layOutEytzinger(index, node * 2);
+			theEytzingerValues[node] = theValues[index];
+			theEytzingerIndexes[node] = index;
+			index = layOutEytzinger(index + 1, node * 2 + 1);
+		}
+		return index;
+	}
+
+	/**
+	 * @param <E> The type of values in the set
+	 * @param set The quick set whose (already sorted and distinct) values to use
+	 * @return An immutable {@link BetterSortedSet} with the same content and order as the given set
+	 */
+	public static <E> SortedArraySet<E> of(QuickSet<E> set) {
+		return of(set, null);
+	}
+
+	/**
+	 * @param <E> The type of values in the set
+	 * @param set The quick set whose (already sorted and distinct) values to use
+	 * @param numericKey The numeric key for values in the set, for interpolation search (may be null)
+	 * @return An immutable {@link BetterSortedSet} with the same content and order as the given set
+	 * @see Builder#withNumericKey(ToDoubleFunction)
+	 */
+	public static <E> SortedArraySet<E> of(QuickSet<E> set, ToDoubleFunction<? super E> numericKey) {
+		Comparator<? super E> compare = set.compare;
+		if (compare == null) // Only for the empty set
+			compare = (v1, v2) -> ((Comparable<Object>) v1).compareTo(v2);
+		return new SortedArraySet<>(compare, set.theKeys, numericKey, DEFAULT_EYTZINGER_THRESHOLD);
+	}
+
+	/**
+	 * @param <E> The type of values in the set
+	 * @param compare The sorting for the set
+	 * @param values The values for the set, in any order
+	 * @return An immutable {@link BetterSortedSet} with the given values, minus duplicates
+	 */
+	public static <E> SortedArraySet<E> of(Comparator<? super E> compare, Collection<? extends E> values) {
+		return SortedArraySet.<E> build(compare).addAll(values).build();
+	}
+
+	/**
+	 * @param <E> The type of values in the set
+	 * @param compare The sorting for the set
+	 * @return A builder to create a {@link SortedArraySet}
+	 */
+	public static <E> Builder<E> build(Comparator<? super E> compare) {
+		return new Builder<>(compare);
+	}
+
+	/** @return The numeric key used by this set for interpolation search, or null if this set uses binary search only */
+	public ToDoubleFunction<? super E> getNumericKey() {
+		return theNumericKey;
+	}
+
+	@Override
+	public Object getIdentity() {
+		return theIdentity;
+	}
+
+	@Override
+	public boolean belongs(Object o) {
+		return true;
+	}
+
+	@Override
+	public ThreadConstraint getThreadConstraint() {
+		return ThreadConstraint.NONE;
+	}
+
+	@Override
+	public boolean isLockSupported() {
+		return true;
+	}
+
+	@Override
+	public Transaction lock(boolean write, Object cause) {
+		return Transaction.NONE;
+	}
+
+	@Override
+	public Transaction tryLock(boolean write, Object cause) {
+		return Transaction.NONE;
+	}
+
+	@Override
+	public CoreId getCoreId() {
+		return CoreId.EMPTY;
+	}
+
+	@Override
+	public long getStamp() {
+		return 0;
+	}
+
+	@Override
+	public boolean isContentControlled() {
+		return true;
+	}
+
+	@Override
+	public Comparator<? super E> comparator() {
+		return theCompare;
+	}
+
+	@Override
+	public int size() {
+		return theValues.length;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return theValues.length == 0;
+	}
+
+	@Override
+	public E get(int index) {
+		return (E) theValues[index];
+	}
+
+	@Override
+	public Object[] toArray() {
+		return theValues.clone();
+	}
+
+	@Override
+	public <T> T[] toArray(T[] array) {
+		return BetterSortedSet.super.toArray(array);
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return find((E) o) >= 0;
+	}
+
+	/**
+	 * @param value The value to search for
+	 * @return The index of the given value in this set, or -1 if it is not present
+	 */
+	public int indexOfValue(E value) {
+		return find(value);
+	}
+
+	@Override
+	public CollectionElement<E> getElement(E value, boolean first) {
+		int index = find(value);
+		return index < 0 ? null : elementFor(index);
+	}
+
+	@Override
+	public CollectionElement<E> search(Comparable<? super E> search, BetterSortedList.SortedSearchFilter filter) {
+		int index = searchIndex(i -> search.compareTo((E) theValues[i]), filter);
+		return index < 0 ? null : elementFor(index);
+	}
+
+	@Override
+	public int indexFor(Comparable<? super E> search) {
+		return indexForIndex(i -> search.compareTo((E) theValues[i]));
+	}
+
+	int indexForIndex(IntComparable search) {
+		int index = lowerBound(0, theValues.length, search);
+		if (index < theValues.length && search.compareTo(index) == 0)
+			return index;
+		return -index - 1;
+	}
+
+	/**
+	 * @param search The index search
+	 * @param filter The filter on the result
+	 * @return The index of the best result for the search, or -1 if no value matches the filter
+	 */
+	int searchIndex(IntComparable search, BetterSortedList.SortedSearchFilter filter) {
+		int index = indexForIndex(search);
+		if (index >= 0)
+			return index;
+		int insert = -index - 1;
+		switch (filter) {
+		case Less:
+			return insert - 1; // -1 if insert==0
+		case PreferLess:
+			return insert > 0 ? insert - 1 : (theValues.length > 0 ? 0 : -1);
+		case OnlyMatch:
+			return -1;
+		case PreferGreater:
+			return insert < theValues.length ? insert : insert - 1;
+		case Greater:
+			return insert < theValues.length ? insert : -1;
+		}
+		throw new IllegalStateException("Unrecognized filter: " + filter);
+	}
+
+	/**
+	 * A branch-free binary search
+	 *
+	 * @param from The lowest index to search (inclusive)
+	 * @param to The highest index to search (exclusive)
+	 * @param search The index search
+	 * @return The lowest index in the range whose value is not less than the search, or <code>to</code> if there is no such index
+	 */
+	static int lowerBound(int from, int to, IntComparable search) {
+		int base = from, length = to - from;
+		if (length == 0)
+			return from;
+		while (length > 1) {
+			int half = length >>> 1;
+			base = search.compareTo(base + half) > 0 ? base + half : base;
+			length -= half;
+		}
+		return search.compareTo(base) > 0 ? base + 1 : base;
+	}
+
+	int find(E value) {
+		int length = theValues.length;
+		if (length == 0)
+			return -1;
+		if (theNumericKeys != null)
+			return interpolationFind(value);
+		else if (theEytzingerValues != null) {
+			int node = 1;
+			while (node <= length)
+				node = node * 2 + (theCompare.compare((E) theEytzingerValues[node], value) < 0 ? 1 : 0);
+			// Strip the right turns taken after the last left turn to find the lower bound
+			node >>= Integer.numberOfTrailingZeros(~node) + 1;
+			if (node == 0 || theCompare.compare((E) theEytzingerValues[node], value) != 0)
+				return -1;
+			return theEytzingerIndexes[node];
+		} else {
+			int index = lowerBound(0, length, i -> theCompare.compare(value, (E) theValues[i]));
+			if (index == length || theCompare.compare(value, (E) theValues[index]) != 0)
+				return -1;
+			return index;
+		}
+	}
+
+	private int interpolationFind(E value) {
+		double target = theNumericKey.applyAsDouble(value);
+		double[] keys = theNumericKeys;
+		int low = 0, high = keys.length; // The first index whose key is >= target is in [low, high]
+		for (int probe = 0; low < high && probe < MAX_INTERPOLATION_PROBES; probe++) {
+			double lowKey = keys[low], highKey = keys[high - 1];
+			if (!(target > lowKey)) { // Also catches NaN
+				high = low;
+				break;
+			} else if (target > highKey) {
+				low = high;
+				break;
+			}
+			// lowKey < target <= highKey
+			int pos = low + (int) ((target - lowKey) / (highKey - lowKey) * (high - 1 - low));
+			if (keys[pos] < target)
+				low = pos + 1;
+			else
+				high = pos;
+		}
+		if (low < high)
+			low = lowerBound(low, high, i -> keys[i] < target ? 1 : -1);
+		// Several values may share the same numeric key--use the comparator among them
+		int end = low;
+		while (end < keys.length && keys[end] == target)
+			end++;
+		if (end == low)
+			return -1;
+		else if (end == low + 1)
+			return theCompare.compare(value, (E) theValues[low]) == 0 ? low : -1;
+		int index = lowerBound(low, end, i -> theCompare.compare(value, (E) theValues[i]));
+		if (index == end || theCompare.compare(value, (E) theValues[index]) != 0)
+			return -1;
+		return index;
+	}
+
+	@Override
+	public CollectionElement<E> getTerminalElement(boolean first) {
+		if (theValues.length == 0)
+			return null;
+		return elementFor(first ? 0 : theValues.length - 1);
+	}
+
+	@Override
+	public int getElementsBefore(ElementId id) {
+		return checkId(id);
+	}
+
+	@Override
+	public int getElementsAfter(ElementId id) {
+		return theValues.length - checkId(id) - 1;
+	}
+
+	@Override
+	public CollectionElement<E> getElement(int index) {
+		if (index < 0 || index >= theValues.length)
+			throw new IndexOutOfBoundsException(index + " of " + theValues.length);
+		return elementFor(index);
+	}
+
+	@Override
+	public CollectionElement<E> getElement(ElementId id) {
+		return elementFor(checkId(id));
+	}
+
+	@Override
+	public CollectionElement<E> getAdjacentElement(ElementId elementId, boolean next) {
+		int index = checkId(elementId) + (next ? 1 : -1);
+		if (index < 0 || index >= theValues.length)
+			return null;
+		return elementFor(index);
+	}
+
+	@Override
+	public MutableCollectionElement<E> mutableElement(ElementId id) {
+		return new ImmutableElement(checkId(id));
+	}
+
+	int checkId(ElementId id) {
+		if (!(id instanceof IndexId) || ((IndexId) id).theSet != this)
+			throw new IllegalArgumentException(id + " is not an element of this set");
+		return ((IndexId) id).theIndex;
+	}
+
+	ElementId idFor(int index) {
+		return new IndexId(this, index);
+	}
+
+	CollectionElement<E> elementFor(int index) {
+		return new ImmutableElement(index);
+	}
+
+	@Override
+	public BetterList<CollectionElement<E>> getElementsBySource(ElementId sourceEl, BetterCollection<?> sourceCollection) {
+		if (sourceCollection == this)
+			return BetterList.of(getElement(sourceEl));
+		return BetterList.empty();
+	}
+
+	@Override
+	public BetterList<ElementId> getSourceElements(ElementId localElement, BetterCollection<?> sourceCollection) {
+		if (sourceCollection == this)
+			return BetterList.of(idFor(checkId(localElement)));
+		return BetterList.empty();
+	}
+
+	@Override
+	public ElementId getEquivalentElement(ElementId equivalentEl) {
+		if (equivalentEl instanceof IndexId && ((IndexId) equivalentEl).theSet == this)
+			return equivalentEl;
+		return null;
+	}
+
+	@Override
+	public boolean isConsistent(ElementId element) {
+		return true;
+	}
+
+	@Override
+	public boolean checkConsistency() {
+		return false;
+	}
+
+	@Override
+	public <X> boolean repair(ElementId element, RepairListener<E, X> listener) {
+		return false;
+	}
+
+	@Override
+	public <X> boolean repair(RepairListener<E, X> listener) {
+		return false;
+	}
+
+	@Override
+	public CollectionElement<E> getOrAdd(E value, ElementId after, ElementId before, boolean first, Runnable preAdd, Runnable postAdd) {
+		return getElement(value, first);
+	}
+
+	@Override
+	public String canAdd(E value, ElementId after, ElementId before) {
+		return StdMsg.UNSUPPORTED_OPERATION;
+	}
+
+	@Override
+	public CollectionElement<E> addElement(E value, ElementId after, ElementId before, boolean first)
+		throws UnsupportedOperationException, IllegalArgumentException {
+		throw new UnsupportedOperationException(StdMsg.UNSUPPORTED_OPERATION);
+	}
+
+	@Override
+	public String canMove(ElementId valueEl, ElementId after, ElementId before) {
+		if (after != null && valueEl.compareTo(after) < 0)
+			return StdMsg.UNSUPPORTED_OPERATION;
+		else if (before != null && valueEl.compareTo(before) > 0)
+			return StdMsg.UNSUPPORTED_OPERATION;
+		return null;
+	}
+
+	@Override
+	public CollectionElement<E> move(ElementId valueEl, ElementId after, ElementId before, boolean first, Runnable afterRemove)
+		throws UnsupportedOperationException, IllegalArgumentException {
+		String msg = canMove(valueEl, after, before);
+		if (msg != null)
+			throw new UnsupportedOperationException(msg);
+		return getElement(valueEl);
+	}
+
+	@Override
+	public void clear() {
+		if (theValues.length > 0)
+			throw new UnsupportedOperationException(StdMsg.UNSUPPORTED_OPERATION);
+	}
+
+	@Override
+	public int hashCode() {
+		return BetterCollection.hashCode(this);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return BetterCollection.equals(this, obj);
+	}
+
+	@Override
+	public String toString() {
+		return BetterSet.toString(this);
+	}
+
+	static class IndexId implements ElementId {
+		final SortedArraySet<?> theSet;
+		final int theIndex;
+
+		IndexId(SortedArraySet<?> set, int index) {
+			theSet = set;
+			theIndex = index;
+		}
+
+		@Override
+		public int compareTo(ElementId o) {
+			return Integer.compare(theIndex, ((IndexId) o).theIndex);
+		}
+
+		@Override
+		public boolean isPresent() {
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return theIndex;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof IndexId && theSet == ((IndexId) obj).theSet && theIndex == ((IndexId) obj).theIndex;
+		}
+
+		@Override
+		public String toString() {
+			return "[" + theIndex + "]: " + theSet.theValues[theIndex];
+		}
+	}
+
+	class ImmutableElement implements MutableCollectionElement<E> {
+		private final int theIndex;
+
+		ImmutableElement(int index) {
+			theIndex = index;
+		}
+
+		@Override
+		public BetterCollection<E> getCollection() {
+			return SortedArraySet.this;
+		}
+
+		@Override
+		public ElementId getElementId() {
+			return idFor(theIndex);
+		}
+
+		@Override
+		public E get() {
+			return (E) theValues[theIndex];
+		}
+
+		@Override
+		public String isEnabled() {
+			return StdMsg.UNSUPPORTED_OPERATION;
+		}
+
+		@Override
+		public String isAcceptable(E value) {
+			return StdMsg.UNSUPPORTED_OPERATION;
+		}
+
+		@Override
+		public void set(E value) throws UnsupportedOperationException, IllegalArgumentException {
+			throw new UnsupportedOperationException(StdMsg.UNSUPPORTED_OPERATION);
+		}
+
+		@Override
+		public String canRemove() {
+			return StdMsg.UNSUPPORTED_OPERATION;
+		}
+
+		@Override
+		public void remove() throws UnsupportedOperationException {
+			throw new UnsupportedOperationException(StdMsg.UNSUPPORTED_OPERATION);
+		}
+
+		@Override
+		public int hashCode() {
+			return theIndex;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof SortedArraySet.ImmutableElement && getElementId().equals(((ImmutableElement) obj).getElementId());
+		}
+
+		@Override
+		public String toString() {
+			return String.valueOf(get());
+		}
+	}
+
+	/**
+	 * Builds a {@link SortedArraySet}
+	 *
+	 * @param <E> The type of values in the set
+	 */
+	public static class Builder<E> {
+		private final Comparator<? super E> theCompare;
+		private final List<E> theValues;
+		private ToDoubleFunction<? super E> theNumericKey;
+		private int theEytzingerThreshold;
+
+		Builder(Comparator<? super E> compare) {
+			if (compare == null)
+				throw new NullPointerException("Comparator cannot be null");
+			theCompare = compare;
+			theValues = new ArrayList<>();
+			theEytzingerThreshold = DEFAULT_EYTZINGER_THRESHOLD;
+		}
+
+		/**
+		 * Causes the set to use interpolation search for value lookups. For any two values <code>v1</code> and <code>v2</code> in the set
+		 * where <code>v1</code> sorts before <code>v2</code>, <code>numericKey(v1)&lt;=numericKey(v2)</code> must be true. Interpolation
+		 * search performs best when the keys are evenly distributed.
+		 *
+		 * @param numericKey The numeric key for values in the set
+		 * @return This builder
+		 */
+		public Builder<E> withNumericKey(ToDoubleFunction<? super E> numericKey) {
+			theNumericKey = numericKey;
+			return this;
+		}
+
+		/**
+		 * @param threshold The minimum size at which the set will use an Eytzinger-ordered copy of its values to speed up value lookups
+		 * @return This builder
+		 */
+		public Builder<E> withEytzingerThreshold(int threshold) {
+			theEytzingerThreshold = threshold;
+			return this;
+		}
+
+		/**
+		 * @param value The value to add to the set
+		 * @return This builder
+		 */
+		public Builder<E> add(E value) {
+			theValues.add(value);
+			return this;
+		}
+
+		/**
+		 * @param values The values to add to the set
+		 * @return This builder
+		 */
+		public Builder<E> addAll(Collection<? extends E> values) {
+			theValues.addAll(values);
+			return this;
+		}
+
+		/**
+		 * @return The new set
+		 * @throws IllegalArgumentException If a {@link #withNumericKey(ToDoubleFunction) numeric key} is used and it is inconsistent
+		 *         with the comparator
+		 */
+		public SortedArraySet<E> build() throws IllegalArgumentException {
+			Object[] values = theValues.toArray();
+			java.util.Arrays.sort(values, (Comparator<Object>) theCompare);
+			int size = 0;
+			for (int i = 0; i < values.length; i++) {
+				if (size == 0 || theCompare.compare((E) values[size - 1], (E) values[i]) != 0)
+					values[size++] = values[i];
+			}
+			if (size < values.length)
+				values = java.util.Arrays.copyOf(values, size);
+			return new SortedArraySet<>(theCompare, values, theNumericKey, theEytzingerThreshold);
+		}
+	}
+}
@@ -1,8 +1,19 @@
 package org.qommons.config;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -15,6 +26,9 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -34,11 +48,7 @@ import org.qommons.io.PositionedContent;
 import org.qommons.io.SimpleXMLParser;
 import org.qommons.io.SimpleXMLParser.XmlParseException;
 import org.qommons.io.TextParseException;
-import org.w3c.dom.Comment;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.ProcessingInstruction;
-import org.w3c.dom.Text;
+import org.qommons.io.XmlTree;
 
 /** Default {@link QonfigParser} implementation */
 public class DefaultQonfigParser implements QonfigParser {
@@ -51,13 +61,67 @@ public class DefaultQonfigParser implements QonfigParser {
 		DOC_ELEMENT_INHERITANCE_ATTR, "role"//
 	)));
 
+	/**
+	 * A system property that, if set, is the path of a directory in which all {@link DefaultQonfigParser}s will
+	 * {@link #withToolkitCache(File) cache} parsed toolkit files
+	 */
+	public static final String TOOLKIT_CACHE_PROPERTY = "qonfig.toolkit.cache";
+	/** The extension of files in the {@link #withToolkitCache(File) toolkit cache} */
+	public static final String TOOLKIT_CACHE_EXTENSION = ".qxt";
+
+	/** Thrown from {@link DefaultQonfigParser#parseToolkits(ForkJoinPool, Map)} when one of the toolkits could not be read */
+	public static class ToolkitReadException extends IOException {
+		private final URL theLocation;
+
+		/**
+		 * @param location The location of the toolkit that could not be read
+		 * @param cause The exception reading the toolkit
+		 */
+		public ToolkitReadException(URL location, IOException cause) {
+			super("Could not read toolkit " + location, cause);
+			theLocation = location;
+		}
+
+		/** @return The location of the toolkit that could not be read */
+		public URL getLocation() {
+			return theLocation;
+		}
+	}
+
 	private final Map<QonfigToolkit.ToolkitDef, QonfigToolkit> theToolkits;
 	private final MultiInheritanceMap<QonfigElementOrAddOn, QonfigPromiseFulfillment> theStitchers;
+	private File theToolkitCache;
 
 	/** Creates the parser */
 	public DefaultQonfigParser() {
 		theToolkits = new HashMap<>();
 		theStitchers = MultiInheritanceMap.create(QonfigElementOrAddOn::isAssignableFrom);
+		String cache = System.getProperty(TOOLKIT_CACHE_PROPERTY);
+		if (cache != null && !cache.isEmpty())
+			theToolkitCache = new File(cache);
+	}
+
+	/**
+	 * <p>
+	 * Causes this parser to cache the XML trees of the toolkits it {@link #parseToolkit(URL, InputStream, CustomValueType...) parses} in
+	 * binary form in the given directory. Cache files are keyed by a hash of the toolkit file's content, so a toolkit whose content is
+	 * unchanged since it was last parsed is loaded from its cache file instead of being parsed as XML again. Changed toolkits are parsed
+	 * and cached again.
+	 * </p>
+	 * <p>
+	 * Only the XML parsing is skipped. The toolkit's types are still validated and linked from the cached tree, so errors in a toolkit are
+	 * reported the same way whether it was cached or not.
+	 * </p>
+	 * <p>
+	 * By default, the cache directory is the value of the {@link #TOOLKIT_CACHE_PROPERTY} system property, or none if it is not set.
+	 * </p>
+	 *
+	 * @param directory The directory in which to cache parsed toolkits, or null to parse all toolkits from XML
+	 * @return This parser
+	 */
+	public DefaultQonfigParser withToolkitCache(File directory) {
+		theToolkitCache = directory;
+		return this;
 	}
 
 	/**
@@ -105,17 +169,144 @@ public class DefaultQonfigParser implements QonfigParser {
 	@Override
 	public QonfigToolkit parseToolkit(URL location, InputStream content, CustomValueType... customValueTypes)
 		throws IOException, XmlParseException, QonfigParseException {
-		return _parseToolkitXml(location, content, new LinkedList<>(), customValueTypes);
+		return _parseToolkitXml(location, parseToolkitTree(location, content), new LinkedList<>(), customValueTypes);
+	}
+
+	/**
+	 * <p>
+	 * Parses several toolkits, using the given pool to parse their XML in parallel.
+	 * </p>
+	 * <p>
+	 * Toolkits may be given in any order. Once all the XML is parsed, the toolkits are linked in dependency order, so a toolkit may depend
+	 * on any toolkit given with it, as well as on any toolkit already known to this parser. Linking registers each toolkit with this parser
+	 * as {@link #parseToolkit(URL, InputStream, CustomValueType...)} does.
+	 * </p>
+	 *
+	 * @param pool The pool to parse the toolkits' XML on
+	 * @param toolkits The locations of the toolkits to parse, each with the custom value types it needs
+	 * @return The parsed toolkits, in the order they were given
+	 * @throws ToolkitReadException If a toolkit could not be read
+	 * @throws IOException If parsing was interrupted
+	 * @throws XmlParseException If a toolkit could not be parsed as XML
+	 * @throws QonfigParseException If a toolkit could not be parsed as Qonfig
+	 */
+	public List<QonfigToolkit> parseToolkits(ForkJoinPool pool, Map<URL, CustomValueType[]> toolkits)
+		throws IOException, XmlParseException, QonfigParseException {
+		List<URL> locations = new ArrayList<>(toolkits.keySet());
+		List<ForkJoinTask<XmlTree>> parsing = new ArrayList<>(locations.size());
+		for (URL location : locations)
+			parsing.add(pool.submit(() -> {
+				try (InputStream in = location.openStream()) {
+					return parseToolkitTree(location, in);
+				}
+			}));
+		XmlTree[] trees = new XmlTree[locations.size()];
+		for (int i = 0; i < trees.length; i++) {
+			try {
+				trees[i] = parsing.get(i).get();
+			} catch (InterruptedException e) {
+				for (ForkJoinTask<XmlTree> task : parsing)
+					task.cancel(false);
+				throw new InterruptedIOException("Interrupted parsing toolkits");
+			} catch (ExecutionException e) {
+				for (ForkJoinTask<XmlTree> task : parsing)
+					task.cancel(false);
+				Throwable cause = e.getCause();
+				// The pool wraps checked exceptions thrown by a Callable in a plain RuntimeException
+				if (cause != null && cause.getClass() == RuntimeException.class && cause.getCause() instanceof Exception)
+					cause = cause.getCause();
+				if (cause instanceof IOException)
+					throw new ToolkitReadException(locations.get(i), (IOException) cause);
+				else if (cause instanceof XmlParseException)
+					throw (XmlParseException) cause;
+				else if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				else if (cause instanceof Error)
+					throw (Error) cause;
+				else
+					throw new IllegalStateException("Could not parse toolkit " + locations.get(i), cause);
+			}
+		}
+
+		// Find the dependencies of each toolkit among the given toolkits
+		Map<QonfigToolkit.ToolkitDef, Integer> indexes = new HashMap<>();
+		for (int i = 0; i < trees.length; i++) {
+			QonfigToolkit.ToolkitDef def = getToolkitDef(trees[i]);
+			if (def != null)
+				indexes.putIfAbsent(def, i);
+		}
+		List<List<Integer>> dependencies = new ArrayList<>(trees.length);
+		for (XmlTree tree : trees) {
+			List<Integer> treeDeps = new ArrayList<>();
+			int root = tree.getRoot();
+			for (int a = 0; root >= 0 && a < tree.getAttributeCount(root); a++) {
+				int att = tree.getAttribute(root, a);
+				if (!EXTENDS.matcher(tree.getAttributeName(att)).matches())
+					continue;
+				Matcher match = TOOLKIT_REF.matcher(tree.getAttributeValue(att));
+				Integer dep = match.matches() ? indexes.get(new QonfigToolkit.ToolkitDef(match.group("name"),
+					Integer.parseInt(match.group("major")), Integer.parseInt(match.group("minor")))) : null;
+				if (dep != null)
+					treeDeps.add(dep);
+			}
+			dependencies.add(treeDeps);
+		}
+
+		// Link each toolkit after all its dependencies
+		QonfigToolkit[] parsed = new QonfigToolkit[trees.length];
+		int remaining = trees.length;
+		while (remaining > 0) {
+			boolean progress = false;
+			for (int i = 0; i < trees.length; i++) {
+				if (parsed[i] != null)
+					continue;
+				boolean ready = true;
+				for (int dep : dependencies.get(i)) {
+					if (parsed[dep] == null) {
+						ready = false;
+						break;
+					}
+				}
+				if (ready) {
+					parsed[i] = _parseToolkitXml(locations.get(i), trees[i], new LinkedList<>(), toolkits.get(locations.get(i)));
+					remaining--;
+					progress = true;
+				}
+			}
+			if (!progress) { // Circular dependency. Linking will report the missing dependency.
+				for (int i = 0; i < trees.length; i++) {
+					if (parsed[i] == null)
+						parsed[i] = _parseToolkitXml(locations.get(i), trees[i], new LinkedList<>(), toolkits.get(locations.get(i)));
+				}
+				remaining = 0;
+			}
+		}
+		return Arrays.asList(parsed);
+	}
+
+	private static QonfigToolkit.ToolkitDef getToolkitDef(XmlTree tree) {
+		int root = tree.getRoot();
+		if (root < 0)
+			return null;
+		int nameIdx = tree.indexOfAttribute(root, "name");
+		int versionIdx = tree.indexOfAttribute(root, "version");
+		if (nameIdx < 0 || versionIdx < 0)
+			return null;
+		Matcher version = TOOLKIT_VERSION.matcher(tree.getAttributeValue(tree.getAttribute(root, versionIdx)));
+		if (!version.matches())
+			return null;
+		return new QonfigToolkit.ToolkitDef(tree.getAttributeValue(tree.getAttribute(root, nameIdx)),
+			Integer.parseInt(version.group("major")), Integer.parseInt(version.group("minor")));
 	}
 
 	@Override
 	public QonfigDocument parseDocument(boolean partial, String location, InputStream content)
 		throws IOException, XmlParseException, QonfigParseException {
-		Element root = new SimpleXMLParser().parseDocument(location, content).getDocumentElement();
+		XmlTree tree = new SimpleXMLParser().parseTree(location, content);
 		content.close();
 		QonfigParseSession session;
 		QonfigDocument doc;
-		try (StrictXmlReader rootReader = new StrictXmlReader(root)) {
+		try (StrictXmlReader rootReader = new StrictXmlReader(tree)) {
 			LinkedList<String> path = new LinkedList<>();
 			Map<String, QonfigToolkit> uses = new LinkedHashMap<>();
 			for (Map.Entry<String, String> use : rootReader.findAttributes(USES).entrySet()) {
@@ -162,7 +353,7 @@ public class DefaultQonfigParser implements QonfigParser {
 					throw new IllegalArgumentException("No such element-def: '" + rootReader.getName() + "'");
 				rootDef = rootDef2;
 			}
-			PositionedContent position = SimpleXMLParser.getNamePosition(root);
+			PositionedContent position = rootReader.getNamePosition();
 			QonfigToolkit docToolkit = new QonfigToolkit(location, 1, 0, null, position, getDocumentation(rootReader),
 				Collections.unmodifiableMap(uses), Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(),
 				Collections.emptyList(), new QonfigToolkit.ToolkitBuilder() {
@@ -237,7 +428,7 @@ public class DefaultQonfigParser implements QonfigParser {
 			if (!childApplies.test(child))
 				continue;
 			String roleAttr = child.getAttributeIfExists("role");
-			PositionedContent namePosition = SimpleXMLParser.getNamePosition(child.getElement());
+			PositionedContent namePosition = child.getNamePosition();
 			QonfigParseSession childSession = session.at(namePosition);
 			QonfigElementDef childType;
 			try {
@@ -368,26 +559,32 @@ public class DefaultQonfigParser implements QonfigParser {
 	 * @return The documentation for the element, if specified
 	 */
 	protected String getDocumentation(StrictXmlReader xml) {
-		Node parentEl = xml.getElement().getParentNode();
-		ProcessingInstruction prevPI = null;
-		for (int i = 0; i < parentEl.getChildNodes().getLength(); i++) {
-			Node child = parentEl.getChildNodes().item(i);
-			if (child == xml.getElement())
+		XmlTree tree = xml.getTree();
+		int prevPI = -1;
+		for (int child = tree.getFirstChild(tree.getParent(xml.getNode())); child >= 0; child = tree.getNextSibling(child)) {
+			if (child == xml.getNode())
 				break;
-			else if (child instanceof ProcessingInstruction)
-				prevPI = (ProcessingInstruction) child;
-			else if (prevPI != null) {
-				if (child instanceof Comment) { //
-				} else if (child instanceof Text) {
-					if (!isAllWhiteSpace(child.getNodeValue()))
-						prevPI = null;
-				} else
-					prevPI = null;
+			switch (tree.getType(child)) {
+			case PROCESSING_INSTRUCTION:
+				prevPI = child;
+				break;
+			case COMMENT:
+				break;
+			case TEXT:
+			case CDATA:
+				if (!isAllWhiteSpace(tree.getValue(child)))
+					prevPI = -1;
+				break;
+			default:
+				prevPI = -1;
 			}
 		}
-		if (prevPI == null || !prevPI.getTarget().equals("DOC") || prevPI.getData() == null || prevPI.getData().isEmpty())
+		if (prevPI < 0 || !tree.isNamed(prevPI, "DOC"))
+			return null;
+		String doc = tree.getValue(prevPI);
+		if (doc == null || doc.isEmpty())
 			return null;
-		String doc = prevPI.getData().trim();
+		doc = doc.trim();
 		// Process the documentation
 		StringBuilder str = null;
 		int lastNonWS = -1;
@@ -449,13 +646,11 @@ public class DefaultQonfigParser implements QonfigParser {
 		}
 	}
 
-	private QonfigToolkit _parseToolkitXml(URL location, InputStream xml, LinkedList<String> path, CustomValueType... customValueTypes)
-		throws IOException, XmlParseException, QonfigParseException {
-		Element root = new SimpleXMLParser().parseDocument(location.toString(), xml).getDocumentElement();
-		xml.close();
+	private QonfigToolkit _parseToolkitXml(URL location, XmlTree tree, LinkedList<String> path, CustomValueType... customValueTypes)
+		throws QonfigParseException {
 		QonfigToolkit.ToolkitDef def;
 		QonfigToolkit toolkit;
-		try (StrictXmlReader rootReader = new StrictXmlReader(root)) {
+		try (StrictXmlReader rootReader = new StrictXmlReader(tree)) {
 			PositionedContent rootNameContent = rootReader.getNamePosition();
 			String name;
 			try {
@@ -481,7 +676,7 @@ public class DefaultQonfigParser implements QonfigParser {
 			if (theToolkits.containsKey(def))
 				throw new IllegalArgumentException("A toolkit named " + name + " is already registered");
 			if (!rootReader.getTagName().equals("qonfig-def"))
-				throw new IllegalArgumentException("Expected 'qonfig-def' for root element, not " + root.getNodeName());
+				throw new IllegalArgumentException("Expected 'qonfig-def' for root element, not " + rootReader.getName());
 			Map<String, QonfigToolkit> dependencies = new LinkedHashMap<>();
 			for (Map.Entry<String, String> ext : rootReader.findAttributes(EXTENDS).entrySet()) {
 				String refName = ext.getKey().substring(USES_PREFIX.length());
@@ -513,6 +708,61 @@ public class DefaultQonfigParser implements QonfigParser {
 		return toolkit;
 	}
 
+	private XmlTree parseToolkitTree(URL location, InputStream xml) throws IOException, XmlParseException {
+		if (theToolkitCache == null) {
+			XmlTree tree = new SimpleXMLParser().parseTree(location.toString(), xml);
+			xml.close();
+			return tree;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = xml.read(buffer)) >= 0)
+			bytes.write(buffer, 0, read);
+		xml.close();
+		byte[] content = bytes.toByteArray();
+		File cacheFile = new File(theToolkitCache, hash(content) + TOOLKIT_CACHE_EXTENSION);
+		if (cacheFile.isFile()) {
+			try (InputStream in = new FileInputStream(cacheFile)) {
+				return XmlTree.read(in);
+			} catch (IOException e) {
+				// Corrupt or written by an incompatible version. Parse the XML and replace it.
+			}
+		}
+		XmlTree tree = new SimpleXMLParser().parseTree(location.toString(), new ByteArrayInputStream(content));
+		// Write to a temp file and move it into place so that a parser in another process never reads a partial cache file
+		File tempFile = null;
+		try {
+			if (!theToolkitCache.isDirectory() && !theToolkitCache.mkdirs())
+				throw new IOException("Could not create cache directory " + theToolkitCache.getAbsolutePath());
+			tempFile = File.createTempFile(cacheFile.getName(), ".tmp", theToolkitCache);
+			try (OutputStream out = new FileOutputStream(tempFile)) {
+				tree.write(out);
+			}
+			Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			tempFile = null;
+		} catch (IOException e) {
+			// The cache is only an optimization. The toolkit is parsed, so go without it.
+		} finally {
+			if (tempFile != null)
+				tempFile.delete();
+		}
+		return tree;
+	}
+
+	private static String hash(byte[] content) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 should be available on every platform", e);
+		}
+		StringBuilder str = new StringBuilder();
+		for (byte b : digest.digest(content))
+			str.append(Character.forDigit((b >>> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		return str.toString();
+	}
+
 	private static final Pattern EXTENDS = USES;
 	private static final Pattern TOOLKIT_NAME = Pattern.compile("[^\\s]+");
 	private static final Pattern TOOLKIT_VERSION = Pattern.compile("(?<major>\\d+)\\.(?<minor>\\d+)");
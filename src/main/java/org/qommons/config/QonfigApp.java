@@ -6,9 +6,13 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 
 import org.qommons.config.QonfigInterpreterCore.Builder;
@@ -61,21 +65,53 @@ public class QonfigApp {
 	 * @throws IllegalStateException If a referenced resource, like a toolkit, cannot be resolved
 	 */
 	public static QonfigApp parseApp(URL appDefUrl, URL... appToolkits)
+		throws IOException, TextParseException, QonfigParseException, IllegalStateException {
+		return parseApp(null, appDefUrl, appToolkits);
+	}
+
+	/**
+	 * @param pool The pool to parse toolkits on in parallel, or null to parse them one at a time
+	 * @param appDefUrl The location of the {@link #getQonfigAppToolkit() Qonfig-App}-formatted application to parse
+	 * @param appToolkits The locations of other toolkit definitions that may be needed to parse the application
+	 * @return The parsed application
+	 * @throws IOException If the application could not be read
+	 * @throws TextParseException If the application could not be parsed as XML
+	 * @throws QonfigParseException If the application could not be parsed as Qonfig
+	 * @throws IllegalStateException If a referenced resource, like a toolkit, cannot be resolved
+	 * @see DefaultQonfigParser#parseToolkits(ForkJoinPool, Map)
+	 */
+	public static QonfigApp parseApp(ForkJoinPool pool, URL appDefUrl, URL... appToolkits)
 		throws IOException, TextParseException, QonfigParseException, IllegalStateException {
 		QonfigToolkit qonfigAppTK = getQonfigAppToolkit();
 		DefaultQonfigParser qonfigParser = new DefaultQonfigParser();
 		qonfigParser.withToolkit(qonfigAppTK);
 
-		for (URL appToolkit : appToolkits) {
-			QonfigToolkit appTK;
-			try (InputStream aTKIn = appToolkit.openStream()) {
-				appTK = qonfigParser.parseToolkit(appToolkit, aTKIn);
+		if (pool != null) {
+			Map<URL, CustomValueType[]> appTKs = new LinkedHashMap<>();
+			for (URL appToolkit : appToolkits)
+				appTKs.put(appToolkit, new CustomValueType[0]);
+			try {
+				qonfigParser.parseToolkits(pool, appTKs);
+			} catch (DefaultQonfigParser.ToolkitReadException e) {
+				throw new IOException("Could not read app toolkit definition '" + e.getLocation().getPath() + "'", e.getCause());
 			} catch (IOException e) {
-				throw new IOException("Could not read app toolkit definition '" + appToolkit.getPath() + "'", e);
+				throw new IOException("Could not read app toolkit definitions", e);
 			} catch (XmlParseException e) {
-				throw new TextParseException("Could not parse toolkit definition XML '" + appToolkit.getPath() + "'", e.getPosition(), e);
+				throw new TextParseException("Could not parse toolkit definition XML", e.getPosition(), e);
+			}
+		} else {
+			for (URL appToolkit : appToolkits) {
+				QonfigToolkit appTK;
+				try (InputStream aTKIn = appToolkit.openStream()) {
+					appTK = qonfigParser.parseToolkit(appToolkit, aTKIn);
+				} catch (IOException e) {
+					throw new IOException("Could not read app toolkit definition '" + appToolkit.getPath() + "'", e);
+				} catch (XmlParseException e) {
+					throw new TextParseException("Could not parse toolkit definition XML '" + appToolkit.getPath() + "'", e.getPosition(),
+						e);
+				}
+				qonfigParser.withToolkit(appTK);
 			}
-			qonfigParser.withToolkit(appTK);
 		}
 
 		QonfigDocument appDef;
@@ -91,6 +127,8 @@ public class QonfigApp {
 
 		Set<QonfigToolkit> toolkits = new LinkedHashSet<>();
 		// Resolve the dependency toolkits
+		Map<URL, CustomValueType[]> parallelToolkits = pool == null ? null : new LinkedHashMap<>();
+		Map<URL, String> parallelToolkitDefs = pool == null ? null : new HashMap<>();
 		for (QonfigElement toolkitEl : appDef.getRoot().getChildrenInRole(qonfigAppTK, "qonfig-app", "toolkit")) {
 			List<CustomValueType> valueTypes = create(toolkitEl.getChildrenInRole(qonfigAppTK, "toolkit", "value-type"),
 				CustomValueType.class);
@@ -98,6 +136,11 @@ public class QonfigApp {
 			URL toolkitURL = QonfigApp.class.getResource(toolkitDef);
 			if (toolkitURL == null)
 				throw new IllegalArgumentException("Could not find toolkit " + toolkitDef);
+			if (parallelToolkits != null) {
+				parallelToolkits.put(toolkitURL, valueTypes.toArray(new CustomValueType[valueTypes.size()]));
+				parallelToolkitDefs.put(toolkitURL, toolkitDef);
+				continue;
+			}
 			try (InputStream tkIn = toolkitURL.openStream()) {
 				toolkits.add(qonfigParser.parseToolkit(toolkitURL, tkIn, //
 					valueTypes.toArray(new CustomValueType[valueTypes.size()])));
@@ -111,6 +154,22 @@ public class QonfigApp {
 				throw new IllegalStateException("Could not parse toolkit: " + e.getMessage() + toolkitDef, e);
 			}
 		}
+		if (parallelToolkits != null && !parallelToolkits.isEmpty()) {
+			try {
+				toolkits.addAll(qonfigParser.parseToolkits(pool, parallelToolkits));
+			} catch (DefaultQonfigParser.ToolkitReadException e) {
+				throw new IllegalStateException(
+					"Could not read toolkit " + parallelToolkitDefs.get(e.getLocation()) + ": " + e.getCause().getMessage(), e.getCause());
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not read toolkits: " + e.getMessage(), e);
+			} catch (XmlParseException e) {
+				throw new TextParseException("Could not parse toolkit XML: " + e.getMessage(), e.getPosition(), e);
+			} catch (QonfigParseException e) {
+				throw new TextParseException("Could not parse toolkit: " + e.getMessage(), e.getIssues().get(0).fileLocation, e);
+			} catch (RuntimeException e) {
+				throw new IllegalStateException("Could not parse toolkits: " + e.getMessage(), e);
+			}
+		}
 
 		List<QonfigPromiseFulfillment> promiseFulfillment = create(
 			appDef.getRoot().getChildrenInRole(qonfigAppTK, "qonfig-app", "promise-fulfillment"), QonfigPromiseFulfillment.class);
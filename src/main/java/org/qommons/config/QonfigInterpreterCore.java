@@ -1,11 +1,14 @@
 package org.qommons.config;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.qommons.BiTuple;
 import org.qommons.ClassMap;
@@ -221,36 +224,30 @@ public class QonfigInterpreterCore {
 		public <T> T interpret(QonfigElementOrAddOn as, Class<T> asType,
 			ExBiConsumer<? super T, ? super CoreSession, QonfigInterpretationException> action) throws QonfigInterpretationException {
 			try (Transaction t = theReporting.interpreting()) {
-				ClassMap<QonfigCreatorHolder<?>> creators = theInterpreter.theCreators.get(as);
-				QonfigCreatorHolder<T> creator = creators == null ? null
-					: (QonfigCreatorHolder<T>) creators.get(asType, ClassMap.TypeMatch.SUB_TYPE);
+				InterpretationPlan<T> plan = getPlan(as, asType);
+				QonfigCreatorHolder<T> creator = plan.creator;
 				if (creator == null) {
-					as = getElement().getType();
-					creators = theInterpreter.theCreators.get(as);
-					creator = creators == null ? null : (QonfigCreatorHolder<T>) creators.get(asType, ClassMap.TypeMatch.SUB_TYPE);
-				}
-				if (creator == null) {
-					String msg = "No creator registered for element " + as.getName() + " and target type " + asType.getName();
+					String msg = "No creator registered for element " + plan.as.getName() + " and target type " + asType.getName();
 					reporting().error(msg);
 					return null;
 				}
 				CoreSession session;
 				if (theFocusType == creator.element)
 					session = this;
-				else if (theElement.isInstance(creator.element))
-					session = asElement(as);
+				else if (plan.isInstance)
+					session = asElement(plan.as);
 				else {
-					String msg = "Element " + theElement + " is not an instance of " + as;
+					String msg = "Element " + theElement + " is not an instance of " + plan.as;
 					reporting().error(msg);
 					throw new IllegalStateException(msg);
 				}
-				QonfigModifierHolder<T>[] modifiers = getModifiers(creator.type);
-				Object[] modifierPrepValues = new Object[modifiers.length];
-				int mIdx = 0;
-				for (QonfigModifierHolder<T> modifier : modifiers) {
+				QonfigModifierHolder<T>[] modifiers = plan.modifiers;
+				Object[] modifierPrepValues = modifiers.length == 0 ? NO_PREP_VALUES : new Object[modifiers.length];
+				int mIdx;
+				for (mIdx = 0; mIdx < modifiers.length; mIdx++) {
+					QonfigModifierHolder<T> modifier = modifiers[mIdx];
 					try {
-						if (theElement.isInstance(modifier.element))
-							modifierPrepValues[mIdx++] = modifier.modifier.prepareSession(session.asElement(modifier.element));
+						modifierPrepValues[mIdx] = modifier.modifier.prepareSession(session.asElement(modifier.element));
 					} catch (RuntimeInterpretationException e) {
 						throw e.toIntepreterException();
 					} catch (RuntimeException e) {
@@ -261,9 +258,8 @@ public class QonfigInterpreterCore {
 				for (mIdx = modifiers.length - 1; mIdx >= 0; mIdx--) {
 					QonfigModifierHolder<T> modifier = modifiers[mIdx];
 					try {
-						if (theElement.isInstance(modifier.element))
-							modifierPrepValues[mIdx] = modifier.modifier.postPrepare(session.asElement(modifier.element),
-								modifierPrepValues[mIdx]);
+						modifierPrepValues[mIdx] = modifier.modifier.postPrepare(session.asElement(modifier.element),
+							modifierPrepValues[mIdx]);
 					} catch (RuntimeInterpretationException e) {
 						throw e.toIntepreterException();
 					} catch (RuntimeException e) {
@@ -283,8 +279,7 @@ public class QonfigInterpreterCore {
 				for (mIdx = 0; mIdx < modifiers.length; mIdx++) {
 					QonfigModifierHolder<T> modifier = modifiers[mIdx];
 					try {
-						if (theElement.isInstance(modifier.element))
-							value = modifier.modifier.modifyValue(value, session.asElement(modifier.element), modifierPrepValues[mIdx]);
+						value = modifier.modifier.modifyValue(value, session.asElement(modifier.element), modifierPrepValues[mIdx]);
 					} catch (RuntimeInterpretationException e) {
 						throw e.toIntepreterException();
 					} catch (RuntimeException e) {
@@ -319,6 +314,45 @@ public class QonfigInterpreterCore {
 			return theValues;
 		}
 
+		/**
+		 * Gets the plan for interpreting this session's element as a type. Plans are cached in the interpreter by everything that affects
+		 * them (the requested element/add-on and target type and the element's type and inheritance), so each plan is only resolved once
+		 * for all elements of the same type.
+		 */
+		private <T> InterpretationPlan<T> getPlan(QonfigElementOrAddOn as, Class<T> asType) throws QonfigInterpretationException {
+			PlanKey key = new PlanKey(as, theElement.getType(), theElement.getInheritance(), asType);
+			InterpretationPlan<?> plan = theInterpreter.thePlans.get(key);
+			if (plan == null) {
+				plan = createPlan(as, asType);
+				InterpretationPlan<?> old = theInterpreter.thePlans.putIfAbsent(key, plan);
+				if (old != null)
+					plan = old;
+			}
+			return (InterpretationPlan<T>) plan;
+		}
+
+		private <T> InterpretationPlan<T> createPlan(QonfigElementOrAddOn as, Class<T> asType) throws QonfigInterpretationException {
+			ClassMap<QonfigCreatorHolder<?>> creators = theInterpreter.theCreators.get(as);
+			QonfigCreatorHolder<T> creator = creators == null ? null
+				: (QonfigCreatorHolder<T>) creators.get(asType, ClassMap.TypeMatch.SUB_TYPE);
+			if (creator == null) {
+				as = theElement.getType();
+				creators = theInterpreter.theCreators.get(as);
+				creator = creators == null ? null : (QonfigCreatorHolder<T>) creators.get(asType, ClassMap.TypeMatch.SUB_TYPE);
+			}
+			if (creator == null)
+				return new InterpretationPlan<>(as, null, false, null);
+			QonfigModifierHolder<T>[] modifiers = getModifiers(creator.type);
+			int applicable = 0;
+			for (QonfigModifierHolder<T> modifier : modifiers) {
+				if (theElement.isInstance(modifier.element))
+					modifiers[applicable++] = modifier;
+			}
+			if (applicable < modifiers.length)
+				modifiers = Arrays.copyOf(modifiers, applicable);
+			return new InterpretationPlan<>(as, creator, theElement.isInstance(creator.element), modifiers);
+		}
+
 		<T> QonfigModifierHolder<T>[] getModifiers(Class<T> type) throws QonfigInterpretationException {
 			Map<QonfigValueModifier<T>, QonfigModifierHolder<T>> modifiers = new LinkedHashMap<>();
 			getModifiers(type, theElement.getType().getSuperElement(), modifiers);
@@ -536,11 +570,78 @@ public class QonfigInterpreterCore {
 		}
 	}
 
+	/**
+	 * A resolved creator and the modifiers that apply to it for interpreting elements with a particular type and inheritance. Plans are
+	 * resolved from the creators and modifiers given to the interpreter when it was built.
+	 * 
+	 * @param <T> The type of value to create
+	 */
+	static class InterpretationPlan<T> {
+		/** The element/add-on that the creator was found for */
+		final QonfigElementOrAddOn as;
+		/** The creator, or null if there is none for the target type */
+		final QonfigCreatorHolder<T> creator;
+		/** Whether the element is an instance of the creator's element */
+		final boolean isInstance;
+		/** The modifiers applicable to the element, in order of application */
+		final QonfigModifierHolder<T>[] modifiers;
+
+		InterpretationPlan(QonfigElementOrAddOn as, QonfigCreatorHolder<T> creator, boolean isInstance,
+			QonfigModifierHolder<T>[] modifiers) {
+			this.as = as;
+			this.creator = creator;
+			this.isInstance = isInstance;
+			this.modifiers = modifiers;
+		}
+
+		@Override
+		public String toString() {
+			return String.valueOf(creator) + " with " + (modifiers == null ? "[]" : Arrays.toString(modifiers));
+		}
+	}
+
+	/** The key by which {@link InterpretationPlan}s are cached */
+	static class PlanKey {
+		private final QonfigElementOrAddOn theAs;
+		private final QonfigElementDef theElementType;
+		private final MultiInheritanceSet<QonfigAddOn> theInheritance;
+		private final Class<?> theTargetType;
+		private final int hashCode;
+
+		PlanKey(QonfigElementOrAddOn as, QonfigElementDef elementType, MultiInheritanceSet<QonfigAddOn> inheritance, Class<?> targetType) {
+			theAs = as;
+			theElementType = elementType;
+			theInheritance = inheritance;
+			theTargetType = targetType;
+			hashCode = Objects.hash(as, elementType, targetType) * 31 + (inheritance.isEmpty() ? 0 : inheritance.hashCode());
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			else if (!(obj instanceof PlanKey))
+				return false;
+			PlanKey other = (PlanKey) obj;
+			return hashCode == other.hashCode && theAs == other.theAs && theElementType == other.theElementType
+				&& theTargetType == other.theTargetType
+				&& (theInheritance == other.theInheritance || theInheritance.equals(other.theInheritance));
+		}
+	}
+
+	static final Object[] NO_PREP_VALUES = new Object[0];
+
 	private final Set<QonfigToolkit> theKnownToolkits;
 	private final Map<QonfigElementOrAddOn, ClassMap<QonfigCreatorHolder<?>>> theCreators;
 	private final Map<QonfigElementOrAddOn, ClassMap<QonfigModifierHolder<?>>> theModifiers;
 	private final ClassMap<SpecialSessionImplementation<?>> theSpecialSessions;
 	private final ExceptionThrowingReporting theReporting;
+	private final ConcurrentHashMap<PlanKey, InterpretationPlan<?>> thePlans;
 
 	/**
 	 * @param allKnownToolkits All toolkits used to build the interpreter
@@ -558,6 +659,7 @@ public class QonfigInterpreterCore {
 		theModifiers = modifiers;
 		theReporting = reporting;
 		theSpecialSessions = specialSessions.copy();
+		thePlans = new ConcurrentHashMap<>();
 		// Compile and check dependencies
 		StringBuilder error = null;
 		for (SpecialSessionImplementation<?> tki : theSpecialSessions.getAll(Object.class, TypeMatch.SUB_TYPE)) {
@@ -21,12 +21,16 @@ import org.qommons.io.PositionedContent;
 import org.qommons.io.SimpleXMLParser;
 import org.qommons.io.SimpleXMLParser.XmlParseException;
 import org.qommons.io.TextParseException;
+import org.qommons.io.XmlTree;
+import org.qommons.io.XmlTree.NodeType;
 import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 
 /**
  * Wraps an XML element and allows easier access to its structure. This class also checks the structure as it is used as well as afterward
  * to verify that the element was specified as intended.
+ * <p>
+ * The XML is read from a compact {@link XmlTree}. A W3C {@link Element} may also be given, which is first copied into a tree.
+ * </p>
  */
 public class StrictXmlReader implements Named, Transaction {
 	/**
@@ -36,8 +40,7 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @throws XmlParseException IF the XML could not be parsed
 	 */
 	public static StrictXmlReader ofRoot(InputStream in) throws IOException, XmlParseException {
-		SimpleXMLParser parser = new SimpleXMLParser();
-		return new StrictXmlReader(parser.parseDocument(null, in).getDocumentElement());
+		return new StrictXmlReader(new SimpleXMLParser().parseTree(null, in));
 	}
 
 	/**
@@ -47,34 +50,65 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @throws XmlParseException IF the XML could not be parsed
 	 */
 	public static StrictXmlReader ofRoot(Reader reader) throws IOException, XmlParseException {
-		SimpleXMLParser parser = new SimpleXMLParser();
-		return new StrictXmlReader(parser.parseDocument(null, reader).getDocumentElement());
+		return new StrictXmlReader(new SimpleXMLParser().parseTree(null, reader));
 	}
 
 	/** Returned from {@link #getElementOrMissing(String)} if the element is not present */
-	public static final StrictXmlReader MISSING = new StrictXmlReader(null);
+	public static final StrictXmlReader MISSING = new StrictXmlReader(null, null, -1, -1, null);
 
 	private final StrictXmlReader theParent;
-	private final Element theElement;
+	private final XmlTree theTree;
+	private final int theNode;
+	private final int theChildIndex;
+	private Element theDomElement;
 	private final BitSet theUsedNodes;
 	private StrictXmlReader[] theChildren;
 
 	/** @param element The XML element to wrap */
 	public StrictXmlReader(Element element) {
-		this(null, element);
+		this(null, XmlTree.of(element), -1, -1, element);
 	}
 
-	private StrictXmlReader(StrictXmlReader parent, Element element) {
-		if (element == null && MISSING != null)
+	/** @param tree The XML tree whose root element to wrap */
+	public StrictXmlReader(XmlTree tree) {
+		this(null, tree, -1, -1, null);
+	}
+
+	private StrictXmlReader(StrictXmlReader parent, XmlTree tree, int node, int childIndex, Element domElement) {
+		if (tree == null && MISSING != null)
 			throw new NullPointerException();
 		theParent = parent;
-		theElement = element;
+		theTree = tree;
+		theNode = (tree != null && node < 0) ? tree.getRoot() : node;
+		theChildIndex = childIndex;
+		theDomElement = domElement;
 		theUsedNodes = new BitSet();
 	}
 
-	/** @return The W3C element backing this reader */
+	/** @return The XML tree containing this element */
+	public XmlTree getTree() {
+		return theTree;
+	}
+
+	/** @return The index of this element in its {@link #getTree() tree} */
+	public int getNode() {
+		return theNode;
+	}
+
+	/**
+	 * @return The W3C element backing this reader. If this reader was not {@link #StrictXmlReader(Element) created} from a W3C element, a
+	 *         DOM copy of the root's {@link #getTree() tree} is {@link XmlTree#toDom(int) created} when this is first called.
+	 */
 	public Element getElement() {
-		return theElement;
+		if (theDomElement != null)
+			return theDomElement;
+		else if (theTree == null) // MISSING
+			return null;
+		else if (theParent == null)
+			theDomElement = theTree.toDom(theNode);
+		else
+			theDomElement = (Element) theParent.getElement().getChildNodes().item(theChildIndex);
+		return theDomElement;
 	}
 
 	/** @return This element's parent reader */
@@ -84,29 +118,26 @@ public class StrictXmlReader implements Named, Transaction {
 
 	@Override
 	public String getName() {
-		if (theElement.getPrefix() != null)
-			return theElement.getPrefix() + ":" + theElement.getTagName();
-		return theElement.getTagName();
+		return theTree.getName(theNode);
 	}
 
 	/** @return The portion of this element's name before the first colon, or null if no colon was present */
 	public String getPrefix() {
-		String prefix = theElement.getPrefix();
-		if (prefix != null)
-			return prefix;
-		int colon = theElement.getNodeName().indexOf(':');
-		return colon < 0 ? null : theElement.getNodeName().substring(0, colon);
+		String name = theTree.getName(theNode);
+		int colon = name.indexOf(':');
+		return colon < 0 ? null : name.substring(0, colon);
 	}
 
 	/** @return The portion of this element's name after the first colon, or the entire element name if no colon was present */
 	public String getTagName() {
-		int colon = theElement.getNodeName().indexOf(':');
-		return colon < 0 ? theElement.getNodeName() : theElement.getNodeName().substring(colon + 1);
+		String name = theTree.getName(theNode);
+		int colon = name.indexOf(':');
+		return colon < 0 ? name : name.substring(colon + 1);
 	}
 
 	/** @return The file position of the element's name in its opening tag */
 	public PositionedContent getNamePosition() {
-		return SimpleXMLParser.getNamePosition(theElement);
+		return theTree.getNamePosition(theNode);
 	}
 
 	/**
@@ -114,18 +145,13 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @return The attribute text, or null if none was specified
 	 */
 	public String getAttributeIfExists(String name) {
-		if (theElement == null) // MISSING
+		if (theTree == null) // MISSING
 			return null;
-		String value = null;
-		for (int i = 0; i < theElement.getAttributes().getLength(); i++) {
-			Node attr = theElement.getAttributes().item(i);
-			if (name.equals(attr.getNodeName())) {
-				value = attr.getNodeValue();
-				theUsedNodes.set(i);
-				break;
-			}
-		}
-		return value;
+		int index = theTree.indexOfAttribute(theNode, name);
+		if (index < 0)
+			return null;
+		theUsedNodes.set(index);
+		return theTree.getAttributeValue(theTree.getAttribute(theNode, index));
 	}
 
 	/**
@@ -168,14 +194,15 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @return A map of attribute name to value for all attributes whose names match the given pattern
 	 */
 	public Map<String, String> findAttributes(Pattern pattern) {
-		if (theElement == null) // MISSING
+		if (theTree == null) // MISSING
 			return Collections.emptyMap();
 		Map<String, String> found = new LinkedHashMap<>();
-		for (int i = 0; i < theElement.getAttributes().getLength(); i++) {
-			Node n = theElement.getAttributes().item(i);
-			if (!pattern.matcher(n.getNodeName()).matches())
+		for (int i = 0; i < theTree.getAttributeCount(theNode); i++) {
+			int att = theTree.getAttribute(theNode, i);
+			String attName = theTree.getAttributeName(att);
+			if (!pattern.matcher(attName).matches())
 				continue;
-			found.put(n.getNodeName(), n.getNodeValue());
+			found.put(attName, theTree.getAttributeValue(att));
 			theUsedNodes.set(i);
 		}
 		return found;
@@ -189,7 +216,7 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @throws TextParseException If the number of matching attributes specified was <code>&lt;min</code> or <code>&gt;max</code>
 	 */
 	public Map<String, String> findAttributes(Pattern pattern, int min, int max) throws TextParseException {
-		if (theElement == null) // MISSING, no checks
+		if (theTree == null) // MISSING, no checks
 			return Collections.emptyMap();
 		Map<String, String> found = findAttributes(pattern);
 		if (found.size() < min || (max >= 0 && found.size() > max))
@@ -201,12 +228,12 @@ public class StrictXmlReader implements Named, Transaction {
 
 	/** @return A name-to-value map of all attributes specified on this element */
 	public Map<String, String> getAllAttributes() {
-		if (theElement == null) // MISSING
+		if (theTree == null) // MISSING
 			return Collections.emptyMap();
 		Map<String, String> found = new LinkedHashMap<>();
-		for (int i = 0; i < theElement.getAttributes().getLength(); i++) {
-			Node n = theElement.getAttributes().item(i);
-			found.put(n.getNodeName(), n.getNodeValue());
+		for (int i = 0; i < theTree.getAttributeCount(theNode); i++) {
+			int att = theTree.getAttribute(theNode, i);
+			found.put(theTree.getAttributeName(att), theTree.getAttributeValue(att));
 			theUsedNodes.set(i);
 		}
 		return found;
@@ -217,10 +244,10 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @return The file position of the attribute's name, or null if the attribute was not specified
 	 */
 	public PositionedContent getAttributeNamePosition(String name) {
-		Node node = theElement.getAttributeNode(name);
-		if (node == null)
+		int index = theTree.indexOfAttribute(theNode, name);
+		if (index < 0)
 			return null;
-		return SimpleXMLParser.getNamePosition(node);
+		return theTree.getAttributeNamePosition(theTree.getAttribute(theNode, index));
 	}
 
 	/**
@@ -228,11 +255,11 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @return The file position of the start of the attribute's value, or null if the attribute was not specified
 	 */
 	public PositionedContent getAttributeValuePosition(String name) {
-		Node node = theElement.getAttributeNode(name);
-		if (node == null)
+		int index = theTree.indexOfAttribute(theNode, name);
+		if (index < 0)
 			return null;
-		getAttributeIfExists(name); // Mark as used
-		return SimpleXMLParser.getPositionContent(node);
+		theUsedNodes.set(index); // Mark as used
+		return theTree.getAttributeValuePosition(theTree.getAttribute(theNode, index));
 	}
 
 	/**
@@ -240,15 +267,15 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @return All child elements with the given name
 	 */
 	public List<StrictXmlReader> getElements(String name) {
-		if (theElement == null) // MISSING
+		if (theTree == null) // MISSING
 			return Collections.emptyList();
 		List<StrictXmlReader> found = new ArrayList<>();
-		int attLen = theElement.getAttributes().getLength();
-		for (int i = 0; i < theElement.getChildNodes().getLength(); i++) {
-			Node n = theElement.getChildNodes().item(i);
-			if (!(n instanceof Element) || !((Element) n).getTagName().equals(name))
+		int attLen = theTree.getAttributeCount(theNode);
+		int i = 0;
+		for (int n = theTree.getFirstChild(theNode); n >= 0; n = theTree.getNextSibling(n), i++) {
+			if (theTree.getType(n) != NodeType.ELEMENT || !theTree.isNamed(n, name))
 				continue;
-			found.add(new StrictXmlReader(this, (Element) n));
+			found.add(new StrictXmlReader(this, theTree, n, i, null));
 			theUsedNodes.set(i + attLen);
 		}
 		return found;
@@ -262,7 +289,7 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @throws TextParseException If the number of matching elements specified was <code>&lt;min</code> or <code>&gt;max</code>
 	 */
 	public List<StrictXmlReader> getElements(String name, int min, int max) throws TextParseException {
-		if (theElement == null) // MISSING
+		if (theTree == null) // MISSING
 			return Collections.emptyList();
 		List<StrictXmlReader> found = getElements(name);
 		if (found.size() < min || (max >= 0 && found.size() > max))
@@ -277,26 +304,26 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @throws TextParseException If multiple elements with the given name were specified
 	 */
 	public StrictXmlReader getElementIfExists(String name) throws TextParseException {
-		if (theElement == null) // MISSING
+		if (theTree == null) // MISSING
 			return null;
-		Element found = null;
+		int found = -1;
 		int foundIdx = -1;
-		for (int i = 0; i < theElement.getChildNodes().getLength(); i++) {
-			Node n = theElement.getChildNodes().item(i);
-			if (!(n instanceof Element) || !((Element) n).getTagName().equals(name))
+		int i = 0;
+		for (int n = theTree.getFirstChild(theNode); n >= 0; n = theTree.getNextSibling(n), i++) {
+			if (theTree.getType(n) != NodeType.ELEMENT || !theTree.isNamed(n, name))
 				continue;
-			if (found != null)
+			if (found >= 0)
 				throw new TextParseException(getPath() + ": Multiple '" + name + "' elements specified under parent " + getPath(),
 					getNamePosition().getPosition(0));
-			found = (Element) n;
+			found = n;
 			foundIdx = i;
-			theUsedNodes.set(i + theElement.getAttributes().getLength());
+			theUsedNodes.set(i + theTree.getAttributeCount(theNode));
 		}
-		if (found != null) {
+		if (found >= 0) {
 			if (theChildren == null)
-				theChildren = new StrictXmlReader[theElement.getChildNodes().getLength()];
+				theChildren = new StrictXmlReader[theTree.getChildCount(theNode)];
 			if (theChildren[foundIdx] == null)
-				theChildren[foundIdx] = new StrictXmlReader(this, found);
+				theChildren[foundIdx] = new StrictXmlReader(this, theTree, found, foundIdx, null);
 			return theChildren[foundIdx];
 		} else
 			return null;
@@ -308,7 +335,7 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @throws TextParseException If multiple elements with the given name were specified, or if no such element was specified
 	 */
 	public StrictXmlReader getElement(String name) throws TextParseException {
-		if (theElement == null) // MISSING, no checks
+		if (theTree == null) // MISSING, no checks
 			return MISSING;
 
 		StrictXmlReader found = getElementIfExists(name);
@@ -330,15 +357,15 @@ public class StrictXmlReader implements Named, Transaction {
 
 	/** @return All child elements */
 	public List<StrictXmlReader> getElements() {
-		if (theElement == null) // MISSING
+		if (theTree == null) // MISSING
 			return Collections.emptyList();
 		List<StrictXmlReader> found = new ArrayList<>();
-		int attLen = theElement.getAttributes().getLength();
-		for (int i = 0; i < theElement.getChildNodes().getLength(); i++) {
-			Node n = theElement.getChildNodes().item(i);
-			if (!(n instanceof Element))
+		int attLen = theTree.getAttributeCount(theNode);
+		int i = 0;
+		for (int n = theTree.getFirstChild(theNode); n >= 0; n = theTree.getNextSibling(n), i++) {
+			if (theTree.getType(n) != NodeType.ELEMENT)
 				continue;
-			found.add(new StrictXmlReader(this, (Element) n));
+			found.add(new StrictXmlReader(this, theTree, n, i, null));
 			theUsedNodes.set(i + attLen);
 		}
 		return found;
@@ -351,7 +378,7 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @throws TextParseException If the number of matching elements specified was <code>&lt;min</code> or <code>&gt;max</code>
 	 */
 	public List<StrictXmlReader> getElements(int min, int max) throws TextParseException {
-		if (theElement == null) // MISSING
+		if (theTree == null) // MISSING
 			return Collections.emptyList();
 		List<StrictXmlReader> found = getElements();
 		if (found.size() < min || (max >= 0 && found.size() > max))
@@ -365,20 +392,20 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @throws TextParseException If multiple text sections were specified
 	 */
 	public String getTextTrimIfExists() throws TextParseException {
-		if (theElement == null) // MISSING
+		if (theTree == null) // MISSING
 			return null;
 		String found = null;
 		boolean anyText = false;
-		int attLen = theElement.getAttributes().getLength();
-		for (int i = 0; i < theElement.getChildNodes().getLength(); i++) {
-			Node n = theElement.getChildNodes().item(i);
-			if ((n.getNodeType() == Node.TEXT_NODE || n.getNodeType() == Node.CDATA_SECTION_NODE)) {
+		int attLen = theTree.getAttributeCount(theNode);
+		int i = 0;
+		for (int n = theTree.getFirstChild(theNode); n >= 0; n = theTree.getNextSibling(n), i++) {
+			if (isText(n)) {
 				anyText = true;
-				if (!isWhiteSpace(n.getNodeValue())) {
+				if (!theTree.isWhiteSpace(n)) {
 					if (found != null)
 						throw new TextParseException(getPath() + ": Multiple text/CDATA sections specified under parent " + getPath(),
 							getNamePosition().getPosition(0));
-					found = n.getNodeValue();
+					found = theTree.getValue(n);
 				}
 				theUsedNodes.set(i + attLen);
 			}
@@ -396,7 +423,7 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @throws TextParseException If multiple text sections were specified, or if <code>required</code> and the element was self-closing
 	 */
 	public String getTextTrim() throws TextParseException {
-		if (theElement == null) // MISSING
+		if (theTree == null) // MISSING
 			return null;
 		String found = getTextTrimIfExists();
 		if (found == null)
@@ -409,19 +436,19 @@ public class StrictXmlReader implements Named, Transaction {
 	 *         sections were specified
 	 */
 	public PositionedContent getTextTrimPosition() {
-		int attLen = theElement.getAttributes().getLength();
+		int attLen = theTree.getAttributeCount(theNode);
 		PositionedContent found = null;
 		boolean anyNonWS = false;
-		for (int i = 0; i < theElement.getChildNodes().getLength(); i++) {
-			Node n = theElement.getChildNodes().item(i);
-			if ((n.getNodeType() == Node.TEXT_NODE || n.getNodeType() == Node.CDATA_SECTION_NODE)) {
-				PositionedContent pos = SimpleXMLParser.getPositionContent(n);
-				if (!isWhiteSpace(n.getNodeValue())) {
+		int i = 0;
+		for (int n = theTree.getFirstChild(theNode); n >= 0; n = theTree.getNextSibling(n), i++) {
+			if (isText(n)) {
+				PositionedContent pos = theTree.getValuePosition(n);
+				if (!theTree.isWhiteSpace(n)) {
 					if (anyNonWS)
 						return pos;
 					// throw new TextParseException(getPath() + ": Multiple text/CDATA sections specified under parent " + getPath(),
 					// getNamePosition());
-					String content = n.getNodeValue();
+					String content = theTree.getValue(n);
 					int offset, end;
 					for (offset = 0; offset < content.length() && Character.isWhitespace(content.charAt(offset)); offset++) {
 					}
@@ -495,21 +522,21 @@ public class StrictXmlReader implements Named, Transaction {
 	 *         between
 	 */
 	public String getCompleteTextIfSpecified(boolean trim) {
-		if (theElement == null) // MISSING
+		if (theTree == null) // MISSING
 			return null;
 		StringBuilder found = new StringBuilder();
 		boolean anyText = false;
-		int attLen = theElement.getAttributes().getLength();
-		for (int i = 0; i < theElement.getChildNodes().getLength(); i++) {
-			Node n = theElement.getChildNodes().item(i);
-			if ((n.getNodeType() == Node.TEXT_NODE || n.getNodeType() == Node.CDATA_SECTION_NODE)) {
+		int attLen = theTree.getAttributeCount(theNode);
+		int i = 0;
+		for (int n = theTree.getFirstChild(theNode); n >= 0; n = theTree.getNextSibling(n), i++) {
+			if (isText(n)) {
 				anyText = true;
 				if (trim) {
 					if (found.length() > 0)
 						found.append('\n');
-					found.append(n.getNodeValue().trim());
+					found.append(theTree.getValue(n).trim());
 				} else
-					found.append(n.getNodeValue());
+					found.append(theTree.getValue(n));
 				theUsedNodes.set(i + attLen);
 			}
 		}
@@ -525,7 +552,7 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @throws TextParseException If <code>required</code> and the element was self-closing
 	 */
 	public String getCompleteText(boolean trim) throws TextParseException {
-		if (theElement == null) // MISSING
+		if (theTree == null) // MISSING
 			return null;
 		String completeText = getCompleteTextIfSpecified(trim);
 		if (completeText == null)
@@ -538,17 +565,18 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @return The content of all text sections of this element
 	 */
 	public List<String> getAllText(boolean trim) {
-		if (theElement == null) // MISSING
+		if (theTree == null) // MISSING
 			return Collections.emptyList();
 		List<String> found = new ArrayList<>();
-		int attLen = theElement.getAttributes().getLength();
-		for (int i = 0; i < theElement.getChildNodes().getLength(); i++) {
-			Node n = theElement.getChildNodes().item(i);
-			if ((n.getNodeType() == Node.TEXT_NODE || n.getNodeType() == Node.CDATA_SECTION_NODE)) {
+		int attLen = theTree.getAttributeCount(theNode);
+		int i = 0;
+		for (int n = theTree.getFirstChild(theNode); n >= 0; n = theTree.getNextSibling(n), i++) {
+			if (isText(n)) {
 				theUsedNodes.set(i + attLen);
-				if (trim && isWhiteSpace(n.getNodeValue()))
+				if (trim && theTree.isWhiteSpace(n))
 					continue;
-				found.add(trim ? n.getNodeValue().trim() : n.getNodeValue());
+				String value = theTree.getValue(n);
+				found.add(trim ? value.trim() : value);
 			}
 		}
 		return found;
@@ -562,7 +590,7 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @throws TextParseException If the number of text sections specified was <code>&lt;min</code> or <code>&gt;max</code>
 	 */
 	public List<String> getAllText(boolean trim, int min, int max) throws TextParseException {
-		if (theElement == null) // MISSING
+		if (theTree == null) // MISSING
 			return Collections.emptyList();
 		List<String> text = getAllText(trim);
 		if (text.size() < min || (max >= 0 && text.size() > max))
@@ -574,18 +602,18 @@ public class StrictXmlReader implements Named, Transaction {
 	/** @return This element's path under the root */
 	public StringBuilder getPath() {
 		if (theParent != null)
-			return theParent.getPath().append('/').append(theElement.getNodeName());
+			return theParent.getPath().append('/').append(theTree.getName(theNode));
 		else
-			return new StringBuilder(theElement.getNodeName());
+			return new StringBuilder(theTree.getName(theNode));
 	}
 
 	@Override
 	public String toString() {
 		StringBuilder str = new StringBuilder().append('<');
 		str.append(getName());
-		for (int i = 0; i < theElement.getAttributes().getLength(); i++) {
-			Node n = theElement.getAttributes().item(i);
-			str.append(' ').append(n.getNodeName()).append("=\"").append(n.getNodeValue()).append('"');
+		for (int i = 0; i < theTree.getAttributeCount(theNode); i++) {
+			int att = theTree.getAttribute(theNode, i);
+			str.append(' ').append(theTree.getAttributeName(att)).append("=\"").append(theTree.getAttributeValue(att)).append('"');
 		}
 		return str.append('>').toString();
 	}
@@ -614,7 +642,7 @@ public class StrictXmlReader implements Named, Transaction {
 	 * @throws TextParseException If there was any unexpected content in this element
 	 */
 	public void check(boolean deep) throws TextParseException {
-		if (theElement == null) // MISSING
+		if (theTree == null) // MISSING
 			return;
 		Map<String, List<FilePosition>> errs = null;
 		errs = check(new StringBuilder(), deep, errs);
@@ -641,29 +669,34 @@ public class StrictXmlReader implements Named, Transaction {
 	}
 
 	private Map<String, List<FilePosition>> check(StringBuilder path, boolean deep, Map<String, List<FilePosition>> errs) {
-		if (theElement == null)
+		if (theTree == null)
 			return errs;
-		int attLen = theElement.getAttributes().getLength();
+		int attLen = theTree.getAttributeCount(theNode);
+		int childIdx = 0;
+		int childNode = theTree.getFirstChild(theNode);
 		for (int i = theUsedNodes.nextClearBit(0); i >= 0
-			&& i < attLen + theElement.getChildNodes().getLength(); i = theUsedNodes.nextClearBit(i + 1)) {
+			&& i < attLen + theTree.getChildCount(theNode); i = theUsedNodes.nextClearBit(i + 1)) {
 			if (errs == null)
 				errs = new LinkedHashMap<>();
-			Node n = i < attLen ? theElement.getAttributes().item(i) : theElement.getChildNodes().item(i - attLen);
-			switch (n.getNodeType()) {
-			case Node.ELEMENT_NODE:
-				errs.computeIfAbsent(path + ((Element) n).getTagName(), __ -> new ArrayList<>())
-					.add(SimpleXMLParser.getNamePosition(n).getPosition(0));
-				break;
-			case Node.ATTRIBUTE_NODE:
-				errs.computeIfAbsent(path + n.getNodeName(), __ -> new ArrayList<>())
-					.add(SimpleXMLParser.getNamePosition(n).getPosition(0));
+			if (i < attLen) {
+				int att = theTree.getAttribute(theNode, i);
+				errs.computeIfAbsent(path + theTree.getAttributeName(att), __ -> new ArrayList<>())
+					.add(theTree.getAttributeNamePosition(att).getPosition(0));
+				continue;
+			}
+			for (; childIdx < i - attLen; childIdx++)
+				childNode = theTree.getNextSibling(childNode);
+			switch (theTree.getType(childNode)) {
+			case ELEMENT:
+				errs.computeIfAbsent(path + theTree.getName(childNode), __ -> new ArrayList<>())
+					.add(theTree.getNamePosition(childNode).getPosition(0));
 				break;
-			case Node.TEXT_NODE:
-				if (!isWhiteSpace(n.getNodeValue()))
-					errs.computeIfAbsent(path + " text", __ -> new ArrayList<>()).add(SimpleXMLParser.getPositionContent(n).getPosition(0));
+			case TEXT:
+				if (!theTree.isWhiteSpace(childNode))
+					errs.computeIfAbsent(path + " text", __ -> new ArrayList<>()).add(theTree.getValuePosition(childNode).getPosition(0));
 				break;
-			case Node.CDATA_SECTION_NODE:
-				errs.computeIfAbsent(path + " CDATA", __ -> new ArrayList<>()).add(SimpleXMLParser.getPositionContent(n).getPosition(0));
+			case CDATA:
+				errs.computeIfAbsent(path + " CDATA", __ -> new ArrayList<>()).add(theTree.getValuePosition(childNode).getPosition(0));
 				break;
 			default:
 				continue;
@@ -691,21 +724,9 @@ public class StrictXmlReader implements Named, Transaction {
 		}
 	}
 
-	private static boolean isWhiteSpace(String nodeValue) {
-		if (nodeValue == null)
-			return true;
-		for (int i = 0; i < nodeValue.length(); i++) {
-			switch (nodeValue.charAt(i)) {
-			case ' ':
-			case '\n':
-			case '\r':
-			case '\t':
-				break;
-			default:
-				return false;
-			}
-		}
-		return true;
+	private boolean isText(int node) {
+		NodeType type = theTree.getType(node);
+		return type == NodeType.TEXT || type == NodeType.CDATA;
 	}
 
 	/**
@@ -0,0 +1,481 @@
+package org.qommons.io;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.qommons.BooleanList;
+import org.qommons.FloatList;
+import org.qommons.IntList;
+import org.qommons.LongList;
+
+/**
+ * <p>
+ * Reads selected columns of CSV content into columnar, primitive lists, e.g. for analysis or bulk loading.
+ * </p>
+ * <p>
+ * Columns are selected by index or (after the {@link #readHeader() header} is read) by name before any rows are read. Each selected column
+ * is decoded directly from the {@link CsvParser#getColumn(int) column views} of the parser, so no Strings or boxed values are created for
+ * numeric or boolean columns, and nothing at all is created for columns that are not selected. String columns are
+ * {@link #stringColumn(int) dictionary-encoded}, so a String is only created for each distinct value.
+ * </p>
+ * <p>
+ * Values that cannot be decoded are reported as {@link TextParseException}s pointing to the column in the content.
+ * </p>
+ */
+public class CsvColumnReader {
+	private final CsvParser theParser;
+	private String[] theHeader;
+	private final List<ColumnDecoder> theColumns;
+	private int theRowCount;
+
+	/** @param parser The parser to read rows from */
+	public CsvColumnReader(CsvParser parser) {
+		theParser = parser;
+		theColumns = new ArrayList<>();
+	}
+
+	/** @return The parser that this reader reads rows from */
+	public CsvParser getParser() {
+		return theParser;
+	}
+
+	/**
+	 * Reads the next line of the content as a header, enabling columns to be selected by name
+	 *
+	 * @return The names of the columns in the header
+	 * @throws IOException If the content could not be read
+	 * @throws TextParseException If the header could not be parsed, or there is no content
+	 */
+	public String[] readHeader() throws IOException, TextParseException {
+		if (theHeader != null || theRowCount > 0)
+			throw new IllegalStateException("Rows have already been read");
+		theHeader = theParser.parseNextLine();
+		if (theHeader == null)
+			throw new TextParseException("No header", (int) theParser.getCurrentOffset(), theParser.getCurrentLineNumber(), 0);
+		return theHeader.clone();
+	}
+
+	/**
+	 * @param name The name of the column in the {@link #readHeader() header}
+	 * @return The index of the column
+	 * @throws IllegalArgumentException If there is no such column in the header
+	 */
+	public int getColumnIndex(String name) {
+		if (theHeader == null)
+			throw new IllegalStateException("No header has been read");
+		for (int i = 0; i < theHeader.length; i++) {
+			if (theHeader[i].equals(name))
+				return i;
+		}
+		throw new IllegalArgumentException("No such column: " + name);
+	}
+
+	/**
+	 * @param column The index of the column to read
+	 * @return The list that integer values of the column will be read into
+	 */
+	public IntList intColumn(int column) {
+		IntList values = new IntList();
+		addColumn(new ColumnDecoder(column) {
+			@Override
+			void decode(CharSequence value) throws TextParseException {
+				long parsed = parseLong(value, column);
+				if (parsed < Integer.MIN_VALUE || parsed > Integer.MAX_VALUE)
+					theParser.throwParseException(column, 0, "Value " + parsed + " is too large for an integer");
+				values.add((int) parsed);
+			}
+		});
+		return values;
+	}
+
+	/**
+	 * @param column The name of the column to read
+	 * @return The list that integer values of the column will be read into
+	 */
+	public IntList intColumn(String column) {
+		return intColumn(getColumnIndex(column));
+	}
+
+	/**
+	 * @param column The index of the column to read
+	 * @return The list that long integer values of the column will be read into
+	 */
+	public LongList longColumn(int column) {
+		LongList values = new LongList();
+		addColumn(new ColumnDecoder(column) {
+			@Override
+			void decode(CharSequence value) throws TextParseException {
+				values.add(parseLong(value, column));
+			}
+		});
+		return values;
+	}
+
+	/**
+	 * @param column The name of the column to read
+	 * @return The list that long integer values of the column will be read into
+	 */
+	public LongList longColumn(String column) {
+		return longColumn(getColumnIndex(column));
+	}
+
+	/**
+	 * @param column The index of the column to read
+	 * @return The list that floating-point values of the column will be read into
+	 */
+	public FloatList floatColumn(int column) {
+		FloatList values = new FloatList();
+		addColumn(new ColumnDecoder(column) {
+			@Override
+			void decode(CharSequence value) throws TextParseException {
+				values.add(parseFloat(value, column));
+			}
+		});
+		return values;
+	}
+
+	/**
+	 * @param column The name of the column to read
+	 * @return The list that floating-point values of the column will be read into
+	 */
+	public FloatList floatColumn(String column) {
+		return floatColumn(getColumnIndex(column));
+	}
+
+	/**
+	 * @param column The index of the column to read
+	 * @return The list that boolean values (true or false, ignoring case) of the column will be read into
+	 */
+	public BooleanList booleanColumn(int column) {
+		BooleanList values = new BooleanList();
+		addColumn(new ColumnDecoder(column) {
+			@Override
+			void decode(CharSequence value) throws TextParseException {
+				int start = trimStart(value), end = trimEnd(value);
+				if (regionMatches(value, start, end, "true"))
+					values.add(true);
+				else if (regionMatches(value, start, end, "false"))
+					values.add(false);
+				else
+					theParser.throwParseException(column, start, "Boolean value expected, not \"" + value + "\"");
+			}
+		});
+		return values;
+	}
+
+	/**
+	 * @param column The name of the column to read
+	 * @return The list that boolean values (true or false, ignoring case) of the column will be read into
+	 */
+	public BooleanList booleanColumn(String column) {
+		return booleanColumn(getColumnIndex(column));
+	}
+
+	/**
+	 * @param column The index of the column to read
+	 * @return The dictionary-encoded column that values of the column will be read into
+	 */
+	public DictionaryColumn stringColumn(int column) {
+		DictionaryColumn values = new DictionaryColumn();
+		addColumn(new ColumnDecoder(column) {
+			@Override
+			void decode(CharSequence value) {
+				values.add(value);
+			}
+		});
+		return values;
+	}
+
+	/**
+	 * @param column The name of the column to read
+	 * @return The dictionary-encoded column that values of the column will be read into
+	 */
+	public DictionaryColumn stringColumn(String column) {
+		return stringColumn(getColumnIndex(column));
+	}
+
+	/**
+	 * Selects a column to be decoded by a {@link Format}. This is not as efficient as the primitive columns, but supports any type.
+	 *
+	 * @param <T> The type of values in the column
+	 * @param column The index of the column to read
+	 * @param format The format to parse values of the column with
+	 * @return The list that values of the column will be read into
+	 */
+	public <T> List<T> column(int column, Format<T> format) {
+		List<T> values = new ArrayList<>();
+		addColumn(new ColumnDecoder(column) {
+			@Override
+			void decode(CharSequence value) throws TextParseException {
+				try {
+					values.add(format.parse(value));
+				} catch (ParseException e) {
+					theParser.throwParseException(column, e.getErrorOffset(), e.getMessage(), e);
+				}
+			}
+		});
+		return values;
+	}
+
+	/**
+	 * Selects a column to be decoded by a {@link Format}. This is not as efficient as the primitive columns, but supports any type.
+	 *
+	 * @param <T> The type of values in the column
+	 * @param column The name of the column to read
+	 * @param format The format to parse values of the column with
+	 * @return The list that values of the column will be read into
+	 */
+	public <T> List<T> column(String column, Format<T> format) {
+		return column(getColumnIndex(column), format);
+	}
+
+	private void addColumn(ColumnDecoder column) {
+		if (theRowCount > 0)
+			throw new IllegalStateException("Columns must be selected before any rows are read");
+		else if (column.theIndex < 0)
+			throw new IndexOutOfBoundsException("" + column.theIndex);
+		theColumns.add(column);
+	}
+
+	/** @return The number of rows that have been read */
+	public int getRowCount() {
+		return theRowCount;
+	}
+
+	/**
+	 * Reads rows of content into the selected columns
+	 *
+	 * @param maxRows The maximum number of rows to read
+	 * @return The number of rows read, which will be less than <code>maxRows</code> only if there are no more rows in the content
+	 * @throws IOException If the content could not be read
+	 * @throws TextParseException If the content could not be parsed, or a row does not contain a selected column, or a value could not be
+	 *         decoded
+	 */
+	public int readRows(int maxRows) throws IOException, TextParseException {
+		int rows = 0;
+		while (rows < maxRows) {
+			int columns = theParser.parseNextColumns();
+			if (columns == 0)
+				break;
+			for (ColumnDecoder column : theColumns) {
+				if (column.theIndex >= columns)
+					theParser.throwParseException(columns - 1, theParser.getColumn(columns - 1).length(),
+						"At least " + (column.theIndex + 1) + " columns expected, but only " + columns + " encountered");
+				column.decode(theParser.getColumn(column.theIndex));
+			}
+			rows++;
+			theRowCount++;
+		}
+		return rows;
+	}
+
+	/**
+	 * Reads all remaining rows of content into the selected columns
+	 *
+	 * @return The number of rows read
+	 * @throws IOException If the content could not be read
+	 * @throws TextParseException If the content could not be parsed, or a row does not contain a selected column, or a value could not be
+	 *         decoded
+	 */
+	public int readAll() throws IOException, TextParseException {
+		return readRows(Integer.MAX_VALUE);
+	}
+
+	long parseLong(CharSequence value, int column) throws TextParseException {
+		int start = trimStart(value), end = trimEnd(value);
+		int i = start;
+		boolean negative = false;
+		if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+'))
+			negative = value.charAt(i++) == '-';
+		if (i == end)
+			theParser.throwParseException(column, i, "Integer value expected");
+		// Accumulate negatively to be able to represent Long.MIN_VALUE
+		long result = 0;
+		for (; i < end; i++) {
+			int digit = value.charAt(i) - '0';
+			if (digit < 0 || digit > 9)
+				theParser.throwParseException(column, i, "Integer value expected");
+			if (result < (Long.MIN_VALUE + digit) / 10)
+				theParser.throwParseException(column, start, "Value is too large for a long integer");
+			result = result * 10 - digit;
+		}
+		if (!negative) {
+			if (result == Long.MIN_VALUE)
+				theParser.throwParseException(column, start, "Value is too large for a long integer");
+			result = -result;
+		}
+		return result;
+	}
+
+	float parseFloat(CharSequence value, int column) throws TextParseException {
+		int start = trimStart(value), end = trimEnd(value);
+		// Fast path for simple decimals whose digits and scale are exactly representable as floats, which need no rounding
+		int i = start;
+		boolean negative = false;
+		if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+'))
+			negative = value.charAt(i++) == '-';
+		int mantissa = 0, scale = 0, digits = 0;
+		boolean point = false;
+		for (; i < end; i++) {
+			char c = value.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (mantissa >= (1 << 24) / 10)
+					break;
+				mantissa = mantissa * 10 + (c - '0');
+				digits++;
+				if (point)
+					scale++;
+			} else if (c == '.' && !point)
+				point = true;
+			else
+				break;
+		}
+		if (i == end && digits > 0 && scale <= 10) {
+			float result = scale == 0 ? mantissa : mantissa / FLOAT_POWERS_OF_TEN[scale];
+			return negative ? -result : result;
+		}
+		// Exponents, special values, or too many digits
+		try {
+			return Float.parseFloat(value.subSequence(start, end).toString());
+		} catch (NumberFormatException e) {
+			theParser.throwParseException(column, start, "Number expected, not \"" + value + "\"");
+			return 0; // Won't get here
+		}
+	}
+
+	private static final float[] FLOAT_POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
+
+	static int trimStart(CharSequence value) {
+		int start = 0;
+		while (start < value.length() && Character.isWhitespace(value.charAt(start)))
+			start++;
+		return start;
+	}
+
+	static int trimEnd(CharSequence value) {
+		int end = value.length();
+		while (end > 0 && Character.isWhitespace(value.charAt(end - 1)))
+			end--;
+		return end;
+	}
+
+	static boolean regionMatches(CharSequence value, int start, int end, String match) {
+		if (end - start != match.length())
+			return false;
+		for (int i = 0; i < match.length(); i++) {
+			if (Character.toLowerCase(value.charAt(start + i)) != match.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	private static abstract class ColumnDecoder {
+		final int theIndex;
+
+		ColumnDecoder(int index) {
+			theIndex = index;
+		}
+
+		abstract void decode(CharSequence value) throws TextParseException;
+	}
+
+	/**
+	 * A dictionary-encoded column of String values. Each distinct value in the column is stored once in the {@link #getDictionary()
+	 * dictionary}, and each row of the column is stored as the {@link #getCodes() index} of its value in the dictionary.
+	 */
+	public static class DictionaryColumn {
+		private final IntList theCodes;
+		private final List<String> theDictionary;
+		/** Open-addressed hash table of dictionary indexes plus one, so that values can be looked up without creating Strings */
+		private int[] theTable;
+
+		DictionaryColumn() {
+			theCodes = new IntList();
+			theDictionary = new ArrayList<>();
+			theTable = new int[16];
+		}
+
+		/** @return The number of rows in the column */
+		public int size() {
+			return theCodes.size();
+		}
+
+		/**
+		 * @param row The index of the row in the column
+		 * @return The value of the column in the row
+		 */
+		public String get(int row) {
+			return theDictionary.get(theCodes.get(row));
+		}
+
+		/** @return The dictionary index of the value in each row of the column */
+		public IntList getCodes() {
+			return theCodes;
+		}
+
+		/** @return The distinct values in the column, in the order they were first encountered */
+		public List<String> getDictionary() {
+			return Collections.unmodifiableList(theDictionary);
+		}
+
+		void add(CharSequence value) {
+			int hash = hash(value);
+			int mask = theTable.length - 1;
+			int slot = hash & mask;
+			while (theTable[slot] != 0) {
+				int code = theTable[slot] - 1;
+				if (contentEquals(theDictionary.get(code), value)) {
+					theCodes.add(code);
+					return;
+				}
+				slot = (slot + 1) & mask;
+			}
+			int code = theDictionary.size();
+			theDictionary.add(value.toString());
+			theTable[slot] = code + 1;
+			theCodes.add(code);
+			if (theDictionary.size() * 2 > theTable.length)
+				rehash();
+		}
+
+		private void rehash() {
+			theTable = new int[theTable.length * 2];
+			int mask = theTable.length - 1;
+			for (int code = 0; code < theDictionary.size(); code++) {
+				int slot = hash(theDictionary.get(code)) & mask;
+				while (theTable[slot] != 0)
+					slot = (slot + 1) & mask;
+				theTable[slot] = code + 1;
+			}
+		}
+
+		private static int hash(CharSequence value) {
+			int hash = 0;
+			for (int i = 0; i < value.length(); i++)
+				hash = 31 * hash + value.charAt(i);
+			return hash ^ (hash >>> 16);
+		}
+
+		private static boolean contentEquals(String str, CharSequence value) {
+			if (str.length() != value.length())
+				return false;
+			for (int i = 0; i < str.length(); i++) {
+				if (str.charAt(i) != value.charAt(i))
+					return false;
+			}
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			String[] values = new String[theCodes.size()];
+			for (int i = 0; i < values.length; i++)
+				values[i] = get(i);
+			return Arrays.toString(values);
+		}
+	}
+}
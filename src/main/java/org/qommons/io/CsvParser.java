@@ -7,18 +7,19 @@ import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 
 import org.qommons.ArgumentParsing;
-import org.qommons.IntList;
 import org.qommons.collect.QuickSet;
 import org.qommons.collect.QuickSet.QuickMap;
 
@@ -45,20 +46,42 @@ import org.qommons.collect.QuickSet.QuickMap;
  * <p>
  * This class does not deal specifically with a header, which may be parsed the same as any other line.
  * </p>
+ * <p>
+ * Content is read from the reader in blocks into a window which always holds the entire line being parsed. The
+ * {@link #parseNextColumns()} method parses a line without creating any objects, exposing each column as a {@link #getColumn(int) view}
+ * of the window which only creates a String if asked to.
+ * </p>
  */
 public class CsvParser {
+	/** The default size of the window of characters that content is read into */
+	public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
 	final Reader theReader;
 	final char theDelimiter;
 	int theTabColumnOffset;
-	private final CsvParseState theParseState;
+
+	/** The window of content read from the reader, which retains all content of the most recently parsed line */
+	private char[] theBuffer;
+	private int thePosition;
+	private int theLimit;
+	/** The position in the window of the start of the line most recently parsed by {@link #parseNextColumns()} */
+	private int theMark;
+	/** The overall character offset of the start of the window */
+	private long theBufferOffset;
+	private boolean isEof;
+
+	private int theLineNumber;
+	private long theLineStart;
+
+	private CsvColumn[] theColumns;
+	private int theColumnCount;
 	private int thePassedBlankLines;
 	private int theEntryNumber;
 	private int theLastLineNumber;
 	private long theLastLineOffset;
-	private final IntList theLastLineColumnOffsets;
 
 	private CharsetEncoder theCharSet;
-	private StringBuilder theCurrentLine;
+	private boolean isUtf8;
 	private long theLastLineByteOffset;
 	private long theCurrentByteOffset;
 
@@ -67,12 +90,24 @@ public class CsvParser {
 	 * @param delimiter The delimiter character for the CSV file
 	 */
 	public CsvParser(Reader reader, char delimiter) {
+		this(reader, delimiter, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param reader The reader to parse CSV data from
+	 * @param delimiter The delimiter character for the CSV file
+	 * @param bufferSize The initial size of the window of characters to read content into. The window will grow as needed to hold a whole
+	 *        line.
+	 */
+	public CsvParser(Reader reader, char delimiter, int bufferSize) {
+		if (delimiter == '"' || delimiter == '\n' || delimiter == '\r')
+			throw new IllegalArgumentException("Illegal delimiter: " + delimiter);
 		theReader = reader;
 		theDelimiter = delimiter;
 		theTabColumnOffset = 1;
 		theEntryNumber = -1;
-		theParseState = new CsvParseState();
-		theLastLineColumnOffsets = new IntList();
+		theBuffer = new char[Math.max(bufferSize, 16)];
+		theColumns = new CsvColumn[8];
 	}
 
 	/** @return The delimiter character used to parse CSV */
@@ -102,10 +137,10 @@ public class CsvParser {
 	 * @see #getCurrentByteOffset()
 	 */
 	public CsvParser withCharset(Charset charSet) {
-		if (theEntryNumber > 0 || thePassedBlankLines > 0)
+		if (theEntryNumber >= 0 || thePassedBlankLines > 0)
 			throw new IllegalStateException("Cannot start accounting for bytes after reading data");
 		theCharSet = charSet.newEncoder();
-		theCurrentLine = new StringBuilder();
+		isUtf8 = charSet.equals(StandardCharsets.UTF_8);
 		return this;
 	}
 
@@ -117,10 +152,12 @@ public class CsvParser {
 	 * @throws TextParseException If there is an error on the next line the CSV file
 	 */
 	public String[] parseNextLine() throws IOException, TextParseException {
-		List<String> columns = new LinkedList<>();
-		if (!parseNextLine(columns::add))
+		if (parseNextColumns() == 0)
 			return null;
-		return columns.toArray(new String[columns.size()]);
+		String[] columns = new String[theColumnCount];
+		for (int i = 0; i < columns.length; i++)
+			columns[i] = theColumns[i].toString();
+		return columns;
 	}
 
 	/**
@@ -133,72 +170,295 @@ public class CsvParser {
 	 *         than <code>columns.length</code>
 	 */
 	public boolean parseNextLine(String[] columns) throws IOException, TextParseException {
-		class ArrayColumnConsumer implements ColumnAccepter {
-			int index = 0;
-
-			@Override
-			public void accept(String column) throws TextParseException {
-				columns[index] = column;
-				if (index == columns.length - 1 && theParseState.getLastTerminal() == CsvValueTerminal.COLUMN_END)
-					theParseState.throwParseException("More than the expected " + columns.length + " columns encountered");
-				index++;
-			}
-		}
-		ArrayColumnConsumer onColumn = new ArrayColumnConsumer();
-		parseNextLine(onColumn);
-		if (onColumn.index == 0)
+		if (parseNextColumns() == 0)
 			return false;
-		else if (onColumn.index < columns.length)
-			theParseState.throwParseException(columns.length + " columns expected, but only " + onColumn.index + " encountered");
+		else if (theColumnCount > columns.length)
+			throwParseException(columns.length, -1, "More than the expected " + columns.length + " columns encountered");
+		else if (theColumnCount < columns.length)
+			throwParseException(theColumnCount - 1, theColumns[theColumnCount - 1].length(),
+				columns.length + " columns expected, but only " + theColumnCount + " encountered");
+		for (int i = 0; i < columns.length; i++)
+			columns[i] = theColumns[i].toString();
 		return true;
 	}
 
-	private interface ColumnAccepter {
-		void accept(String column) throws TextParseException;
-	}
-
-	private boolean parseNextLine(ColumnAccepter onColumn) throws IOException, TextParseException {
+	/**
+	 * <p>
+	 * Parses the next line in the file without creating Strings for its columns. Each column's value may then be obtained as a
+	 * {@link #getColumn(int) view} of this parser's buffer.
+	 * </p>
+	 * <p>
+	 * This is the most efficient way to parse CSV content, particularly when only some columns are needed.
+	 * </p>
+	 * 
+	 * @return The number of columns in the next line, or 0 if there is no more content in the file
+	 * @throws IOException If the reader throws an exception
+	 * @throws TextParseException If there is an error on the next line of the CSV file
+	 */
+	public int parseNextColumns() throws IOException, TextParseException {
+		theColumnCount = 0;
 		thePassedBlankLines = 0;
-		theLastLineColumnOffsets.clear();
-		theLastLineNumber = theParseState.theLineNumber;
-		theLastLineOffset = theParseState.theOffset;
+		theMark = thePosition;
 		theLastLineByteOffset = theCurrentByteOffset;
 		try {
-			String value = theParseState.parseColumn();
-			while (value.length() == 0 && theParseState.getLastTerminal() == CsvValueTerminal.LINE_END) {
-				thePassedBlankLines++;
-				theLastLineNumber = theParseState.theLineNumber;
-				theLastLineOffset = theParseState.theOffset;
-				value = theParseState.parseColumn(); // Move past any blank lines
+			while (true) { // Move past any blank lines
+				theLastLineNumber = theLineNumber;
+				theLastLineOffset = theBufferOffset + thePosition;
+				if (thePosition == theLimit && !fill())
+					return 0;
+				char c = theBuffer[thePosition];
+				if (c == '\n') {
+					thePosition++;
+					newLine();
+					thePassedBlankLines++;
+				} else if (c == '\r') // Ignore stupid DOS CR characters except in quotes
+					thePosition++;
+				else
+					break;
 			}
-			switch (theParseState.getLastTerminal()) {
-			case COLUMN_END:
-				break;
-			case LINE_END:
-				onColumn.accept(value);
-				return true;
-			case FILE_END:
-				if (value.length() > 0) {
-					onColumn.accept(value);
-					return true;
-				} else
-					return false;
+			// Don't count blank lines as part of the line
+			if (theCharSet != null && thePosition > theMark) {
+				theCurrentByteOffset += countBytes(theMark, thePosition);
+				theLastLineByteOffset = theCurrentByteOffset;
 			}
-
-			onColumn.accept(value);
-			theLastLineColumnOffsets.add((int) (theParseState.getValueOffset() - theParseState.theOffset));
+			theMark = thePosition;
+			boolean lineEnd;
 			do {
-				onColumn.accept(theParseState.parseColumn());
-				theLastLineColumnOffsets.add((int) (theParseState.getValueOffset() - theParseState.theOffset));
-			} while (theParseState.getLastTerminal() == CsvValueTerminal.COLUMN_END);
+				if (theColumnCount == theColumns.length)
+					theColumns = Arrays.copyOf(theColumns, theColumns.length * 2);
+				CsvColumn column = theColumns[theColumnCount];
+				if (column == null)
+					theColumns[theColumnCount] = column = new CsvColumn();
+				theColumnCount++;
+				lineEnd = parseColumn(column);
+			} while (!lineEnd);
 			theEntryNumber++;
-			return true;
+			return theColumnCount;
 		} finally {
-			if (theCharSet != null) {
-				int length = theCharSet.encode(CharBuffer.wrap(theCurrentLine)).limit();
-				theCurrentByteOffset += length;
+			if (theCharSet != null)
+				theCurrentByteOffset += countBytes(theMark, thePosition);
+		}
+	}
+
+	/**
+	 * @param start The start of the content in the window
+	 * @param end The end of the content in the window
+	 * @return The number of bytes that the content occupies in this parser's {@link #withCharset(Charset) char set}
+	 * @throws CharacterCodingException If the content cannot be encoded in the char set
+	 */
+	private long countBytes(int start, int end) throws CharacterCodingException {
+		if (!isUtf8)
+			return theCharSet.encode(CharBuffer.wrap(theBuffer, start, end - start)).limit();
+		long bytes = end - start;
+		for (int i = start; i < end; i++) {
+			char c = theBuffer[i];
+			if (c >= 0x80) {
+				if (c < 0x800)
+					bytes++;
+				else if (Character.isSurrogate(c))
+					bytes++; // 4 bytes per surrogate pair
+				else
+					bytes += 2;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Positions this parser within a larger body of content, for parsing a section of it. Must be called before anything is parsed.
+	 *
+	 * @param lineNumber The line number of the start of this parser's content
+	 * @param offset The overall character offset of the start of this parser's content
+	 * @param byteOffset The overall byte offset of the start of this parser's content
+	 */
+	void setPosition(int lineNumber, long offset, long byteOffset) {
+		if (theBufferOffset != 0 || theLimit != 0)
+			throw new IllegalStateException("Content has already been parsed");
+		theLineNumber = theLastLineNumber = lineNumber;
+		theBufferOffset = theLineStart = theLastLineOffset = offset;
+		theCurrentByteOffset = theLastLineByteOffset = byteOffset;
+	}
+
+	/** @return The number of columns in the line most recently parsed */
+	public int getColumnCount() {
+		return theColumnCount;
+	}
+
+	/**
+	 * @param columnIndex The index of the column in the line most recently parsed
+	 * @return A view of the column's value. The view is reused and reflects this parser's buffer, so it is only valid until the next line
+	 *         is parsed. Its {@link CharSequence#toString() toString()} method may be called to keep the value.
+	 */
+	public CharSequence getColumn(int columnIndex) {
+		if (columnIndex < 0 || columnIndex >= theColumnCount)
+			throw new IndexOutOfBoundsException(columnIndex + " of " + theColumnCount);
+		return theColumns[columnIndex];
+	}
+
+	/**
+	 * Parses the column at the current position
+	 * 
+	 * @param column The column to populate
+	 * @return Whether the column was the last one on its line
+	 */
+	private boolean parseColumn(CsvColumn column) throws IOException, TextParseException {
+		column.reset(theBufferOffset + thePosition, theLineNumber);
+		if (thePosition == theLimit && !fill()) {
+			column.setContent(thePosition - theMark, thePosition - theMark, false, false);
+			return true;
+		}
+		int start = thePosition;
+		boolean escaped = false;
+		char[] buffer = theBuffer;
+		if (buffer[thePosition] == '"') {
+			long quoteOffset = theBufferOffset + thePosition;
+			int quoteLine = theLineNumber;
+			int quoteColumn = getCharColumn(quoteOffset);
+			start = ++thePosition;
+			column.theOffset++;
+			while (true) {
+				if (thePosition == theLimit) {
+					int oldMark = theMark;
+					if (!fill())
+						throw new TextParseException("Unmatched quote", (int) quoteOffset, quoteLine, quoteColumn);
+					start -= oldMark - theMark;
+					buffer = theBuffer;
+				}
+				char c = buffer[thePosition++];
+				if (c == '"') {
+					if (thePosition == theLimit) {
+						int oldMark = theMark;
+						boolean more = fill();
+						start -= oldMark - theMark;
+						buffer = theBuffer;
+						if (!more)
+							break;
+					}
+					if (buffer[thePosition] != '"')
+						break;
+					// Double double-quotes within a quoted column is an escaped double-quote
+					thePosition++;
+					escaped = true;
+				} else if (c == '\n')
+					newLine();
+			}
+			column.setContent(start - theMark, thePosition - 1 - theMark, true, escaped);
+			// Only a delimiter or a line end may follow the end quote
+			while (true) {
+				if (thePosition == theLimit && !fill())
+					return true;
+				char c = theBuffer[thePosition];
+				if (c != '\r')
+					break;
+				thePosition++;
+			}
+			char c = theBuffer[thePosition++];
+			if (c == theDelimiter)
+				return false;
+			else if (c == '\n') {
+				newLine();
+				return true;
+			}
+			long offset = theBufferOffset + thePosition - 1;
+			throw new TextParseException("Unexpected content after end quote: '" + c + "'. End quotes must terminate the column.",
+				(int) offset, theLineNumber, getCharColumn(offset));
+		}
+
+		// Fast path: an unquoted column
+		int carriageReturns = 0;
+		boolean lineEnd = true;
+		while (true) {
+			if (thePosition == theLimit) {
+				int oldMark = theMark;
+				boolean more = fill();
+				start -= oldMark - theMark;
+				buffer = theBuffer;
+				if (!more)
+					break;
+			}
+			char c = buffer[thePosition];
+			if (c == theDelimiter) {
+				lineEnd = false;
+				break;
+			} else if (c == '\n')
+				break;
+			else if (c == '\r')
+				carriageReturns++;
+			thePosition++;
+		}
+		int end = thePosition;
+		while (carriageReturns > 0 && buffer[end - 1] == '\r') { // Usually just a DOS line ending
+			end--;
+			carriageReturns--;
+		}
+		column.setContent(start - theMark, end - theMark, false, carriageReturns > 0);
+		if (thePosition < theLimit) {
+			thePosition++;
+			if (lineEnd)
+				newLine();
+		}
+		return lineEnd;
+	}
+
+	private void newLine() {
+		theLineNumber++;
+		theLineStart = theBufferOffset + thePosition;
+	}
+
+	/**
+	 * Reads more content into the window, retaining the content after the {@link #theMark mark}
+	 * 
+	 * @return Whether any more content was read
+	 * @throws IOException If the content could not be read
+	 */
+	private boolean fill() throws IOException {
+		if (isEof)
+			return false;
+		if (theMark > 0) {
+			System.arraycopy(theBuffer, theMark, theBuffer, 0, theLimit - theMark);
+			theBufferOffset += theMark;
+			thePosition -= theMark;
+			theLimit -= theMark;
+			theMark = 0;
+		}
+		if (theLimit == theBuffer.length)
+			theBuffer = Arrays.copyOf(theBuffer, theBuffer.length * 2);
+		int read;
+		do {
+			read = theReader.read(theBuffer, theLimit, theBuffer.length - theLimit);
+		} while (read == 0);
+		if (read < 0) {
+			isEof = true;
+			return false;
+		}
+		theLimit += read;
+		return true;
+	}
+
+	/**
+	 * @param offset The overall character offset of a position in the most recently parsed line, which must still be in the window
+	 * @return The character number of the position in its line, accounting for the {@link #setTabColumnOffset(int) tab offset}
+	 */
+	private int getCharColumn(long offset) {
+		long lineStart = theLineStart;
+		if (lineStart > offset) { // Find the start of the line in the window
+			lineStart = Math.max(theBufferOffset, theBufferOffset + theMark);
+			for (long i = offset - 1; i >= lineStart; i--) {
+				if (theBuffer[(int) (i - theBufferOffset)] == '\n') {
+					lineStart = i + 1;
+					break;
+				}
 			}
 		}
+		int column = 0;
+		int end = (int) Math.min(offset - theBufferOffset, theLimit);
+		for (int i = (int) (lineStart - theBufferOffset); i < end; i++) {
+			if (theBuffer[i] == '\t' && theTabColumnOffset != 1)
+				column += theTabColumnOffset - (column % theTabColumnOffset);
+			else
+				column++;
+		}
+		return column;
 	}
 
 	/** @return The number of blank lines that were ignored prior to the most recently-parsed line of the file */
@@ -226,7 +486,7 @@ public class CsvParser {
 
 	/** @return The line number of the line about to be parsed (or the last line parsed if there are no more lines) */
 	public int getCurrentLineNumber() {
-		return theParseState.theLineNumber;
+		return theLineNumber;
 	}
 
 	/**
@@ -234,7 +494,7 @@ public class CsvParser {
 	 *         lines)
 	 */
 	public long getCurrentOffset() {
-		return theParseState.theOffset;
+		return theBufferOffset + thePosition;
 	}
 
 	/**
@@ -267,7 +527,9 @@ public class CsvParser {
 	 * @return The offset of the specified column of the previous line from the beginning of the file
 	 */
 	public int getColumnOffset(int columnIndex) {
-		return theLastLineColumnOffsets.get(columnIndex);
+		if (columnIndex < 0 || columnIndex >= theColumnCount)
+			throw new IndexOutOfBoundsException(columnIndex + " of " + theColumnCount);
+		return (int) theColumns[columnIndex].theOffset;
 	}
 
 	/**
@@ -281,8 +543,7 @@ public class CsvParser {
 	 * @throws TextParseException always
 	 */
 	public void throwParseException(int columnIndex, int errorOffset, String message) throws TextParseException {
-		int colOffset = getColumnOffset(columnIndex);
-		throw new TextParseException(message, colOffset + errorOffset, theLastLineNumber, columnIndex);
+		throw createParseException(columnIndex, errorOffset, message);
 	}
 
 	/**
@@ -297,133 +558,86 @@ public class CsvParser {
 	 * @throws TextParseException always
 	 */
 	public void throwParseException(int columnIndex, int errorOffset, String message, Throwable cause) throws TextParseException {
-		int colOffset = getColumnOffset(columnIndex);
-		throw new TextParseException(message, colOffset + errorOffset, theLastLineNumber, columnIndex, cause);
+		TextParseException ex = createParseException(columnIndex, errorOffset, message);
+		ex.initCause(cause);
+		throw ex;
 	}
 
-	static enum CsvValueTerminal {
-		COLUMN_END, LINE_END, FILE_END;
+	private TextParseException createParseException(int columnIndex, int errorOffset, String message) {
+		CsvColumn column = theColumns[columnIndex];
+		long offset = column.theOffset + errorOffset;
+		// Find the line of the error, which may not be the line the column started on if the column is quoted
+		int lineNumber = column.theLineNumber;
+		for (long i = column.theOffset; i < offset && i - theBufferOffset < theLimit; i++) {
+			if (theBuffer[(int) (i - theBufferOffset)] == '\n')
+				lineNumber++;
+		}
+		return new TextParseException(message, (int) offset, lineNumber, getCharColumn(offset));
 	}
 
-	static class QuoteStart {
-		final long theOffset;
-		final int theLineNumber;
-		final int theColumnNumber;
-
-		QuoteStart(long offset, int lineNumber, int columnNumber) {
+	/** A column value in the most recently parsed line, which is a view of the parser's buffer */
+	private class CsvColumn implements CharSequence {
+		long theOffset;
+		int theLineNumber;
+		/** The start of the content in the buffer, relative to the parser's {@link CsvParser#theMark mark} */
+		private int theStart;
+		private int theEnd;
+		/** Whether the content contains escaped quotes or ignored carriage returns, so it is not a direct view of the buffer */
+		private boolean isEscaped;
+		private boolean isQuoted;
+		private String theString;
+
+		void reset(long offset, int lineNumber) {
 			theOffset = offset;
 			theLineNumber = lineNumber;
-			theColumnNumber = columnNumber;
-		}
-	}
-
-	class CsvParseState {
-		private final StringBuilder theValue;
-		private QuoteStart isQuoted;
-		private long theValueOffset;
-		private long theOffset;
-		private int theLineNumber;
-		private int theColumnNumber; // Char columns, not CSV columns here
-		private CsvValueTerminal theLastTerminal;
-
-		CsvParseState() {
-			theValue = new StringBuilder();
-		}
-
-		<T> T throwParseException(String message) throws TextParseException {
-			throw new TextParseException(message, (int) theOffset, theLineNumber, theColumnNumber);
-		}
-
-		CsvValueTerminal getLastTerminal() {
-			return theLastTerminal;
+			theString = null;
 		}
 
-		long getValueOffset() {
-			return theValueOffset;
+		void setContent(int start, int end, boolean quoted, boolean escaped) {
+			theStart = start;
+			theEnd = end;
+			isQuoted = quoted;
+			isEscaped = escaped;
 		}
 
-		String parseColumn() throws IOException, TextParseException {
-			isQuoted = null;
-			theLastTerminal = null;
-			theValueOffset = theOffset;
-			int c = readContentChar(true);
-			while (c >= 0) {
-				theValue.append((char) c);
-				c = readContentChar(false);
-			}
-			String column = theValue.toString();
-			theValue.setLength(0);
-			return column;
-		}
-
-		private int readContentChar(boolean columnStart) throws IOException, TextParseException {
-			int c = readStreamChar();
-			return interpretStreamChar(c, columnStart);
+		@Override
+		public int length() {
+			return isEscaped ? toString().length() : theEnd - theStart;
 		}
 
-		private int interpretStreamChar(int c, boolean columnStart) throws IOException, TextParseException {
-			theOffset++;
-			if (c == '\n') {
-				theLineNumber++;
-				theColumnNumber = 0;
-			} else
-				theColumnNumber++;
-
-			if (c == '"') {
-				if (columnStart) { // Begin quote
-					isQuoted = new QuoteStart(theOffset, theLineNumber, theColumnNumber);
-					theValueOffset++;
-					return readContentChar(false);
-				} else if (isQuoted != null) {
-					c = readStreamChar();
-					if (c == '"') { // Double double-quotes within a quoted column is an escaped double-quote
-						theColumnNumber++;
-						return c;
-					} else { // End quote
-						isQuoted = null;
-						c = interpretStreamChar(c, false);
-						if (c >= 0)
-							return throwParseException(
-								"Unexpected content after end quote: '" + (char) c + "'. End quotes must terminate the column.");
-						return c;
-					}
-				} else
-					return c;
-			} else if (c < 0) { // File end
-				if (isQuoted != null)
-					throw new TextParseException("Unmatched quote", (int) isQuoted.theOffset, isQuoted.theLineNumber,
-						isQuoted.theColumnNumber);
-				theLastTerminal = CsvValueTerminal.FILE_END;
-				return -1;
-			} else if (c == '\t' && theTabColumnOffset != 1) { // Tab
-				int mod = (theColumnNumber - 1) % theTabColumnOffset;
-				theColumnNumber += (theTabColumnOffset - mod);
-			} else if (isQuoted != null) {
-				// Inside a quote, so other would-be terminals will just be content like anything else
-			} else if (c == '\n' || c == '\r') { // Line end
-				theLastTerminal = CsvValueTerminal.LINE_END;
-				return -1;
-			} else if (c == theDelimiter) { // Column end
-				theLastTerminal = CsvValueTerminal.COLUMN_END;
-				return -1;
-			}
-			return c;
+		@Override
+		public char charAt(int index) {
+			if (isEscaped)
+				return toString().charAt(index);
+			else if (index < 0 || index >= theEnd - theStart)
+				throw new IndexOutOfBoundsException(index + " of " + (theEnd - theStart));
+			return theBuffer[theMark + theStart + index];
 		}
 
-		private int readStreamChar() throws IOException {
-			int c = theReader.read();
-			if (c >= 0 && theCurrentLine != null)
-				theCurrentLine.append((char) c);
-			if (isQuoted == null) {
-				while (c == '\r') // Ignore stupid DOS CR characters except in quotes
-					c = theReader.read();
-			}
-			return c;
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().substring(start, end);
 		}
 
 		@Override
 		public String toString() {
-			return theValue.toString();
+			if (theString == null) {
+				if (!isEscaped)
+					theString = new String(theBuffer, theMark + theStart, theEnd - theStart);
+				else {
+					StringBuilder str = new StringBuilder(theEnd - theStart);
+					for (int i = theMark + theStart; i < theMark + theEnd; i++) {
+						char c = theBuffer[i];
+						if (isQuoted && c == '"')
+							i++; // Escaped quote--skip the second one
+						else if (!isQuoted && c == '\r')
+							continue;
+						str.append(c);
+					}
+					theString = str.toString();
+				}
+			}
+			return theString;
 		}
 	}
 
@@ -525,7 +739,7 @@ public class CsvParser {
 				if (!found)
 					throw new IllegalArgumentException("No such header found for exclude: " + i);
 			}
-			QuickMap<String, Integer> columns = QuickSet.of(header).createMap();
+			QuickMap<String, Integer> columns = QuickSet.of(header).withPerfectHash().createMap();
 			for (int i = 0; i < header.length; i++)
 				columns.put(header[i], i);
 			if (!include.isEmpty()) {
@@ -0,0 +1,524 @@
+package org.qommons.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.qommons.IntList;
+import org.qommons.LongList;
+
+/**
+ * <p>
+ * Parses large CSV files concurrently, with the same rules as {@link CsvParser}. The file is memory-mapped and split into chunks of bytes
+ * which are parsed on a {@link ForkJoinPool}.
+ * </p>
+ * <p>
+ * Since a quoted column may contain newlines, the start of the first record in a chunk cannot be known without knowing whether the
+ * chunk starts inside quotes, which depends on all the content before it. So the file is parsed in two passes. First, each chunk is
+ * scanned concurrently from every state that the CSV grammar may be in at the start of the chunk, speculatively recording the state that
+ * each would leave the grammar in at the end of the chunk. Chaining these together from the start of the file gives the actual state at
+ * the start of every chunk, from which each chunk can find its first record and parse its records concurrently.
+ * </p>
+ * <p>
+ * Records are always delivered to the {@link RecordHandler} on the thread that called {@code parse}, so the handler need not be
+ * thread-safe. If the parser is {@link #setOrdered(boolean) ordered} (the default), records are delivered in the order they occur in the
+ * file. Otherwise each chunk's records are delivered as soon as the chunk is parsed.
+ * </p>
+ * <p>
+ * Line numbers and offsets delivered to the handler and in {@link TextParseException}s thrown by this class are relative to the start of
+ * the file, not the chunk.
+ * </p>
+ * <p>
+ * The file's character set must encode the delimiter, double-quotes, and line endings as single ASCII bytes which do not occur as part of
+ * any other character. This is true of UTF-8 (the default) and most single-byte character sets.
+ * </p>
+ */
+public class ParallelCsvParser {
+	/** The default size of the chunks that files are split into for parsing */
+	public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+	/** Receives records parsed by a {@link ParallelCsvParser} */
+	public interface RecordHandler {
+		/**
+		 * @param lineNumber The line number (starting at 0) of the start of the record in the file
+		 * @param byteOffset The offset of the start of the record from the start of the file, in bytes
+		 * @param columns The parsed column values of the record
+		 */
+		void record(int lineNumber, long byteOffset, String[] columns);
+	}
+
+	// States of the CSV grammar for scanning
+	/** Just after the end of a record, where the next record starts */
+	private static final int RECORD_END = 0;
+	/** In blank lines or carriage returns before a record */
+	private static final int LINE_START = 1;
+	/** Just after a delimiter */
+	private static final int COLUMN_START = 2;
+	private static final int UNQUOTED = 3;
+	private static final int QUOTED = 4;
+	/** Just after a double-quote in a quoted column, which may end the column or escape another double-quote */
+	private static final int QUOTE_END = 5;
+	/** In carriage returns after the end of a quoted column */
+	private static final int AFTER_QUOTE = 6;
+	/** Invalid content, which will be reported when the chunk containing it is parsed */
+	private static final int ERROR = 7;
+	private static final int STATE_COUNT = 8;
+
+	private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+	private final char theDelimiter;
+	private final ForkJoinPool thePool;
+	private Charset theCharset;
+	private int theChunkSize;
+	private boolean isOrdered;
+	private int theTabColumnOffset;
+
+	/**
+	 * Creates a parser that parses on the {@link ForkJoinPool#commonPool() common pool}
+	 *
+	 * @param delimiter The delimiter character for the CSV files
+	 */
+	public ParallelCsvParser(char delimiter) {
+		this(delimiter, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param delimiter The delimiter character for the CSV files
+	 * @param pool The pool to parse content on
+	 */
+	public ParallelCsvParser(char delimiter, ForkJoinPool pool) {
+		if (delimiter == '"' || delimiter == '\n' || delimiter == '\r' || delimiter >= 0x80)
+			throw new IllegalArgumentException("Illegal delimiter: " + delimiter);
+		theDelimiter = delimiter;
+		thePool = pool;
+		theCharset = StandardCharsets.UTF_8;
+		theChunkSize = DEFAULT_CHUNK_SIZE;
+		isOrdered = true;
+		theTabColumnOffset = 1;
+	}
+
+	/** @return The delimiter character used to parse CSV */
+	public char getDelimiter() {
+		return theDelimiter;
+	}
+
+	/** @return The character set of the files to parse */
+	public Charset getCharset() {
+		return theCharset;
+	}
+
+	/**
+	 * @param charset The character set of the files to parse
+	 * @return This parser
+	 * @throws IllegalArgumentException If the character set does not encode the delimiter, double-quotes, and line endings as single
+	 *         ASCII bytes
+	 */
+	public ParallelCsvParser setCharset(Charset charset) {
+		if (!charset.equals(StandardCharsets.UTF_8)) {
+			if (charset.newEncoder().maxBytesPerChar() != 1)
+				throw new IllegalArgumentException("Unsupported character set: " + charset);
+			String special = new String(new char[] { theDelimiter, '"', '\n', '\r' });
+			if (!special.equals(new String(special.getBytes(charset), StandardCharsets.ISO_8859_1)))
+				throw new IllegalArgumentException("Unsupported character set: " + charset);
+		}
+		theCharset = charset;
+		return this;
+	}
+
+	/** @return The approximate size of the chunks that files are split into for parsing */
+	public int getChunkSize() {
+		return theChunkSize;
+	}
+
+	/**
+	 * @param chunkSize The approximate size of the chunks that files are split into for parsing
+	 * @return This parser
+	 */
+	public ParallelCsvParser setChunkSize(int chunkSize) {
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		theChunkSize = chunkSize;
+		return this;
+	}
+
+	/**
+	 * @return Whether this parser delivers records in the order they occur in the file
+	 * @see #setOrdered(boolean)
+	 */
+	public boolean isOrdered() {
+		return isOrdered;
+	}
+
+	/**
+	 * @param ordered Whether this parser should deliver records in the order they occur in the file. Unordered parsing may deliver records
+	 *        sooner and use less memory when chunks take different amounts of time to parse, but if the content is invalid, records after
+	 *        the error may be delivered before the error is thrown.
+	 * @return This parser
+	 */
+	public ParallelCsvParser setOrdered(boolean ordered) {
+		isOrdered = ordered;
+		return this;
+	}
+
+	/**
+	 * @param tabOffset The number of places to count for tab offsets (for the {@link TextParseException#getColumnNumber() column numbers}
+	 *        in thrown exceptions)
+	 * @return This parser
+	 * @see CsvParser#setTabColumnOffset(int)
+	 */
+	public ParallelCsvParser setTabColumnOffset(int tabOffset) {
+		if (theDelimiter == '\t' && tabOffset != 1)
+			throw new IllegalStateException("tab offset cannot be used with tab-delimited files");
+		theTabColumnOffset = tabOffset;
+		return this;
+	}
+
+	/**
+	 * Parses all the records in a CSV file
+	 *
+	 * @param file The file to parse
+	 * @param records The handler to receive the parsed records
+	 * @return The number of records parsed
+	 * @throws IOException If the file could not be read
+	 * @throws TextParseException If the content is not valid CSV
+	 */
+	public long parse(Path file, RecordHandler records) throws IOException, TextParseException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long start = 0;
+			if (theCharset.equals(StandardCharsets.UTF_8) && size >= 3) { // Skip the byte order mark
+				ByteBuffer bom = ByteBuffer.allocate(3);
+				while (bom.hasRemaining() && channel.read(bom, bom.position()) > 0) {}
+				if (bom.get(0) == (byte) 0xEF && bom.get(1) == (byte) 0xBB && bom.get(2) == (byte) 0xBF)
+					start = 3;
+			}
+
+			// First pass: scan every chunk speculatively
+			List<Scan> scans = new ArrayList<>();
+			for (long chunkStart = start; chunkStart < size; chunkStart += theChunkSize) {
+				Scan scan = new Scan(channel, chunkStart, Math.min(size, chunkStart + theChunkSize));
+				scans.add(scan);
+				thePool.execute(scan);
+			}
+			// Chain the scans together to get the actual state of the grammar at the start of each chunk
+			int state = RECORD_END;
+			int lineNumber = 0;
+			long charOffset = 0;
+			for (Scan scan : scans) {
+				scan.join();
+				if (scan.theError != null)
+					throw scan.theError;
+				scan.theStartState = state;
+				scan.theStartLine = lineNumber;
+				scan.theStartCharOffset = charOffset;
+				state = scan.theEndStates[state];
+				lineNumber += scan.theLineCount;
+				charOffset += scan.theCharCount;
+			}
+
+			// Second pass: parse the chunks
+			int maxPending = thePool.getParallelism() * 2 + 1;
+			ArrayDeque<Chunk> pending = new ArrayDeque<>(maxPending);
+			long count = 0;
+			try {
+				for (Scan scan : scans) {
+					Chunk chunk = new Chunk(channel, size, scan);
+					pending.add(chunk);
+					thePool.execute(chunk);
+					count += deliver(pending, pending.size() >= maxPending, records);
+				}
+				while (!pending.isEmpty())
+					count += deliver(pending, true, records);
+			} finally {
+				for (Chunk chunk : pending)
+					chunk.cancel(false);
+			}
+			return count;
+		}
+	}
+
+	private long deliver(ArrayDeque<Chunk> pending, boolean block, RecordHandler records) throws IOException, TextParseException {
+		long count = 0;
+		if (isOrdered) {
+			while (!pending.isEmpty() && (block || pending.getFirst().isDone())) {
+				count += pending.getFirst().deliver(records);
+				pending.removeFirst();
+				block = false;
+			}
+		} else {
+			Iterator<Chunk> iter = pending.iterator();
+			while (iter.hasNext()) {
+				Chunk chunk = iter.next();
+				if (chunk.isDone()) {
+					count += chunk.deliver(records);
+					iter.remove();
+				}
+			}
+			if (count == 0 && block && !pending.isEmpty()) {
+				count += pending.getFirst().deliver(records);
+				pending.removeFirst();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param state The state of the CSV grammar
+	 * @param b The next byte of content
+	 * @return The state of the grammar after the byte
+	 */
+	private int next(int state, byte b) {
+		switch (state) {
+		case RECORD_END:
+		case LINE_START:
+			if (b == '\n' || b == '\r')
+				return LINE_START;
+			//$FALL-THROUGH$
+		case COLUMN_START:
+			if (b == '"')
+				return QUOTED;
+			//$FALL-THROUGH$
+		case UNQUOTED:
+			if (b == theDelimiter)
+				return COLUMN_START;
+			else if (b == '\n')
+				return RECORD_END;
+			return UNQUOTED;
+		case QUOTED:
+			return b == '"' ? QUOTE_END : QUOTED;
+		case QUOTE_END:
+			if (b == '"')
+				return QUOTED;
+			//$FALL-THROUGH$
+		case AFTER_QUOTE:
+			if (b == '\r')
+				return AFTER_QUOTE;
+			else if (b == theDelimiter)
+				return COLUMN_START;
+			else if (b == '\n')
+				return RECORD_END;
+			return ERROR;
+		default:
+			return ERROR;
+		}
+	}
+
+	/**
+	 * @param b A byte of content
+	 * @return The number of characters that the byte begins in this parser's character set
+	 */
+	private int charCount(byte b) {
+		if (b >= 0 || !theCharset.equals(StandardCharsets.UTF_8))
+			return 1;
+		else if ((b & 0xC0) == 0x80) // UTF-8 continuation byte
+			return 0;
+		else if ((b & 0xF8) == 0xF0) // Needs a surrogate pair
+			return 2;
+		return 1;
+	}
+
+	/** Speculatively scans a chunk of content from every possible starting state of the CSV grammar */
+	private class Scan extends RecursiveAction {
+		final FileChannel theChannel;
+		final long theStart;
+		final long theEnd;
+		final int[] theEndStates;
+		int theLineCount;
+		long theCharCount;
+		IOException theError;
+
+		int theStartState;
+		int theStartLine;
+		long theStartCharOffset;
+
+		Scan(FileChannel channel, long start, long end) {
+			theChannel = channel;
+			theStart = start;
+			theEnd = end;
+			theEndStates = new int[STATE_COUNT];
+		}
+
+		@Override
+		protected void compute() {
+			ByteBuffer bytes;
+			try {
+				bytes = theChannel.map(FileChannel.MapMode.READ_ONLY, theStart, theEnd - theStart);
+			} catch (IOException e) {
+				theError = e;
+				return;
+			}
+			// Track each distinct path through the grammar, since paths from different start states quickly converge
+			int[] paths = new int[STATE_COUNT];
+			int[] pathOf = new int[STATE_COUNT];
+			for (int s = 0; s < STATE_COUNT; s++)
+				paths[s] = pathOf[s] = s;
+			int pathCount = STATE_COUNT;
+			byte[] block = new byte[Math.min(SCAN_BUFFER_SIZE, bytes.remaining())];
+			while (bytes.hasRemaining()) {
+				int length = Math.min(block.length, bytes.remaining());
+				bytes.get(block, 0, length);
+				for (int i = 0; i < length; i++) {
+					byte b = block[i];
+					theCharCount += charCount(b);
+					for (int p = 0; p < pathCount; p++)
+						paths[p] = next(paths[p], b);
+					if (b == '\n') {
+						theLineCount++;
+						if (pathCount > 1)
+							pathCount = merge(paths, pathOf, pathCount);
+					}
+				}
+			}
+			for (int s = 0; s < STATE_COUNT; s++)
+				theEndStates[s] = paths[pathOf[s]];
+		}
+
+		private int merge(int[] paths, int[] pathOf, int pathCount) {
+			for (int p = pathCount - 1; p > 0; p--) {
+				for (int q = 0; q < p; q++) {
+					if (paths[p] == paths[q]) {
+						// Path p is the same as path q from here on--replace it with the last path
+						pathCount--;
+						paths[p] = paths[pathCount];
+						for (int s = 0; s < STATE_COUNT; s++) {
+							if (pathOf[s] == p)
+								pathOf[s] = q;
+							else if (pathOf[s] == pathCount)
+								pathOf[s] = p;
+						}
+						break;
+					}
+				}
+			}
+			return pathCount;
+		}
+	}
+
+	/** Parses the records that start in a chunk of content */
+	private class Chunk extends RecursiveAction {
+		private final FileChannel theChannel;
+		private final long theFileSize;
+		private final Scan theScan;
+
+		private final List<String[]> theRecords;
+		private final IntList theLineNumbers;
+		private final LongList theByteOffsets;
+		private Exception theError;
+
+		Chunk(FileChannel channel, long fileSize, Scan scan) {
+			theChannel = channel;
+			theFileSize = fileSize;
+			theScan = scan;
+			theRecords = new ArrayList<>();
+			theLineNumbers = new IntList();
+			theByteOffsets = new LongList();
+		}
+
+		@Override
+		protected void compute() {
+			long recordStart = -1;
+			try {
+				// Find the first record in the chunk
+				int state = theScan.theStartState;
+				long start = theScan.theStart;
+				int lineNumber = theScan.theStartLine;
+				long charOffset = theScan.theStartCharOffset;
+				if (state != RECORD_END) {
+					ByteBuffer bytes = theChannel.map(FileChannel.MapMode.READ_ONLY, start, theScan.theEnd - start);
+					while (state != RECORD_END) {
+						if (!bytes.hasRemaining())
+							return; // No records start in this chunk
+						byte b = bytes.get();
+						state = next(state, b);
+						charOffset += charCount(b);
+						if (b == '\n')
+							lineNumber++;
+					}
+					start += bytes.position();
+				}
+				// The last record in the chunk may extend past its end
+				ByteBuffer bytes = theChannel.map(FileChannel.MapMode.READ_ONLY, start,
+					Math.min(theFileSize - start, Integer.MAX_VALUE));
+				CsvParser parser = new CsvParser(new DecodingReader(bytes, theCharset), theDelimiter).withCharset(theCharset);
+				parser.setTabColumnOffset(theTabColumnOffset);
+				parser.setPosition(lineNumber, charOffset, start);
+				while ((recordStart = parser.getCurrentByteOffset()) < theScan.theEnd) {
+					String[] columns = parser.parseNextLine();
+					if (columns == null)
+						break;
+					theRecords.add(columns);
+					theLineNumbers.add(parser.getLastLineNumber());
+					theByteOffsets.add(parser.getLastLineByteOffset());
+				}
+			} catch (TextParseException e) {
+				// An error in a record that starts after this chunk will be reported by the next chunk
+				if (recordStart < theScan.theEnd)
+					theError = e;
+			} catch (IOException e) {
+				theError = e;
+			}
+		}
+
+		long deliver(RecordHandler records) throws IOException, TextParseException {
+			join();
+			for (int i = 0; i < theRecords.size(); i++)
+				records.record(theLineNumbers.get(i), theByteOffsets.get(i), theRecords.get(i));
+			if (theError instanceof TextParseException)
+				throw (TextParseException) theError;
+			else if (theError != null)
+				throw (IOException) theError;
+			return theRecords.size();
+		}
+	}
+
+	/** Decodes characters from a buffer of bytes */
+	private static class DecodingReader extends Reader {
+		private final ByteBuffer theBytes;
+		private final CharsetDecoder theDecoder;
+		private final CharBuffer theChars;
+
+		DecodingReader(ByteBuffer bytes, Charset charset) {
+			theBytes = bytes;
+			theDecoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			theChars = CharBuffer.allocate(8 * 1024);
+			theChars.flip();
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) {
+			if (len == 0)
+				return 0;
+			if (!theChars.hasRemaining()) {
+				theChars.clear();
+				if (theBytes.hasRemaining())
+					theDecoder.decode(theBytes, theChars, true);
+				if (!theBytes.hasRemaining())
+					theDecoder.flush(theChars);
+				theChars.flip();
+				if (!theChars.hasRemaining())
+					return -1;
+			}
+			int read = Math.min(len, theChars.remaining());
+			theChars.get(cbuf, off, read);
+			return read;
+		}
+
+		@Override
+		public void close() {}
+	}
+}
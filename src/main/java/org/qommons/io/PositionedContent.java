@@ -68,6 +68,14 @@ public interface PositionedContent extends CharSequence {
 			this.theEnd = end;
 		}
 
+		PositionedContent getWrapped() {
+			return theWrapped;
+		}
+
+		int getStart() {
+			return theStart;
+		}
+
 		@Override
 		public int length() {
 			return theEnd - theStart;
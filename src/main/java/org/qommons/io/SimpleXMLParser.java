@@ -923,6 +923,7 @@ public class SimpleXMLParser {
 	}
 
 	private int theTabLength = 4;
+	private boolean isLazyPositions;
 	private final Map<String, String> theNamedEntities = new HashMap<>(STANDARD_NAMED_ENTITIES);
 
 	/** @return The number of spaces to interpret tabs as in the character numbers provided by this parser. The default is 4. */
@@ -941,6 +942,34 @@ public class SimpleXMLParser {
 		return this;
 	}
 
+	/**
+	 * @return Whether this parser defers the work of locating each character in parsed content until a position is requested
+	 * @see #setLazyPositions(boolean)
+	 */
+	public boolean isLazyPositions() {
+		return isLazyPositions;
+	}
+
+	/**
+	 * <p>
+	 * By default, this parser records the location of every line, tab, entity, and line ending in each piece of content as it is parsed, so
+	 * that {@link PositionedContent#getPosition(int) positions} within the content are readily available. This is relatively expensive for
+	 * large documents.
+	 * </p>
+	 * <p>
+	 * With lazy positions, this parser only records the little information that cannot be derived from the content itself (entities and
+	 * 2-character line endings), and locates characters within the content when a position is first requested from it. The positions are
+	 * the same either way.
+	 * </p>
+	 *
+	 * @param lazy Whether this parser should defer the work of locating each character in parsed content until a position is requested
+	 * @return This parser
+	 */
+	public SimpleXMLParser setLazyPositions(boolean lazy) {
+		isLazyPositions = lazy;
+		return this;
+	}
+
 	/**
 	 * Adds a named sequence to be recognized by this parser. E.g. this could be used to recognize HTML entities.
 	 * 
@@ -1007,6 +1036,74 @@ public class SimpleXMLParser {
 		return handler;
 	}
 
+	/**
+	 * Creates a reader to pull XML structures from a binary stream one at a time. The character encoding may be specified by the XML
+	 * declaration in the document, or is defaulted to UTF-8.
+	 * 
+	 * @param fileLocation The location of the file. This can be anything, including null, and only matters when errors are thrown. When
+	 *        given, any {@link XmlParseException}s thrown will have a {@link LocatedFilePosition} for their
+	 *        {@link TextParseException#getPosition() position}.
+	 * @param in The input stream to parse XML from
+	 * @return The reader to read the XML document with
+	 */
+	public XmlPullReader pullXml(String fileLocation, InputStream in) {
+		if (in == null)
+			throw new NullPointerException("Stream cannot be null");
+		return new XmlPullReader(new ParseSession(fileLocation, in));
+	}
+
+	/**
+	 * Creates a reader to pull XML structures from a reader one at a time. If character encoding is specified by the XML declaration in
+	 * the document, it will be ignored.
+	 * 
+	 * @param fileLocation The location of the file. This can be anything, including null, and only matters when errors are thrown. When
+	 *        given, any {@link XmlParseException}s thrown will have a {@link LocatedFilePosition} for their
+	 *        {@link TextParseException#getPosition() position}.
+	 * @param in The reader to parse XML from
+	 * @return The reader to read the XML document with
+	 */
+	public XmlPullReader pullXml(String fileLocation, Reader in) {
+		if (in == null)
+			throw new NullPointerException("Reader cannot be null");
+		return new XmlPullReader(new ParseSession(fileLocation, in));
+	}
+
+	/**
+	 * Parses an XML document from a binary stream into a compact {@link XmlTree}. The character encoding may be specified by the XML
+	 * declaration in the document, or is defaulted to UTF-8. Positions in the tree are located {@link #setLazyPositions(boolean) lazily}.
+	 * 
+	 * @param fileLocation The location of the file. This can be anything, including null, and only matters when errors are thrown. When
+	 *        given, any {@link XmlParseException}s thrown will have a {@link LocatedFilePosition} for their
+	 *        {@link TextParseException#getPosition() position}.
+	 * @param in The stream to parse
+	 * @return The parsed tree
+	 * @throws IOException If an error occurs reading the stream
+	 * @throws XmlParseException If the XML is malformed
+	 */
+	public XmlTree parseTree(String fileLocation, InputStream in) throws IOException, XmlParseException {
+		if (in == null)
+			throw new NullPointerException("Stream cannot be null");
+		return parseXml(new ParseSession(fileLocation, in).setLazy(true), new XmlTree.Builder(theTabLength)).build();
+	}
+
+	/**
+	 * Parses an XML document from a reader into a compact {@link XmlTree}. If character encoding is specified by the XML declaration in the
+	 * document, it will be ignored. Positions in the tree are located {@link #setLazyPositions(boolean) lazily}.
+	 * 
+	 * @param fileLocation The location of the file. This can be anything, including null, and only matters when errors are thrown. When
+	 *        given, any {@link XmlParseException}s thrown will have a {@link LocatedFilePosition} for their
+	 *        {@link TextParseException#getPosition() position}.
+	 * @param in The reader to parse
+	 * @return The parsed tree
+	 * @throws IOException If an error occurs reading the stream
+	 * @throws XmlParseException If the XML is malformed
+	 */
+	public XmlTree parseTree(String fileLocation, Reader in) throws IOException, XmlParseException {
+		if (in == null)
+			throw new NullPointerException("Reader cannot be null");
+		return parseXml(new ParseSession(fileLocation, in).setLazy(true), new XmlTree.Builder(theTabLength)).build();
+	}
+
 	/**
 	 * Parses an XML document from a binary stream. The character encoding may be specified by the XML declaration in the document, or is
 	 * defaulted to UTF-8. The document's {@link Node node}s will be populated with any relevant positions.
@@ -1273,6 +1370,10 @@ public class SimpleXMLParser {
 
 	private static final ThreadLocal<DomBuilderSet> DOM_BUILDERS = ThreadLocal.withInitial(DomBuilderSet::new);
 
+	static Document createDocument() throws IllegalStateException {
+		return DOM_BUILDERS.get().createDocument();
+	}
+
 	private static <H extends ParseHandler> H parseXml(ParseSession session, H handler) throws IOException, XmlParseException {
 		if (handler == null)
 			throw new NullPointerException("Handler cannot be null");
@@ -1359,7 +1460,7 @@ public class SimpleXMLParser {
 		}
 	}
 
-	private static void handleXmlDeclaration(ParseSession session, ParseHandler handler) throws IOException, XmlParseException {
+	static void handleXmlDeclaration(ParseSession session, ParseHandler handler) throws IOException, XmlParseException {
 		int decPos = session.getPosition();
 		if (decPos != 1)
 			session.throwException(false, "XML declaration must be at the first position of the first line of the XML document");
@@ -1457,7 +1558,7 @@ public class SimpleXMLParser {
 		session.setEncoding(encoding == null ? StandardCharsets.UTF_8 : encoding);
 	}
 
-	private static void handleComment(ParseSession session, ParseHandler handler) throws IOException, XmlParseException {
+	static void handleComment(ParseSession session, ParseHandler handler) throws IOException, XmlParseException {
 		if (!session.expect("-"))
 			session.throwException(false, "'<!-' here should be followed by another '-' for a comment");
 		session.nextChar();
@@ -1468,7 +1569,7 @@ public class SimpleXMLParser {
 		handler.handleComment(new XmlComment(session.dumpSequence()));
 	}
 
-	private static void handleProcessingInstruction(ParseSession session, ParseHandler handler) throws IOException, XmlParseException {
+	static void handleProcessingInstruction(ParseSession session, ParseHandler handler) throws IOException, XmlParseException {
 		session.nextChar();
 		session.mark();
 		String target = session.getName();
@@ -1653,6 +1754,7 @@ public class SimpleXMLParser {
 		private boolean isAtBeginning = true;
 		private boolean isAtEnd;
 		private boolean wasCRNL;
+		private boolean isLazy = isLazyPositions;
 
 		private LocatedXmlElement theElement;
 		private int theMarkPosition;
@@ -1672,6 +1774,8 @@ public class SimpleXMLParser {
 		}
 
 		private void newLine() {
+			if (isLazy)
+				return; // Lines will be found in the content when needed
 			SpecialCharSequence[] seqs;
 			if (lineSpecialSequences.isEmpty())
 				seqs = EMPTY_SPECIAL_SEQUENCE;
@@ -1700,6 +1804,11 @@ public class SimpleXMLParser {
 			return this;
 		}
 
+		ParseSession setLazy(boolean lazy) {
+			isLazy = lazy;
+			return this;
+		}
+
 		boolean isAtEnd() {
 			return isAtEnd;
 		}
@@ -1738,7 +1847,8 @@ public class SimpleXMLParser {
 					break;
 				case '\t':
 					theCharNumber += theTabLength;
-					specialSequence(theTabLength, TAB);
+					if (!isLazy) // Tabs can be found in the content when needed
+						specialSequence(theTabLength, TAB);
 					theSequenceBuffer.append('\t');
 					ch = getNextStreamChar();
 					break;
@@ -1779,17 +1889,27 @@ public class SimpleXMLParser {
 		}
 
 		PositionedContent dumpSequence() throws IOException, XmlParseException {
-			if (theSequenceBuffer.length() > 0)
-				newLine();
-			LineContent[] dumped = lines.toArray(new LineContent[lines.size()]);
-			lines.clear();
-			String content = theSequenceBuffer.toString();
-			theSequenceBuffer.setLength(0);
-			lineStart = 0;
 			FilePosition seqPos = new FilePosition(theSequencePosition[0], theSequencePosition[1], theSequencePosition[2]);
 			theSequencePosition[0] = thePosition;
 			theSequencePosition[1] = theLineNumber;
 			theSequencePosition[2] = theCharNumber;
+			String content = theSequenceBuffer.toString();
+			theSequenceBuffer.setLength(0);
+			if (isLazy) {
+				SpecialCharSequence[] seqs;
+				if (lineSpecialSequences.isEmpty())
+					seqs = EMPTY_SPECIAL_SEQUENCE;
+				else {
+					seqs = lineSpecialSequences.toArray(new SpecialCharSequence[lineSpecialSequences.size()]);
+					lineSpecialSequences.clear();
+				}
+				return new LazyPositionedContent(content, seqPos, seqs, theTabLength);
+			}
+			if (!content.isEmpty())
+				newLine();
+			LineContent[] dumped = lines.toArray(new LineContent[lines.size()]);
+			lines.clear();
+			lineStart = 0;
 			return new PositionedContentImpl(content, seqPos, dumped);
 		}
 
@@ -1857,6 +1977,13 @@ public class SimpleXMLParser {
 			throw new XmlParseException(theElement, theFileLocation, message, pos, line, ch);
 		}
 
+		void close() throws IOException {
+			if (theReader != null)
+				theReader.close();
+			if (theStream != null)
+				theStream.close();
+		}
+
 		void setEncoding(Charset charSet) {
 			if (theReader == null)
 				theReader = new InputStreamReader(theStream, charSet);
@@ -2088,6 +2215,93 @@ public class SimpleXMLParser {
 		}
 	}
 
+	/**
+	 * Content parsed with {@link SimpleXMLParser#setLazyPositions(boolean) lazy positions}, which only locates the lines and special
+	 * sequences in the content when a position is first requested
+	 */
+	static class LazyPositionedContent implements PositionedContent {
+		private final String theContent;
+		private final FilePosition theStart;
+		/** The special sequences that cannot be derived from the content, i.e. entities and 2-character line endings */
+		private final SpecialCharSequence[] theSpecialSequences;
+		private final int theTabLength;
+		private PositionedContentImpl thePositioned;
+
+		LazyPositionedContent(String content, FilePosition start, SpecialCharSequence[] specialSequences, int tabLength) {
+			theContent = content;
+			theStart = start;
+			theSpecialSequences = specialSequences;
+			theTabLength = tabLength;
+		}
+
+		@Override
+		public int length() {
+			return theContent.length();
+		}
+
+		@Override
+		public char charAt(int index) {
+			return theContent.charAt(index);
+		}
+
+		@Override
+		public FilePosition getPosition(int index) {
+			if (index == 0)
+				return theStart;
+			return getPositioned().getPosition(index);
+		}
+
+		@Override
+		public int getSourceLength(int from, int to) {
+			return getPositioned().getSourceLength(from, to);
+		}
+
+		@Override
+		public CharSequence getSourceContent(int from, int to) {
+			return getPositioned().getSourceContent(from, to);
+		}
+
+		/** @return The entities and 2-character line endings in this content */
+		SpecialCharSequence[] getSpecialSequences() {
+			return theSpecialSequences;
+		}
+
+		/** @return Positioned content with the same lines and special sequences that the parser would have recorded eagerly */
+		private PositionedContentImpl getPositioned() {
+			if (thePositioned == null) {
+				List<LineContent> lines = new ArrayList<>();
+				List<SpecialCharSequence> lineSequences = new ArrayList<>();
+				int lineStart = 0, linePosition = theStart.getPosition();
+				int extra = 0; // Source characters beyond the content characters so far
+				int s = 0;
+				for (int i = 0; i < theContent.length(); i++) {
+					for (; s < theSpecialSequences.length && theSpecialSequences[s].contentIndex == i; s++) {
+						lineSequences.add(theSpecialSequences[s]);
+						extra += theSpecialSequences[s].sequence.length() - 1;
+					}
+					char c = theContent.charAt(i);
+					if (c == '\t')
+						lineSequences.add(new SpecialCharSequence(i, theTabLength, TAB));
+					else if (c == '\n') {
+						lines.add(new LineContent(lineStart, linePosition, lineSequences.toArray(EMPTY_SPECIAL_SEQUENCE)));
+						lineSequences.clear();
+						lineStart = i + 1;
+						linePosition = theStart.getPosition() + i + 1 + extra;
+					}
+				}
+				if (!theContent.isEmpty())
+					lines.add(new LineContent(lineStart, linePosition, lineSequences.toArray(EMPTY_SPECIAL_SEQUENCE)));
+				thePositioned = new PositionedContentImpl(theContent, theStart, lines.toArray(new LineContent[lines.size()]));
+			}
+			return thePositioned;
+		}
+
+		@Override
+		public String toString() {
+			return theContent;
+		}
+	}
+
 	static class LineContent {
 		final int contentIndex;
 		final int position;
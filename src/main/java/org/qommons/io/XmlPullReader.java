@@ -0,0 +1,474 @@
+package org.qommons.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.qommons.io.SimpleXMLParser.ParseHandler;
+import org.qommons.io.SimpleXMLParser.ParseSession;
+import org.qommons.io.SimpleXMLParser.XmlAttribute;
+import org.qommons.io.SimpleXMLParser.XmlCdata;
+import org.qommons.io.SimpleXMLParser.XmlComment;
+import org.qommons.io.SimpleXMLParser.XmlComponent;
+import org.qommons.io.SimpleXMLParser.XmlDeclaration;
+import org.qommons.io.SimpleXMLParser.XmlElementTerminal;
+import org.qommons.io.SimpleXMLParser.XmlParseException;
+import org.qommons.io.SimpleXMLParser.XmlProcessingInstruction;
+
+/**
+ * <p>
+ * Reads XML a structure at a time as the caller asks for it, instead of {@link SimpleXMLParser#parseXml(String, Reader, ParseHandler)
+ * pushing} all the structures in a document to a handler. This allows a large document to be processed in constant memory, to skip
+ * {@link #skipElement() whole elements}, and to stop reading before the end of the document.
+ * </p>
+ * <p>
+ * The reader is created by {@link SimpleXMLParser#pullXml(String, Reader)} and has the same syntax rules, entity handling, and positions
+ * as the parser that created it. Unlike the push parser, white space outside of element content is not reported.
+ * </p>
+ * <p>
+ * E.g.
+ *
+ * <pre>
+ * try (XmlPullReader reader = new SimpleXMLParser().pullXml(file, in)) {
+ * 	reader.nextElement(); // The root
+ * 	while (reader.nextElement(1)) {
+ * 		if (reader.getName().equals("record"))
+ * 			handleRecord(reader);
+ * 		else
+ * 			reader.skipElement();
+ * 	}
+ * }
+ * </pre>
+ * </p>
+ */
+public class XmlPullReader implements Closeable {
+	/** The types of XML structures reported by an {@link XmlPullReader} */
+	public enum Event {
+		/** The XML declaration at the top of the document */
+		DECLARATION,
+		/** A processing instruction */
+		PROCESSING_INSTRUCTION,
+		/** A comment */
+		COMMENT,
+		/** The start of an element, i.e. the <code>&lt;</code> and the element's name */
+		ELEMENT_START,
+		/** An attribute in an element's open tag */
+		ATTRIBUTE,
+		/** Text content between an element's open and close tags */
+		TEXT,
+		/** A CDATA structure */
+		CDATA,
+		/** The end of an element, i.e. its close tag or the end of its self-closing open tag */
+		ELEMENT_END,
+		/** The end of the document */
+		END
+	}
+
+	private enum State {
+		BEGIN, PROLOG, START_TAG, CONTENT, EPILOG, DONE
+	}
+
+	private final ParseSession theSession;
+	private final Capture theCapture;
+	private final List<String> theElements;
+	private State theState;
+	private Set<String> theAttributes;
+
+	private Event theEvent;
+	private String theName;
+	private XmlComponent theComponent;
+	private PositionedContent theContent;
+	private boolean isSelfClosing;
+
+	XmlPullReader(ParseSession session) {
+		theSession = session;
+		theCapture = new Capture();
+		theElements = new ArrayList<>();
+		theState = State.BEGIN;
+	}
+
+	/** @return The type of the structure most recently read, or null if nothing has been read */
+	public Event getEvent() {
+		return theEvent;
+	}
+
+	/**
+	 * @return The name of the element, for {@link Event#ELEMENT_START ELEMENT_START} and {@link Event#ELEMENT_END ELEMENT_END}; the name of
+	 *         the attribute for {@link Event#ATTRIBUTE ATTRIBUTE}; the name of the element containing the content for {@link Event#TEXT
+	 *         TEXT} and {@link Event#CDATA CDATA}; the target for {@link Event#PROCESSING_INSTRUCTION PROCESSING_INSTRUCTION}; or null
+	 */
+	public String getName() {
+		return theName;
+	}
+
+	/**
+	 * @return The structure most recently read, e.g. an {@link XmlElementTerminal} or {@link XmlAttribute}, or null for
+	 *         {@link Event#TEXT TEXT} or {@link Event#END END}
+	 */
+	public XmlComponent getComponent() {
+		return theComponent;
+	}
+
+	/**
+	 * @return The value of the structure most recently read: the text of {@link Event#TEXT TEXT}, or the value of an {@link Event#ATTRIBUTE
+	 *         ATTRIBUTE}, {@link Event#CDATA CDATA}, {@link Event#COMMENT COMMENT}, or {@link Event#PROCESSING_INSTRUCTION
+	 *         PROCESSING_INSTRUCTION}. For elements and the declaration, this is the content of the structure.
+	 */
+	public PositionedContent getContent() {
+		return theContent;
+	}
+
+	/** @return The {@link #getContent() value} of the structure most recently read, as a String */
+	public String getValue() {
+		return theContent == null ? null : theContent.toString();
+	}
+
+	/** @return Whether the most recently read {@link Event#ELEMENT_END ELEMENT_END} was the end of a self-closing element */
+	public boolean isSelfClosing() {
+		return isSelfClosing;
+	}
+
+	/**
+	 * @return The number of elements that are open. This is 1 for the root element's {@link Event#ELEMENT_START ELEMENT_START} and
+	 *         {@link Event#ATTRIBUTE attributes}, and 0 for its {@link Event#ELEMENT_END ELEMENT_END}.
+	 */
+	public int getDepth() {
+		return theElements.size();
+	}
+
+	/**
+	 * Reads the next structure in the document
+	 *
+	 * @return The type of the structure read, or {@link Event#END END} if the end of the document has been reached
+	 * @throws IOException If the content could not be read
+	 * @throws XmlParseException If the content is not valid XML
+	 */
+	public Event next() throws IOException, XmlParseException {
+		theEvent = null;
+		theName = null;
+		theComponent = null;
+		theContent = null;
+		isSelfClosing = false;
+		do {
+			step();
+		} while (theEvent == null);
+		return theEvent;
+	}
+
+	/**
+	 * Reads to the start of the next element in the document
+	 *
+	 * @return Whether an element was found before the end of the document
+	 * @throws IOException If the content could not be read
+	 * @throws XmlParseException If the content is not valid XML
+	 */
+	public boolean nextElement() throws IOException, XmlParseException {
+		Event event;
+		do {
+			event = next();
+		} while (event != Event.ELEMENT_START && event != Event.END);
+		return event == Event.ELEMENT_START;
+	}
+
+	/**
+	 * Reads to the start of the next child of an element, skipping any deeper descendants
+	 *
+	 * @param parentDepth The {@link #getDepth() depth} of the parent element
+	 * @return Whether a child element was found before the end of the parent element
+	 * @throws IOException If the content could not be read
+	 * @throws XmlParseException If the content is not valid XML
+	 */
+	public boolean nextElement(int parentDepth) throws IOException, XmlParseException {
+		while (getDepth() > parentDepth)
+			skipElement();
+		while (true) {
+			if (theEvent == Event.ELEMENT_START && getDepth() == parentDepth + 1)
+				return true;
+			else if (getDepth() < parentDepth || theEvent == Event.END)
+				return false;
+			next();
+		}
+	}
+
+	/**
+	 * Skips the rest of the current element, i.e. the innermost element that is open, including all its content. After this call the
+	 * reader's {@link #getEvent() event} will be the element's {@link Event#ELEMENT_END ELEMENT_END}.
+	 *
+	 * @throws IOException If the content could not be read
+	 * @throws XmlParseException If the content is not valid XML
+	 */
+	public void skipElement() throws IOException, XmlParseException {
+		int depth = getDepth();
+		if (depth == 0)
+			throw new IllegalStateException("No element to skip");
+		while (next() != Event.ELEMENT_END || getDepth() >= depth) {}
+	}
+
+	/**
+	 * Reads the text content of the current element, which must not contain child elements
+	 *
+	 * @return The text (including CDATA) of the current element
+	 * @throws IOException If the content could not be read
+	 * @throws XmlParseException If the content is not valid XML, or the element has child elements
+	 */
+	public String readText() throws IOException, XmlParseException {
+		int depth = getDepth();
+		if (depth == 0)
+			throw new IllegalStateException("No element to read text from");
+		StringBuilder text = new StringBuilder();
+		while (true) {
+			switch (next()) {
+			case TEXT:
+			case CDATA:
+				text.append(theContent);
+				break;
+			case ELEMENT_START:
+				theSession.throwException(true, "Text expected, not element '" + theName + "'");
+				break;
+			case ELEMENT_END:
+				if (getDepth() < depth)
+					return text.toString();
+				break;
+			default:
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		theState = State.DONE;
+		theSession.close();
+	}
+
+	private void step() throws IOException, XmlParseException {
+		char ch;
+		switch (theState) {
+		case BEGIN: // Find the declaration, if it exists, or the start of the root element if not
+			ch = theSession.skipWS(theCapture);
+			if (ch != '<')
+				theSession.throwException(false, "The first non-whitespace character in an XML document must be '<', not '" + ch + "'");
+			ch = theSession.nextChar();
+			if (ch == '?') { // XML Declaration
+				SimpleXMLParser.handleXmlDeclaration(theSession, theCapture);
+				ch = theSession.skipWS(theCapture);
+				if (ch != '<')
+					theSession.throwException(false,
+						"The first non-whitespace character after the XML declaration must be '<', not '" + ch + "'");
+				theSession.nextChar();
+			}
+			theState = State.PROLOG;
+			break;
+		case PROLOG: // Just after a '<' before the root element
+			ch = theSession.currentChar();
+			if (ch == '!') { // DOCTYPE declaration or comment
+				ch = theSession.nextChar();
+				theSession.mark();
+				if (ch == 'D') {// DOCTYPE declaration
+					if (!theSession.expect("OCTYPE"))
+						theSession.throwException(false, "'<!DOCTYPE' expected but not found");
+					theSession.throwException(true, "DOCTYPE declarations are not supported by this parser");
+				} else if (ch == '-') // Comment
+					SimpleXMLParser.handleComment(theSession, theCapture);
+				else
+					theSession.throwException(false,
+						"'<!' here is expected to be followed by 'DOCTYPE' for a DOCTYPE declaration or '--' for a comment");
+			} else if (ch == '?') // Processing instruction
+				SimpleXMLParser.handleProcessingInstruction(theSession, theCapture);
+			else { // Now we should be at the name of the root element
+				startElement();
+				break;
+			}
+			ch = theSession.skipWS(theCapture);
+			if (ch != '<')
+				theSession.throwException(false, "'<' expected, not '" + ch + "'");
+			theSession.nextChar();
+			break;
+		case START_TAG:
+			String elementName = theElements.get(theElements.size() - 1);
+			if (theSession.currentChar() == '/') { // Self-closing element
+				if (theSession.nextChar() != '>')
+					theSession.throwException(false, "'>' expected");
+				theSession.nextChar(); // Include the terminal '>'
+				theCapture.handleElementEnd(new XmlElementTerminal(elementName, -1, theSession.dumpSequence()), true);
+				endElement();
+			} else if (theSession.currentChar() == '>') {
+				theSession.nextChar(); // Include the '>' in the sequence
+				theSession.dumpSequence();
+				theState = State.CONTENT;
+			} else { // Attribute
+				theSession.mark();
+				String attributeName = theSession.getName();
+				if (theAttributes == null)
+					theAttributes = new HashSet<>();
+				if (!theAttributes.add(attributeName))
+					theSession.throwException(true, "Multiple '" + attributeName + "' attributes specified on this element");
+				theSession.startAttribute(attributeName);
+				int attrValuePos = theSession.getPosition() - theSession.getSequenceStartPosition();
+				theSession.parseXmlContent(false, SimpleXMLParser.ATTRIBUTE_TERMINATION);
+				theCapture.handleAttribute(new XmlAttribute(attributeName, attrValuePos, theSession.dumpSequence()));
+				if (Character.isWhitespace(theSession.currentChar()))
+					theSession.skipWS(theCapture);// White space between attributes or the terminal is not part of any component
+			}
+			break;
+		case CONTENT:
+			elementName = theElements.get(theElements.size() - 1);
+			theSession.mark();
+			if (theSession.currentChar() == '<') { // Comment, CDATA, or child element
+				if (theSession.nextChar() == '!') { // Comment or CDATA
+					if (theSession.nextChar() == '[') { // CDATA
+						if (!theSession.expect("CDATA["))
+							theSession.throwException(true, "Bad CDATA initializer");
+						theSession.nextChar(); // Move to the beginning of the CDATA content
+						theSession.parseXmlContent(true, SimpleXMLParser.CDATA_TERMINATION);
+						theCapture.handleCDataContent(elementName, new XmlCdata(theSession.dumpSequence()));
+					} else if (theSession.currentChar() == '-') // Comment
+						SimpleXMLParser.handleComment(theSession, theCapture);
+					else
+						theSession.throwException(true, "Misplaced '<' or malformed XML construct");
+				} else if (theSession.currentChar() == '?') // Processing instruction
+					SimpleXMLParser.handleProcessingInstruction(theSession, theCapture);
+				else if (theSession.currentChar() == '/') { // Closing element
+					theSession.skipWS(null); // White space is part of the closing tag
+					theSession.mark();
+					int closePos = theSession.getPosition() - theSession.getSequenceStartPosition();
+					String closingElement = theSession.getName();
+					if (!closingElement.equals(elementName))
+						theSession.throwException(true,
+							"Closing element for '" + elementName + "' expected, not '" + closingElement + "'");
+					if (Character.isWhitespace(theSession.currentChar()))
+						theSession.skipWS(null);// White space is part of the closing tag
+					if (theSession.currentChar() != '>')
+						theSession.throwException(false, "'>' expected");
+					theSession.nextChar(); // Include the terminal '>'
+					theCapture.handleElementEnd(new XmlElementTerminal(elementName, closePos, theSession.dumpSequence()), false);
+					endElement();
+				} else // Child element
+					startElement();
+			} else { // Element content
+				theSession.parseXmlContent(false, SimpleXMLParser.ELEMENT_CONTENT_TERMINATION);
+				theCapture.handleElementContent(elementName, theSession.dumpSequence());
+			}
+			break;
+		case EPILOG:
+			if (theSession.isAtEnd()) {
+				theState = State.DONE;
+				theEvent = Event.END;
+				break;
+			}
+			theSession.setContentComplete(false);
+			theSession.mark();
+			if (theSession.currentChar() == '<') {
+				if (theSession.nextChar() == '!') {
+					if (theSession.nextChar() != '-')
+						theSession.throwException(true, "Comment expected");
+					SimpleXMLParser.handleComment(theSession, theCapture);
+				} else if (theSession.currentChar() == '?') // Processing instruction
+					SimpleXMLParser.handleProcessingInstruction(theSession, theCapture);
+				else
+					theSession.throwException(true, "Unexpected character sequence in XML after root element");
+			} else
+				theSession.throwException(false, "Unexpected character in XML after root element");
+			theSession.setContentComplete(true);
+			theSession.skipWS(theCapture);
+			break;
+		case DONE:
+			theEvent = Event.END;
+			break;
+		}
+	}
+
+	private void startElement() throws IOException, XmlParseException {
+		if (Character.isWhitespace(theSession.currentChar()))
+			theSession.skipWS(null); // White space is part of the element start
+		int startPos = theSession.getPosition() - theSession.getSequenceStartPosition();
+		FilePosition namePos = theSession.getFilePosition(false);
+		String elementName = theSession.getName();
+		theSession.openElement(elementName, namePos);
+		theElements.add(elementName);
+		theAttributes = null;
+		theCapture.handleElementStart(new XmlElementTerminal(elementName, startPos, theSession.dumpSequence()));
+		if (Character.isWhitespace(theSession.currentChar()))
+			theSession.skipWS(theCapture); // White space between element start and attribute or terminal is not part of any component
+		theState = State.START_TAG;
+	}
+
+	private void endElement() throws IOException, XmlParseException {
+		theSession.closeElement();
+		theElements.remove(theElements.size() - 1);
+		if (theElements.isEmpty()) {
+			theSession.setContentComplete(true);
+			theSession.skipWS(theCapture);
+			theState = State.EPILOG;
+		} else
+			theState = State.CONTENT;
+	}
+
+	/** Receives structures from the parse session and the static parsing methods of {@link SimpleXMLParser} */
+	private class Capture implements ParseHandler {
+		@Override
+		public void handleDeclaration(XmlDeclaration declaration) {
+			theEvent = Event.DECLARATION;
+			theComponent = declaration;
+			theContent = declaration.getContent();
+		}
+
+		@Override
+		public void handleProcessingInstruction(XmlProcessingInstruction pi) {
+			theEvent = Event.PROCESSING_INSTRUCTION;
+			theName = pi.getTargetName();
+			theComponent = pi;
+			theContent = pi.getValueContent();
+		}
+
+		@Override
+		public void handleComment(XmlComment comment) {
+			theEvent = Event.COMMENT;
+			theComponent = comment;
+			theContent = comment.getValueContent();
+		}
+
+		@Override
+		public void handleElementStart(XmlElementTerminal element) {
+			theEvent = Event.ELEMENT_START;
+			theName = element.getName();
+			theComponent = element;
+			theContent = element.getContent();
+		}
+
+		@Override
+		public void handleAttribute(XmlAttribute attribute) {
+			theEvent = Event.ATTRIBUTE;
+			theName = attribute.getName();
+			theComponent = attribute;
+			theContent = attribute.getValueContent();
+		}
+
+		@Override
+		public void handleElementContent(String elementName, PositionedContent elementValue) {
+			theEvent = Event.TEXT;
+			theName = elementName;
+			theContent = elementValue;
+		}
+
+		@Override
+		public void handleCDataContent(String elementName, XmlCdata cdata) {
+			theEvent = Event.CDATA;
+			theName = elementName;
+			theComponent = cdata;
+			theContent = cdata.getValueContent();
+		}
+
+		@Override
+		public void handleElementEnd(XmlElementTerminal element, boolean selfClosing) {
+			theEvent = Event.ELEMENT_END;
+			theName = element.getName();
+			theComponent = element;
+			theContent = element.getContent();
+			isSelfClosing = selfClosing;
+		}
+	}
+}
@@ -0,0 +1,762 @@
+package org.qommons.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.qommons.IntList;
+import org.qommons.io.SimpleXMLParser.LazyPositionedContent;
+import org.qommons.io.SimpleXMLParser.DomCreatorHandler;
+import org.qommons.io.SimpleXMLParser.ParseHandler;
+import org.qommons.io.SimpleXMLParser.SpecialCharSequence;
+import org.qommons.io.SimpleXMLParser.XmlAttribute;
+import org.qommons.io.SimpleXMLParser.XmlCdata;
+import org.qommons.io.SimpleXMLParser.XmlComment;
+import org.qommons.io.SimpleXMLParser.XmlElementTerminal;
+import org.qommons.io.SimpleXMLParser.XmlProcessingInstruction;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * <p>
+ * A compact, immutable XML document with the positions of all its names and values. This is a light-weight alternative to a W3C
+ * {@link org.w3c.dom.Document} {@link SimpleXMLParser#parseDocument(String, Reader) parsed} by {@link SimpleXMLParser}.
+ * </p>
+ * <p>
+ * Instead of an object per node with its positions stored in a user data map, the tree is stored as records in a few arrays. Nodes and
+ * attributes are referred to by their integer index. All values are stored in a single shared character buffer, names are shared between
+ * all nodes with the same name, and positions are stored as offsets from which {@link PositionedContent} is created when requested.
+ * </p>
+ * <p>
+ * Trees are created by {@link SimpleXMLParser#parseTree(String, Reader)}, {@link #of(Element)}, or by parsing XML with a {@link Builder}.
+ * A tree may also be {@link #write(OutputStream) written} in a binary form that can be {@link #read(InputStream) read} back without
+ * parsing any XML.
+ * </p>
+ */
+public class XmlTree {
+	/** The types of nodes in an {@link XmlTree} */
+	public enum NodeType {
+		/** The document, whose children are the root element and any comments and processing instructions outside it */
+		DOCUMENT,
+		/** An element */
+		ELEMENT,
+		/** Text content in an element */
+		TEXT,
+		/** A CDATA structure */
+		CDATA,
+		/** A comment */
+		COMMENT,
+		/** A processing instruction */
+		PROCESSING_INSTRUCTION;
+
+		static final NodeType[] VALUES = values();
+	}
+
+	/** The index of the document node in every tree */
+	public static final int DOCUMENT = 0;
+
+	// Node record fields
+	private static final int TYPE = 0;
+	private static final int NAME = 1;
+	private static final int PARENT = 2;
+	private static final int FIRST_CHILD = 3;
+	private static final int NEXT_SIBLING = 4;
+	private static final int CHILD_COUNT = 5;
+	private static final int FIRST_ATTRIBUTE = 6;
+	private static final int ATTRIBUTE_COUNT = 7;
+	private static final int VALUE_START = 8;
+	private static final int VALUE_END = 9;
+	private static final int NAME_POSITION = 10;
+	private static final int VALUE_POSITION = 13;
+	private static final int NODE_STRIDE = 16;
+
+	// Attribute record fields
+	private static final int ATT_NAME = 0;
+	private static final int ATT_VALUE_START = 1;
+	private static final int ATT_VALUE_END = 2;
+	private static final int ATT_NAME_POSITION = 3;
+	private static final int ATT_VALUE_POSITION = 6;
+	private static final int ATTRIBUTE_STRIDE = 9;
+
+	/** Identifies the binary format written by {@link #write(OutputStream)}. Must be changed whenever the format changes. */
+	private static final int BINARY_MAGIC = 0x51585401;
+
+	private final int[] theNodes;
+	private final int[] theAttributes;
+	private final char[] theText;
+	private final String[] theNames;
+	private final Map<String, Integer> theNameIndexes;
+	/** Special sequences (entities and 2-character line endings) in values, keyed by {@link #valueKey(int, boolean)} */
+	private final Map<Integer, SpecialCharSequence[]> theSpecialSequences;
+	private final int theTabLength;
+	private final int theRoot;
+
+	XmlTree(int[] nodes, int[] attributes, char[] text, String[] names, Map<String, Integer> nameIndexes,
+		Map<Integer, SpecialCharSequence[]> specialSequences, int tabLength) {
+		theNodes = nodes;
+		theAttributes = attributes;
+		theText = text;
+		theNames = names;
+		theNameIndexes = nameIndexes;
+		theSpecialSequences = specialSequences;
+		theTabLength = tabLength;
+		int root = getFirstChild(DOCUMENT);
+		while (root >= 0 && getType(root) != NodeType.ELEMENT)
+			root = getNextSibling(root);
+		theRoot = root;
+	}
+
+	/** @return The index of the root element of the document, or -1 if the document has no root */
+	public int getRoot() {
+		return theRoot;
+	}
+
+	/** @return The number of nodes in this tree, including the {@link #DOCUMENT document} */
+	public int getNodeCount() {
+		return theNodes.length / NODE_STRIDE;
+	}
+
+	/** @return The number of attributes in this tree */
+	public int getTotalAttributeCount() {
+		return theAttributes.length / ATTRIBUTE_STRIDE;
+	}
+
+	/**
+	 * @param node The index of the node
+	 * @return The type of the node
+	 */
+	public NodeType getType(int node) {
+		return NodeType.VALUES[theNodes[node * NODE_STRIDE + TYPE]];
+	}
+
+	/**
+	 * @param node The index of the node
+	 * @return The name of the element, or the target of the processing instruction, or null for other nodes
+	 */
+	public String getName(int node) {
+		int name = theNodes[node * NODE_STRIDE + NAME];
+		return name < 0 ? null : theNames[name];
+	}
+
+	/**
+	 * @param node The index of the node
+	 * @param name The name to test
+	 * @return Whether the node is an element or processing instruction with the given name
+	 */
+	public boolean isNamed(int node, String name) {
+		Integer nameIndex = theNameIndexes.get(name);
+		return nameIndex != null && theNodes[node * NODE_STRIDE + NAME] == nameIndex.intValue();
+	}
+
+	/**
+	 * @param node The index of the node
+	 * @return The index of the node's parent, or -1 for the {@link #DOCUMENT document}
+	 */
+	public int getParent(int node) {
+		return theNodes[node * NODE_STRIDE + PARENT];
+	}
+
+	/**
+	 * @param node The index of the node
+	 * @return The index of the node's first child, or -1 if it has no children
+	 */
+	public int getFirstChild(int node) {
+		return theNodes[node * NODE_STRIDE + FIRST_CHILD];
+	}
+
+	/**
+	 * @param node The index of the node
+	 * @return The index of the node's next sibling, or -1 if it is the last child of its parent
+	 */
+	public int getNextSibling(int node) {
+		return theNodes[node * NODE_STRIDE + NEXT_SIBLING];
+	}
+
+	/**
+	 * @param node The index of the node
+	 * @return The number of children of the node
+	 */
+	public int getChildCount(int node) {
+		return theNodes[node * NODE_STRIDE + CHILD_COUNT];
+	}
+
+	/**
+	 * @param node The index of the node
+	 * @return The value of the text, CDATA, comment, or processing instruction node, or null for the document and elements
+	 */
+	public String getValue(int node) {
+		int start = theNodes[node * NODE_STRIDE + VALUE_START];
+		return start < 0 ? null : new String(theText, start, theNodes[node * NODE_STRIDE + VALUE_END] - start);
+	}
+
+	/**
+	 * @param node The index of the node
+	 * @return Whether the node's value is null or contains only white space characters
+	 */
+	public boolean isWhiteSpace(int node) {
+		int start = theNodes[node * NODE_STRIDE + VALUE_START];
+		return start < 0 || isWhiteSpace(start, theNodes[node * NODE_STRIDE + VALUE_END]);
+	}
+
+	/**
+	 * @param node The index of the node
+	 * @return The position of the element's or processing instruction's name, or null if the position is not known
+	 */
+	public PositionedContent getNamePosition(int node) {
+		return getNamePosition(theNodes, node * NODE_STRIDE + NAME, node * NODE_STRIDE + NAME_POSITION);
+	}
+
+	/**
+	 * @param node The index of the node
+	 * @return The position of the node's {@link #getValue(int) value}, or null if the node has no value or its position is not known
+	 */
+	public PositionedContent getValuePosition(int node) {
+		return getValuePosition(theNodes, node * NODE_STRIDE + VALUE_START, node * NODE_STRIDE + VALUE_POSITION, valueKey(node, false));
+	}
+
+	/**
+	 * @param element The index of the element
+	 * @return The number of attributes specified on the element
+	 */
+	public int getAttributeCount(int element) {
+		return theNodes[element * NODE_STRIDE + ATTRIBUTE_COUNT];
+	}
+
+	/**
+	 * @param element The index of the element
+	 * @param index The index of the attribute in the element, in the order they were specified
+	 * @return The index of the attribute in this tree
+	 */
+	public int getAttribute(int element, int index) {
+		int count = theNodes[element * NODE_STRIDE + ATTRIBUTE_COUNT];
+		if (index < 0 || index >= count)
+			throw new IndexOutOfBoundsException(index + " of " + count);
+		return theNodes[element * NODE_STRIDE + FIRST_ATTRIBUTE] + index;
+	}
+
+	/**
+	 * @param element The index of the element
+	 * @param name The name of the attribute
+	 * @return The index of the attribute in the element (the index that may be passed to {@link #getAttribute(int, int)}), or -1 if no
+	 *         such attribute was specified on the element
+	 */
+	public int indexOfAttribute(int element, String name) {
+		Integer nameIndex = theNameIndexes.get(name);
+		if (nameIndex == null)
+			return -1;
+		int first = theNodes[element * NODE_STRIDE + FIRST_ATTRIBUTE];
+		int count = theNodes[element * NODE_STRIDE + ATTRIBUTE_COUNT];
+		for (int a = 0; a < count; a++) {
+			if (theAttributes[(first + a) * ATTRIBUTE_STRIDE + ATT_NAME] == nameIndex.intValue())
+				return a;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param attribute The index of the attribute in this tree
+	 * @return The name of the attribute
+	 */
+	public String getAttributeName(int attribute) {
+		return theNames[theAttributes[attribute * ATTRIBUTE_STRIDE + ATT_NAME]];
+	}
+
+	/**
+	 * @param attribute The index of the attribute in this tree
+	 * @return The value of the attribute
+	 */
+	public String getAttributeValue(int attribute) {
+		int start = theAttributes[attribute * ATTRIBUTE_STRIDE + ATT_VALUE_START];
+		return new String(theText, start, theAttributes[attribute * ATTRIBUTE_STRIDE + ATT_VALUE_END] - start);
+	}
+
+	/**
+	 * @param attribute The index of the attribute in this tree
+	 * @return The position of the attribute's name, or null if the position is not known
+	 */
+	public PositionedContent getAttributeNamePosition(int attribute) {
+		return getNamePosition(theAttributes, attribute * ATTRIBUTE_STRIDE + ATT_NAME, attribute * ATTRIBUTE_STRIDE + ATT_NAME_POSITION);
+	}
+
+	/**
+	 * @param attribute The index of the attribute in this tree
+	 * @return The position of the attribute's value, or null if the position is not known
+	 */
+	public PositionedContent getAttributeValuePosition(int attribute) {
+		return getValuePosition(theAttributes, attribute * ATTRIBUTE_STRIDE + ATT_VALUE_START,
+			attribute * ATTRIBUTE_STRIDE + ATT_VALUE_POSITION, valueKey(attribute, true));
+	}
+
+	private boolean isWhiteSpace(int start, int end) {
+		for (int i = start; i < end; i++) {
+			switch (theText[i]) {
+			case ' ':
+			case '\n':
+			case '\r':
+			case '\t':
+				break;
+			default:
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private PositionedContent getNamePosition(int[] records, int nameField, int positionField) {
+		if (records[positionField] < 0 || records[nameField] < 0)
+			return null;
+		return new LazyPositionedContent(theNames[records[nameField]], getPosition(records, positionField),
+			SimpleXMLParser.EMPTY_SPECIAL_SEQUENCE, theTabLength);
+	}
+
+	private PositionedContent getValuePosition(int[] records, int startField, int positionField, int key) {
+		int start = records[startField];
+		if (start < 0 || records[positionField] < 0)
+			return null;
+		SpecialCharSequence[] seqs = theSpecialSequences.get(key);
+		return new LazyPositionedContent(new String(theText, start, records[startField + 1] - start), getPosition(records, positionField),
+			seqs == null ? SimpleXMLParser.EMPTY_SPECIAL_SEQUENCE : seqs, theTabLength);
+	}
+
+	private static FilePosition getPosition(int[] records, int positionField) {
+		return new FilePosition(records[positionField], records[positionField + 1], records[positionField + 2]);
+	}
+
+	static int valueKey(int index, boolean attribute) {
+		return attribute ? index * 2 + 1 : index * 2;
+	}
+
+	/**
+	 * Writes this tree in a compact binary form that can be {@link #read(InputStream) read} back much more quickly than the XML it was
+	 * parsed from
+	 *
+	 * @param out The stream to write the tree to. The stream is flushed, but not closed.
+	 * @throws IOException If the stream cannot be written to
+	 */
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+		data.writeInt(BINARY_MAGIC);
+		data.writeInt(theTabLength);
+		writeInts(data, theNodes);
+		writeInts(data, theAttributes);
+		ByteBuffer textBytes = ByteBuffer.allocate(theText.length * 2);
+		textBytes.asCharBuffer().put(theText);
+		data.writeInt(theText.length);
+		data.write(textBytes.array());
+		data.writeInt(theNames.length);
+		for (String name : theNames)
+			data.writeUTF(name);
+		data.writeInt(theSpecialSequences.size());
+		for (Map.Entry<Integer, SpecialCharSequence[]> seqs : theSpecialSequences.entrySet()) {
+			data.writeInt(seqs.getKey());
+			data.writeInt(seqs.getValue().length);
+			for (SpecialCharSequence seq : seqs.getValue()) {
+				data.writeInt(seq.contentIndex);
+				data.writeInt(seq.contentLength);
+				data.writeUTF(seq.sequence);
+			}
+		}
+		data.flush();
+	}
+
+	/**
+	 * Reads a tree that was {@link #write(OutputStream) written} in binary form
+	 *
+	 * @param in The stream to read the tree from
+	 * @return The tree
+	 * @throws IOException If the stream cannot be read or does not contain a tree written in binary form by this version of the class
+	 */
+	public static XmlTree read(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		if (data.readInt() != BINARY_MAGIC)
+			throw new IOException("Not a binary XML tree, or written by an incompatible version");
+		int tabLength = data.readInt();
+		int[] nodes = readInts(data, NODE_STRIDE);
+		int[] attributes = readInts(data, ATTRIBUTE_STRIDE);
+		int textLength = checkLength(data.readInt(), 1);
+		byte[] textBytes = new byte[textLength * 2];
+		data.readFully(textBytes);
+		char[] text = new char[textLength];
+		ByteBuffer.wrap(textBytes).asCharBuffer().get(text);
+		String[] names = new String[checkLength(data.readInt(), 1)];
+		Map<String, Integer> nameIndexes = new HashMap<>(names.length * 3 / 2);
+		for (int i = 0; i < names.length; i++) {
+			names[i] = data.readUTF();
+			nameIndexes.put(names[i], i);
+		}
+		int seqCount = checkLength(data.readInt(), 1);
+		Map<Integer, SpecialCharSequence[]> specialSequences;
+		if (seqCount == 0)
+			specialSequences = Collections.emptyMap();
+		else {
+			specialSequences = new HashMap<>(seqCount * 3 / 2);
+			for (int i = 0; i < seqCount; i++) {
+				int key = data.readInt();
+				SpecialCharSequence[] seqs = new SpecialCharSequence[checkLength(data.readInt(), 1)];
+				for (int s = 0; s < seqs.length; s++)
+					seqs[s] = new SpecialCharSequence(data.readInt(), data.readInt(), data.readUTF());
+				specialSequences.put(key, seqs);
+			}
+		}
+		if (nodes.length == 0)
+			throw new IOException("Binary XML tree has no document node");
+		return new XmlTree(nodes, attributes, text, names, nameIndexes, specialSequences, tabLength);
+	}
+
+	private static void writeInts(DataOutputStream data, int[] ints) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(ints.length * 4);
+		bytes.asIntBuffer().put(ints);
+		data.writeInt(ints.length);
+		data.write(bytes.array());
+	}
+
+	private static int[] readInts(DataInputStream data, int stride) throws IOException {
+		int length = checkLength(data.readInt(), stride);
+		byte[] bytes = new byte[length * 4];
+		data.readFully(bytes);
+		int[] ints = new int[length];
+		ByteBuffer.wrap(bytes).asIntBuffer().get(ints);
+		return ints;
+	}
+
+	private static int checkLength(int length, int stride) throws IOException {
+		if (length < 0 || length % stride != 0)
+			throw new IOException("Corrupt binary XML tree");
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		if (theRoot < 0)
+			return "<empty>";
+		StringBuilder str = new StringBuilder().append('<').append(getName(theRoot));
+		for (int a = 0; a < getAttributeCount(theRoot); a++) {
+			int att = getAttribute(theRoot, a);
+			str.append(' ').append(getAttributeName(att)).append("=\"").append(getAttributeValue(att)).append('"');
+		}
+		return str.append('>').toString();
+	}
+
+	/**
+	 * Creates a tree with the same structure, content, and positions (where available) as a W3C DOM element
+	 *
+	 * @param root The root element for the tree
+	 * @return The tree
+	 * @see SimpleXMLParser#getNamePosition(Node)
+	 * @see SimpleXMLParser#getPositionContent(Node)
+	 */
+	public static XmlTree of(Element root) {
+		Builder builder = new Builder(4);
+		builder.addDom(root);
+		return builder.build();
+	}
+
+	/**
+	 * Creates a W3C DOM copy of an element in this tree, with positions stored in each node as by
+	 * {@link SimpleXMLParser#parseDocument(String, Reader)}. The element is the root of a new {@link Document}.
+	 *
+	 * @param element The index of the element to copy
+	 * @return The DOM element
+	 * @throws IllegalStateException If a DOM document could not be created
+	 */
+	public Element toDom(int element) throws IllegalStateException {
+		if (getType(element) != NodeType.ELEMENT)
+			throw new IllegalArgumentException("Node " + element + " is not an element");
+		Document doc = SimpleXMLParser.createDocument();
+		Element dom = (Element) toDom(doc, element);
+		doc.appendChild(dom);
+		return dom;
+	}
+
+	private Node toDom(Document doc, int node) {
+		Node dom;
+		switch (getType(node)) {
+		case ELEMENT:
+			Element element = doc.createElement(getName(node));
+			for (int a = 0; a < getAttributeCount(node); a++) {
+				int att = getAttribute(node, a);
+				Attr attr = doc.createAttribute(getAttributeName(att));
+				attr.setValue(getAttributeValue(att));
+				attr.setUserData(DomCreatorHandler.NAME_POSITION_KEY, getAttributeNamePosition(att), null);
+				attr.setUserData(DomCreatorHandler.CONTENT_POSITION_KEY, getAttributeValuePosition(att), null);
+				element.setAttributeNode(attr);
+			}
+			for (int c = getFirstChild(node); c >= 0; c = getNextSibling(c))
+				element.appendChild(toDom(doc, c));
+			dom = element;
+			break;
+		case TEXT:
+			dom = doc.createTextNode(getValue(node));
+			break;
+		case CDATA:
+			dom = doc.createCDATASection(getValue(node));
+			break;
+		case COMMENT:
+			dom = doc.createComment(getValue(node));
+			break;
+		case PROCESSING_INSTRUCTION:
+			dom = doc.createProcessingInstruction(getName(node), getValue(node));
+			break;
+		default:
+			throw new IllegalArgumentException("Cannot copy a " + getType(node) + " node");
+		}
+		PositionedContent position = getNamePosition(node);
+		if (position != null)
+			dom.setUserData(DomCreatorHandler.NAME_POSITION_KEY, position, null);
+		position = getValuePosition(node);
+		if (position != null)
+			dom.setUserData(DomCreatorHandler.CONTENT_POSITION_KEY, position, null);
+		return dom;
+	}
+
+	/**
+	 * A {@link ParseHandler} that builds an {@link XmlTree} from the structures reported by a {@link SimpleXMLParser}. Use
+	 * {@link SimpleXMLParser#parseTree(String, Reader)} to build a tree most efficiently.
+	 */
+	public static class Builder implements ParseHandler {
+		private final int theTabLength;
+		private final IntList theNodes;
+		private final IntList theAttributes;
+		private final StringBuilder theText;
+		private final List<String> theNames;
+		private final Map<String, Integer> theNameIndexes;
+		private final Map<Integer, SpecialCharSequence[]> theSpecialSequences;
+		/** The stack of open nodes, starting with the document */
+		private final IntList theStack;
+		/** The last child of each open node in {@link #theStack} */
+		private final IntList theLastChildren;
+
+		/** @param tabLength The tab length of the parser that this builder will be used with */
+		public Builder(int tabLength) {
+			theTabLength = tabLength;
+			theNodes = new IntList();
+			theAttributes = new IntList();
+			theText = new StringBuilder();
+			theNames = new ArrayList<>();
+			theNameIndexes = new HashMap<>();
+			theSpecialSequences = new HashMap<>();
+			theStack = new IntList();
+			theLastChildren = new IntList();
+			addNode(NodeType.DOCUMENT, null, null, null, null);
+			theStack.add(DOCUMENT);
+			theLastChildren.add(-1);
+		}
+
+		@Override
+		public void handleProcessingInstruction(XmlProcessingInstruction pi) {
+			PositionedContent value = pi.getValueOffset() >= 0 ? pi.getValueContent() : null;
+			addNode(NodeType.PROCESSING_INSTRUCTION, pi.getTargetName(), pi.getTargetContent(), value, value);
+		}
+
+		@Override
+		public void handleComment(XmlComment comment) {
+			addNode(NodeType.COMMENT, null, null, comment.getValueContent(), comment.getValueContent());
+		}
+
+		@Override
+		public void handleElementStart(XmlElementTerminal element) {
+			startElement(element.getName(), element.getNamePosition());
+		}
+
+		@Override
+		public void handleAttribute(XmlAttribute attribute) {
+			addAttribute(attribute.getName(), attribute.getNamePosition(), attribute.getValueContent(), attribute.getValueContent());
+		}
+
+		@Override
+		public void handleElementContent(String elementName, PositionedContent elementValue) {
+			addNode(NodeType.TEXT, null, null, elementValue, elementValue);
+		}
+
+		@Override
+		public void handleCDataContent(String elementName, XmlCdata cdata) {
+			addNode(NodeType.CDATA, null, null, cdata.getValueContent(), cdata.getValueContent());
+		}
+
+		@Override
+		public void handleElementEnd(XmlElementTerminal element, boolean selfClosing) {
+			endElement();
+		}
+
+		/** @return The tree with all the content given to this builder */
+		public XmlTree build() {
+			return new XmlTree(theNodes.toArray(), theAttributes.toArray(), theText.toString().toCharArray(),
+				theNames.toArray(new String[theNames.size()]), theNameIndexes,
+				theSpecialSequences.isEmpty() ? Collections.emptyMap() : theSpecialSequences, theTabLength);
+		}
+
+		void addDom(Node node) {
+			switch (node.getNodeType()) {
+			case Node.ELEMENT_NODE:
+				startElement(node.getNodeName(), SimpleXMLParser.getNamePosition(node));
+				NamedNodeMap attrs = node.getAttributes();
+				for (int a = 0; a < attrs.getLength(); a++) {
+					Attr attr = (Attr) attrs.item(a);
+					addAttribute(attr.getName(), SimpleXMLParser.getNamePosition(attr), attr.getValue(),
+						SimpleXMLParser.getPositionContent(attr));
+				}
+				NodeList children = node.getChildNodes();
+				for (int c = 0; c < children.getLength(); c++)
+					addDom(children.item(c));
+				endElement();
+				break;
+			case Node.TEXT_NODE:
+				addNode(NodeType.TEXT, null, null, node.getNodeValue(), SimpleXMLParser.getPositionContent(node));
+				break;
+			case Node.CDATA_SECTION_NODE:
+				addNode(NodeType.CDATA, null, null, node.getNodeValue(), SimpleXMLParser.getPositionContent(node));
+				break;
+			case Node.COMMENT_NODE:
+				addNode(NodeType.COMMENT, null, null, node.getNodeValue(), SimpleXMLParser.getPositionContent(node));
+				break;
+			case Node.PROCESSING_INSTRUCTION_NODE:
+				addNode(NodeType.PROCESSING_INSTRUCTION, node.getNodeName(), SimpleXMLParser.getNamePosition(node), node.getNodeValue(),
+					SimpleXMLParser.getPositionContent(node));
+				break;
+			default:
+				break;
+			}
+		}
+
+		void startElement(String name, PositionedContent namePosition) {
+			int node = addNode(NodeType.ELEMENT, name, namePosition, null, null);
+			theNodes.set(node * NODE_STRIDE + FIRST_ATTRIBUTE, theAttributes.size() / ATTRIBUTE_STRIDE);
+			theStack.add(node);
+			theLastChildren.add(-1);
+		}
+
+		void addAttribute(String name, PositionedContent namePosition, CharSequence value, PositionedContent valuePosition) {
+			int element = theStack.getLast();
+			int attribute = theAttributes.size() / ATTRIBUTE_STRIDE;
+			theAttributes.add(nameIndex(name));
+			addValue(theAttributes, value, valuePosition, valueKey(attribute, true));
+			addPosition(theAttributes, namePosition);
+			addPosition(theAttributes, valuePosition);
+			theNodes.set(element * NODE_STRIDE + ATTRIBUTE_COUNT, theNodes.get(element * NODE_STRIDE + ATTRIBUTE_COUNT) + 1);
+		}
+
+		void endElement() {
+			theStack.removeLast();
+			theLastChildren.removeLast();
+		}
+
+		private int addNode(NodeType type, String name, PositionedContent namePosition, CharSequence value,
+			PositionedContent valuePosition) {
+			int node = theNodes.size() / NODE_STRIDE;
+			int parent = theStack.isEmpty() ? -1 : theStack.getLast();
+			theNodes.add(type.ordinal());
+			theNodes.add(name == null ? -1 : nameIndex(name));
+			theNodes.add(parent);
+			theNodes.add(-1); // First child
+			theNodes.add(-1); // Next sibling
+			theNodes.add(0); // Child count
+			theNodes.add(-1); // First attribute
+			theNodes.add(0); // Attribute count
+			addValue(theNodes, value, valuePosition, valueKey(node, false));
+			addPosition(theNodes, namePosition);
+			addPosition(theNodes, valuePosition);
+			if (parent >= 0) {
+				int prevSibling = theLastChildren.getLast();
+				if (prevSibling < 0)
+					theNodes.set(parent * NODE_STRIDE + FIRST_CHILD, node);
+				else
+					theNodes.set(prevSibling * NODE_STRIDE + NEXT_SIBLING, node);
+				theLastChildren.set(theLastChildren.size() - 1, node);
+				theNodes.set(parent * NODE_STRIDE + CHILD_COUNT, theNodes.get(parent * NODE_STRIDE + CHILD_COUNT) + 1);
+			}
+			return node;
+		}
+
+		private int nameIndex(String name) {
+			Integer index = theNameIndexes.get(name);
+			if (index == null) {
+				index = theNames.size();
+				theNames.add(name);
+				theNameIndexes.put(name, index);
+			}
+			return index;
+		}
+
+		private void addValue(IntList records, CharSequence value, PositionedContent position, int key) {
+			if (value == null) {
+				records.add(-1);
+				records.add(-1);
+				return;
+			}
+			records.add(theText.length());
+			theText.append(value);
+			records.add(theText.length());
+			if (position != null) {
+				SpecialCharSequence[] seqs = getSpecialSequences(position);
+				if (seqs.length > 0)
+					theSpecialSequences.put(key, seqs);
+			}
+		}
+
+		private static void addPosition(IntList records, PositionedContent position) {
+			FilePosition pos = position == null ? null : position.getPosition(0);
+			if (pos == null) {
+				records.add(-1);
+				records.add(-1);
+				records.add(-1);
+			} else {
+				records.add(pos.getPosition());
+				records.add(pos.getLineNumber());
+				records.add(pos.getCharNumber());
+			}
+		}
+
+		/**
+		 * @param content The content to inspect
+		 * @return The entities and 2-character line endings in the content, i.e. the special sequences that cannot be derived from the
+		 *         content itself
+		 */
+		private static SpecialCharSequence[] getSpecialSequences(PositionedContent content) {
+			PositionedContent source = content;
+			int offset = 0;
+			while (source instanceof PositionedContent.SubContentPosition) {
+				offset += ((PositionedContent.SubContentPosition) source).getStart();
+				source = ((PositionedContent.SubContentPosition) source).getWrapped();
+			}
+			List<SpecialCharSequence> seqs = null;
+			if (source instanceof LazyPositionedContent) {
+				// Only entities and line endings are recorded in lazy content, so we can just copy the sequences that lie in our content
+				for (SpecialCharSequence seq : ((LazyPositionedContent) source).getSpecialSequences()) {
+					if (seq.contentIndex < offset)
+						continue;
+					else if (seq.contentIndex >= offset + content.length())
+						break;
+					if (seqs == null)
+						seqs = new ArrayList<>();
+					seqs.add(new SpecialCharSequence(seq.contentIndex - offset, seq.contentLength, seq.sequence));
+				}
+			} else {
+				for (int c = 0; c < content.length(); c++) {
+					CharSequence src = content.getSourceContent(c, c + 1);
+					if (src.length() == 1 && src.charAt(0) == content.charAt(c))
+						continue; // Tabs and normal characters can be derived from the content
+					if (seqs == null)
+						seqs = new ArrayList<>();
+					String seq = src.toString();
+					seqs.add(new SpecialCharSequence(c, content.charAt(c) == '\n' ? 1 : seq.length(), seq));
+				}
+			}
+			return seqs == null ? SimpleXMLParser.EMPTY_SPECIAL_SEQUENCE : seqs.toArray(SimpleXMLParser.EMPTY_SPECIAL_SEQUENCE);
+		}
+	}
+}
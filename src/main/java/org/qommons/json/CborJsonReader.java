@@ -0,0 +1,573 @@
+package org.qommons.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.qommons.json.JsonSerialReader.ArrayItem;
+import org.qommons.json.JsonSerialReader.JsonParseItem;
+import org.qommons.json.JsonSerialReader.ObjectItem;
+import org.qommons.json.JsonSerialReader.PrimitiveItem;
+import org.qommons.json.JsonSerialReader.PropertyItem;
+import org.qommons.json.SAJParser.ParseException;
+import org.qommons.json.SAJParser.ParseHandler;
+import org.qommons.json.SAJParser.ParseState;
+import org.qommons.json.SAJParser.ParseToken;
+
+/**
+ * <p>
+ * Reads JSON content in the binary <a href="https://www.rfc-editor.org/rfc/rfc8949">CBOR</a> format, e.g. as written by a
+ * {@link CborJsonWriter}. Both definite- and indefinite-length items are supported.
+ * </p>
+ * <p>
+ * Content may be read in 3 ways:
+ * <ul>
+ * <li>{@link #getNextItem()} pulls the content one item at a time, using the same item model as
+ * {@link JsonSerialReader#getNextItem(boolean, boolean)}</li>
+ * <li>{@link #parseNext()} reads the next value completely, as {@link JsonObject}s, {@link List}s, Strings, Numbers, and Booleans</li>
+ * <li>{@link #parse(ParseHandler...)} reads the next value, notifying {@link ParseHandler}s with the same sequence of events that
+ * {@link SAJParser} would for the equivalent JSON text</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Integers are reported as Integers if they fit, Longs or {@link BigInteger}s otherwise, and floating-point values as Doubles. Byte
+ * strings, which JSON has no equivalent for, are read as base64url-encoded strings. Tags other than bignums and decimal fractions are
+ * ignored. Map keys must be text strings.
+ * </p>
+ */
+public class CborJsonReader {
+	/** The default size of the buffer used to read from streams */
+	public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+	private final InputStream theInput;
+	private byte[] theBuffer;
+	private int thePosition;
+	private int theLimit;
+	/** The number of bytes read from the stream before the start of the buffer */
+	private long theBufferOffset;
+
+	/** The number of items in each open structure (counting keys and values separately for maps), or -1 for indefinite lengths */
+	private long[] theLengths;
+	/** The number of items read so far from each open structure */
+	private long[] theCounts;
+	private boolean[] theMaps;
+	private int theDepth;
+	/** The numeric tag most recently read by {@link #readInitial()} */
+	private int thePendingTag;
+
+	private final ParseState theState;
+	private JsonSymbolTable theSymbols;
+
+	/** @param input The stream to read the CBOR content from */
+	public CborJsonReader(InputStream input) {
+		this(input, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param input The stream to read the CBOR content from
+	 * @param bufferSize The initial size of the buffer to read bytes into
+	 */
+	public CborJsonReader(InputStream input, int bufferSize) {
+		theInput = input;
+		theBuffer = new byte[Math.max(bufferSize, 16)];
+		theLengths = new long[8];
+		theCounts = new long[8];
+		theMaps = new boolean[8];
+		theState = new ParseState();
+		theSymbols = new JsonSymbolTable();
+	}
+
+	/**
+	 * @param buffer The buffer containing the CBOR content to read, from its position to its limit. The buffer's position is not
+	 *        affected.
+	 */
+	public CborJsonReader(ByteBuffer buffer) {
+		this(null, 16);
+		if (buffer.hasArray()) {
+			theBuffer = buffer.array();
+			thePosition = buffer.arrayOffset() + buffer.position();
+			theLimit = buffer.arrayOffset() + buffer.limit();
+		} else {
+			theBuffer = new byte[buffer.remaining()];
+			buffer.duplicate().get(theBuffer);
+			theLimit = theBuffer.length;
+		}
+		theBufferOffset = -thePosition;
+	}
+
+	/**
+	 * @param bytes The array containing the CBOR content to read
+	 * @param offset The offset of the content in the array
+	 * @param length The length of the content
+	 */
+	public CborJsonReader(byte[] bytes, int offset, int length) {
+		this(ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/** @return The symbol table used to canonicalize property names */
+	public JsonSymbolTable getSymbolTable() {
+		return theSymbols;
+	}
+
+	/**
+	 * @param symbols The symbol table to use to canonicalize property names
+	 * @return This reader
+	 */
+	public CborJsonReader setSymbolTable(JsonSymbolTable symbols) {
+		theSymbols = symbols;
+		return this;
+	}
+
+	/** @return The number of bytes read from the content so far */
+	public long getOffset() {
+		return theBufferOffset + thePosition;
+	}
+
+	/** @return The number of structures (objects and arrays) that the reader is currently inside of */
+	public int getDepth() {
+		return theDepth;
+	}
+
+	/**
+	 * Reads the next item from the content
+	 *
+	 * @return The next item in the content, or null if there is no more content
+	 * @throws IOException If an error occurs reading from the stream
+	 * @throws ParseException If the content is not valid CBOR representing JSON data
+	 */
+	public JsonParseItem getNextItem() throws IOException, ParseException {
+		if (theDepth > 0) {
+			int d = theDepth - 1;
+			if (isStructEnd(d)) {
+				theDepth--;
+				return theMaps[d] ? new ObjectItem(false) : new ArrayItem(false);
+			}
+			theCounts[d]++;
+			if (theMaps[d] && (theCounts[d] & 1) == 1)
+				return new PropertyItem(readKey());
+		} else if (!fill(1))
+			return null;
+		int initial = readInitial();
+		switch (initial >>> 5) {
+		case CborJsonWriter.MAJOR_ARRAY:
+			push(false, readLength(initial));
+			return new ArrayItem(true);
+		case CborJsonWriter.MAJOR_MAP:
+			long length = readLength(initial);
+			push(true, length < 0 ? length : length * 2);
+			return new ObjectItem(true);
+		default:
+			return new PrimitiveItem(readPrimitive(initial));
+		}
+	}
+
+	/**
+	 * Reads the next value completely
+	 *
+	 * @return The next value in the content (a {@link JsonObject}, a {@link List}, a String, a Number, a Boolean, or
+	 *         {@link JsonSerialReader#NULL} for a null value), or null if there are no more values in the current structure or the content
+	 * @throws IOException If an error occurs reading from the stream
+	 * @throws ParseException If the content is not valid CBOR representing JSON data, or if the next item is a property name
+	 */
+	public Object parseNext() throws IOException, ParseException {
+		if (!startValue())
+			return null;
+		Object value = readValue(readInitial());
+		return value == null ? JsonSerialReader.NULL : value;
+	}
+
+	/**
+	 * Reads the next value completely, notifying the handlers of its content
+	 *
+	 * @param handlers The handlers to notify of the content
+	 * @return The {@link ParseHandler#finalValue() final value} of the first handler, or null if no handlers were given or there are no
+	 *         more values in the current structure or the content
+	 * @throws IOException If an error occurs reading from the stream
+	 * @throws ParseException If the content is not valid CBOR representing JSON data, or if the next item is a property name
+	 */
+	public Object parse(ParseHandler... handlers) throws IOException, ParseException {
+		if (!startValue())
+			return null;
+		ParseState state = new ParseState(handlers);
+		emit(state, readInitial());
+		if (handlers.length > 0)
+			return handlers[0].finalValue();
+		else
+			return null;
+	}
+
+	private boolean startValue() throws IOException, ParseException {
+		if (theDepth > 0) {
+			int d = theDepth - 1;
+			if (isStructEnd(d)) {
+				// Leave the end of the structure to be read by getNextItem()
+				if (theLengths[d] < 0)
+					thePosition--;
+				return false;
+			} else if (theMaps[d] && (theCounts[d] & 1) == 0)
+				error("Property name expected");
+			theCounts[d]++;
+			return true;
+		} else
+			return fill(1);
+	}
+
+	/** Checks whether the given open structure is complete, consuming the break for indefinite structures */
+	private boolean isStructEnd(int d) throws IOException, ParseException {
+		if (theLengths[d] >= 0)
+			return theCounts[d] == theLengths[d];
+		if (!fill(1))
+			error("Unexpected end of content");
+		if ((theBuffer[thePosition] & 0xff) != CborJsonWriter.BREAK)
+			return false;
+		if (theMaps[d] && (theCounts[d] & 1) == 1)
+			error("Missing value for property");
+		thePosition++;
+		return true;
+	}
+
+	private void push(boolean map, long length) {
+		if (theDepth == theLengths.length) {
+			theLengths = java.util.Arrays.copyOf(theLengths, theDepth * 2);
+			theCounts = java.util.Arrays.copyOf(theCounts, theDepth * 2);
+			theMaps = java.util.Arrays.copyOf(theMaps, theDepth * 2);
+		}
+		theLengths[theDepth] = length;
+		theCounts[theDepth] = 0;
+		theMaps[theDepth] = map;
+		theDepth++;
+	}
+
+	private Object readValue(int initial) throws IOException, ParseException {
+		switch (initial >>> 5) {
+		case CborJsonWriter.MAJOR_ARRAY:
+			long length = readLength(initial);
+			List<Object> list = new ArrayList<>(length < 0 || length > 1024 ? 10 : (int) length);
+			for (long i = 0; length < 0 ? !readBreak() : i < length; i++) {
+				list.add(readValue(readInitial()));
+			}
+			return list;
+		case CborJsonWriter.MAJOR_MAP:
+			length = readLength(initial);
+			JsonObject obj = new JsonObject();
+			for (long i = 0; length < 0 ? !readBreak() : i < length; i++) {
+				String name = readKey();
+				obj.with(name, readValue(readInitial()));
+			}
+			return obj;
+		default:
+			return readPrimitive(initial);
+		}
+	}
+
+	private void emit(ParseState state, int initial) throws IOException, ParseException {
+		state.setIndex((int) getOffset());
+		switch (initial >>> 5) {
+		case CborJsonWriter.MAJOR_ARRAY:
+			long length = readLength(initial);
+			state.startArray();
+			for (long i = 0; length < 0 ? !readBreak() : i < length; i++) {
+				if (i > 0)
+					state.separate(',');
+				emit(state, readInitial());
+			}
+			state.setIndex((int) getOffset());
+			state.pop(ParseToken.ARRAY);
+			break;
+		case CborJsonWriter.MAJOR_MAP:
+			length = readLength(initial);
+			state.startObject();
+			for (long i = 0; length < 0 ? !readBreak() : i < length; i++) {
+				if (i > 0)
+					state.separate(',');
+				state.startProperty(readKey());
+				state.separate(':');
+				emit(state, readInitial());
+			}
+			state.setIndex((int) getOffset());
+			state.pop(ParseToken.OBJECT);
+			break;
+		case CborJsonWriter.MAJOR_UNSIGNED:
+			long value = readArgument(initial);
+			if (value >= 0)
+				state.longValue(value);
+			else
+				state.setPrimitive(unsignedBig(value));
+			break;
+		case CborJsonWriter.MAJOR_NEGATIVE:
+			value = readArgument(initial);
+			if (value >= 0)
+				state.longValue(-1 - value);
+			else
+				state.setPrimitive(BigInteger.ONE.negate().subtract(unsignedBig(value)));
+			break;
+		default:
+			Object primitive = readPrimitive(initial);
+			if (primitive instanceof String)
+				state.stringValue((String) primitive);
+			else if (primitive instanceof Double)
+				state.doubleValue(((Double) primitive).doubleValue());
+			else
+				state.setPrimitive(primitive);
+		}
+	}
+
+	/**
+	 * Reads the initial byte of the next item, skipping any tags that this reader does not interpret. If a numeric tag is encountered, the
+	 * tag's initial byte is returned and the tag itself is stored for {@link #readPrimitive(int)}.
+	 */
+	private int readInitial() throws IOException, ParseException {
+		int initial = readByte();
+		while ((initial >>> 5) == CborJsonWriter.MAJOR_TAG) {
+			long tag = readArgument(initial);
+			if (tag >= CborJsonWriter.TAG_POSITIVE_BIGNUM && tag <= CborJsonWriter.TAG_DECIMAL_FRACTION) {
+				thePendingTag = (int) tag;
+				break;
+			}
+			initial = readByte();
+		}
+		return initial;
+	}
+
+	private Object readPrimitive(int initial) throws IOException, ParseException {
+		switch (initial >>> 5) {
+		case CborJsonWriter.MAJOR_UNSIGNED:
+			long value = readArgument(initial);
+			if (value < 0)
+				return unsignedBig(value);
+			return value <= Integer.MAX_VALUE ? (Number) Integer.valueOf((int) value) : (Number) Long.valueOf(value);
+		case CborJsonWriter.MAJOR_NEGATIVE:
+			value = readArgument(initial);
+			if (value < 0)
+				return BigInteger.ONE.negate().subtract(unsignedBig(value));
+			value = -1 - value;
+			return value >= -Integer.MAX_VALUE ? (Number) Integer.valueOf((int) value) : (Number) Long.valueOf(value);
+		case CborJsonWriter.MAJOR_BYTES:
+			return java.util.Base64.getUrlEncoder().withoutPadding().encodeToString(readBytes(initial));
+		case CborJsonWriter.MAJOR_TEXT:
+			return readText(initial);
+		case CborJsonWriter.MAJOR_TAG:
+			return readTagged(thePendingTag);
+		case CborJsonWriter.MAJOR_SIMPLE:
+			switch (initial) {
+			case CborJsonWriter.FALSE:
+				return Boolean.FALSE;
+			case CborJsonWriter.TRUE:
+				return Boolean.TRUE;
+			case CborJsonWriter.NULL:
+			case CborJsonWriter.UNDEFINED:
+				return null;
+			case CborJsonWriter.HALF:
+				return Double.valueOf(halfToFloat((int) readArgument(initial)));
+			case CborJsonWriter.FLOAT:
+				return Double.valueOf(Float.intBitsToFloat((int) readArgument(initial)));
+			case CborJsonWriter.DOUBLE:
+				return Double.valueOf(Double.longBitsToDouble(readArgument(initial)));
+			case CborJsonWriter.BREAK:
+				error("Unexpected break");
+				break;
+			default:
+				error("Unsupported simple value " + (initial & 0x1f));
+			}
+			return null;
+		default:
+			error("Unexpected structure");
+			return null;
+		}
+	}
+
+	private Number readTagged(int tag) throws IOException, ParseException {
+		int initial = readByte();
+		if (tag == CborJsonWriter.TAG_DECIMAL_FRACTION) {
+			if (initial != ((CborJsonWriter.MAJOR_ARRAY << 5) | 2))
+				error("Decimal fraction must be an array of 2 integers");
+			Object exponent = readPrimitive(readByte());
+			Object mantissa = readPrimitive(readInitial());
+			if (!(exponent instanceof Integer) || !(mantissa instanceof Number) || mantissa instanceof Double)
+				error("Decimal fraction must be an array of 2 integers");
+			BigInteger unscaled = mantissa instanceof BigInteger ? (BigInteger) mantissa : BigInteger.valueOf(((Number) mantissa).longValue());
+			return new BigDecimal(unscaled, -((Integer) exponent).intValue());
+		}
+		if ((initial >>> 5) != CborJsonWriter.MAJOR_BYTES)
+			error("Bignum must be a byte string");
+		BigInteger value = new BigInteger(1, readBytes(initial));
+		return tag == CborJsonWriter.TAG_NEGATIVE_BIGNUM ? BigInteger.ONE.negate().subtract(value) : value;
+	}
+
+	private String readKey() throws IOException, ParseException {
+		int initial = readInitial();
+		if ((initial >>> 5) != CborJsonWriter.MAJOR_TEXT)
+			error("Property names must be text strings");
+		else if ((initial & 0x1f) == CborJsonWriter.INDEFINITE)
+			return theSymbols.intern(readText(initial));
+		int length = toInt(readArgument(initial));
+		if (!fill(length))
+			error("Unexpected end of content");
+		int start = thePosition;
+		thePosition += length;
+		for (int i = start; i < thePosition; i++) {
+			if (theBuffer[i] < 0)
+				return theSymbols.intern(new String(theBuffer, start, length, StandardCharsets.UTF_8));
+		}
+		return theSymbols.intern(theBuffer, start, length);
+	}
+
+	private String readText(int initial) throws IOException, ParseException {
+		if ((initial & 0x1f) == CborJsonWriter.INDEFINITE) {
+			StringBuilder str = new StringBuilder();
+			while (!readBreak()) {
+				int chunk = readByte();
+				if ((chunk >>> 5) != CborJsonWriter.MAJOR_TEXT || (chunk & 0x1f) == CborJsonWriter.INDEFINITE)
+					error("Indefinite-length text must be composed of definite-length text strings");
+				str.append(readText(chunk));
+			}
+			return str.toString();
+		}
+		int length = toInt(readArgument(initial));
+		if (!fill(length))
+			error("Unexpected end of content");
+		String text = new String(theBuffer, thePosition, length, StandardCharsets.UTF_8);
+		thePosition += length;
+		return text;
+	}
+
+	private byte[] readBytes(int initial) throws IOException, ParseException {
+		if ((initial & 0x1f) == CborJsonWriter.INDEFINITE) {
+			java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+			while (!readBreak()) {
+				int chunk = readByte();
+				if ((chunk >>> 5) != CborJsonWriter.MAJOR_BYTES || (chunk & 0x1f) == CborJsonWriter.INDEFINITE)
+					error("Indefinite-length bytes must be composed of definite-length byte strings");
+				byte[] chunkBytes = readBytes(chunk);
+				bytes.write(chunkBytes, 0, chunkBytes.length);
+			}
+			return bytes.toByteArray();
+		}
+		int length = toInt(readArgument(initial));
+		if (!fill(length))
+			error("Unexpected end of content");
+		byte[] bytes = java.util.Arrays.copyOfRange(theBuffer, thePosition, thePosition + length);
+		thePosition += length;
+		return bytes;
+	}
+
+	/** @return The length of the structure or string with the given initial byte, or -1 if it is indefinite */
+	private long readLength(int initial) throws IOException, ParseException {
+		if ((initial & 0x1f) == CborJsonWriter.INDEFINITE)
+			return -1;
+		long length = readArgument(initial);
+		if (length < 0)
+			error("Length too large");
+		return length;
+	}
+
+	/** @return The argument of the item with the given initial byte, as an unsigned long */
+	private long readArgument(int initial) throws IOException, ParseException {
+		int info = initial & 0x1f;
+		if (info < 24)
+			return info;
+		int size = argumentSize(initial);
+		if (size == 0)
+			error("Unsupported additional information " + info);
+		if (!fill(size))
+			error("Unexpected end of content");
+		long value = 0;
+		for (int i = 0; i < size; i++)
+			value = (value << 8) | (theBuffer[thePosition++] & 0xff);
+		return value;
+	}
+
+	private static int argumentSize(int initial) {
+		switch (initial & 0x1f) {
+		case 24:
+			return 1;
+		case 25:
+			return 2;
+		case 26:
+			return 4;
+		case 27:
+			return 8;
+		default:
+			return 0;
+		}
+	}
+
+	private boolean readBreak() throws IOException, ParseException {
+		if (!fill(1))
+			error("Unexpected end of content");
+		if ((theBuffer[thePosition] & 0xff) == CborJsonWriter.BREAK) {
+			thePosition++;
+			return true;
+		}
+		return false;
+	}
+
+	private int readByte() throws IOException, ParseException {
+		if (thePosition == theLimit && !fill(1))
+			error("Unexpected end of content");
+		return theBuffer[thePosition++] & 0xff;
+	}
+
+	/**
+	 * Ensures that at least the given number of bytes are available in the buffer
+	 *
+	 * @param needed The number of bytes needed
+	 * @return False if the content ends before the given number of bytes
+	 * @throws IOException If an error occurs reading from the stream
+	 */
+	private boolean fill(int needed) throws IOException {
+		if (theLimit - thePosition >= needed)
+			return true;
+		else if (theInput == null)
+			return false;
+		if (needed > theBuffer.length) {
+			byte[] newBuffer = new byte[Math.max(needed, theBuffer.length * 2)];
+			System.arraycopy(theBuffer, thePosition, newBuffer, 0, theLimit - thePosition);
+			theBuffer = newBuffer;
+		} else
+			System.arraycopy(theBuffer, thePosition, theBuffer, 0, theLimit - thePosition);
+		theBufferOffset += thePosition;
+		theLimit -= thePosition;
+		thePosition = 0;
+		while (theLimit < needed) {
+			int read = theInput.read(theBuffer, theLimit, theBuffer.length - theLimit);
+			if (read < 0)
+				return false;
+			theLimit += read;
+		}
+		return true;
+	}
+
+	private int toInt(long length) throws ParseException {
+		if (length < 0 || length > Integer.MAX_VALUE - 8)
+			error("Length too large");
+		return (int) length;
+	}
+
+	private void error(String message) throws ParseException {
+		theState.setIndex((int) getOffset());
+		theState.error(message);
+	}
+
+	private static BigInteger unsignedBig(long value) {
+		return BigInteger.valueOf(value & Long.MAX_VALUE).setBit(63);
+	}
+
+	private static float halfToFloat(int half) {
+		int exponent = (half >>> 10) & 0x1f;
+		int mantissa = half & 0x3ff;
+		float value;
+		if (exponent == 0)
+			value = mantissa * (1f / (1 << 24));
+		else if (exponent == 0x1f)
+			value = mantissa == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+		else
+			value = Float.intBitsToFloat(((exponent + 112) << 23) | (mantissa << 13));
+		return (half & 0x8000) == 0 ? value : -value;
+	}
+}
@@ -0,0 +1,402 @@
+package org.qommons.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.qommons.json.SAJParser.ParseNode;
+import org.qommons.json.SAJParser.ParseToken;
+
+/**
+ * <p>
+ * Writes JSON content in the binary <a href="https://www.rfc-editor.org/rfc/rfc8949">CBOR</a> format, which can be read by a
+ * {@link CborJsonReader} or any other CBOR decoder.
+ * </p>
+ * <p>
+ * Objects and arrays are written with indefinite length, so they may be streamed without knowing their size. Strings are written as
+ * length-prefixed UTF-8 and numbers in their native binary form:
+ * <ul>
+ * <li>Integers as CBOR integers of the smallest size that holds them</li>
+ * <li>Floating-point numbers as 32-bit floats if this can be done without loss, or 64-bit doubles otherwise</li>
+ * <li>{@link BigInteger}s too large for a long as bignums (tags 2 and 3)</li>
+ * <li>{@link BigDecimal}s as decimal fractions (tag 4)</li>
+ * </ul>
+ * </p>
+ */
+public class CborJsonWriter implements JsonSerialWriter {
+	/** The default size of the buffer used to accumulate bytes before they are written to the stream */
+	public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+	static final int MAJOR_UNSIGNED = 0;
+	static final int MAJOR_NEGATIVE = 1;
+	static final int MAJOR_BYTES = 2;
+	static final int MAJOR_TEXT = 3;
+	static final int MAJOR_ARRAY = 4;
+	static final int MAJOR_MAP = 5;
+	static final int MAJOR_TAG = 6;
+	static final int MAJOR_SIMPLE = 7;
+
+	static final int FALSE = 0xf4;
+	static final int TRUE = 0xf5;
+	static final int NULL = 0xf6;
+	static final int UNDEFINED = 0xf7;
+	static final int HALF = 0xf9;
+	static final int FLOAT = 0xfa;
+	static final int DOUBLE = 0xfb;
+	static final int BREAK = 0xff;
+	/** The additional information value for indefinite-length items */
+	static final int INDEFINITE = 31;
+
+	static final int TAG_POSITIVE_BIGNUM = 2;
+	static final int TAG_NEGATIVE_BIGNUM = 3;
+	static final int TAG_DECIMAL_FRACTION = 4;
+
+	private final OutputStream theOutput;
+	private final byte[] theBytes;
+	private int theByteCount;
+	private final java.util.ArrayList<ParseNode> thePath;
+
+	/** @param out The stream to write the CBOR content to */
+	public CborJsonWriter(OutputStream out) {
+		this(out, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param out The stream to write the CBOR content to
+	 * @param bufferSize The size of the buffer to accumulate bytes in before writing them to the stream
+	 */
+	public CborJsonWriter(OutputStream out, int bufferSize) {
+		theOutput = out;
+		theBytes = new byte[Math.max(bufferSize, 16)];
+		thePath = new java.util.ArrayList<>();
+	}
+
+	/** @return The stream that this writer writes to */
+	public OutputStream getOutput() {
+		return theOutput;
+	}
+
+	@Override
+	public CborJsonWriter startObject() throws IOException {
+		content();
+		thePath.add(new ParseNode(ParseToken.OBJECT));
+		writeByte((MAJOR_MAP << 5) | INDEFINITE);
+		return this;
+	}
+
+	@Override
+	public CborJsonWriter startProperty(String name) throws IOException {
+		ParseNode top = top();
+		if (top == null)
+			throw new IllegalStateException("No object started!!");
+		switch (top.token) {
+		case OBJECT:
+			break;
+		case ARRAY:
+			throw new IllegalStateException("No properties allowed in array");
+		case PROPERTY:
+			if (!top.hasContent())
+				writeByte(NULL);
+			pop();
+			break;
+		}
+		writeText(name);
+		thePath.add(new ParseNode(ParseToken.PROPERTY));
+		return this;
+	}
+
+	@Override
+	public CborJsonWriter endObject() throws IOException {
+		ParseNode top = top();
+		if (top == null)
+			throw new IllegalStateException("No object started!");
+		switch (top.token) {
+		case OBJECT:
+			break;
+		case ARRAY:
+			throw new IllegalStateException("Can't end object--top item is an array");
+		case PROPERTY:
+			if (!top.hasContent())
+				writeByte(NULL);
+			pop();
+			break;
+		}
+		pop();
+		writeByte(BREAK);
+		return this;
+	}
+
+	@Override
+	public CborJsonWriter startArray() throws IOException {
+		content();
+		thePath.add(new ParseNode(ParseToken.ARRAY));
+		writeByte((MAJOR_ARRAY << 5) | INDEFINITE);
+		return this;
+	}
+
+	@Override
+	public CborJsonWriter endArray() throws IOException {
+		ParseNode top = top();
+		if (top == null)
+			throw new IllegalStateException("No array started!");
+		switch (top.token) {
+		case OBJECT:
+			throw new IllegalStateException("Can't end array--top item is an object");
+		case ARRAY:
+			break;
+		case PROPERTY:
+			throw new IllegalStateException("Can't end array--top item is a property");
+		}
+		pop();
+		writeByte(BREAK);
+		return this;
+	}
+
+	@Override
+	public CborJsonWriter writeString(String value) throws IOException {
+		if (value == null)
+			return writeNull();
+		content();
+		writeText(value);
+		return this;
+	}
+
+	@Override
+	public CborJsonWriter writeNumber(Number value) throws IOException {
+		if (value == null)
+			return writeNull();
+		else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+			return writeNumber(value.longValue());
+		else if (value instanceof Float) {
+			content();
+			writeHead(FLOAT, Float.floatToIntBits(value.floatValue()), 4);
+		} else if (value instanceof BigInteger) {
+			BigInteger big = (BigInteger) value;
+			if (big.bitLength() < 64)
+				return writeNumber(big.longValue());
+			content();
+			writeBignum(big);
+		} else if (value instanceof BigDecimal) {
+			BigDecimal dec = (BigDecimal) value;
+			content();
+			writeTypeAndLength(MAJOR_TAG, TAG_DECIMAL_FRACTION);
+			writeTypeAndLength(MAJOR_ARRAY, 2);
+			writeLong(-dec.scale());
+			BigInteger unscaled = dec.unscaledValue();
+			if (unscaled.bitLength() < 64)
+				writeLong(unscaled.longValue());
+			else
+				writeBignum(unscaled);
+		} else
+			return writeNumber(value.doubleValue());
+		return this;
+	}
+
+	@Override
+	public CborJsonWriter writeNumber(long value) throws IOException {
+		content();
+		writeLong(value);
+		return this;
+	}
+
+	@Override
+	public CborJsonWriter writeNumber(double value) throws IOException {
+		content();
+		float f = (float) value;
+		if (f == value || Double.isNaN(value))
+			writeHead(FLOAT, Float.floatToIntBits(f), 4);
+		else
+			writeHead(DOUBLE, Double.doubleToLongBits(value), 8);
+		return this;
+	}
+
+	@Override
+	public CborJsonWriter writeBoolean(boolean value) throws IOException {
+		content();
+		writeByte(value ? TRUE : FALSE);
+		return this;
+	}
+
+	@Override
+	public CborJsonWriter writeNull() throws IOException {
+		content();
+		writeByte(NULL);
+		return this;
+	}
+
+	/**
+	 * Writes all content buffered in this writer to the underlying stream and flushes it
+	 *
+	 * @throws IOException If an error occurs writing to the stream
+	 */
+	public void flush() throws IOException {
+		flushBytes();
+		theOutput.flush();
+	}
+
+	/**
+	 * Finishes writing the content that has been started and writes any buffered bytes to the stream. This method does NOT flush or close
+	 * the underlying stream.
+	 *
+	 * @throws IOException If an error occurs writing to the stream
+	 */
+	public void close() throws IOException {
+		ParseNode top = top();
+		while (top != null) {
+			switch (top.token) {
+			case OBJECT:
+			case PROPERTY:
+				endObject();
+				break;
+			case ARRAY:
+				endArray();
+				break;
+			}
+			top = top();
+		}
+		flushBytes();
+	}
+
+	/** @return The current depth of the content being written */
+	public int getDepth() {
+		return thePath.size();
+	}
+
+	/** @return The node that is currently being written */
+	public ParseNode top() {
+		if (thePath.isEmpty())
+			return null;
+		return thePath.get(thePath.size() - 1);
+	}
+
+	private void pop() {
+		thePath.remove(thePath.size() - 1);
+	}
+
+	private void content() {
+		ParseNode top = top();
+		if (top != null) {
+			switch (top.token) {
+			case OBJECT:
+				throw new IllegalStateException("Property name missing in object");
+			case ARRAY:
+				top.setHasContent();
+				break;
+			case PROPERTY:
+				pop();
+				break;
+			}
+		}
+	}
+
+	private void writeLong(long value) throws IOException {
+		if (value >= 0)
+			writeTypeAndLength(MAJOR_UNSIGNED, value);
+		else
+			writeTypeAndLength(MAJOR_NEGATIVE, -1 - value);
+	}
+
+	private void writeBignum(BigInteger value) throws IOException {
+		int tag = TAG_POSITIVE_BIGNUM;
+		if (value.signum() < 0) {
+			tag = TAG_NEGATIVE_BIGNUM;
+			value = BigInteger.ONE.negate().subtract(value);
+		}
+		writeTypeAndLength(MAJOR_TAG, tag);
+		byte[] magnitude = value.toByteArray();
+		int start = magnitude[0] == 0 ? 1 : 0; // Skip the sign byte
+		writeTypeAndLength(MAJOR_BYTES, magnitude.length - start);
+		for (int i = start; i < magnitude.length; i++)
+			writeByte(magnitude[i]);
+	}
+
+	private void writeText(String value) throws IOException {
+		int length = value.length();
+		int utf8Length = length;
+		for (int c = 0; c < length; c++) {
+			char ch = value.charAt(c);
+			if (ch >= 0x80) {
+				if (ch < 0x800)
+					utf8Length++;
+				else if (Character.isHighSurrogate(ch) && c + 1 < length && Character.isLowSurrogate(value.charAt(c + 1))) {
+					utf8Length += 2;
+					c++;
+				} else if (!Character.isSurrogate(ch))
+					utf8Length += 2;
+			}
+		}
+		writeTypeAndLength(MAJOR_TEXT, utf8Length);
+		byte[] bytes = theBytes;
+		int count = theByteCount;
+		for (int c = 0; c < length; c++) {
+			if (count > bytes.length - 4) {
+				theByteCount = count;
+				flushBytes();
+				count = 0;
+			}
+			char ch = value.charAt(c);
+			if (ch < 0x80)
+				bytes[count++] = (byte) ch;
+			else if (ch < 0x800) {
+				bytes[count++] = (byte) (0xc0 | (ch >>> 6));
+				bytes[count++] = (byte) (0x80 | (ch & 0x3f));
+			} else if (Character.isHighSurrogate(ch) && c + 1 < length && Character.isLowSurrogate(value.charAt(c + 1))) {
+				int cp = Character.toCodePoint(ch, value.charAt(++c));
+				bytes[count++] = (byte) (0xf0 | (cp >>> 18));
+				bytes[count++] = (byte) (0x80 | ((cp >>> 12) & 0x3f));
+				bytes[count++] = (byte) (0x80 | ((cp >>> 6) & 0x3f));
+				bytes[count++] = (byte) (0x80 | (cp & 0x3f));
+			} else if (Character.isSurrogate(ch))
+				bytes[count++] = '?';
+			else {
+				bytes[count++] = (byte) (0xe0 | (ch >>> 12));
+				bytes[count++] = (byte) (0x80 | ((ch >>> 6) & 0x3f));
+				bytes[count++] = (byte) (0x80 | (ch & 0x3f));
+			}
+		}
+		theByteCount = count;
+	}
+
+	/**
+	 * Writes the head of a data item
+	 *
+	 * @param majorType The major type of the item
+	 * @param value The value or length of the item, treated as unsigned
+	 * @throws IOException If an error occurs writing to the stream
+	 */
+	private void writeTypeAndLength(int majorType, long value) throws IOException {
+		int type = majorType << 5;
+		if (value >= 0 && value < 24)
+			writeByte(type | (int) value);
+		else if (value >= 0 && value <= 0xff)
+			writeHead(type | 24, value, 1);
+		else if (value >= 0 && value <= 0xffff)
+			writeHead(type | 25, value, 2);
+		else if (value >= 0 && value <= 0xffffffffL)
+			writeHead(type | 26, value, 4);
+		else
+			writeHead(type | 27, value, 8);
+	}
+
+	private void writeHead(int initialByte, long value, int length) throws IOException {
+		if (theByteCount + length + 1 > theBytes.length)
+			flushBytes();
+		theBytes[theByteCount++] = (byte) initialByte;
+		for (int shift = (length - 1) * 8; shift >= 0; shift -= 8)
+			theBytes[theByteCount++] = (byte) (value >>> shift);
+	}
+
+	private void writeByte(int b) throws IOException {
+		if (theByteCount == theBytes.length)
+			flushBytes();
+		theBytes[theByteCount++] = (byte) b;
+	}
+
+	private void flushBytes() throws IOException {
+		if (theByteCount == 0)
+			return;
+		theOutput.write(theBytes, 0, theByteCount);
+		theByteCount = 0;
+	}
+}
@@ -22,9 +22,9 @@ public abstract class DefaultJsonElement implements JsonElement {
 			throw new IllegalArgumentException("This element's parent cannot be itself");
 		theParent = parent;
 		theName = name;
-		theConstraints = (JsonObject) schemaEl.get("schemaConstraints");
+		theConstraints = (JsonObject) schemaEl.getOrDefault("schemaConstraints", null);
 		schemaEl.remove("schemaConstraints");
-		isNullable = Boolean.TRUE.equals(schemaEl.get("nullable"));
+		isNullable = Boolean.TRUE.equals(schemaEl.getOrDefault("nullable", null));
 		schemaEl.remove("nullable");
 	}
 
@@ -0,0 +1,222 @@
+package org.qommons.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.qommons.json.JsonSerialReader.JsonContentItem;
+import org.qommons.json.JsonSerialReader.PrimitiveItem;
+import org.qommons.json.SAJParser.ParseException;
+
+/**
+ * <p>
+ * Encodes values of a type directly to a {@link JsonSerialWriter} and decodes them directly from a {@link JsonSerialReader}, without
+ * building an intermediate {@link JsonObject} tree.
+ * </p>
+ * <p>
+ * Codecs for classes can be built with {@link #forObject(Supplier)} from getters and setters, and codecs for other types can be derived
+ * from the codecs here with {@link #map(Function, Function)} or {@link #listOf(JsonCodec)}.
+ * </p>
+ *
+ * @param <T> The type of value to encode and decode
+ */
+public interface JsonCodec<T> {
+	/** Encodes and decodes JSON strings */
+	JsonCodec<String> STRING = new JsonCodec<String>() {
+		@Override
+		public void write(String value, JsonSerialWriter writer) throws IOException {
+			if (value == null)
+				writer.writeNull();
+			else
+				writer.writeString(value);
+		}
+
+		@Override
+		public String read(JsonSerialReader reader, JsonContentItem first) {
+			Object value = JsonObjectCodec.primitive(first, "a string");
+			if (value != null && !(value instanceof String))
+				throw new IllegalStateException("Value is " + JsonObjectCodec.describe(first) + ", not a string");
+			return (String) value;
+		}
+	};
+
+	/** Encodes and decodes JSON integers as Integers */
+	JsonCodec<Integer> INT = new JsonCodec<Integer>() {
+		@Override
+		public void write(Integer value, JsonSerialWriter writer) throws IOException {
+			if (value == null)
+				writer.writeNull();
+			else
+				writer.writeNumber(value.intValue());
+		}
+
+		@Override
+		public Integer read(JsonSerialReader reader, JsonContentItem first) {
+			PrimitiveItem number = JsonObjectCodec.number(first, "an integer");
+			if (number == null)
+				return null;
+			long value = reader.longValue(number);
+			if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+				throw new IllegalStateException("Value " + value + " is too large for an integer");
+			return Integer.valueOf((int) value);
+		}
+	};
+
+	/** Encodes and decodes JSON integers as Longs */
+	JsonCodec<Long> LONG = new JsonCodec<Long>() {
+		@Override
+		public void write(Long value, JsonSerialWriter writer) throws IOException {
+			if (value == null)
+				writer.writeNull();
+			else
+				writer.writeNumber(value.longValue());
+		}
+
+		@Override
+		public Long read(JsonSerialReader reader, JsonContentItem first) {
+			PrimitiveItem number = JsonObjectCodec.number(first, "an integer");
+			return number == null ? null : Long.valueOf(reader.longValue(number));
+		}
+	};
+
+	/** Encodes and decodes JSON numbers as Doubles */
+	JsonCodec<Double> DOUBLE = new JsonCodec<Double>() {
+		@Override
+		public void write(Double value, JsonSerialWriter writer) throws IOException {
+			if (value == null)
+				writer.writeNull();
+			else
+				writer.writeNumber(value.doubleValue());
+		}
+
+		@Override
+		public Double read(JsonSerialReader reader, JsonContentItem first) {
+			PrimitiveItem number = JsonObjectCodec.number(first, "a number");
+			return number == null ? null : Double.valueOf(reader.doubleValue(number));
+		}
+	};
+
+	/** Encodes and decodes JSON booleans */
+	JsonCodec<Boolean> BOOLEAN = new JsonCodec<Boolean>() {
+		@Override
+		public void write(Boolean value, JsonSerialWriter writer) throws IOException {
+			if (value == null)
+				writer.writeNull();
+			else
+				writer.writeBoolean(value.booleanValue());
+		}
+
+		@Override
+		public Boolean read(JsonSerialReader reader, JsonContentItem first) {
+			Object value = JsonObjectCodec.primitive(first, "a boolean");
+			if (value != null && !(value instanceof Boolean))
+				throw new IllegalStateException("Value is " + JsonObjectCodec.describe(first) + ", not a boolean");
+			return (Boolean) value;
+		}
+	};
+
+	/**
+	 * Writes a value
+	 *
+	 * @param value The value to write (may be null)
+	 * @param writer The writer to write the value to
+	 * @throws IOException If an error occurs writing the value
+	 */
+	void write(T value, JsonSerialWriter writer) throws IOException;
+
+	/**
+	 * Reads the rest of a value whose first item has already been parsed
+	 *
+	 * @param reader The reader to parse the value from
+	 * @param first The first item of the value, as returned from {@link JsonSerialReader#startValue()}
+	 * @return The decoded value (may be null)
+	 * @throws IllegalStateException If the value cannot be decoded by this codec
+	 * @throws IOException If an error occurs reading the data from the stream
+	 * @throws ParseException If the value cannot be parsed
+	 */
+	T read(JsonSerialReader reader, JsonContentItem first) throws IOException, ParseException;
+
+	/**
+	 * Reads the next element in an array, value of a property in an object, or value in a stream
+	 *
+	 * @param reader The reader to parse the value from
+	 * @return The decoded value (may be null)
+	 * @throws IllegalStateException If there is no next value, or it cannot be decoded by this codec
+	 * @throws IOException If an error occurs reading the data from the stream
+	 * @throws ParseException If the value cannot be parsed
+	 */
+	default T read(JsonSerialReader reader) throws IOException, ParseException {
+		JsonContentItem first = reader.startValue();
+		if (first == null)
+			throw new IllegalStateException("No more elements in array");
+		return read(reader, first);
+	}
+
+	/**
+	 * @param <X> The type of the new codec
+	 * @param decode Converts values decoded by this codec to the new type
+	 * @param encode Converts values of the new type to values to be encoded by this codec
+	 * @return A codec for the new type, encoded as this codec's type
+	 */
+	default <X> JsonCodec<X> map(Function<? super T, ? extends X> decode, Function<? super X, ? extends T> encode) {
+		JsonCodec<T> source = this;
+		return new JsonCodec<X>() {
+			@Override
+			public void write(X value, JsonSerialWriter writer) throws IOException {
+				source.write(value == null ? null : encode.apply(value), writer);
+			}
+
+			@Override
+			public X read(JsonSerialReader reader, JsonContentItem first) throws IOException, ParseException {
+				T value = source.read(reader, first);
+				return value == null ? null : decode.apply(value);
+			}
+		};
+	}
+
+	/**
+	 * @param <E> The type of elements in the list
+	 * @param elements The codec for the list's elements
+	 * @return A codec for lists of the given elements, encoded as JSON arrays
+	 */
+	static <E> JsonCodec<List<E>> listOf(JsonCodec<E> elements) {
+		return new JsonCodec<List<E>>() {
+			@Override
+			public void write(List<E> value, JsonSerialWriter writer) throws IOException {
+				if (value == null) {
+					writer.writeNull();
+					return;
+				}
+				writer.startArray();
+				for (E element : value)
+					elements.write(element, writer);
+				writer.endArray();
+			}
+
+			@Override
+			public List<E> read(JsonSerialReader reader, JsonContentItem first) throws IOException, ParseException {
+				if (first instanceof PrimitiveItem && ((PrimitiveItem) first).getValue() == null)
+					return null;
+				else if (!(first instanceof JsonSerialReader.ArrayItem))
+					throw new IllegalStateException("Value is " + JsonObjectCodec.describe(first) + ", not an array");
+				List<E> list = new ArrayList<>();
+				JsonContentItem item;
+				while ((item = reader.startValue()) != null)
+					list.add(elements.read(reader, item));
+				reader.endArray(null);
+				return list;
+			}
+		};
+	}
+
+	/**
+	 * @param <T> The type of object to encode and decode
+	 * @param creator Creates new instances of the type to decode JSON objects into
+	 * @return A builder for a codec that encodes instances of the type as JSON objects
+	 */
+	static <T> JsonObjectCodec.Builder<T> forObject(Supplier<? extends T> creator) {
+		return new JsonObjectCodec.Builder<>(creator);
+	}
+}
@@ -1,18 +1,37 @@
 package org.qommons.json;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.qommons.collect.MutableCollectionElement.StdMsg;
 
-/** Represents a JSON object */
+/**
+ * <p>
+ * Represents a JSON object.
+ * </p>
+ * <p>
+ * Objects are stored compactly as a {@link Shape shape}, which is an ordered set of property names shared between all objects that had the
+ * same properties added in the same order, and an array of values. Large numbers of objects with the same structure, e.g. the elements of a
+ * JSON array, thus share a single copy of their property names. An object whose properties are removed, or which has an unusually large
+ * number of properties or of sibling shapes, is switched to a {@link LinkedHashMap}.
+ * </p>
+ */
 public class JsonObject {
 	public static final Object NULL = new Object() {
 		@Override
@@ -21,24 +40,51 @@ public class JsonObject {
 		}
 	};
 
-	private final Map<String, Object> theValues;
+	private static final Object[] EMPTY_VALUES = new Object[0];
+
+	/** The shape of this object's properties, or null if this object is stored as a map */
+	private Shape theShape;
+	/** The values of this object's properties if it is stored compactly, in the order of its shape */
+	private Object[] theCompactValues;
+	/** The values of this object if it is not stored compactly */
+	private Map<String, Object> theValues;
 
 	/** Creates the object */
 	public JsonObject() {
-		theValues = new LinkedHashMap<>();
+		theShape = Shape.EMPTY;
+		theCompactValues = EMPTY_VALUES;
+	}
+
+	/** @return Whether this object is stored compactly as a shared {@link Shape shape} and an array of values */
+	public boolean isCompact() {
+		return theShape != null;
 	}
 
+	/**
+	 * @param key The key to check
+	 * @return Whether a value is stored under the given key in this object
+	 */
 	public boolean hasProperty(String key) {
+		if (theShape != null)
+			return theShape.indexOf(key) >= 0;
 		return theValues.containsKey(key);
 	}
 
+	private Object getRaw(String key) {
+		if (theShape != null) {
+			int index = theShape.indexOf(key);
+			return index < 0 ? null : theCompactValues[index];
+		}
+		return theValues.get(key);
+	}
+
 	/**
 	 * @param key The key to get the value of
 	 * @return The value stored in this object by the given key
 	 * @throws IllegalArgumentException If no property with the given key was installed in this object
 	 */
 	public Object get(String key) throws IllegalArgumentException {
-		Object value = theValues.get(key);
+		Object value = getRaw(key);
 		if (value == null)
 			throw new IllegalArgumentException("No such property used in this JSON object: \"" + key + "\"");
 		else if (value == NULL)
@@ -52,7 +98,9 @@ public class JsonObject {
 	 * @return The value stored in this object by the given key, or the given default if the key is not used in this object
 	 */
 	public Object getOrDefault(String key, Object defaultValue) {
-		Object value = theValues.getOrDefault(key, defaultValue);
+		Object value = getRaw(key);
+		if (value == null)
+			value = defaultValue;
 		if (value == NULL)
 			value = null;
 		return value;
@@ -73,42 +121,81 @@ public class JsonObject {
 		} else if (value instanceof List) {//
 		} else
 			throw new IllegalArgumentException("Unrecognized JSON value type: " + value.getClass().getName());
+		if (theShape != null) {
+			int index = theShape.indexOf(key);
+			if (index >= 0) {
+				theCompactValues[index] = value;
+				return this;
+			}
+			Shape newShape = theShape.with(key);
+			if (newShape != null) {
+				if (theCompactValues.length == theShape.size())
+					theCompactValues = Arrays.copyOf(theCompactValues, Math.max(4, theCompactValues.length * 2));
+				theCompactValues[theShape.size()] = value;
+				theShape = newShape;
+				return this;
+			}
+			toMap();
+		}
 		theValues.put(key, value);
 		return this;
 	}
 
+	private void toMap() {
+		theValues = new LinkedHashMap<>();
+		for (int i = 0; i < theShape.size(); i++)
+			theValues.put(theShape.getKey(i), theCompactValues[i]);
+		theShape = null;
+		theCompactValues = null;
+	}
+
 	/**
 	 * @param key The key to remove in this object
 	 * @return This object
 	 */
 	public JsonObject remove(String key) {
+		if (theShape != null) {
+			if (theShape.indexOf(key) < 0)
+				return this;
+			toMap();
+		}
 		theValues.remove(key);
 		return this;
 	}
 
-	/** @return All keys stored in this object */
+	/** @return All keys stored in this object. The set reflects later changes to this object. */
 	public Set<String> keySet() {
-		return theValues.keySet();
+		return new KeySet();
 	}
 
-	/** @return All key-value entries in this object */
+	/** @return All key-value entries in this object. The collection reflects later changes to this object. */
 	public Collection<Map.Entry<String, Object>> entrySet() {
-		return new EntrySet(theValues.entrySet());
+		return new EntrySet(new ValueMap().entrySet());
 	}
 
-	/** @return The map backing this object's values */
+	/** @return An unmodifiable map of this object's values, which reflects later changes to this object */
 	public Map<String, Object> getMap() {
-		return Collections.unmodifiableMap(theValues);
+		return new ValueMap();
+	}
+
+	private Map<String, Object> rawMap() {
+		if (theShape != null)
+			return new ValueMap();
+		return theValues;
+	}
+
+	private int size() {
+		return theShape != null ? theShape.size() : theValues.size();
 	}
 
 	@Override
 	public int hashCode() {
-		return theValues.hashCode();
+		return rawMap().hashCode();
 	}
 
 	@Override
 	public boolean equals(Object obj) {
-		return obj instanceof JsonObject && theValues.equals(((JsonObject) obj).theValues);
+		return obj instanceof JsonObject && rawMap().equals(((JsonObject) obj).rawMap());
 	}
 
 	@Override
@@ -116,7 +203,7 @@ public class JsonObject {
 		StringBuilder str = new StringBuilder();
 		str.append('{');
 		boolean first = true;
-		for (Map.Entry<String, Object> entry : theValues.entrySet()) {
+		for (Map.Entry<String, Object> entry : rawMap().entrySet()) {
 			if (first)
 				first = false;
 			else
@@ -131,6 +218,249 @@ public class JsonObject {
 		return str.toString();
 	}
 
+	/**
+	 * <p>
+	 * An ordered set of property names that is shared between all {@link JsonObject}s that had the same properties added in the same order.
+	 * Shapes are created by transitions from the {@link #EMPTY empty} shape as properties are added, and transitions are cached so that
+	 * objects with the same structure end up with the same shape instance.
+	 * </p>
+	 * <p>
+	 * A shape refers strongly to the shape it was created from, but transitions to new shapes are only weakly held, so shapes (and the
+	 * property names in them) are only retained while an object, or a shape created from them, uses them.
+	 * </p>
+	 */
+	static final class Shape {
+		/** The maximum number of properties that an object may have and be stored compactly */
+		static final int MAX_SIZE = 64;
+		/**
+		 * The maximum number of transitions from a single non-empty shape that may be in use at once. This keeps map-like objects, whose
+		 * property names are mostly distinct, from creating a shape for every property. The {@link #EMPTY empty} shape is not limited, since
+		 * it has a transition for the first property name of every object in use.
+		 */
+		static final int MAX_TRANSITIONS = 64;
+		/** Shapes with more keys than this build a hash index for lookup */
+		private static final int LINEAR_SEARCH_SIZE = 8;
+
+		static final Shape EMPTY = new Shape(null, new String[0]);
+		/** Receives the transitions whose shapes are no longer in use */
+		private static final ReferenceQueue<Shape> STALE_SHAPES = new ReferenceQueue<>();
+
+		private final Shape theParent;
+		private final String[] theKeys;
+		private final Map<String, Integer> theIndex;
+		private volatile ConcurrentHashMap<String, Transition> theTransitions;
+
+		private Shape(Shape parent, String[] keys) {
+			theParent = parent;
+			theKeys = keys;
+			if (keys.length > LINEAR_SEARCH_SIZE) {
+				theIndex = new HashMap<>(keys.length * 2);
+				for (int i = 0; i < keys.length; i++)
+					theIndex.put(keys[i], i);
+			} else
+				theIndex = null;
+		}
+
+		int size() {
+			return theKeys.length;
+		}
+
+		String getKey(int index) {
+			return theKeys[index];
+		}
+
+		int indexOf(String key) {
+			if (theIndex != null) {
+				Integer index = theIndex.get(key);
+				return index == null ? -1 : index.intValue();
+			}
+			// Names from the parser are canonicalized, so check identity first
+			for (int i = 0; i < theKeys.length; i++) {
+				if (theKeys[i] == key)
+					return i;
+			}
+			for (int i = 0; i < theKeys.length; i++) {
+				if (theKeys[i].equals(key))
+					return i;
+			}
+			return -1;
+		}
+
+		/**
+		 * @param key The key to add, which must not be present in this shape
+		 * @return The shape with the given key added after this shape's keys, or null if the shape could not be created
+		 */
+		Shape with(String key) {
+			if (theKeys.length >= MAX_SIZE)
+				return null;
+			expungeStaleShapes();
+			ConcurrentHashMap<String, Transition> transitions = theTransitions;
+			if (transitions == null) {
+				synchronized (this) {
+					transitions = theTransitions;
+					if (transitions == null)
+						theTransitions = transitions = new ConcurrentHashMap<>(4);
+				}
+			}
+			Transition transition = transitions.get(key);
+			Shape next = transition == null ? null : transition.get();
+			if (next != null)
+				return next;
+			else if (transition == null && this != EMPTY && transitions.size() >= MAX_TRANSITIONS)
+				return null;
+			Shape[] result = new Shape[1];
+			transitions.compute(key, (k, old) -> {
+				Shape shape = old == null ? null : old.get();
+				if (shape == null) {
+					String[] keys = Arrays.copyOf(theKeys, theKeys.length + 1);
+					keys[theKeys.length] = k;
+					shape = new Shape(this, keys);
+					old = new Transition(this, k, shape);
+				}
+				result[0] = shape;
+				return old;
+			});
+			return result[0];
+		}
+
+		/** @return The shape that this shape was created from by adding its last key */
+		Shape getParent() {
+			return theParent;
+		}
+
+		private static void expungeStaleShapes() {
+			Reference<? extends Shape> ref;
+			while ((ref = STALE_SHAPES.poll()) != null) {
+				Transition stale = (Transition) ref;
+				stale.from.theTransitions.remove(stale.key, stale);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return Arrays.toString(theKeys);
+		}
+	}
+
+	/** A weakly-held transition from one {@link Shape} to another with one more key */
+	private static class Transition extends WeakReference<Shape> {
+		final Shape from;
+		final String key;
+
+		Transition(Shape from, String key, Shape to) {
+			super(to, Shape.STALE_SHAPES);
+			this.from = from;
+			this.key = key;
+		}
+	}
+
+	/** A set of the keys in this object, whatever its storage */
+	class KeySet extends AbstractSet<String> {
+		@Override
+		public boolean contains(Object o) {
+			return o instanceof String && hasProperty((String) o);
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			if (!contains(o))
+				return false;
+			JsonObject.this.remove((String) o);
+			return true;
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			if (theShape == null)
+				return theValues.keySet().iterator();
+			Shape shape = theShape;
+			return new Iterator<String>() {
+				private int theIndex;
+				private boolean isRemovable;
+
+				@Override
+				public boolean hasNext() {
+					return theIndex < shape.size();
+				}
+
+				@Override
+				public String next() {
+					if (theIndex >= shape.size())
+						throw new NoSuchElementException();
+					isRemovable = true;
+					return shape.getKey(theIndex++);
+				}
+
+				@Override
+				public void remove() {
+					if (!isRemovable)
+						throw new IllegalStateException("next() must be called before remove()");
+					isRemovable = false;
+					JsonObject.this.remove(shape.getKey(theIndex - 1));
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return JsonObject.this.size();
+		}
+	}
+
+	/** An unmodifiable map view of the raw values of this object, whatever its storage */
+	class ValueMap extends AbstractMap<String, Object> {
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof String && hasProperty((String) key);
+		}
+
+		@Override
+		public Object get(Object key) {
+			return key instanceof String ? getRaw((String) key) : null;
+		}
+
+		@Override
+		public int size() {
+			return JsonObject.this.size();
+		}
+
+		@Override
+		public Set<Map.Entry<String, Object>> entrySet() {
+			return new AbstractSet<Map.Entry<String, Object>>() {
+				@Override
+				public Iterator<Map.Entry<String, Object>> iterator() {
+					if (theShape == null)
+						return Collections.unmodifiableMap(theValues).entrySet().iterator();
+					Shape shape = theShape;
+					return new Iterator<Map.Entry<String, Object>>() {
+						private int theIndex;
+
+						@Override
+						public boolean hasNext() {
+							return theIndex < shape.size();
+						}
+
+						@Override
+						public Map.Entry<String, Object> next() {
+							if (theIndex >= shape.size())
+								throw new NoSuchElementException();
+							int index = theIndex++;
+							String key = shape.getKey(index);
+							// If the object has changed storage since iteration began, look the value up by key
+							Object value = theShape == shape ? theCompactValues[index] : getRaw(key);
+							return new AbstractMap.SimpleImmutableEntry<>(key, value);
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return JsonObject.this.size();
+				}
+			};
+		}
+	}
+
 	static class EntrySet extends AbstractCollection<Map.Entry<String, Object>> {
 		private final Collection<Map.Entry<String, Object>> theMapEntrySet;
 
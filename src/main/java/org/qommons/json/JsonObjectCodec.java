@@ -0,0 +1,329 @@
+package org.qommons.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import org.qommons.json.JsonSerialReader.JsonContentItem;
+import org.qommons.json.JsonSerialReader.ObjectItem;
+import org.qommons.json.JsonSerialReader.PrimitiveItem;
+import org.qommons.json.JsonSerialReader.StructItem;
+import org.qommons.json.SAJParser.ParseException;
+
+/**
+ * <p>
+ * A {@link JsonCodec} that encodes instances of a class as JSON objects using getters and setters, created with
+ * {@link JsonCodec#forObject(Supplier)}.
+ * </p>
+ * <p>
+ * Properties are written straight to the writer and assigned to a new instance as they are parsed, without reflection or an intermediate
+ * {@link JsonObject}. Primitive properties are neither boxed when written nor, when parsing UTF-8 bytes, when read.
+ * </p>
+ * <p>
+ * For example:
+ *
+ * <pre>
+ * JsonCodec&lt;Person&gt; codec = JsonCodec.forObject(Person::new)//
+ * 	.withString("name", Person::getName, Person::setName)//
+ * 	.withInt("age", Person::getAge, Person::setAge)//
+ * 	.with("address", ADDRESS_CODEC, Person::getAddress, Person::setAddress)//
+ * 	.build();
+ * </pre>
+ * </p>
+ *
+ * @param <T> The type of object to encode and decode
+ */
+public class JsonObjectCodec<T> implements JsonCodec<T> {
+	/** Encodes and decodes one property of an object */
+	private static abstract class Property<T> {
+		final String name;
+
+		Property(String name) {
+			this.name = name;
+		}
+
+		abstract void write(T object, JsonSerialWriter writer) throws IOException;
+
+		abstract void read(T object, JsonSerialReader reader, JsonContentItem first) throws IOException, ParseException;
+	}
+
+	/**
+	 * Builds a {@link JsonObjectCodec}
+	 *
+	 * @param <T> The type of object to encode and decode
+	 */
+	public static class Builder<T> {
+		private final Supplier<? extends T> theCreator;
+		private final List<Property<T>> theProperties;
+		private boolean isIgnoringUnknown;
+
+		Builder(Supplier<? extends T> creator) {
+			theCreator = creator;
+			theProperties = new ArrayList<>();
+			isIgnoringUnknown = true;
+		}
+
+		/**
+		 * @param name The name of the property
+		 * @param getter Gets the property's value from an object
+		 * @param setter Sets the property's value in a new object
+		 * @return This builder
+		 */
+		public Builder<T> withString(String name, Function<? super T, String> getter, BiConsumer<? super T, String> setter) {
+			return with(name, JsonCodec.STRING, getter, setter);
+		}
+
+		/**
+		 * @param name The name of the property
+		 * @param getter Gets the property's value from an object
+		 * @param setter Sets the property's value in a new object
+		 * @return This builder
+		 */
+		public Builder<T> withInt(String name, ToIntFunction<? super T> getter, ObjIntConsumer<? super T> setter) {
+			return add(new Property<T>(name) {
+				@Override
+				void write(T object, JsonSerialWriter writer) throws IOException {
+					writer.writeNumber(getter.applyAsInt(object));
+				}
+
+				@Override
+				void read(T object, JsonSerialReader reader, JsonContentItem first) {
+					long value = reader.longValue(requireNumber(first, "an integer"));
+					if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+						throw new IllegalStateException("Value " + value + " is too large for an integer");
+					setter.accept(object, (int) value);
+				}
+			});
+		}
+
+		/**
+		 * @param name The name of the property
+		 * @param getter Gets the property's value from an object
+		 * @param setter Sets the property's value in a new object
+		 * @return This builder
+		 */
+		public Builder<T> withLong(String name, ToLongFunction<? super T> getter, ObjLongConsumer<? super T> setter) {
+			return add(new Property<T>(name) {
+				@Override
+				void write(T object, JsonSerialWriter writer) throws IOException {
+					writer.writeNumber(getter.applyAsLong(object));
+				}
+
+				@Override
+				void read(T object, JsonSerialReader reader, JsonContentItem first) {
+					setter.accept(object, reader.longValue(requireNumber(first, "an integer")));
+				}
+			});
+		}
+
+		/**
+		 * @param name The name of the property
+		 * @param getter Gets the property's value from an object
+		 * @param setter Sets the property's value in a new object
+		 * @return This builder
+		 */
+		public Builder<T> withDouble(String name, ToDoubleFunction<? super T> getter, ObjDoubleConsumer<? super T> setter) {
+			return add(new Property<T>(name) {
+				@Override
+				void write(T object, JsonSerialWriter writer) throws IOException {
+					writer.writeNumber(getter.applyAsDouble(object));
+				}
+
+				@Override
+				void read(T object, JsonSerialReader reader, JsonContentItem first) {
+					setter.accept(object, reader.doubleValue(requireNumber(first, "a number")));
+				}
+			});
+		}
+
+		/**
+		 * @param name The name of the property
+		 * @param getter Gets the property's value from an object
+		 * @param setter Sets the property's value in a new object
+		 * @return This builder
+		 */
+		public Builder<T> withBoolean(String name, Predicate<? super T> getter, BiConsumer<? super T, Boolean> setter) {
+			return add(new Property<T>(name) {
+				@Override
+				void write(T object, JsonSerialWriter writer) throws IOException {
+					writer.writeBoolean(getter.test(object));
+				}
+
+				@Override
+				void read(T object, JsonSerialReader reader, JsonContentItem first) {
+					Object value = primitive(first, "a boolean");
+					if (!(value instanceof Boolean))
+						throw new IllegalStateException("Value is " + describe(first) + ", not a boolean");
+					setter.accept(object, (Boolean) value);
+				}
+			});
+		}
+
+		/**
+		 * @param <F> The type of the property
+		 * @param name The name of the property
+		 * @param codec The codec to encode and decode the property's value
+		 * @param getter Gets the property's value from an object
+		 * @param setter Sets the property's value in a new object
+		 * @return This builder
+		 */
+		public <F> Builder<T> with(String name, JsonCodec<F> codec, Function<? super T, ? extends F> getter,
+			BiConsumer<? super T, ? super F> setter) {
+			return add(new Property<T>(name) {
+				@Override
+				void write(T object, JsonSerialWriter writer) throws IOException {
+					codec.write(getter.apply(object), writer);
+				}
+
+				@Override
+				void read(T object, JsonSerialReader reader, JsonContentItem first) throws IOException, ParseException {
+					setter.accept(object, codec.read(reader, first));
+				}
+			});
+		}
+
+		/**
+		 * @param ignore Whether the codec should skip properties it does not recognize (the default) or throw a {@link ParseException}
+		 * @return This builder
+		 */
+		public Builder<T> ignoringUnknown(boolean ignore) {
+			isIgnoringUnknown = ignore;
+			return this;
+		}
+
+		/** @return The new codec */
+		public JsonObjectCodec<T> build() {
+			return new JsonObjectCodec<>(theCreator, new ArrayList<>(theProperties), isIgnoringUnknown);
+		}
+
+		private Builder<T> add(Property<T> property) {
+			for (Property<T> p : theProperties) {
+				if (p.name.equals(property.name))
+					throw new IllegalArgumentException("Duplicate property " + property.name);
+			}
+			theProperties.add(property);
+			return this;
+		}
+	}
+
+	private final Supplier<? extends T> theCreator;
+	private final List<Property<T>> theProperties;
+	private final Map<String, Property<T>> thePropertiesByName;
+	private final boolean isIgnoringUnknown;
+
+	private JsonObjectCodec(Supplier<? extends T> creator, List<Property<T>> properties, boolean ignoreUnknown) {
+		theCreator = creator;
+		theProperties = properties;
+		thePropertiesByName = new HashMap<>(properties.size() * 2);
+		for (Property<T> property : properties)
+			thePropertiesByName.put(property.name, property);
+		isIgnoringUnknown = ignoreUnknown;
+	}
+
+	@Override
+	public void write(T value, JsonSerialWriter writer) throws IOException {
+		if (value == null) {
+			writer.writeNull();
+			return;
+		}
+		writer.startObject();
+		for (Property<T> property : theProperties) {
+			writer.startProperty(property.name);
+			property.write(value, writer);
+		}
+		writer.endObject();
+	}
+
+	@Override
+	public T read(JsonSerialReader reader, JsonContentItem first) throws IOException, ParseException {
+		if (first instanceof PrimitiveItem && ((PrimitiveItem) first).getValue() == null)
+			return null;
+		else if (!(first instanceof ObjectItem))
+			throw new IllegalStateException("Value is " + describe(first) + ", not an object");
+		T value = theCreator.get();
+		String name;
+		while ((name = reader.getNextProperty()) != null) {
+			Property<T> property = thePropertiesByName.get(name);
+			if (property != null) {
+				JsonContentItem propValue = reader.startValue();
+				if (propValue == null)
+					reader.getState().error("Unexpected end of content");
+				property.read(value, reader, propValue);
+			} else if (isIgnoringUnknown)
+				reader.skipNext();
+			else
+				throw new ParseException("Unrecognized property " + name, reader.getState());
+		}
+		reader.endObject(null);
+		return value;
+	}
+
+	/**
+	 * @param first The first item of a value
+	 * @param type The type of number expected, for the exception message
+	 * @return The item
+	 * @throws IllegalStateException If the value is not a number
+	 */
+	static PrimitiveItem requireNumber(JsonContentItem first, String type) {
+		PrimitiveItem number = number(first, type);
+		if (number == null)
+			throw new IllegalStateException("Value is null, not " + type);
+		return number;
+	}
+
+	/**
+	 * @param first The first item of a value
+	 * @param type The type of value expected, for the exception message
+	 * @return The value of the primitive item, or null for a JSON null
+	 * @throws IllegalStateException If the value is not a primitive
+	 */
+	static Object primitive(JsonContentItem first, String type) {
+		if (!(first instanceof PrimitiveItem))
+			throw new IllegalStateException("Value is " + describe(first) + ", not " + type);
+		return ((PrimitiveItem) first).getValue();
+	}
+
+	/**
+	 * @param first The first item of a value
+	 * @param type The type of number expected, for the exception message
+	 * @return The item, or null for a JSON null
+	 * @throws IllegalStateException If the value is not a number or null
+	 */
+	static PrimitiveItem number(JsonContentItem first, String type) {
+		if (first instanceof PrimitiveItem) {
+			PrimitiveItem item = (PrimitiveItem) first;
+			if (JsonSerialReader.isNumber(item))
+				return item;
+			else if (item.getValue() == null)
+				return null;
+		}
+		throw new IllegalStateException("Value is " + describe(first) + ", not " + type);
+	}
+
+	/**
+	 * @param first The first item of a value
+	 * @return A description of the type of the value, for exception messages
+	 */
+	static String describe(JsonContentItem first) {
+		if (first instanceof StructItem)
+			return first instanceof ObjectItem ? "an object" : "an array";
+		else if (JsonSerialReader.isNumber((PrimitiveItem) first))
+			return "a number";
+		else if (((PrimitiveItem) first).getValue() instanceof String)
+			return "a string";
+		else
+			return "a " + JsonSerialReader.getType(((PrimitiveItem) first).getValue());
+	}
+}
@@ -31,9 +31,9 @@ public class JsonObjectElement extends DefaultJsonElement {
 		JsonObject constraints = getConstraints();
 		String allowExtras = null;
 		if(constraints != null)
-			allowExtras = (String) constraints.get("allowExtras");
+			allowExtras = (String) constraints.getOrDefault("allowExtras", null);
 		if(allowExtras != null)
-			theExtraEl = OnExtraEl.byName((String) constraints.get("allowExtras"));
+			theExtraEl = OnExtraEl.byName((String) constraints.getOrDefault("allowExtras", null));
 		else { // If allowExtras is not specified, get it from the parent
 			JsonElement element = getParent();
 			while(element != null && !(element instanceof JsonObjectElement))
@@ -44,7 +44,7 @@ public class JsonObjectElement extends DefaultJsonElement {
 				// If no parent, use WARN as default
 				theExtraEl = OnExtraEl.WARN;
 		}
-		if(schemaEl.get("inheritSchema") != null) {
+		if(schemaEl.getOrDefault("inheritSchema", null) != null) {
 			theInheritance = getParser().createElementForType((String) schemaEl.get("inheritSchema"));
 			theInheritance.configure(parser, this, "inheritSchema", null);
 			schemaEl.remove("inheritSchema");
@@ -54,7 +54,7 @@ public class JsonObjectElement extends DefaultJsonElement {
 				.entrySet())
 				theChildren.put(entry.getKey(), entry.getValue());
 		}
-		for(Map.Entry<String, Object> entry : ((Map<String, Object>) schemaEl).entrySet())
+		for(Map.Entry<String, Object> entry : schemaEl.entrySet())
 			theChildren.put(entry.getKey(), parser.parseSchema(this, entry.getKey(), entry.getValue()));
 	}
 
@@ -85,10 +85,10 @@ public class JsonObjectElement extends DefaultJsonElement {
 		JsonObject json = (JsonObject) jsonValue;
 		for(Map.Entry<String, JsonElement> entry : theChildren.entrySet()) {
 			total++;
-			matched += entry.getValue().doesValidate(json.get(entry.getKey()));
+			matched += entry.getValue().doesValidate(json.getOrDefault(entry.getKey(), null));
 		}
 		if(theExtraEl == OnExtraEl.ERROR)
-			for(Map.Entry<String, Object> entry : ((Map<String, Object>) jsonValue).entrySet()) {
+			for(Map.Entry<String, Object> entry : json.entrySet()) {
 				if(theChildren.get(entry.getKey()) == null)
 					total++;
 			}
@@ -105,20 +105,30 @@ public class JsonObjectElement extends DefaultJsonElement {
 			throw new JsonSchemaException("Element must be a JSON object", this, jsonValue);
 		JsonObject json = (JsonObject) jsonValue;
 		for(Map.Entry<String, JsonElement> entry : theChildren.entrySet())
-			entry.getValue().validate(json.get(entry.getKey()));
-		for(Map.Entry<String, Object> entry : ((Map<String, Object>) jsonValue).entrySet()) {
-			if(theChildren.get(entry.getKey()) == null) {
-				switch (theExtraEl) {
-				case ERROR:
-					throw new JsonSchemaException("Extra element " + entry.getKey() + " in JSON object", this, jsonValue);
-				case WARN:
-					System.err.println("Extra element " + entry.getKey() + " in JSON object " + getPathString());
-					break;
-				case IGNORE:
-					break;
-				}
-			}
+			entry.getValue().validate(json.getOrDefault(entry.getKey(), null));
+		for(Map.Entry<String, Object> entry : json.entrySet()) {
+			if(theChildren.get(entry.getKey()) == null)
+				extraElement(entry.getKey(), jsonValue);
 		}
 		return true;
 	}
+
+	/**
+	 * Handles a property in a JSON object that is not specified by this schema element
+	 *
+	 * @param name The name of the extra property
+	 * @param jsonValue The JSON object containing the property
+	 * @throws JsonSchemaException If this element does not allow extra properties
+	 */
+	void extraElement(String name, Object jsonValue) throws JsonSchemaException {
+		switch (theExtraEl) {
+		case ERROR:
+			throw new JsonSchemaException("Extra element " + name + " in JSON object", this, jsonValue);
+		case WARN:
+			System.err.println("Extra element " + name + " in JSON object " + getPathString());
+			break;
+		case IGNORE:
+			break;
+		}
+	}
 }
@@ -0,0 +1,196 @@
+package org.qommons.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.qommons.json.JsonSerialReader.StructState;
+import org.qommons.json.SAJParser.ParseException;
+
+/**
+ * <p>
+ * A compiled selector for values in a JSON document, using a subset of the JSONPath syntax. A path begins with <code>$</code>, the root
+ * value, followed by any number of segments:
+ * <ul>
+ * <li><code>.name</code> or <code>['name']</code> selects the property with the given name in an object</li>
+ * <li><code>[n]</code> selects the element at index n in an array</li>
+ * <li><code>.*</code> selects every property value in an object</li>
+ * <li><code>[*]</code> selects every element in an array or every property value in an object</li>
+ * </ul>
+ * E.g. <code>$.items[*].id</code> selects the <code>id</code> property of every element in the <code>items</code> array of the root
+ * object.
+ * </p>
+ * <p>
+ * When {@link #select(JsonSerialReader, Consumer) selecting} from a {@link JsonSerialReader} that is parsing UTF-8 bytes, content that
+ * cannot match the path is skipped without being parsed, and only matching values are built. Otherwise, the next value in the reader is
+ * parsed and the path is applied to it in memory.
+ * </p>
+ */
+public class JsonPathSelector {
+	private static final String WILDCARD = "*";
+
+	private final String thePath;
+	/** Each segment is either a property name (a String, possibly {@link #WILDCARD}) or an array index (an Integer) */
+	private final Object[] theSegments;
+
+	private JsonPathSelector(String path, Object[] segments) {
+		thePath = path;
+		theSegments = segments;
+	}
+
+	/**
+	 * @param path The path to compile
+	 * @return The compiled selector
+	 * @throws IllegalArgumentException If the path cannot be parsed
+	 */
+	public static JsonPathSelector compile(String path) throws IllegalArgumentException {
+		if (!path.startsWith("$"))
+			throw new IllegalArgumentException("Path must begin with '$': " + path);
+		List<Object> segments = new ArrayList<>();
+		int i = 1;
+		while (i < path.length()) {
+			char ch = path.charAt(i);
+			if (ch == '.') {
+				int start = ++i;
+				while (i < path.length() && path.charAt(i) != '.' && path.charAt(i) != '[')
+					i++;
+				if (i == start)
+					throw new IllegalArgumentException("Empty property name at position " + start + ": " + path);
+				String name = path.substring(start, i);
+				segments.add(name.equals(WILDCARD) ? WILDCARD : name);
+			} else if (ch == '[') {
+				int end = path.indexOf(']', i);
+				if (end < 0)
+					throw new IllegalArgumentException("Unclosed '[' at position " + i + ": " + path);
+				String content = path.substring(i + 1, end).trim();
+				if (content.equals(WILDCARD))
+					segments.add(WILDCARD);
+				else if (content.length() >= 2 && (content.charAt(0) == '\'' || content.charAt(0) == '"')
+					&& content.charAt(content.length() - 1) == content.charAt(0))
+					segments.add(content.substring(1, content.length() - 1));
+				else {
+					try {
+						int index = Integer.parseInt(content);
+						if (index < 0)
+							throw new IllegalArgumentException("Negative index at position " + i + ": " + path);
+						segments.add(Integer.valueOf(index));
+					} catch (NumberFormatException e) {
+						throw new IllegalArgumentException("Unrecognized segment '" + content + "' at position " + i + ": " + path, e);
+					}
+				}
+				i = end + 1;
+			} else
+				throw new IllegalArgumentException("Unexpected character '" + ch + "' at position " + i + ": " + path);
+		}
+		return new JsonPathSelector(path, segments.toArray());
+	}
+
+	/**
+	 * Selects values matching this path from the next value in the reader
+	 *
+	 * @param reader The reader to read the value from
+	 * @param onMatch Receives each value matching this path, in document order. JSON null values are passed as null.
+	 * @return The number of matching values
+	 * @throws IOException If an error occurs reading the data from the stream
+	 * @throws ParseException If the value cannot be parsed
+	 */
+	public int select(JsonSerialReader reader, Consumer<Object> onMatch) throws IOException, ParseException {
+		if (reader.getState().getTokenizer() == null) {
+			Object value = reader.parseNext(false);
+			if (value == null)
+				return 0;
+			return select(value == JsonSerialReader.NULL ? null : value, onMatch);
+		} else if (reader.peekValue() < 0)
+			return 0;
+		return select(reader, 0, onMatch);
+	}
+
+	/**
+	 * Selects values matching this path from a parsed JSON value
+	 *
+	 * @param value The JSON value to select from, e.g. as returned from {@link SAJParser#parse(String)}
+	 * @param onMatch Receives each value matching this path, in document order. JSON null values are passed as null.
+	 * @return The number of matching values
+	 */
+	public int select(Object value, Consumer<Object> onMatch) {
+		return select(value, 0, onMatch);
+	}
+
+	private int select(Object value, int segment, Consumer<Object> onMatch) {
+		if (segment == theSegments.length) {
+			onMatch.accept(value == JsonObject.NULL ? null : value);
+			return 1;
+		}
+		Object seg = theSegments[segment];
+		int count = 0;
+		if (value instanceof JsonObject) {
+			JsonObject obj = (JsonObject) value;
+			if (seg == WILDCARD) {
+				for (String key : obj.keySet())
+					count += select(obj.get(key), segment + 1, onMatch);
+			} else if (seg instanceof String && obj.hasProperty((String) seg))
+				count += select(obj.get((String) seg), segment + 1, onMatch);
+		} else if (value instanceof List) {
+			List<?> list = (List<?>) value;
+			if (seg == WILDCARD) {
+				for (Object element : list)
+					count += select(element, segment + 1, onMatch);
+			} else if (seg instanceof Integer && ((Integer) seg).intValue() < list.size())
+				count += select(list.get(((Integer) seg).intValue()), segment + 1, onMatch);
+		}
+		return count;
+	}
+
+	/** Selects from the next value in the reader, which has been {@link JsonSerialReader#peekValue() peeked} */
+	private int select(JsonSerialReader reader, int segment, Consumer<Object> onMatch) throws IOException, ParseException {
+		if (segment == theSegments.length) {
+			Object value = reader.parseNext(false);
+			onMatch.accept(value == JsonSerialReader.NULL ? null : value);
+			return 1;
+		}
+		Object seg = theSegments[segment];
+		int next = reader.peekValue();
+		int count = 0;
+		if (next == '{' && seg instanceof String) {
+			StructState state = reader.startObject();
+			if (seg == WILDCARD) {
+				while (reader.getNextProperty() != null)
+					count += select(reader, segment + 1, onMatch);
+			} else if (reader.goToProperty((String) seg))
+				count += select(reader, segment + 1, onMatch);
+			reader.endObject(state);
+		} else if (next == '[' && (seg == WILDCARD || seg instanceof Integer)) {
+			reader.startArray();
+			int target = seg == WILDCARD ? -1 : ((Integer) seg).intValue();
+			for (int i = 0; (next = reader.peekValue()) != ']'; i++) {
+				if (next < 0)
+					reader.getState().error("Unexpected end of content");
+				if (target < 0 || i == target) {
+					count += select(reader, segment + 1, onMatch);
+					if (i == target)
+						break;
+				} else
+					reader.skipNext();
+			}
+			reader.endArray(null);
+		} else
+			reader.skipNext();
+		return count;
+	}
+
+	@Override
+	public int hashCode() {
+		return thePath.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof JsonPathSelector && thePath.equals(((JsonPathSelector) obj).thePath);
+	}
+
+	@Override
+	public String toString() {
+		return thePath;
+	}
+}
@@ -0,0 +1,300 @@
+package org.qommons.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.qommons.json.SAJParser.ParseException;
+import org.qommons.json.SAJParser.ParseHandler;
+import org.qommons.json.SAJParser.ParseState;
+
+/**
+ * <p>
+ * Parses UTF-8 JSON content that is pushed to it in arbitrary chunks, e.g. as they arrive from a non-blocking channel, instead of pulling
+ * content from a blocking stream. The parser keeps its state between chunks and notifies its {@link ParseHandler}s of each token as soon
+ * as the token is complete, so a single thread may parse any number of concurrent streams.
+ * </p>
+ * <p>
+ * Content is {@link #feed(ByteBuffer) fed} to the parser as it becomes available, and {@link #finish()} is called at the end of the
+ * content. A token split between chunks is retained until its end arrives. A number or other literal at the end of a chunk is not
+ * complete until the next chunk or the end of the content shows where it ends.
+ * </p>
+ * <p>
+ * The stream may contain any number of consecutive JSON values. If a {@link ParseException} is thrown, the parser may not be used further.
+ * </p>
+ */
+public class JsonPushParser {
+	private static final int BETWEEN = 0;
+	private static final int WORD = 1;
+	private static final int STRING = 2;
+	private static final int STRING_ESCAPE = 3;
+	private static final int SLASH = 4;
+	private static final int LINE_COMMENT = 5;
+	private static final int BLOCK_COMMENT = 6;
+	private static final int BLOCK_COMMENT_STAR = 7;
+
+	private static final byte[] BYTE_ORDER_MARK = new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+	private final SAJParser theParser;
+	private final ParseHandler[] theHandlers;
+	private final ParseState theState;
+
+	/** Content that has been fed to this parser, but not yet parsed */
+	private byte[] theBuffer;
+	private int theLength;
+	/** The number of bytes in the buffer that have been scanned for token boundaries */
+	private int theScanned;
+	/** The end of the last complete token in the buffer */
+	private int theTokenEnd;
+	/** The state of the scan at {@link #theScanned} */
+	private int theScanState;
+	private byte theQuote;
+	/** Whether the beginning of the content, which may have a byte order mark, has been passed */
+	private boolean isStarted;
+
+	private int theLineNumber;
+	private long theLineStart;
+	/** The offset of the start of the buffer from the start of the content */
+	private long theOffset;
+
+	/** @param handlers The handlers to be notified of JSON content */
+	public JsonPushParser(ParseHandler... handlers) {
+		this(new SAJParser(), handlers);
+	}
+
+	/**
+	 * @param parser The parser whose settings (e.g. {@link SAJParser#isFormal() formality}, {@link SAJParser#allowsComments() comments},
+	 *        and {@link SAJParser#isCanonicalizingNames() name canonicalization}) to use. If the parser has a
+	 *        {@link SAJParser#setSymbolTable(JsonSymbolTable) shared symbol table}, it should not be used by other threads while this parser
+	 *        is in use.
+	 * @param handlers The handlers to be notified of JSON content
+	 */
+	public JsonPushParser(SAJParser parser, ParseHandler... handlers) {
+		theParser = parser;
+		theHandlers = handlers;
+		theState = new ParseState(new Utf8JsonTokenizer(new byte[0], 0, 0), handlers);
+		theBuffer = new byte[1024];
+		theLineNumber = 1;
+	}
+
+	/** @return The current state of parsing */
+	public ParseState getState() {
+		return theState;
+	}
+
+	/** @return The number of bytes fed to this parser that are part of a token which is not yet complete */
+	public int getPending() {
+		return theLength;
+	}
+
+	/**
+	 * Parses the remaining content in a buffer. The buffer's position is moved to its limit.
+	 *
+	 * @param bytes The next chunk of UTF-8 content
+	 * @throws ParseException If the content cannot be parsed
+	 */
+	public void feed(ByteBuffer bytes) throws ParseException {
+		int length = bytes.remaining();
+		ensureCapacity(length);
+		bytes.get(theBuffer, theLength, length);
+		theLength += length;
+		parseAvailable();
+	}
+
+	/**
+	 * Parses a chunk of content
+	 *
+	 * @param bytes The array containing the next chunk of UTF-8 content
+	 * @param offset The offset of the chunk in the array
+	 * @param length The length of the chunk
+	 * @throws ParseException If the content cannot be parsed
+	 */
+	public void feed(byte[] bytes, int offset, int length) throws ParseException {
+		ensureCapacity(length);
+		System.arraycopy(bytes, offset, theBuffer, theLength, length);
+		theLength += length;
+		parseAvailable();
+	}
+
+	/**
+	 * Parses any content remaining from previous chunks, as the end of the content
+	 *
+	 * @return The value returned from the first handler after parsing has finished, or null if there are no handlers
+	 * @throws ParseException If the content ends in the middle of a value
+	 */
+	public Object finish() throws ParseException {
+		if (!isStarted)
+			skipByteOrderMark(true);
+		parse(theLength);
+		if (theState.getDepth() > 0)
+			theState.error("Unexpected end of content");
+		return theHandlers.length > 0 ? theHandlers[0].finalValue() : null;
+	}
+
+	private void ensureCapacity(int length) {
+		if (theLength + length > theBuffer.length)
+			theBuffer = Arrays.copyOf(theBuffer, Math.max(theBuffer.length * 2, theLength + length));
+	}
+
+	private void parseAvailable() throws ParseException {
+		if (!isStarted && !skipByteOrderMark(false))
+			return;
+		scan();
+		if (theTokenEnd > 0)
+			parse(theTokenEnd);
+	}
+
+	/**
+	 * Skips the UTF-8 byte order mark at the start of the content, if present
+	 *
+	 * @param end Whether the end of the content has been reached
+	 * @return False if there is not yet enough content to tell whether a byte order mark is present
+	 */
+	private boolean skipByteOrderMark(boolean end) {
+		int i;
+		for (i = 0; i < 3 && i < theLength; i++) {
+			if (theBuffer[i] != BYTE_ORDER_MARK[i])
+				break;
+		}
+		if (i == 3) {
+			System.arraycopy(theBuffer, 3, theBuffer, 0, theLength - 3);
+			theLength -= 3;
+		} else if (i == theLength && !end)
+			return false; // Could be a byte order mark
+		isStarted = true;
+		return true;
+	}
+
+	/** Scans the new content for the end of the last complete token, keeping the same token boundaries as {@link Utf8JsonTokenizer} */
+	private void scan() {
+		byte[] buffer = theBuffer;
+		int state = theScanState;
+		int i = theScanned;
+		while (i < theLength) {
+			byte b = buffer[i];
+			switch (state) {
+			case BETWEEN:
+				i++;
+				if (b >= 0 && b <= ' ')
+					theTokenEnd = i;
+				else {
+					switch (b) {
+					case '{':
+					case '}':
+					case '[':
+					case ']':
+					case ',':
+					case ':':
+						theTokenEnd = i;
+						break;
+					case '"':
+					case '\'':
+						theQuote = b;
+						state = STRING;
+						break;
+					case '/':
+						if (theParser.allowsComments())
+							state = SLASH;
+						else
+							theTokenEnd = i; // The parser will report it
+						break;
+					default:
+						state = WORD;
+					}
+				}
+				break;
+			case WORD:
+				if (b >= 0 && (b <= ' ' || isWordTerminator(b))) {
+					theTokenEnd = i;
+					state = BETWEEN; // Scan the terminator as the next token
+				} else
+					i++;
+				break;
+			case STRING:
+				i++;
+				if (b == theQuote) {
+					theTokenEnd = i;
+					state = BETWEEN;
+				} else if (b == '\\')
+					state = STRING_ESCAPE;
+				break;
+			case STRING_ESCAPE:
+				i++;
+				state = STRING;
+				break;
+			case SLASH:
+				i++;
+				if (b == '/')
+					state = LINE_COMMENT;
+				else if (b == '*')
+					state = BLOCK_COMMENT;
+				else { // The parser will report it
+					theTokenEnd = i;
+					state = BETWEEN;
+				}
+				break;
+			case LINE_COMMENT:
+				if (b == '\n' || b == '\r') {
+					theTokenEnd = i;
+					state = BETWEEN; // Scan the new line as white space
+				} else
+					i++;
+				break;
+			case BLOCK_COMMENT:
+			case BLOCK_COMMENT_STAR:
+				i++;
+				if (state == BLOCK_COMMENT_STAR && b == '/') {
+					theTokenEnd = i;
+					state = BETWEEN;
+				} else
+					state = b == '*' ? BLOCK_COMMENT_STAR : BLOCK_COMMENT;
+				break;
+			default:
+				throw new IllegalStateException("Unrecognized scan state: " + state);
+			}
+		}
+		theScanned = i;
+		theScanState = state;
+	}
+
+	private static boolean isWordTerminator(byte b) {
+		switch (b) {
+		case '{':
+		case '}':
+		case '[':
+		case ']':
+		case ',':
+		case ':':
+		case '"':
+		case '\'':
+		case '/':
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Parses the complete tokens at the start of the buffer, then discards them
+	 *
+	 * @param end The end of the content to parse
+	 * @throws ParseException If the content cannot be parsed
+	 */
+	private void parse(int end) throws ParseException {
+		Utf8JsonTokenizer tokenizer = new Utf8JsonTokenizer(theBuffer, 0, end);
+		tokenizer.setPosition(theLineNumber, theLineStart, theOffset);
+		theState.setTokenizer(tokenizer);
+		try {
+			while (theParser.parseNext(theState)) {}
+		} catch (IOException e) {
+			throw new IllegalStateException("IO Exception thrown from a buffer?!!", e);
+		}
+		theLineNumber = tokenizer.getLineNumber();
+		theLineStart = tokenizer.getLineStart();
+		theOffset += end;
+		theLength -= end;
+		System.arraycopy(theBuffer, end, theBuffer, 0, theLength);
+		theScanned -= Math.min(end, theScanned);
+		theTokenEnd = 0;
+	}
+}
@@ -54,7 +54,7 @@ public class JsonSchemaParser {
 	public JsonElement createElementFor(Object schemaEl) {
 		if (schemaEl instanceof JsonObject) {
 			JsonObject jsonSchema = (JsonObject) schemaEl;
-			String typeName = (String) jsonSchema.get("valueType");
+			String typeName = (String) jsonSchema.getOrDefault("valueType", null);
 			if(typeName == null)
 				return new JsonObjectElement();
 			else if(typeName.equals("set"))
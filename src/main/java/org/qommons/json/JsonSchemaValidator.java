@@ -0,0 +1,584 @@
+package org.qommons.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.qommons.json.SAJParser.ParseException;
+import org.qommons.json.SAJParser.ParseHandler;
+import org.qommons.json.SAJParser.ParseState;
+
+/**
+ * <p>
+ * Validates JSON content against a schema as it is parsed, without building the content in memory.
+ * </p>
+ * <p>
+ * A schema parsed by a {@link JsonSchemaParser} is {@link #compile(JsonElement) compiled} into a validator, which may be used to validate
+ * any number of documents, from any number of threads. Each document is validated by a {@link #createHandler() handler} given to a
+ * {@link SAJParser}. The handler fails on the first violation of the schema by throwing a {@link SchemaViolationException}, so the rest of
+ * an invalid document is not parsed. Memory use is proportional to the depth of the document, not its size.
+ * </p>
+ * <p>
+ * The validation rules are the same as those of {@link JsonElement#validate(Object)}, except that properties specified in an object schema
+ * but missing from an object are validated as null. For custom {@link JsonElement} implementations that this class does not recognize,
+ * the value is built in memory and given to the element's {@link JsonElement#validate(Object) validate} method.
+ * </p>
+ */
+public class JsonSchemaValidator {
+	/** Thrown from a {@link JsonSchemaValidator#createHandler() validating handler} when the content does not match the schema */
+	public static class SchemaViolationException extends RuntimeException {
+		/**
+		 * @param state The parsing state when the violation was detected
+		 * @param cause The schema violation
+		 */
+		public SchemaViolationException(ParseState state, JsonSchemaException cause) {
+			super(state + "\n" + cause.getMessage(), cause);
+		}
+
+		/** @return The schema violation */
+		public JsonSchemaException getSchemaException() {
+			return (JsonSchemaException) getCause();
+		}
+	}
+
+	private static enum EventType {
+		OBJECT_START, OBJECT_END, ARRAY_START, ARRAY_END, PROPERTY, VALUE;
+	}
+
+	private final JsonElement theSchema;
+	private final Node theRoot;
+
+	private JsonSchemaValidator(JsonElement schema) {
+		theSchema = schema;
+		theRoot = compileNode(schema);
+	}
+
+	/**
+	 * @param schema The schema to compile
+	 * @return A validator for the schema
+	 */
+	public static JsonSchemaValidator compile(JsonElement schema) {
+		return new JsonSchemaValidator(schema);
+	}
+
+	/** @return The schema that this validator validates against */
+	public JsonElement getSchema() {
+		return theSchema;
+	}
+
+	/**
+	 * @return A handler that validates a single JSON value given to it by a parser, throwing a {@link SchemaViolationException} on the
+	 *         first violation
+	 */
+	public ParseHandler createHandler() {
+		return new ValidatingHandler(theRoot);
+	}
+
+	/**
+	 * Validates a JSON document
+	 *
+	 * @param reader The reader to parse the JSON document from
+	 * @throws IOException If an error occurs reading the document
+	 * @throws ParseException If the document is not valid JSON
+	 * @throws JsonSchemaException If the document does not match this validator's schema
+	 */
+	public void validate(Reader reader) throws IOException, ParseException, JsonSchemaException {
+		try {
+			new SAJParser().parse(reader, createHandler());
+		} catch (SchemaViolationException e) {
+			throw e.getSchemaException();
+		}
+	}
+
+	/**
+	 * Validates a UTF-8-encoded JSON document
+	 *
+	 * @param input The stream to parse the JSON document from
+	 * @throws IOException If an error occurs reading the document
+	 * @throws ParseException If the document is not valid JSON
+	 * @throws JsonSchemaException If the document does not match this validator's schema
+	 */
+	public void validate(java.io.InputStream input) throws IOException, ParseException, JsonSchemaException {
+		try {
+			new SAJParser().parse(input, createHandler());
+		} catch (SchemaViolationException e) {
+			throw e.getSchemaException();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Validator for " + theSchema;
+	}
+
+	private static Node compileNode(JsonElement element) {
+		if (element instanceof JsonObjectElement)
+			return new ObjectNode((JsonObjectElement) element);
+		else if (element instanceof SetElement)
+			return new SetNode((SetElement) element);
+		else if (element instanceof EnumElement)
+			return new EnumNode((EnumElement) element);
+		else if (element instanceof CustomSchemaElement)
+			return new CustomNode((CustomSchemaElement) element);
+		else if (element instanceof ConstantElement || element instanceof BooleanElement || element instanceof NumberElement
+			|| element instanceof StringElement)
+			return new PrimitiveNode(element);
+		else
+			return new MaterializingNode(element);
+	}
+
+	/** Receives the events for a single JSON value */
+	private static abstract class Matcher {
+		/**
+		 * @param state The parse state
+		 * @param type The type of the event
+		 * @param arg The property name for {@link EventType#PROPERTY} events, or the value for {@link EventType#VALUE} events
+		 * @return Whether this matcher's value is complete
+		 * @throws JsonSchemaException If the value does not match the schema
+		 */
+		abstract boolean on(ParseState state, EventType type, Object arg) throws JsonSchemaException;
+	}
+
+	/** A compiled schema element */
+	private static abstract class Node {
+		final JsonElement theElement;
+
+		Node(JsonElement element) {
+			theElement = element;
+		}
+
+		/** @return A matcher to validate a value against this node */
+		abstract Matcher start();
+
+		/**
+		 * Validates the first event of a value that cannot be a structure of the kind this node expects
+		 *
+		 * @return Always true, since the value is complete
+		 * @throws JsonSchemaException If the value is not valid
+		 */
+		boolean validateOther(EventType type, Object arg) throws JsonSchemaException {
+			switch (type) {
+			case OBJECT_START:
+				theElement.validate(new JsonObject());
+				break;
+			case ARRAY_START:
+				theElement.validate(new ArrayList<>());
+				break;
+			default:
+				theElement.validate(arg);
+				break;
+			}
+			return true;
+		}
+	}
+
+	/** A node for a primitive element, which is validated entirely by its first event */
+	private static class PrimitiveNode extends Node {
+		private final Matcher theMatcher;
+
+		PrimitiveNode(JsonElement element) {
+			super(element);
+			theMatcher = new Matcher() {
+				@Override
+				boolean on(ParseState state, EventType type, Object arg) throws JsonSchemaException {
+					return validateOther(type, arg);
+				}
+			};
+		}
+
+		@Override
+		Matcher start() {
+			return theMatcher; // Stateless
+		}
+	}
+
+	private static class ObjectNode extends Node {
+		private final java.util.Map<String, Integer> theIndexes;
+		private final Node[] theChildren;
+
+		ObjectNode(JsonObjectElement element) {
+			super(element);
+			String[] names = element.getChildNames();
+			theIndexes = new java.util.HashMap<>(names.length * 2);
+			theChildren = new Node[names.length];
+			for (int i = 0; i < names.length; i++) {
+				theIndexes.put(names[i], i);
+				theChildren[i] = compileNode(element.getChild(names[i]));
+			}
+		}
+
+		int indexOf(String name) {
+			Integer index = theIndexes.get(name);
+			return index == null ? -1 : index.intValue();
+		}
+
+		@Override
+		Matcher start() {
+			return new Matcher() {
+				private boolean[] isSeen;
+				private Matcher theChild;
+
+				@Override
+				boolean on(ParseState state, EventType type, Object arg) throws JsonSchemaException {
+					if (isSeen == null) {
+						if (type != EventType.OBJECT_START)
+							return validateOther(type, arg);
+						isSeen = new boolean[theChildren.length];
+						return false;
+					} else if (theChild != null) {
+						if (theChild.on(state, type, arg))
+							theChild = null;
+						return false;
+					}
+					switch (type) {
+					case PROPERTY:
+						int index = indexOf((String) arg);
+						if (index < 0) {
+							((JsonObjectElement) theElement).extraElement((String) arg, null);
+							theChild = new SkipMatcher();
+						} else {
+							isSeen[index] = true;
+							theChild = theChildren[index].start();
+						}
+						return false;
+					case OBJECT_END:
+						for (int i = 0; i < theChildren.length; i++) {
+							if (!isSeen[i])
+								theChildren[i].theElement.validate(null);
+						}
+						return true;
+					default:
+						throw new IllegalStateException("Unexpected " + type + " in object");
+					}
+				}
+			};
+		}
+	}
+
+	private static class SetNode extends Node {
+		private final Node theChild;
+
+		SetNode(SetElement element) {
+			super(element);
+			theChild = compileNode(element.getElementSchema());
+		}
+
+		@Override
+		Matcher start() {
+			return new Matcher() {
+				private int theSize = -1;
+				private Matcher theElementMatcher;
+
+				@Override
+				boolean on(ParseState state, EventType type, Object arg) throws JsonSchemaException {
+					if (theSize < 0) {
+						if (type != EventType.ARRAY_START)
+							return validateOther(type, arg);
+						theSize = 0;
+						return false;
+					} else if (theElementMatcher == null) {
+						SetElement set = (SetElement) theElement;
+						if (type == EventType.ARRAY_END) {
+							set.checkSize(theSize, null);
+							return true;
+						}
+						theSize++;
+						if (set.getMaxSize() >= 0 && theSize > set.getMaxSize())
+							set.checkSize(theSize, null); // Fail without waiting for the end of the array
+						theElementMatcher = theChild.start();
+					}
+					if (theElementMatcher.on(state, type, arg))
+						theElementMatcher = null;
+					return false;
+				}
+			};
+		}
+	}
+
+	private static class EnumNode extends Node {
+		private final Node[] theOptions;
+
+		EnumNode(EnumElement element) {
+			super(element);
+			JsonElement[] children = element.getChildren();
+			theOptions = new Node[children.length];
+			for (int i = 0; i < children.length; i++)
+				theOptions[i] = compileNode(children[i]);
+		}
+
+		@Override
+		Matcher start() {
+			return new Matcher() {
+				/** The matchers for each option that the value may still match */
+				private List<Matcher> theCandidates;
+				private JsonSchemaException theLastError;
+
+				@Override
+				boolean on(ParseState state, EventType type, Object arg) throws JsonSchemaException {
+					boolean first = theCandidates == null;
+					if (first) {
+						if (type == EventType.VALUE && arg == null && theElement.validate(null))
+							return true;
+						theCandidates = new ArrayList<>(theOptions.length);
+						for (Node option : theOptions)
+							theCandidates.add(option.start());
+					}
+					boolean complete = false;
+					for (int i = 0; i < theCandidates.size(); i++) {
+						try {
+							if (theCandidates.get(i).on(state, type, arg))
+								complete = true;
+						} catch (JsonSchemaException e) {
+							theLastError = e;
+							theCandidates.remove(i);
+							i--;
+						}
+					}
+					if (theCandidates.isEmpty()) {
+						// Report the error of the option that matched the longest
+						if (first)
+							throw new JsonSchemaException("Element does not match any schema option: " + describe(type, arg), theElement, arg);
+						throw theLastError;
+					}
+					return complete;
+				}
+			};
+		}
+	}
+
+	private static class CustomNode extends Node {
+		private volatile Node theTarget;
+
+		CustomNode(CustomSchemaElement element) {
+			super(element);
+		}
+
+		/** Compiles the custom schema lazily, since schemas may be recursive */
+		Node getTarget() throws JsonSchemaException {
+			Node target = theTarget;
+			if (target == null) {
+				synchronized (this) {
+					target = theTarget;
+					if (target == null) {
+						CustomSchemaElement custom = (CustomSchemaElement) theElement;
+						if (custom.getSchemaElement() == null)
+							custom.load();
+						theTarget = target = compileNode(custom.getSchemaElement());
+					}
+				}
+			}
+			return target;
+		}
+
+		@Override
+		Matcher start() {
+			return new Matcher() {
+				private Matcher theDelegate;
+
+				@Override
+				boolean on(ParseState state, EventType type, Object arg) throws JsonSchemaException {
+					if (theDelegate == null) {
+						if (type == EventType.VALUE && arg == null && theElement.validate(null))
+							return true;
+						theDelegate = getTarget().start();
+					}
+					return theDelegate.on(state, type, arg);
+				}
+			};
+		}
+	}
+
+	/** A node for an unrecognized element type, which builds the value in memory to validate it */
+	private static class MaterializingNode extends Node {
+		MaterializingNode(JsonElement element) {
+			super(element);
+		}
+
+		@Override
+		Matcher start() {
+			return new Matcher() {
+				private final SAJParser.DefaultHandler theBuilder = new SAJParser.DefaultHandler();
+				private int theDepth;
+
+				@Override
+				boolean on(ParseState state, EventType type, Object arg) throws JsonSchemaException {
+					switch (type) {
+					case OBJECT_START:
+						theDepth++;
+						theBuilder.startObject(state);
+						return false;
+					case ARRAY_START:
+						theDepth++;
+						theBuilder.startArray(state);
+						return false;
+					case PROPERTY:
+						theBuilder.startProperty(state, (String) arg);
+						return false;
+					case OBJECT_END:
+						theDepth--;
+						theBuilder.endObject(state);
+						break;
+					case ARRAY_END:
+						theDepth--;
+						theBuilder.endArray(state);
+						break;
+					case VALUE:
+						if (arg == null)
+							theBuilder.valueNull(state);
+						else if (arg instanceof String)
+							theBuilder.valueString(state, (String) arg);
+						else if (arg instanceof Number)
+							theBuilder.valueNumber(state, (Number) arg);
+						else
+							theBuilder.valueBoolean(state, ((Boolean) arg).booleanValue());
+						break;
+					}
+					if (theDepth > 0)
+						return false;
+					theElement.validate(theBuilder.finalValue());
+					return true;
+				}
+			};
+		}
+	}
+
+	/** Passes over a value that is not constrained by the schema */
+	private static class SkipMatcher extends Matcher {
+		private int theDepth;
+
+		@Override
+		boolean on(ParseState state, EventType type, Object arg) {
+			switch (type) {
+			case OBJECT_START:
+			case ARRAY_START:
+				theDepth++;
+				return false;
+			case OBJECT_END:
+			case ARRAY_END:
+				return --theDepth == 0;
+			case PROPERTY:
+				return false;
+			default:
+				return theDepth == 0;
+			}
+		}
+	}
+
+	private static String describe(EventType type, Object arg) {
+		switch (type) {
+		case OBJECT_START:
+			return "{...}";
+		case ARRAY_START:
+			return "[...]";
+		default:
+			return String.valueOf(arg);
+		}
+	}
+
+	private static class ValidatingHandler implements ParseHandler {
+		private final Node theRoot;
+		private Matcher theMatcher;
+		private boolean isComplete;
+
+		ValidatingHandler(Node root) {
+			theRoot = root;
+		}
+
+		private void on(ParseState state, EventType type, Object arg) {
+			if (isComplete)
+				throw new IllegalStateException("Content after the validated value");
+			if (theMatcher == null)
+				theMatcher = theRoot.start();
+			try {
+				if (theMatcher.on(state, type, arg)) {
+					theMatcher = null;
+					isComplete = true;
+				}
+			} catch (JsonSchemaException e) {
+				throw new SchemaViolationException(state, e);
+			}
+		}
+
+		@Override
+		public void startObject(ParseState state) {
+			on(state, EventType.OBJECT_START, null);
+		}
+
+		@Override
+		public void startProperty(ParseState state, String name) {
+			on(state, EventType.PROPERTY, name);
+		}
+
+		@Override
+		public void separator(ParseState state) {
+		}
+
+		@Override
+		public void endProperty(ParseState state, String propName) {
+		}
+
+		@Override
+		public void endObject(ParseState state) {
+			on(state, EventType.OBJECT_END, null);
+		}
+
+		@Override
+		public void startArray(ParseState state) {
+			on(state, EventType.ARRAY_START, null);
+		}
+
+		@Override
+		public void endArray(ParseState state) {
+			on(state, EventType.ARRAY_END, null);
+		}
+
+		@Override
+		public void valueString(ParseState state, Reader value) throws IOException {
+			StringBuilder str = new StringBuilder();
+			int read = value.read();
+			while (read >= 0) {
+				str.append((char) read);
+				read = value.read();
+			}
+			valueString(state, str.toString());
+		}
+
+		@Override
+		public void valueString(ParseState state, String value) {
+			on(state, EventType.VALUE, value);
+		}
+
+		@Override
+		public void valueNumber(ParseState state, Number value) {
+			on(state, EventType.VALUE, value);
+		}
+
+		@Override
+		public void valueBoolean(ParseState state, boolean value) {
+			on(state, EventType.VALUE, Boolean.valueOf(value));
+		}
+
+		@Override
+		public void valueNull(ParseState state) {
+			on(state, EventType.VALUE, null);
+		}
+
+		@Override
+		public void whiteSpace(ParseState state, String ws) {
+		}
+
+		@Override
+		public void comment(ParseState state, String fullComment, String content) {
+		}
+
+		@Override
+		public Object finalValue() {
+			return null;
+		}
+
+		@Override
+		public void error(ParseState state, String error) {
+		}
+	}
+}
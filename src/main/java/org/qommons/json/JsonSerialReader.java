@@ -347,6 +347,16 @@ public class JsonSerialReader {
 
 		private Reader theStringReader;
 
+		private boolean isCapturingNumbers;
+
+		private boolean hasNumber;
+
+		private boolean isIntegral;
+
+		private long theLongValue;
+
+		private double theDoubleValue;
+
 		/**
 		 * @param mode The mode that this handler should be in:
 		 *        <ul>
@@ -367,6 +377,14 @@ public class JsonSerialReader {
 			isStringAsReader = stringAsReader;
 		}
 
+		/**
+		 * @param capture Whether, when numbers are parsed by a {@link Utf8JsonTokenizer}, to store them as primitives for retrieval via
+		 *        {@link #getLongValue()} or {@link #getDoubleValue()} instead of boxing them as a value
+		 */
+		public void setCapturingNumbers(boolean capture) {
+			isCapturingNumbers = capture;
+		}
+
 		/** @return The mode that this handler is in */
 		public Boolean getMode() {
 			return theMode;
@@ -392,6 +410,26 @@ public class JsonSerialReader {
 			return isNull;
 		}
 
+		/** @return Whether the last parsed entity was a number {@link #setCapturingNumbers(boolean) captured} as a primitive */
+		public boolean hasNumber() {
+			return hasNumber;
+		}
+
+		/** @return Whether the last {@link #setCapturingNumbers(boolean) captured} number was an integer */
+		public boolean isIntegral() {
+			return isIntegral;
+		}
+
+		/** @return The value of the last {@link #setCapturingNumbers(boolean) captured} integer */
+		public long getLongValue() {
+			return theLongValue;
+		}
+
+		/** @return The value of the last {@link #setCapturingNumbers(boolean) captured} number */
+		public double getDoubleValue() {
+			return isIntegral ? theLongValue : theDoubleValue;
+		}
+
 		/** @return The reader for the string just encountered */
 		public Reader getString() {
 			return theStringReader;
@@ -412,6 +450,7 @@ public class JsonSerialReader {
 			isWhitespace = false;
 			isComment = false;
 			isNull = false;
+			hasNumber = false;
 			theContent = null;
 			theFullComment = null;
 			theStringReader = null;
@@ -471,6 +510,18 @@ public class JsonSerialReader {
 			}
 		}
 
+		@Override
+		public void valueString(ParseState state, String value) {
+			if (theMode != null) {
+				clearNonContent();
+				if (isStringAsReader) {
+					theStringReader = new java.io.StringReader(value);
+					super.valueString(state, "");
+				} else
+					super.valueString(state, value);
+			}
+		}
+
 		@Override
 		public void valueNumber(ParseState state, Number value) {
 			if (theMode != null) {
@@ -479,6 +530,34 @@ public class JsonSerialReader {
 			}
 		}
 
+		@Override
+		public void valueLong(ParseState state, long value) {
+			if (isCapturingNumbers && theMode != null) {
+				clearNonContent();
+				hasNumber = true;
+				isIntegral = true;
+				theLongValue = value;
+			} else
+				super.valueLong(state, value);
+		}
+
+		@Override
+		public void valueDouble(ParseState state, double value) {
+			if (isCapturingNumbers && theMode != null) {
+				clearNonContent();
+				hasNumber = true;
+				isIntegral = false;
+				theDoubleValue = value;
+			} else
+				super.valueDouble(state, value);
+		}
+
+		@Override
+		public void valueRawNumber(ParseState state, SAJParser.RawNumber value) throws ParseException {
+			if (theMode != null)
+				super.valueRawNumber(state, value);
+		}
+
 		@Override
 		public void valueBoolean(ParseState state, boolean value) {
 			if (theMode != null) {
@@ -539,6 +618,11 @@ public class JsonSerialReader {
 	 */
 	public static final Object NULL = new Object();
 
+	/** Returned internally when a number has been captured as a primitive in the handler */
+	private static final Object CAPTURED_NUMBER = new Object();
+
+	private static final PrimitiveItem CAPTURED_NUMBER_ITEM = new PrimitiveItem(CAPTURED_NUMBER);
+
 	private SAJParser theParser;
 
 	private ToggleHandler theHandler;
@@ -562,6 +646,38 @@ public class JsonSerialReader {
 		theState = new SAJParser.ParseState(reader, theHandler);
 	}
 
+	/**
+	 * Creates a serial reader that reads UTF-8 bytes from a stream in large blocks. White space is not reported by readers created this way.
+	 * 
+	 * @param input The input stream to parse the JSON from
+	 * @see Utf8JsonTokenizer
+	 */
+	public JsonSerialReader(java.io.InputStream input) {
+		this(new Utf8JsonTokenizer(input, Utf8JsonTokenizer.DEFAULT_BUFFER_SIZE));
+	}
+
+	/**
+	 * Creates a serial reader that reads the remaining UTF-8 bytes in a buffer. The buffer's position is not modified. White space is not
+	 * reported by readers created this way.
+	 * 
+	 * @param buffer The buffer to parse the JSON from
+	 * @see Utf8JsonTokenizer
+	 */
+	public JsonSerialReader(java.nio.ByteBuffer buffer) {
+		this(new Utf8JsonTokenizer(buffer));
+	}
+
+	/**
+	 * Creates a serial reader
+	 * 
+	 * @param tokenizer The tokenizer to parse the JSON from
+	 */
+	public JsonSerialReader(Utf8JsonTokenizer tokenizer) {
+		theParser = new SAJParser();
+		theHandler = new ToggleHandler();
+		theState = new SAJParser.ParseState(tokenizer, theHandler);
+	}
+
 	/** @return The current state of parsing */
 	public ParseState getState() {
 		return theState;
@@ -603,10 +719,12 @@ public class JsonSerialReader {
 				if (!theParser.parseNext(theState))
 					return null;
 			} while (jsonOnly && (top == theState.top() || theHandler.isSeparator()) && theHandler.finalValue() == preValue
-				&& !theHandler.isNull());
+				&& !theHandler.isNull() && !theHandler.hasNumber());
 
 			if (theHandler.isNull())
 				return new PrimitiveItem(null);
+			else if (theHandler.hasNumber())
+				return CAPTURED_NUMBER_ITEM;
 			else if (theHandler.getString() != null) {
 				if (stringAsReader)
 					return new PrimitiveItem(theHandler.getString());
@@ -716,6 +834,8 @@ public class JsonSerialReader {
 			return null; // End of the object
 		if (theState.top() == null || (theState.top().token != ParseToken.OBJECT && theState.top().token != ParseToken.PROPERTY))
 			throw new IllegalStateException("The current state is not in an object.");
+		if (isSkipping() && theState.top().token == ParseToken.PROPERTY && !theState.top().hasContent())
+			theParser.skipValue(theState); // Skip the value of the current property without parsing it
 		JsonParseItem item;
 		do {
 			item = getNextItem(true, false, true);
@@ -773,6 +893,14 @@ public class JsonSerialReader {
 			for (int i = 0; i < state.getPath().length; i++)
 				if (!theState.fromTop(theState.getDepth() - i - 1).equals(state.getPath()[i]))
 					throw new IllegalArgumentException(state + " has already been parsed past");
+			if (isSkipping()) {
+				theLastEnded = null;
+				theLastState = null;
+				needsPastSep = false;
+				while (theState.getDepth() >= state.getPath().length)
+					ret = theParser.skipToEnd(theState);
+				return ret;
+			}
 			// Parse to the level of the object that the state points to
 			while (theState.getDepth() > state.getPath().length) {
 				JsonParseItem item = getNextItem(false, false, true);
@@ -794,6 +922,10 @@ public class JsonSerialReader {
 		}
 		if (theState.top() == null || (theState.top().token != ParseToken.OBJECT && theState.top().token != ParseToken.PROPERTY))
 			throw new IllegalStateException("The current state is not in an object: " + theState);
+		if (isSkipping()) {
+			needsPastSep = false;
+			return theParser.skipToEnd(theState);
+		}
 		int preDepth = theState.getDepth();
 		if (theState.top().token == ParseToken.PROPERTY)
 			preDepth--;
@@ -874,6 +1006,8 @@ public class JsonSerialReader {
 		}
 		if (theState.top() == null || theState.top().token != ParseToken.ARRAY)
 			throw new IllegalStateException("The current state is not in an array");
+		if (isSkipping())
+			return theParser.skipToEnd(theState);
 		int preDepth = theState.getDepth();
 		JsonParseItem item;
 		do {
@@ -888,6 +1022,126 @@ public class JsonSerialReader {
 		return ret;
 	}
 
+	/**
+	 * @return Whether this reader can skip over content without parsing it. This is true when parsing UTF-8 bytes, except while a value
+	 *         is being built by {@link #parseNext(boolean)}.
+	 */
+	private boolean isSkipping() {
+		return theState.getTokenizer() != null && !Boolean.TRUE.equals(theHandler.getMode());
+	}
+
+	/**
+	 * Skips the next element in an array, value of a property in an object, or value in a stream. When this reader is parsing UTF-8 bytes,
+	 * the value is skipped over without parsing its content.
+	 * 
+	 * @throws IllegalStateException If the top of this parser's state is not either an array or an object property
+	 * @throws IOException If an error occurs reading the data from the stream
+	 * @throws ParseException If the element cannot be skipped
+	 */
+	public void skipNext() throws IOException, ParseException {
+		if (!isSkipping()) {
+			parseNext(false);
+			return;
+		}
+		if (theLastEnded != null)
+			return;
+		parsePastPropertySeparator();
+		if (theState.top() != null && theState.top().token != ParseToken.ARRAY && theState.top().token != ParseToken.PROPERTY)
+			throw new IllegalStateException("The current state is not an array or object property");
+		theParser.skipValue(theState);
+		needsPastSep = true;
+	}
+
+	/**
+	 * Parses through the start of the next element in an array, value of a property in an object, or value in a stream, without building
+	 * any structure. If the value is an object or array, its content may then be parsed with the other methods of this reader, e.g.
+	 * {@link #getNextProperty()} or {@link #endObject(StructState) endObject(null)}.
+	 *
+	 * @return The first item of the next value. This will be either an {@link ObjectItem} or {@link ArrayItem} that
+	 *         {@link StructItem#isBegin() begins} the value, or a {@link PrimitiveItem} whose value is a String, Boolean, or null. Numbers must
+	 *         be retrieved with {@link #longValue(PrimitiveItem)} or {@link #doubleValue(PrimitiveItem)}, since when parsing UTF-8 bytes they
+	 *         are not boxed. Returns null if the current array has no more elements or the content is exhausted.
+	 * @throws IllegalStateException If the top of this parser's state is not either an array or an object property
+	 * @throws IOException If an error occurs reading the data from the stream
+	 * @throws ParseException If the value cannot be parsed
+	 */
+	public JsonContentItem startValue() throws IOException, ParseException {
+		if (theLastEnded != null)
+			return null;
+		parsePastPropertySeparator();
+		if (theState.top() != null && theState.top().token != ParseToken.ARRAY && theState.top().token != ParseToken.PROPERTY)
+			throw new IllegalStateException("The current state is not an array or object property");
+		JsonParseItem item;
+		theHandler.setCapturingNumbers(true);
+		try {
+			item = getNextItem(true, false, true);
+		} finally {
+			theHandler.setCapturingNumbers(false);
+		}
+		if (item instanceof PrimitiveItem) {
+			needsPastSep = true;
+			return (PrimitiveItem) item;
+		} else if (item instanceof StructItem && ((StructItem) item).isBegin())
+			return (StructItem) item;
+		else
+			return null;
+	}
+
+	/**
+	 * @param item The primitive item returned from {@link #startValue()}
+	 * @return Whether the item is a number
+	 */
+	public static boolean isNumber(PrimitiveItem item) {
+		return item == CAPTURED_NUMBER_ITEM || item.getValue() instanceof Number;
+	}
+
+	/**
+	 * @param item The primitive item returned from {@link #startValue()}
+	 * @return The integer value of the item
+	 * @throws IllegalStateException If the item is not an integer
+	 */
+	public long longValue(PrimitiveItem item) {
+		if (item == CAPTURED_NUMBER_ITEM) {
+			if (!theHandler.isIntegral())
+				throw new IllegalStateException("Value is a double, not an integer");
+			return theHandler.getLongValue();
+		} else if (item.getValue() instanceof Integer || item.getValue() instanceof Long)
+			return ((Number) item.getValue()).longValue();
+		else
+			throw new IllegalStateException("Value is a " + getType(item.getValue()) + ", not an integer");
+	}
+
+	/**
+	 * @param item The primitive item returned from {@link #startValue()}
+	 * @return The value of the item, which may be an integer or a floating-point number
+	 * @throws IllegalStateException If the item is not a number
+	 */
+	public double doubleValue(PrimitiveItem item) {
+		if (item == CAPTURED_NUMBER_ITEM)
+			return theHandler.getDoubleValue();
+		else if (item.getValue() instanceof Number)
+			return ((Number) item.getValue()).doubleValue();
+		else
+			throw new IllegalStateException("Value is a " + getType(item.getValue()) + ", not a number");
+	}
+
+	/**
+	 * @return The first character of the next value, or the closing bracket of the current structure if it has no more values, or -1 if
+	 *         the content is exhausted. Separators before the value are parsed.
+	 * @throws IOException If an error occurs reading the data from the stream
+	 * @throws ParseException If the content cannot be parsed
+	 */
+	int peekValue() throws IOException, ParseException {
+		parsePastPropertySeparator();
+		Utf8JsonTokenizer tokenizer = theState.getTokenizer();
+		int next = tokenizer.peek(theParser.allowsComments());
+		while (next == ',' || next == ':') {
+			theParser.parseNext(theState);
+			next = tokenizer.peek(theParser.allowsComments());
+		}
+		return next;
+	}
+
 	/**
 	 * Parses the next element in an array, value of a property in an object, or value in a stream
 	 * 
@@ -1081,8 +1335,13 @@ public class JsonSerialReader {
 	 * @throws ParseException If the next element cannot be parsed
 	 */
 	public int parseInt() throws IOException, ParseException {
-		Object ret = parseNext(false);
-		if (ret == null)
+		Object ret = parseNextNumber();
+		if (ret == CAPTURED_NUMBER) {
+			long value = theHandler.getLongValue();
+			if (!theHandler.isIntegral() || value < -Integer.MAX_VALUE || value > Integer.MAX_VALUE)
+				throw new IllegalStateException("Next element is a " + getCapturedType() + ", not an integer");
+			return (int) value;
+		} else if (ret == null)
 			throw new IllegalStateException("No more elements in array");
 		else if (!(ret instanceof Integer))
 			throw new IllegalStateException("Next element is a " + getType(ret) + ", not an integer");
@@ -1100,8 +1359,12 @@ public class JsonSerialReader {
 	 * @throws ParseException If the next element cannot be parsed
 	 */
 	public long parseLong() throws IOException, ParseException {
-		Object ret = parseNext(false);
-		if (ret == null)
+		Object ret = parseNextNumber();
+		if (ret == CAPTURED_NUMBER) {
+			if (!theHandler.isIntegral())
+				throw new IllegalStateException("Next element is a " + getCapturedType() + ", not a long");
+			return theHandler.getLongValue();
+		} else if (ret == null)
 			throw new IllegalStateException("No more elements in array");
 		else if (!(ret instanceof Integer) && !(ret instanceof Long))
 			throw new IllegalStateException("Next element is a " + getType(ret) + ", not a long");
@@ -1120,8 +1383,12 @@ public class JsonSerialReader {
 	 * @throws ParseException If the next element cannot be parsed
 	 */
 	public float parseFloat() throws IOException, ParseException {
-		Object ret = parseNext(false);
-		if (ret == null)
+		Object ret = parseNextNumber();
+		if (ret == CAPTURED_NUMBER) {
+			if (theHandler.isIntegral())
+				throw new IllegalStateException("Next element is a " + getCapturedType() + ", not a float");
+			return (float) theHandler.getDoubleValue();
+		} else if (ret == null)
 			throw new IllegalStateException("No more elements in array");
 		else if (!(ret instanceof Float) && !(ret instanceof Double))
 			throw new IllegalStateException("Next element is a " + getType(ret) + ", not a float");
@@ -1140,8 +1407,12 @@ public class JsonSerialReader {
 	 * @throws ParseException If the next element cannot be parsed
 	 */
 	public double parseDouble() throws IOException, ParseException {
-		Object ret = parseNext(false);
-		if (ret == null)
+		Object ret = parseNextNumber();
+		if (ret == CAPTURED_NUMBER) {
+			if (theHandler.isIntegral())
+				throw new IllegalStateException("Next element is a " + getCapturedType() + ", not a double");
+			return theHandler.getDoubleValue();
+		} else if (ret == null)
 			throw new IllegalStateException("No more elements in array");
 		else if (!(ret instanceof Float) && !(ret instanceof Double))
 			throw new IllegalStateException("Next element is a " + getType(ret) + ", not a double");
@@ -1185,6 +1456,26 @@ public class JsonSerialReader {
 			throw new IllegalStateException("Next element is a " + getType(ret) + ", not null");
 	}
 
+	/**
+	 * Same as {@link #parseNext(boolean)}, but if this reader is parsing UTF-8 bytes and the next value is a plain number, the number is
+	 * captured as a primitive in the handler without boxing and {@link #CAPTURED_NUMBER} is returned
+	 */
+	private Object parseNextNumber() throws IOException, ParseException {
+		theHandler.setCapturingNumbers(true);
+		try {
+			return parseNext(false);
+		} finally {
+			theHandler.setCapturingNumbers(false);
+		}
+	}
+
+	private String getCapturedType() {
+		if (!theHandler.isIntegral())
+			return "double";
+		long value = theHandler.getLongValue();
+		return value < -Integer.MAX_VALUE || value > Integer.MAX_VALUE ? "long" : "integer";
+	}
+
 	/**
 	 * @param item The JSON item to describe
 	 * @return The name of the JSON item's type
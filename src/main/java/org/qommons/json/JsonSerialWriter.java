@@ -72,6 +72,31 @@ public interface JsonSerialWriter
 	 */
 	public JsonSerialWriter writeNumber(Number value) throws IOException;
 
+	/**
+	 * Writes an integer value. By default, this method boxes the value and passes it to {@link #writeNumber(Number)}.
+	 *
+	 * @param value The number to write
+	 * @return This writer, for chaining
+	 * @throws IOException If an error occurs creating the data
+	 */
+	default JsonSerialWriter writeNumber(long value) throws IOException {
+		if (value >= -Integer.MAX_VALUE && value <= Integer.MAX_VALUE)
+			return writeNumber(Integer.valueOf((int) value));
+		else
+			return writeNumber(Long.valueOf(value));
+	}
+
+	/**
+	 * Writes a floating-point value. By default, this method boxes the value and passes it to {@link #writeNumber(Number)}.
+	 *
+	 * @param value The number to write
+	 * @return This writer, for chaining
+	 * @throws IOException If an error occurs creating the data
+	 */
+	default JsonSerialWriter writeNumber(double value) throws IOException {
+		return writeNumber(Double.valueOf(value));
+	}
+
 	/**
 	 * Writes a boolean value
 	 * 
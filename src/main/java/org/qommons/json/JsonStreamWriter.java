@@ -2,14 +2,57 @@
 package org.qommons.json;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 import org.qommons.json.SAJParser.ParseNode;
 import org.qommons.json.SAJParser.ParseToken;
 
-/** Writes JSON content to a stream */
+/**
+ * <p>
+ * Writes JSON content to a stream.
+ * </p>
+ * <p>
+ * Content may be written as characters to a {@link java.io.Writer} or as UTF-8 bytes to an {@link OutputStream} or
+ * {@link WritableByteChannel}. When writing bytes, content is escaped and encoded directly into a reusable buffer which is written to the
+ * stream when it fills, so no intermediate Strings are created for names, strings, or primitive numbers.
+ * </p>
+ */
 public class JsonStreamWriter implements JsonSerialWriter {
+	/** The default size of the buffer used when writing bytes */
+	public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+	/** For each ASCII character, the character to write after the '\' to escape it, or 0 if the character need not be escaped */
+	private static final byte[] ESCAPES;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	static {
+		ESCAPES = new byte[0x80];
+		for(char ch = 0; ch < ESCAPES.length; ch++) {
+			int esc = needsEscape(ch);
+			if(esc >= 0)
+				ESCAPES[ch] = (byte) esc;
+		}
+	}
+
 	private final java.io.Writer theWriter;
 
+	private final OutputStream theOutput;
+
+	private final WritableByteChannel theChannel;
+
+	private final byte[] theBytes;
+
+	private final ByteBuffer theByteWrapper;
+
+	private int theByteCount;
+
+	/** A high surrogate at the end of the last content encoded, waiting for its low surrogate */
+	private char theHighSurrogate;
+
+	private final char[] theDigits;
+
 	private java.util.ArrayList<ParseNode> thePath;
 
 	private StringBuilder theSB;
@@ -89,24 +132,86 @@ public class JsonStreamWriter implements JsonSerialWriter {
 	 * @param writer The writer to write the JSON content to
 	 */
 	public JsonStreamWriter(java.io.Writer writer) {
+		this(writer, null, null, 0);
+	}
+
+	/**
+	 * @param out The stream to write the JSON content to, as UTF-8 bytes
+	 */
+	public JsonStreamWriter(OutputStream out) {
+		this(out, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param out The stream to write the JSON content to, as UTF-8 bytes
+	 * @param bufferSize The size of the buffer to accumulate bytes in before writing them to the stream
+	 */
+	public JsonStreamWriter(OutputStream out, int bufferSize) {
+		this(null, out, null, bufferSize);
+	}
+
+	/**
+	 * @param channel The channel to write the JSON content to, as UTF-8 bytes
+	 */
+	public JsonStreamWriter(WritableByteChannel channel) {
+		this(channel, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param channel The channel to write the JSON content to, as UTF-8 bytes
+	 * @param bufferSize The size of the buffer to accumulate bytes in before writing them to the channel
+	 */
+	public JsonStreamWriter(WritableByteChannel channel, int bufferSize) {
+		this(null, null, channel, bufferSize);
+	}
+
+	private JsonStreamWriter(java.io.Writer writer, OutputStream out, WritableByteChannel channel, int bufferSize) {
+		if(writer == null && out == null && channel == null)
+			throw new NullPointerException();
 		theWriter = writer;
+		theOutput = out;
+		theChannel = channel;
+		if(writer == null) {
+			theBytes = new byte[Math.max(bufferSize, 32)];
+			theByteWrapper = channel == null ? null : ByteBuffer.wrap(theBytes);
+		} else {
+			theBytes = null;
+			theByteWrapper = null;
+		}
+		theDigits = new char[24];
 		thePath = new java.util.ArrayList<>();
 		theSB = new StringBuilder();
 		isUnicodeEncoded = true;
 	}
 
 	/**
-	 * @return The stream writer that this JSON writer writes to
+	 * @return The stream writer that this JSON writer writes to, or null if this writer writes UTF-8 bytes to an {@link OutputStream} or
+	 *         {@link WritableByteChannel}
 	 */
 	public java.io.Writer getWriter() {
 		return theWriter;
 	}
 
+	/**
+	 * Writes all content buffered in this writer to the underlying stream and flushes it
+	 *
+	 * @throws IOException If an error occurs writing to the stream
+	 */
+	public void flush() throws IOException {
+		if(theWriter != null)
+			theWriter.flush();
+		else {
+			flushBytes();
+			if(theOutput != null)
+				theOutput.flush();
+		}
+	}
+
 	@Override
 	public JsonSerialWriter startObject() throws IOException {
 		content(ParseToken.OBJECT);
 		thePath.add(new ParseNode(ParseToken.OBJECT));
-		theWriter.write('{');
+		out('{');
 		return this;
 	}
 
@@ -146,7 +251,7 @@ public class JsonStreamWriter implements JsonSerialWriter {
 		switch (top.token) {
 		case OBJECT:
 			if(top.hasContent())
-				theWriter.write(',');
+				out(',');
 			else
 				top.setHasContent();
 			break;
@@ -154,38 +259,26 @@ public class JsonStreamWriter implements JsonSerialWriter {
 			throw new IllegalStateException("No properties allowed in array");
 		case PROPERTY:
 			if(!top.hasContent())
-				theWriter.write("null");
+				out("null");
 			pop();
-			theWriter.write(',');
+			out(',');
 			break;
 		}
 		writeLine();
-		if(isUnicodeEncoded)
-			name = org.qommons.QommonsUtils.encodeUnicode(name);
-		theSB.append(name);
 		boolean quoted = useFormalJson;
-		if(!quoted) {
-			for(int c = 0; c < name.length(); c++) {
-				char ch = name.charAt(c);
-				if(SAJParser.isWhiteSpace(ch) || SAJParser.isSyntax(ch))
-					quoted = true;
-				int esc = needsEscape(ch);
-				if(esc >= 0) {
-					theSB.insert(c, '\\');
-					c++;
-					theSB.setCharAt(c, (char) esc);
-				}
-			}
+		for(int c = 0; !quoted && c < name.length(); c++) {
+			char ch = name.charAt(c);
+			if(SAJParser.isWhiteSpace(ch) || SAJParser.isSyntax(ch) || needsEscape(ch) >= 0)
+				quoted = true;
 		}
-		if(quoted) {
-			theSB.insert(0, '"');
-			theSB.append('"');
-		}
-		theSB.append(':');
+		if(quoted)
+			out('"');
+		outEscaped(name, 0, name.length(), true);
+		if(quoted)
+			out('"');
+		out(':');
 		if(theFormatIndent != null)
-			theSB.append(' ');
-		theWriter.write(theSB.toString());
-		theSB.setLength(0);
+			out(' ');
 		thePath.add(new ParseNode(ParseToken.PROPERTY));
 		return this;
 	}
@@ -201,13 +294,13 @@ public class JsonStreamWriter implements JsonSerialWriter {
 			throw new IllegalStateException("Can't end object--top item is an array");
 		case PROPERTY:
 			if(!top.hasContent())
-				theWriter.write("null");
+				out("null");
 			pop();
 			break;
 		}
 		pop();
 		writeLine();
-		theWriter.write('}');
+		out('}');
 		return this;
 	}
 
@@ -215,7 +308,7 @@ public class JsonStreamWriter implements JsonSerialWriter {
 	public JsonSerialWriter startArray() throws IOException {
 		content(ParseToken.ARRAY);
 		thePath.add(new ParseNode(ParseToken.ARRAY));
-		theWriter.write('[');
+		out('[');
 		return this;
 	}
 
@@ -235,7 +328,7 @@ public class JsonStreamWriter implements JsonSerialWriter {
 		}
 		pop();
 		writeLine();
-		theWriter.write(']');
+		out(']');
 		return this;
 	}
 
@@ -246,23 +339,10 @@ public class JsonStreamWriter implements JsonSerialWriter {
 			writeNull();
 			return this;
 		}
-		theSB.append(value);
-		for(int c = 0; c < theSB.length(); c++) {
-			char ch = theSB.charAt(c);
-			int esc = needsEscape(ch);
-			if(esc >= 0) {
-				theSB.insert(c, '\\');
-				c++;
-				theSB.setCharAt(c, (char) esc);
-			}
-		}
-		if(isUnicodeEncoded)
-			org.qommons.QommonsUtils.encodeUnicode(theSB);
-		theSB.insert(0, '"');
-		theSB.append('"');
 		content(null);
-		theWriter.write(theSB.toString());
-		theSB.setLength(0);
+		out('"');
+		outEscaped(value, 0, value.length(), true);
+		out('"');
 		return this;
 	}
 
@@ -274,7 +354,7 @@ public class JsonStreamWriter implements JsonSerialWriter {
 	 */
 	public java.io.Writer writeStringAsWriter() throws IOException {
 		content(null);
-		theWriter.write('"');
+		out('"');
 		isStringOpen = true;
 		java.io.Writer ret = new java.io.Writer() {
 			@Override
@@ -295,26 +375,16 @@ public class JsonStreamWriter implements JsonSerialWriter {
 	}
 
 	void writeStringContent(char [] chars, int off, int len) throws IOException {
-		for(int i = 0; i < len; i++)
-			theSB.append(chars[off + i]);
-		for(int c = 0; c < theSB.length(); c++) {
-			char ch = theSB.charAt(c);
-			int esc = needsEscape(ch);
-			if(esc >= 0) {
-				theSB.insert(c, '\\');
-				c++;
-				theSB.setCharAt(c, (char) esc);
-			}
-		}
-		if(isUnicodeEncoded)
-			org.qommons.QommonsUtils.encodeUnicode(theSB);
-		theWriter.write(theSB.toString());
-		theSB.setLength(0);
+		// A surrogate pair may be split between calls, so the content is not complete until the string is closed
+		outEscaped(java.nio.CharBuffer.wrap(chars, off, len), 0, len, false);
 	}
 
 	void closeOpenString() throws IOException {
-		if(isStringOpen)
-			theWriter.write('"');
+		if(isStringOpen) {
+			if(theHighSurrogate != 0)
+				encode("", 0, 0, true, true);
+			out('"');
+		}
 		isStringOpen = false;
 	}
 
@@ -323,42 +393,75 @@ public class JsonStreamWriter implements JsonSerialWriter {
 		if(value == null) {
 			writeNull();
 			return this;
-		}
+		} else if(value instanceof Integer || value instanceof Long)
+			return writeNumber(value.longValue());
+		else if(value instanceof Double)
+			return writeNumber(value.doubleValue());
 		content(null);
-		boolean written = false;
-		if(!useFormalJson && (value instanceof Integer || value instanceof Long)) {
-			long val = value.longValue();
-			if(val >= 1000 || val <= -1000) {
-				written = true;
-				if(val < 0) {
-					theSB.append('-');
-					val = -val;
-				}
-				theSB.append('0');
-				theSB.append('x');
-				theSB.append(Long.toHexString(val));
-				theWriter.write(theSB.toString());
-			}
-		}
-		if(!written) {
+		theSB.append(value);
+		out(theSB);
+		theSB.setLength(0);
+		return this;
+	}
+
+	@Override
+	public JsonSerialWriter writeNumber(long value) throws IOException {
+		content(null);
+		writeDigits(value, !useFormalJson && (value >= 1000 || value <= -1000));
+		return this;
+	}
+
+	@Override
+	public JsonSerialWriter writeNumber(double value) throws IOException {
+		content(null);
+		// Double.toString() writes whole numbers in this range as the integer followed by ".0"
+		if(value == (long) value && value > -1E7 && value < 1E7 && (value != 0 || Double.doubleToRawLongBits(value) == 0)) {
+			writeDigits((long) value, false);
+			out(".0");
+		} else {
 			theSB.append(value);
-			theWriter.write(theSB.toString());
+			out(theSB);
+			theSB.setLength(0);
 		}
-		theSB.setLength(0);
 		return this;
 	}
 
+	private void writeDigits(long value, boolean hex) throws IOException {
+		char[] digits = theDigits;
+		int pos = digits.length;
+		if(hex) {
+			// Unsigned, so that Long.MIN_VALUE is written correctly
+			long val = value < 0 ? -value : value;
+			do {
+				digits[--pos] = HEX_DIGITS[(int) (val & 0xf)];
+				val >>>= 4;
+			} while(val != 0);
+			digits[--pos] = 'x';
+			digits[--pos] = '0';
+		} else {
+			// Accumulate negatively, so that Long.MIN_VALUE is written correctly
+			long val = value < 0 ? value : -value;
+			do {
+				digits[--pos] = (char) ('0' - (val % 10));
+				val /= 10;
+			} while(val != 0);
+		}
+		if(value < 0)
+			digits[--pos] = '-';
+		out(digits, pos, digits.length - pos);
+	}
+
 	@Override
 	public JsonSerialWriter writeBoolean(boolean value) throws IOException {
 		content(null);
-		theWriter.write(value ? "true" : "false");
+		out(value ? "true" : "false");
 		return this;
 	}
 
 	@Override
 	public JsonSerialWriter writeNull() throws IOException {
 		content(null);
-		theWriter.write("null");
+		out("null");
 		return this;
 	}
 
@@ -369,6 +472,8 @@ public class JsonStreamWriter implements JsonSerialWriter {
 	 */
 	public void writeCustomValue() throws IOException {
 		content(null);
+		if(theBytes != null)
+			flushBytes();
 	}
 
 	/**
@@ -394,38 +499,38 @@ public class JsonStreamWriter implements JsonSerialWriter {
 			hasLine = false;
 		}
 		if(!block) {
-			theWriter.write("// ");
-			theWriter.write(comment);
+			out("// ");
+			out(comment);
 			writeLine();
 		} else if(!hasLine) {
-			theWriter.write("/* ");
-			theWriter.write(comment);
-			theWriter.write(" */");
+			out("/* ");
+			out(comment);
+			out(" */");
 			writeLine();
 		} else {
-			theWriter.write("/*");
+			out("/*");
 			writeLine();
 			int lineIdx = comment.indexOf('\n');
 			while(lineIdx >= 0) {
-				theWriter.write(" *");
-				theWriter.write(comment.substring(0, lineIdx));
+				out(" *");
+				out(comment.substring(0, lineIdx));
 				writeLine();
 				comment = comment.substring(lineIdx + 1);
 				lineIdx = comment.indexOf('\n');
 			}
 			if(comment.length() > 0) {
-				theWriter.write(" * ");
-				theWriter.write(comment);
+				out(" * ");
+				out(comment);
 				writeLine();
 			}
-			theWriter.write(" */");
+			out(" */");
 			writeLine();
 		}
 	}
 
 	/**
 	 * Finishes writing the JSON content that has been started. This method does NOT flush or close the underlying stream. It merely
-	 * finishes writing JSON data that may have been opened but not closed.
+	 * finishes writing JSON data that may have been opened but not closed, and writes any buffered bytes to the stream.
 	 *
 	 * @throws IOException If an error occurs writing to the stream
 	 */
@@ -446,6 +551,8 @@ public class JsonStreamWriter implements JsonSerialWriter {
 			}
 			top = top();
 		}
+		if(theBytes != null)
+			flushBytes();
 	}
 
 	private void content(ParseToken token) throws IOException {
@@ -457,7 +564,7 @@ public class JsonStreamWriter implements JsonSerialWriter {
 				throw new IllegalStateException("Property name missing in object");
 			case ARRAY:
 				if(top.hasContent())
-					theWriter.write(',');
+					out(',');
 				top.setHasContent();
 				if(token == null)
 					writeLine();
@@ -472,13 +579,152 @@ public class JsonStreamWriter implements JsonSerialWriter {
 		if(theFormatIndent == null)
 			return;
 		theLineNumber++;
-		theSB.append('\n');
+		out('\n');
 		for(int i = 0; i < getDepth(); i++)
-			theSB.append(theFormatIndent);
+			out(theFormatIndent);
+	}
+
+	private void out(char ch) throws IOException {
+		if(theBytes == null)
+			theWriter.write(ch);
+		else {
+			if(theByteCount == theBytes.length)
+				flushBytes();
+			theBytes[theByteCount++] = (byte) ch;
+		}
+	}
+
+	/** Writes ASCII characters */
+	private void out(char[] chars, int offset, int length) throws IOException {
+		if(theBytes == null)
+			theWriter.write(chars, offset, length);
+		else {
+			if(theByteCount + length > theBytes.length)
+				flushBytes();
+			for(int i = 0; i < length; i++)
+				theBytes[theByteCount++] = (byte) chars[offset + i];
+		}
+	}
+
+	/** Writes content that does not need escaping */
+	private void out(CharSequence str) throws IOException {
+		if(theBytes == null)
+			theWriter.append(str);
+		else
+			encode(str, 0, str.length(), false, true);
+	}
+
+	/**
+	 * Writes the content of a string or property name, escaping characters as needed
+	 *
+	 * @param str The sequence containing the content to write
+	 * @param start The index of the first character to write
+	 * @param end The index after the last character to write
+	 * @param complete Whether the content is complete, i.e. whether a high surrogate at the end of the content is unpaired
+	 * @throws IOException If an error occurs writing to the stream
+	 */
+	private void outEscaped(CharSequence str, int start, int end, boolean complete) throws IOException {
+		if(theBytes != null) {
+			encode(str, start, end, true, complete);
+			return;
+		}
+		for(int c = start; c < end; c++) {
+			char ch = str.charAt(c);
+			int esc = ch < 0x80 ? ESCAPES[ch] : (ch == '\u2044' ? '/' : 0);
+			if(esc != 0)
+				theSB.append('\\').append((char) esc);
+			else if(ch >= 0x80 && isUnicodeEncoded)
+				theSB.append('\\').append('u').append(HEX_DIGITS[ch >>> 12]).append(HEX_DIGITS[(ch >>> 8) & 0xf])
+					.append(HEX_DIGITS[(ch >>> 4) & 0xf]).append(HEX_DIGITS[ch & 0xf]);
+			else
+				theSB.append(ch);
+		}
 		theWriter.write(theSB.toString());
 		theSB.setLength(0);
 	}
 
+	/** Encodes characters as UTF-8 into the byte buffer, escaping them as needed */
+	private void encode(CharSequence str, int start, int end, boolean escape, boolean complete) throws IOException {
+		byte[] bytes = theBytes;
+		int count = theByteCount;
+		for(int c = start; c < end; c++) {
+			// Each character may take up to 6 bytes (a unicode escape)
+			if(count > bytes.length - 6) {
+				theByteCount = count;
+				flushBytes();
+				count = 0;
+			}
+			char ch = str.charAt(c);
+			if(theHighSurrogate != 0) {
+				char high = theHighSurrogate;
+				theHighSurrogate = 0;
+				if(Character.isLowSurrogate(ch)) {
+					int cp = Character.toCodePoint(high, ch);
+					bytes[count++] = (byte) (0xf0 | (cp >>> 18));
+					bytes[count++] = (byte) (0x80 | ((cp >>> 12) & 0x3f));
+					bytes[count++] = (byte) (0x80 | ((cp >>> 6) & 0x3f));
+					bytes[count++] = (byte) (0x80 | (cp & 0x3f));
+					continue;
+				}
+				bytes[count++] = '?';
+			}
+			if(ch < 0x80) {
+				byte esc = escape ? ESCAPES[ch] : 0;
+				if(esc == 0)
+					bytes[count++] = (byte) ch;
+				else {
+					bytes[count++] = '\\';
+					bytes[count++] = esc;
+				}
+			} else if(escape && ch == '\u2044') {
+				bytes[count++] = '\\';
+				bytes[count++] = '/';
+			} else if(escape && isUnicodeEncoded) {
+				bytes[count++] = '\\';
+				bytes[count++] = 'u';
+				bytes[count++] = (byte) HEX_DIGITS[ch >>> 12];
+				bytes[count++] = (byte) HEX_DIGITS[(ch >>> 8) & 0xf];
+				bytes[count++] = (byte) HEX_DIGITS[(ch >>> 4) & 0xf];
+				bytes[count++] = (byte) HEX_DIGITS[ch & 0xf];
+			} else if(ch < 0x800) {
+				bytes[count++] = (byte) (0xc0 | (ch >>> 6));
+				bytes[count++] = (byte) (0x80 | (ch & 0x3f));
+			} else if(Character.isHighSurrogate(ch))
+				theHighSurrogate = ch;
+			else if(Character.isLowSurrogate(ch))
+				bytes[count++] = '?';
+			else {
+				bytes[count++] = (byte) (0xe0 | (ch >>> 12));
+				bytes[count++] = (byte) (0x80 | ((ch >>> 6) & 0x3f));
+				bytes[count++] = (byte) (0x80 | (ch & 0x3f));
+			}
+		}
+		if(complete && theHighSurrogate != 0) {
+			theHighSurrogate = 0;
+			if(count == bytes.length) {
+				theByteCount = count;
+				flushBytes();
+				count = 0;
+			}
+			bytes[count++] = '?';
+		}
+		theByteCount = count;
+	}
+
+	private void flushBytes() throws IOException {
+		if(theByteCount == 0)
+			return;
+		if(theOutput != null)
+			theOutput.write(theBytes, 0, theByteCount);
+		else {
+			theByteWrapper.clear();
+			theByteWrapper.limit(theByteCount);
+			while(theByteWrapper.hasRemaining())
+				theChannel.write(theByteWrapper);
+		}
+		theByteCount = 0;
+	}
+
 	/**
 	 * @return The current depth of the content being written
 	 */
@@ -0,0 +1,163 @@
+package org.qommons.json;
+
+/**
+ * <p>
+ * Canonicalizes property names for JSON parsers. Documents commonly repeat the same property names many times (e.g. an array of
+ * homogeneous objects), and without canonicalization each occurrence would be a separate String instance.
+ * </p>
+ * <p>
+ * Names can be looked up from bytes, characters, or any {@link CharSequence} without creating a String unless the name has not been seen
+ * before. The table is bounded: once it contains {@link #getMaxSize()} names, new names are returned as new Strings but not stored.
+ * </p>
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+public class JsonSymbolTable {
+	/** The default maximum number of names to store */
+	public static final int DEFAULT_MAX_SIZE = 4096;
+	/** The longest name that will be stored in the table */
+	public static final int MAX_NAME_LENGTH = 256;
+
+	private final int theMaxSize;
+	private String[] theNames;
+	private int[] theHashes;
+	private int theSize;
+
+	/** Creates a symbol table with the {@link #DEFAULT_MAX_SIZE default} maximum size */
+	public JsonSymbolTable() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/** @param maxSize The maximum number of names to store */
+	public JsonSymbolTable(int maxSize) {
+		theMaxSize = maxSize;
+		theNames = new String[64];
+		theHashes = new int[64];
+	}
+
+	/** @return The maximum number of names this table will store */
+	public int getMaxSize() {
+		return theMaxSize;
+	}
+
+	/** @return The number of names stored in this table */
+	public int size() {
+		return theSize;
+	}
+
+	/**
+	 * @param bytes The bytes containing the name, which must be all ASCII characters
+	 * @param start The start of the name in the bytes
+	 * @param length The length of the name
+	 * @return The canonical String for the name
+	 */
+	public String intern(byte[] bytes, int start, int length) {
+		if (length > MAX_NAME_LENGTH)
+			return new String(bytes, start, length, java.nio.charset.StandardCharsets.ISO_8859_1);
+		int hash = 0;
+		for (int i = 0; i < length; i++)
+			hash = hash * 31 + bytes[start + i];
+		int mask = theNames.length - 1;
+		for (int slot = spread(hash) & mask;; slot = (slot + 1) & mask) {
+			String name = theNames[slot];
+			if (name == null)
+				return add(slot, hash, new String(bytes, start, length, java.nio.charset.StandardCharsets.ISO_8859_1));
+			else if (theHashes[slot] == hash && name.length() == length) {
+				int i;
+				for (i = 0; i < length && name.charAt(i) == bytes[start + i]; i++) {}
+				if (i == length)
+					return name;
+			}
+		}
+	}
+
+	/**
+	 * @param chars The characters containing the name
+	 * @param start The start of the name in the characters
+	 * @param length The length of the name
+	 * @return The canonical String for the name
+	 */
+	public String intern(char[] chars, int start, int length) {
+		if (length > MAX_NAME_LENGTH)
+			return new String(chars, start, length);
+		int hash = 0;
+		for (int i = 0; i < length; i++)
+			hash = hash * 31 + chars[start + i];
+		int mask = theNames.length - 1;
+		for (int slot = spread(hash) & mask;; slot = (slot + 1) & mask) {
+			String name = theNames[slot];
+			if (name == null)
+				return add(slot, hash, new String(chars, start, length));
+			else if (theHashes[slot] == hash && name.length() == length) {
+				int i;
+				for (i = 0; i < length && name.charAt(i) == chars[start + i]; i++) {}
+				if (i == length)
+					return name;
+			}
+		}
+	}
+
+	/**
+	 * @param name The name to canonicalize
+	 * @return The canonical String for the name
+	 */
+	public String intern(CharSequence name) {
+		int length = name.length();
+		if (length > MAX_NAME_LENGTH)
+			return name.toString();
+		int hash = 0;
+		for (int i = 0; i < length; i++)
+			hash = hash * 31 + name.charAt(i);
+		int mask = theNames.length - 1;
+		for (int slot = spread(hash) & mask;; slot = (slot + 1) & mask) {
+			String stored = theNames[slot];
+			if (stored == null)
+				return add(slot, hash, name.toString());
+			else if (theHashes[slot] == hash && stored.length() == length) {
+				int i;
+				for (i = 0; i < length && stored.charAt(i) == name.charAt(i); i++) {}
+				if (i == length)
+					return stored;
+			}
+		}
+	}
+
+	/** Removes all names from this table */
+	public void clear() {
+		java.util.Arrays.fill(theNames, null);
+		theSize = 0;
+	}
+
+	private String add(int slot, int hash, String name) {
+		if (theSize >= theMaxSize)
+			return name;
+		theNames[slot] = name;
+		theHashes[slot] = hash;
+		theSize++;
+		if (theSize * 2 > theNames.length)
+			rehash();
+		return name;
+	}
+
+	private void rehash() {
+		String[] oldNames = theNames;
+		int[] oldHashes = theHashes;
+		theNames = new String[oldNames.length * 2];
+		theHashes = new int[theNames.length];
+		int mask = theNames.length - 1;
+		for (int i = 0; i < oldNames.length; i++) {
+			if (oldNames[i] == null)
+				continue;
+			int slot = spread(oldHashes[i]) & mask;
+			while (theNames[slot] != null)
+				slot = (slot + 1) & mask;
+			theNames[slot] = oldNames[i];
+			theHashes[slot] = oldHashes[i];
+		}
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,311 @@
+package org.qommons.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+import org.qommons.IntList;
+import org.qommons.json.SAJParser.ParseException;
+import org.qommons.json.SAJParser.ParseHandler;
+import org.qommons.json.SAJParser.ParseState;
+
+/**
+ * <p>
+ * Parses <a href="https://github.com/ndjson/ndjson-spec">newline-delimited JSON</a> (NDJSON, a.k.a. JSON lines), where each line of the
+ * content is a separate JSON value.
+ * </p>
+ * <p>
+ * The content is split into large line-aligned chunks of UTF-8 bytes which are parsed concurrently on a {@link ForkJoinPool}. Records are
+ * always delivered to the {@link RecordHandler} on the thread that called {@code parse}, so the handler need not be thread-safe. If the
+ * parser is {@link #setOrdered(boolean) ordered} (the default), records are delivered in the order they occur in the content. Otherwise
+ * each chunk's records are delivered as soon as the chunk is parsed.
+ * </p>
+ * <p>
+ * Line numbers and offsets in {@link ParseException}s thrown by this class are relative to the start of the entire content, not the
+ * chunk.
+ * </p>
+ */
+public class NdJsonParser {
+	/** The default size of the chunks that content is split into for parsing */
+	public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	/** Receives records parsed by an {@link NdJsonParser} */
+	public interface RecordHandler {
+		/**
+		 * @param lineNumber The line number (starting at 1) of the record in the content
+		 * @param value The parsed record, as returned from the {@link ParseHandler#finalValue()} of the record's handler
+		 */
+		void record(int lineNumber, Object value);
+	}
+
+	private final ForkJoinPool thePool;
+	private int theChunkSize;
+	private boolean isOrdered;
+	private boolean allowComments;
+	private boolean useFormalJson;
+
+	/** Creates a parser that parses on the {@link ForkJoinPool#commonPool() common pool} */
+	public NdJsonParser() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/** @param pool The pool to parse content on */
+	public NdJsonParser(ForkJoinPool pool) {
+		thePool = pool;
+		theChunkSize = DEFAULT_CHUNK_SIZE;
+		isOrdered = true;
+		useFormalJson = true;
+	}
+
+	/** @return The approximate size of the chunks that content is split into for parsing */
+	public int getChunkSize() {
+		return theChunkSize;
+	}
+
+	/**
+	 * @param chunkSize The approximate size of the chunks that content is split into for parsing. Chunks will be larger than this if a
+	 *        single line is longer.
+	 */
+	public void setChunkSize(int chunkSize) {
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		theChunkSize = chunkSize;
+	}
+
+	/**
+	 * @return Whether this parser delivers records in the order they occur in the content
+	 * @see #setOrdered(boolean)
+	 */
+	public boolean isOrdered() {
+		return isOrdered;
+	}
+
+	/**
+	 * @param ordered Whether this parser should deliver records in the order they occur in the content. Unordered parsing may deliver
+	 *        records sooner and use less memory when chunks take different amounts of time to parse, but if the content is invalid, records
+	 *        after the error may be delivered before the error is thrown.
+	 */
+	public void setOrdered(boolean ordered) {
+		isOrdered = ordered;
+	}
+
+	/**
+	 * @return Whether this parser allows comments (block- and line-style)
+	 * @see SAJParser#allowsComments()
+	 */
+	public boolean allowsComments() {
+		return allowComments;
+	}
+
+	/**
+	 * @param allowed Whether this parser should allow block- and line-style comments
+	 * @see SAJParser#setAllowsComments(boolean)
+	 */
+	public void setAllowsComments(boolean allowed) {
+		allowComments = allowed;
+	}
+
+	/**
+	 * @return Whether this parser will parse its content strictly
+	 * @see SAJParser#isFormal()
+	 */
+	public boolean isFormal() {
+		return useFormalJson;
+	}
+
+	/**
+	 * @param formal Whether this parser should parse its content strictly
+	 * @see SAJParser#setFormal(boolean)
+	 */
+	public void setFormal(boolean formal) {
+		useFormalJson = formal;
+	}
+
+	/**
+	 * Parses each line of a file into {@link JsonObject}s, Lists, Strings, Numbers, Booleans, or null
+	 *
+	 * @param file The file to parse
+	 * @param records The handler to receive the parsed records
+	 * @return The number of records parsed
+	 * @throws IOException If the file could not be read
+	 * @throws ParseException If the content is not valid NDJSON
+	 */
+	public long parse(Path file, RecordHandler records) throws IOException, ParseException {
+		try (InputStream input = Files.newInputStream(file)) {
+			return parse(input, SAJParser.DefaultHandler::new, records);
+		}
+	}
+
+	/**
+	 * Parses each line of a stream into {@link JsonObject}s, Lists, Strings, Numbers, Booleans, or null
+	 *
+	 * @param input The stream of UTF-8 content to parse
+	 * @param records The handler to receive the parsed records
+	 * @return The number of records parsed
+	 * @throws IOException If the stream could not be read
+	 * @throws ParseException If the content is not valid NDJSON
+	 */
+	public long parse(InputStream input, RecordHandler records) throws IOException, ParseException {
+		return parse(input, SAJParser.DefaultHandler::new, records);
+	}
+
+	/**
+	 * Parses each line of a stream with {@link ParseHandler}s
+	 *
+	 * @param input The stream of UTF-8 content to parse
+	 * @param handlers Creates a handler for each record. This is called from the pool's threads, and each handler is only used by one
+	 *        thread. The {@link ParseHandler#finalValue() final value} of each handler is delivered to the record handler.
+	 * @param records The handler to receive the parsed records
+	 * @return The number of records parsed
+	 * @throws IOException If the stream could not be read
+	 * @throws ParseException If the content is not valid NDJSON
+	 */
+	public long parse(InputStream input, Supplier<? extends ParseHandler> handlers, RecordHandler records)
+		throws IOException, ParseException {
+		// Bound the number of chunks in memory so a fast reader does not get too far ahead of the parsers
+		int maxPending = thePool.getParallelism() * 2 + 1;
+		ArrayDeque<Chunk> pending = new ArrayDeque<>(maxPending);
+		byte[] buffer = new byte[theChunkSize];
+		int length = 0;
+		int lineNumber = 1;
+		long offset = 0;
+		boolean eof = false;
+		long count = 0;
+		try {
+			while (true) {
+				while (!eof && length < buffer.length) {
+					int read = input.read(buffer, length, buffer.length - length);
+					if (read < 0)
+						eof = true;
+					else
+						length += read;
+				}
+				if (length == 0)
+					break;
+				int end;
+				if (eof)
+					end = length;
+				else {
+					end = length;
+					while (end > 0 && buffer[end - 1] != '\n')
+						end--;
+					if (end == 0) { // A line longer than the buffer
+						buffer = Arrays.copyOf(buffer, buffer.length * 2);
+						continue;
+					}
+				}
+				Chunk chunk = new Chunk(buffer, end, lineNumber, offset, handlers);
+				for (int i = 0; i < end; i++) {
+					if (buffer[i] == '\n')
+						lineNumber++;
+				}
+				offset += end;
+				length -= end;
+				byte[] next = new byte[Math.max(theChunkSize, length)];
+				System.arraycopy(buffer, end, next, 0, length);
+				buffer = next;
+
+				pending.add(chunk);
+				thePool.execute(chunk);
+				count += deliver(pending, pending.size() >= maxPending, records);
+			}
+			while (!pending.isEmpty())
+				count += deliver(pending, true, records);
+		} finally {
+			for (Chunk chunk : pending)
+				chunk.cancel(false);
+		}
+		return count;
+	}
+
+	private long deliver(ArrayDeque<Chunk> pending, boolean block, RecordHandler records) throws ParseException {
+		long count = 0;
+		if (isOrdered) {
+			while (!pending.isEmpty() && (block || pending.getFirst().isDone())) {
+				count += pending.getFirst().deliver(records);
+				pending.removeFirst();
+				block = false;
+			}
+		} else {
+			Iterator<Chunk> iter = pending.iterator();
+			while (iter.hasNext()) {
+				Chunk chunk = iter.next();
+				if (chunk.isDone()) {
+					count += chunk.deliver(records);
+					iter.remove();
+				}
+			}
+			if (count == 0 && block && !pending.isEmpty()) {
+				count += pending.getFirst().deliver(records);
+				pending.removeFirst();
+			}
+		}
+		return count;
+	}
+
+	private class Chunk extends RecursiveAction {
+		private final byte[] theBytes;
+		private final int theLength;
+		private final int theLineNumber;
+		private final long theOffset;
+		private final Supplier<? extends ParseHandler> theHandlers;
+
+		private final List<Object> theValues;
+		private final IntList theLineNumbers;
+		private ParseException theError;
+
+		Chunk(byte[] bytes, int length, int lineNumber, long offset, Supplier<? extends ParseHandler> handlers) {
+			theBytes = bytes;
+			theLength = length;
+			theLineNumber = lineNumber;
+			theOffset = offset;
+			theHandlers = handlers;
+			theValues = new ArrayList<>();
+			theLineNumbers = new IntList();
+		}
+
+		@Override
+		protected void compute() {
+			SAJParser parser = new SAJParser();
+			parser.setAllowsComments(allowComments);
+			parser.setFormal(useFormalJson);
+			parser.setSymbolTable(new JsonSymbolTable()); // Share names between the records in the chunk
+			Utf8JsonTokenizer tokenizer = new Utf8JsonTokenizer(theBytes, 0, theLength);
+			tokenizer.setPosition(theLineNumber, theOffset, theOffset);
+			try {
+				while (tokenizer.peek(allowComments) >= 0) {
+					int lineNumber = tokenizer.getLineNumber();
+					ParseHandler handler = theHandlers.get();
+					ParseState state = new ParseState(tokenizer, handler);
+					theValues.add(parser.parse(state, handler));
+					theLineNumbers.add(lineNumber);
+					int endLine = tokenizer.getLineNumber();
+					if (tokenizer.peek(allowComments) >= 0 && tokenizer.getLineNumber() == endLine)
+						state.error("Each record must be on its own line");
+				}
+			} catch (ParseException e) {
+				theError = e;
+			} catch (IOException e) {
+				throw new IllegalStateException("IO Exception thrown from a buffer?!!", e);
+			}
+		}
+
+		long deliver(RecordHandler records) throws ParseException {
+			join();
+			for (int i = 0; i < theValues.size(); i++)
+				records.record(theLineNumbers.get(i), theValues.get(i));
+			if (theError != null)
+				throw theError;
+			return theValues.size();
+		}
+	}
+}
@@ -2,7 +2,9 @@
 package org.qommons.json;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -78,6 +80,18 @@ public class SAJParser {
 		 */
 		void valueString(ParseState state, Reader value) throws IOException;
 
+		/**
+		 * Called when a string is encountered in JSON content whose value has already been decoded in memory, e.g. by a
+		 * {@link Utf8JsonTokenizer}. By default, this method passes a reader over the value to {@link #valueString(ParseState, Reader)}.
+		 *
+		 * @param state The current parsing state
+		 * @param value The string value that was parsed
+		 * @throws IOException If an error occurs handling the string
+		 */
+		default void valueString(ParseState state, String value) throws IOException {
+			valueString(state, new java.io.StringReader(value));
+		}
+
 		/**
 		 * Called when a number is encountered in the JSON
 		 *
@@ -86,6 +100,56 @@ public class SAJParser {
 		 */
 		void valueNumber(ParseState state, Number value);
 
+		/**
+		 * Called when an integer that fits in a long is encountered in JSON content parsed with a {@link Utf8JsonTokenizer}. By default,
+		 * this method boxes the value and passes it to {@link #valueNumber(ParseState, Number)} as an {@link Integer} if its magnitude
+		 * fits in an int or a {@link Long} otherwise.
+		 *
+		 * @param state The current parsing state
+		 * @param value The integer value that was parsed
+		 */
+		default void valueLong(ParseState state, long value) {
+			if(value >= -Integer.MAX_VALUE && value <= Integer.MAX_VALUE)
+				valueNumber(state, Integer.valueOf((int) value));
+			else
+				valueNumber(state, Long.valueOf(value));
+		}
+
+		/**
+		 * Called when a floating-point number is encountered in JSON content parsed with a {@link Utf8JsonTokenizer}. By default, this
+		 * method boxes the value and passes it to {@link #valueNumber(ParseState, Number)}.
+		 *
+		 * @param state The current parsing state
+		 * @param value The floating-point value that was parsed
+		 */
+		default void valueDouble(ParseState state, double value) {
+			valueNumber(state, Double.valueOf(value));
+		}
+
+		/**
+		 * <p>
+		 * Called when a plain decimal number is encountered in JSON content parsed with a {@link Utf8JsonTokenizer}, before the number has
+		 * been decoded. Handlers that discard a value or that need its exact text (e.g. for a {@link java.math.BigDecimal}) may override
+		 * this method to avoid decoding it.
+		 * </p>
+		 * <p>
+		 * By default, this method decodes the number and passes it to {@link #valueLong(ParseState, long)} or
+		 * {@link #valueDouble(ParseState, double)}.
+		 * </p>
+		 *
+		 * @param state The current parsing state
+		 * @param value The text of the number. This object is only valid for the duration of this call.
+		 * @throws ParseException If the number is an integer too large for a long
+		 */
+		default void valueRawNumber(ParseState state, RawNumber value) throws ParseException {
+			if(!value.isIntegral())
+				valueDouble(state, value.doubleValue());
+			else if(value.fitsInLong())
+				valueLong(state, value.longValue());
+			else
+				state.error("Number size greater than maximum");
+		}
+
 		/**
 		 * Called when a null value is encountered
 		 *
@@ -224,6 +288,7 @@ public class SAJParser {
 		 * @param state The current parsing state
 		 * @param value The string value that was parsed
 		 */
+		@Override
 		public void valueString(ParseState state, String value) {
 			theState = state;
 			if (top() instanceof List)
@@ -342,6 +407,181 @@ public class SAJParser {
 		PROPERTY;
 	}
 
+	/**
+	 * The undecoded text of a number in JSON content. The number consists of an optional minus sign, a run of digits without a leading
+	 * zero, and optionally a fractional part and an exponent. Instances are re-used by the parser, so an instance is only valid during the
+	 * {@link ParseHandler#valueRawNumber(ParseState, RawNumber) callback} it was passed to.
+	 */
+	public static class RawNumber implements CharSequence {
+		private static final double [] POWERS_OF_10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14,
+			1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+		private byte [] theBytes;
+
+		private int theStart;
+
+		private int theLength;
+
+		private boolean isNegative;
+
+		private int theIntDigits;
+
+		private boolean isIntegral;
+
+		RawNumber() {
+		}
+
+		/**
+		 * @param bytes The bytes containing the ASCII number text
+		 * @param start The start of the number text in the bytes
+		 * @param length The length of the number text
+		 * @return Whether the text is a plain number
+		 */
+		boolean set(byte [] bytes, int start, int length) {
+			theBytes = bytes;
+			theStart = start;
+			theLength = length;
+			int end = start + length;
+			int i = start;
+			isNegative = i < end && bytes[i] == '-';
+			if(isNegative)
+				i++;
+			int digitStart = i;
+			while(i < end && isDigit(bytes[i]))
+				i++;
+			theIntDigits = i - digitStart;
+			if(theIntDigits == 0 || (theIntDigits > 1 && bytes[digitStart] == '0'))
+				return false;
+			isIntegral = i == end;
+			if(isIntegral)
+				return true;
+			if(bytes[i] == '.') {
+				i++;
+				while(i < end && isDigit(bytes[i]))
+					i++;
+				if(i == end)
+					return true;
+			}
+			if(bytes[i] != 'e' && bytes[i] != 'E')
+				return false;
+			i++;
+			if(i < end && (bytes[i] == '-' || bytes[i] == '+'))
+				i++;
+			if(i == end)
+				return false;
+			while(i < end && isDigit(bytes[i]))
+				i++;
+			return i == end;
+		}
+
+		/** @return Whether this number has no fractional part or exponent */
+		public boolean isIntegral() {
+			return isIntegral;
+		}
+
+		/** @return Whether this number is {@link #isIntegral() integral} and within the range of a long */
+		public boolean fitsInLong() {
+			if(!isIntegral || theIntDigits > 19)
+				return false;
+			else if(theIntDigits < 19)
+				return true;
+			String max = isNegative ? "9223372036854775808" : "9223372036854775807";
+			int offset = theStart + (isNegative ? 1 : 0);
+			for(int i = 0; i < 19; i++) {
+				int diff = theBytes[offset + i] - max.charAt(i);
+				if(diff != 0)
+					return diff < 0;
+			}
+			return true;
+		}
+
+		/**
+		 * @return This number as a long. Fractional numbers are truncated.
+		 * @throws NumberFormatException If this number is integral and does not {@link #fitsInLong() fit} in a long
+		 */
+		public long longValue() throws NumberFormatException {
+			if(!isIntegral)
+				return (long) doubleValue();
+			else if(!fitsInLong())
+				throw new NumberFormatException("Number size greater than maximum: " + this);
+			// Accumulate negatively so that Long.MIN_VALUE can be represented
+			long value = 0;
+			int end = theStart + theLength;
+			for(int i = theStart + (isNegative ? 1 : 0); i < end; i++)
+				value = value * 10 - (theBytes[i] - '0');
+			return isNegative ? value : -value;
+		}
+
+		/** @return This number as a double */
+		public double doubleValue() {
+			// Exact when the digits fit in a double's mantissa and the power of ten is exactly representable
+			long mantissa = 0;
+			int digits = 0;
+			int exp = 0;
+			int end = theStart + theLength;
+			int i = theStart + (isNegative ? 1 : 0);
+			boolean fraction = false;
+			for(; i < end; i++) {
+				byte b = theBytes[i];
+				if(b == '.')
+					fraction = true;
+				else if(isDigit(b)) {
+					if(++digits > 15)
+						return Double.parseDouble(toString());
+					mantissa = mantissa * 10 + (b - '0');
+					if(fraction)
+						exp--;
+				} else
+					break;
+			}
+			if(i < end) { // Exponent
+				i++;
+				boolean expNeg = theBytes[i] == '-';
+				if(expNeg || theBytes[i] == '+')
+					i++;
+				int explicit = 0;
+				for(; i < end; i++) {
+					explicit = explicit * 10 + (theBytes[i] - '0');
+					if(explicit > 1000)
+						return Double.parseDouble(toString());
+				}
+				exp += expNeg ? -explicit : explicit;
+			}
+			double value;
+			if(mantissa == 0)
+				value = 0;
+			else if(exp >= 0 && exp < POWERS_OF_10.length)
+				value = mantissa * POWERS_OF_10[exp];
+			else if(exp < 0 && -exp < POWERS_OF_10.length)
+				value = mantissa / POWERS_OF_10[-exp];
+			else
+				return Double.parseDouble(toString());
+			return isNegative ? -value : value;
+		}
+
+		@Override
+		public int length() {
+			return theLength;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if(index < 0 || index >= theLength)
+				throw new IndexOutOfBoundsException(index + " of " + theLength);
+			return (char) theBytes[theStart + index];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().substring(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return new String(theBytes, theStart, theLength, java.nio.charset.StandardCharsets.ISO_8859_1);
+		}
+	}
+
 	/** Represents an object whose parsing has not been completed */
 	public static class ParseNode {
 		/** The type of object that this node represents */
@@ -520,6 +760,10 @@ public class SAJParser {
 
 		private final StringParseReader theStringReader;
 
+		private Utf8JsonTokenizer theTokenizer;
+
+		private final RawNumber theRawNumber;
+
 		private final ParseHandler [] theHandlers;
 
 		private final java.util.ArrayList<ParseNode> thePath;
@@ -538,6 +782,11 @@ public class SAJParser {
 
 		private boolean isSeparated;
 
+		private boolean isRootItemStarted;
+
+		/** The symbol table for property names in this parse, if the parser does not share one */
+		JsonSymbolTable theSymbols;
+
 		ParseState(Reader reader, ParseHandler... helper) {
 			theReader = reader;
 			theHandlers = helper;
@@ -546,6 +795,60 @@ public class SAJParser {
 			theCurrentChar = -1;
 			theLineNumber = 1;
 			theStringReader = new StringParseReader(reader);
+			theTokenizer = null;
+			theRawNumber = null;
+		}
+
+		ParseState(Utf8JsonTokenizer tokenizer, ParseHandler... helper) {
+			theReader = null;
+			theHandlers = helper;
+			thePath = new java.util.ArrayList<>();
+			theLastChar = -1;
+			theCurrentChar = -1;
+			theLineNumber = 1;
+			theStringReader = null;
+			theTokenizer = tokenizer;
+			theRawNumber = new RawNumber();
+			tokenizer.setState(this);
+		}
+
+		/** Creates a state for content that is not parsed from text, e.g. a binary encoding */
+		ParseState(ParseHandler... helper) {
+			theReader = null;
+			theHandlers = helper;
+			thePath = new java.util.ArrayList<>();
+			theLastChar = -1;
+			theCurrentChar = -1;
+			theLineNumber = 1;
+			theStringReader = null;
+			theTokenizer = null;
+			theRawNumber = null;
+		}
+
+		Utf8JsonTokenizer getTokenizer() {
+			return theTokenizer;
+		}
+
+		/**
+		 * Replaces the tokenizer for a state that was created for a {@link Utf8JsonTokenizer}, so that parsing may continue with more content
+		 *
+		 * @param tokenizer The tokenizer to parse further content from
+		 */
+		void setTokenizer(Utf8JsonTokenizer tokenizer) {
+			if (theTokenizer == null)
+				throw new IllegalStateException("This state does not parse UTF-8 content");
+			theTokenizer = tokenizer;
+			tokenizer.setState(this);
+		}
+
+		/**
+		 * Sets the position for content that is not parsed from text
+		 *
+		 * @param index The number of bytes that have been read from the stream
+		 */
+		void setIndex(int index) {
+			theIndex = index;
+			theCharNumber = index;
 		}
 
 		int nextChar() throws IOException {
@@ -612,10 +915,18 @@ public class SAJParser {
 					fromTop(1).setHasContent();
 					break;
 				}
-			}
+			} else
+				isRootItemStarted = true;
 			isSeparated = false;
 		}
 
+		/** @return Whether an item has been started at the root of the content since the last call to this method */
+		boolean checkRootItem() {
+			boolean started = isRootItemStarted;
+			isRootItemStarted = false;
+			return started;
+		}
+
 		void startObject() throws ParseException {
 			startItem();
 			push(ParseToken.OBJECT);
@@ -655,6 +966,30 @@ public class SAJParser {
 				theHandlers[0].valueString(this, theStringReader);
 		}
 
+		void stringValue(String value) throws ParseException, IOException {
+			startItem();
+			for(ParseHandler handler : theHandlers)
+				handler.valueString(this, value);
+		}
+
+		void rawNumber(RawNumber value) throws ParseException {
+			startItem();
+			for(ParseHandler handler : theHandlers)
+				handler.valueRawNumber(this, value);
+		}
+
+		void longValue(long value) throws ParseException {
+			startItem();
+			for(ParseHandler handler : theHandlers)
+				handler.valueLong(this, value);
+		}
+
+		void doubleValue(double value) throws ParseException {
+			startItem();
+			for(ParseHandler handler : theHandlers)
+				handler.valueDouble(this, value);
+		}
+
 		void setPrimitive(Object value) throws ParseException {
 			startItem();
 			for(ParseHandler handler : theHandlers) {
@@ -826,9 +1161,11 @@ public class SAJParser {
 		}
 
 		/**
-		 * @return The number of characters that have been read from the stream so far
+		 * @return The number of characters (or bytes, if parsing from UTF-8 bytes) that have been read from the stream so far
 		 */
 		public int getIndex() {
+			if(theTokenizer != null)
+				return (int) theTokenizer.getOffset();
 			return theIndex;
 		}
 
@@ -836,13 +1173,17 @@ public class SAJParser {
 		 * @return The number of new lines that have been read so far plus one
 		 */
 		public int getLineNumber() {
+			if(theTokenizer != null)
+				return theTokenizer.getLineNumber();
 			return theLineNumber;
 		}
 
 		/**
-		 * @return The number of characters that have been read since the last new line
+		 * @return The number of characters (or bytes, if parsing from UTF-8 bytes) that have been read since the last new line
 		 */
 		public int getCharNumber() {
+			if(theTokenizer != null)
+				return theTokenizer.getColumn();
 			return theCharNumber;
 		}
 
@@ -893,7 +1234,7 @@ public class SAJParser {
 		@Override
 		public String toString() {
 			StringBuilder ret = new StringBuilder();
-			ret.append("Line ").append(theLineNumber).append(", Column ").append(theCharNumber).append('\n');
+			ret.append("Line ").append(getLineNumber()).append(", Column ").append(getCharNumber()).append('\n');
 			for(ParseNode node : thePath)
 				ret.append(node.toString()).append('/');
 			if(ret.length() > 0)
@@ -906,6 +1247,8 @@ public class SAJParser {
 	public static class ParseException extends Exception {
 		private final ParseState theState;
 
+		private final String theProblem;
+
 		/**
 		 * Creates a ParseException
 		 *
@@ -915,6 +1258,12 @@ public class SAJParser {
 		public ParseException(String message, ParseState state) {
 			super(state.toString() + "\n" + message);
 			theState = state;
+			theProblem = message;
+		}
+
+		/** @return The message detailing what was wrong with the JSON content, without the parse state */
+		public String getProblem() {
+			return theProblem;
 		}
 
 		/**
@@ -929,9 +1278,67 @@ public class SAJParser {
 
 	private boolean useFormalJson;
 
+	private boolean isCanonicalizingNames;
+
+	private JsonSymbolTable theSymbols;
+
 	/** Creates a parser */
 	public SAJParser() {
 		allowComments = true;
+		isCanonicalizingNames = true;
+	}
+
+	/**
+	 * @return Whether this parser canonicalizes property names, so that a property name that occurs many times in the content is
+	 *         represented by a single String instance
+	 * @see #setCanonicalizingNames(boolean)
+	 */
+	public boolean isCanonicalizingNames() {
+		return isCanonicalizingNames;
+	}
+
+	/**
+	 * @param canonicalize Whether this parser should canonicalize property names, so that a property name that occurs many times in the
+	 *        content is represented by a single String instance. True by default.
+	 */
+	public void setCanonicalizingNames(boolean canonicalize) {
+		isCanonicalizingNames = canonicalize;
+	}
+
+	/**
+	 * @return The symbol table shared by all parses by this parser, or null if each parse uses its own
+	 * @see #setSymbolTable(JsonSymbolTable)
+	 */
+	public JsonSymbolTable getSymbolTable() {
+		return theSymbols;
+	}
+
+	/**
+	 * By default, when {@link #isCanonicalizingNames() canonicalizing} property names, each parse creates its own symbol table, so a parser
+	 * may be used by multiple threads at once. This method allows a symbol table to be shared between parses, e.g. when many small
+	 * documents with the same property names are parsed. {@link JsonSymbolTable}s are not thread-safe, so a parser with a shared symbol
+	 * table must not be used by multiple threads at once.
+	 *
+	 * @param symbols The symbol table for all parses by this parser to use to canonicalize property names, or null for each parse to use
+	 *        its own
+	 */
+	public void setSymbolTable(JsonSymbolTable symbols) {
+		theSymbols = symbols;
+	}
+
+	private JsonSymbolTable getSymbolTable(ParseState state) {
+		if (!isCanonicalizingNames)
+			return null;
+		else if (theSymbols != null)
+			return theSymbols;
+		if (state.theSymbols == null)
+			state.theSymbols = new JsonSymbolTable();
+		return state.theSymbols;
+	}
+
+	private String intern(CharSequence propertyName, ParseState state) {
+		JsonSymbolTable symbols = getSymbolTable(state);
+		return symbols == null ? propertyName.toString() : symbols.intern(propertyName);
 	}
 
 	/**
@@ -984,14 +1391,59 @@ public class SAJParser {
 	 * @throws ParseException If an error occurs parsing the JSON content
 	 */
 	public Object parse(Reader reader, ParseHandler... handlers) throws IOException, ParseException {
+		return parse(new ParseState(reader, handlers), handlers);
+	}
+
+	/**
+	 * Parses a single JSON item from a stream of UTF-8 bytes. The stream is read in large blocks, so content after the first JSON item in
+	 * the stream may be consumed.
+	 *
+	 * @param input The stream to parse data from
+	 * @param handlers The handlers to be notified of JSON content
+	 * @return The value returned from the handler after parsing has finished
+	 * @throws IOException If an error occurs reading from the stream
+	 * @throws ParseException If an error occurs parsing the JSON content
+	 * @see Utf8JsonTokenizer
+	 */
+	public Object parse(InputStream input, ParseHandler... handlers) throws IOException, ParseException {
+		return parse(new ParseState(new Utf8JsonTokenizer(input, Utf8JsonTokenizer.DEFAULT_BUFFER_SIZE), handlers), handlers);
+	}
+
+	/**
+	 * Parses a single JSON item from the remaining UTF-8 bytes in a buffer. The buffer's position is not modified.
+	 *
+	 * @param buffer The buffer to parse data from
+	 * @param handlers The handlers to be notified of JSON content
+	 * @return The value returned from the handler after parsing has finished
+	 * @throws ParseException If an error occurs parsing the JSON content
+	 * @see Utf8JsonTokenizer
+	 */
+	public Object parse(ByteBuffer buffer, ParseHandler... handlers) throws ParseException {
+		try {
+			return parse(new ParseState(new Utf8JsonTokenizer(buffer), handlers), handlers);
+		} catch(IOException e) {
+			throw new IllegalStateException("IO Exception thrown from a buffer?!!", e);
+		}
+	}
+
+	/**
+	 * Parses a single JSON item with a state, which may be positioned after previous items in its content
+	 *
+	 * @param state The parse state, with the handlers to be notified of JSON content
+	 * @param handlers The handlers to be notified of JSON content
+	 * @return The value returned from the handler after parsing has finished
+	 * @throws IOException If an error occurs reading the content
+	 * @throws ParseException If an error occurs parsing the JSON content
+	 */
+	Object parse(ParseState state, ParseHandler... handlers) throws IOException, ParseException {
 		StringBuilder sb = new StringBuilder();
-		ParseState state = new ParseState(reader, handlers);
 		boolean hadContent = false;
 		int origDepth = state.getDepth();
+		state.checkRootItem();
 		do {
 			if(!parseNext(state, sb))
 				state.error("Unexpected end of content");
-			if(state.getDepth() != origDepth)
+			if(state.getDepth() != origDepth || state.checkRootItem())
 				hadContent = true;
 		} while(state.getDepth() > 0 || !hadContent);
 		if(handlers.length > 0)
@@ -1028,6 +1480,8 @@ public class SAJParser {
 	}
 
 	private boolean parseNext(ParseState state, StringBuilder sb) throws IOException, ParseException {
+		if(state.getTokenizer() != null)
+			return parseNextToken(state, state.getTokenizer());
 		int ch = state.nextChar();
 		if(ch < 0)
 			return false;
@@ -1068,6 +1522,134 @@ public class SAJParser {
 		return true;
 	}
 
+	private boolean parseNextToken(ParseState state, Utf8JsonTokenizer tokenizer) throws IOException, ParseException {
+		switch (tokenizer.next(allowComments)) {
+		case END:
+			return false;
+		case OBJECT_START:
+			state.startObject();
+			break;
+		case OBJECT_END:
+			state.pop(ParseToken.OBJECT);
+			break;
+		case ARRAY_START:
+			state.startArray();
+			break;
+		case ARRAY_END:
+			state.pop(ParseToken.ARRAY);
+			break;
+		case COMMA:
+			state.separate(',');
+			break;
+		case COLON:
+			state.separate(':');
+			break;
+		case COMMENT:
+			String comment = tokenizer.getString();
+			state.comment(comment, getCommentContent(comment));
+			break;
+		case STRING:
+			if(useFormalJson && tokenizer.getQuote() != '"')
+				state.error("Strings must be enclosed in quotations in formal JSON");
+			if(state.top() != null && state.top().token == ParseToken.OBJECT) {
+				JsonSymbolTable symbols = getSymbolTable(state);
+				state.startProperty(symbols == null ? tokenizer.getString() : tokenizer.getName(symbols));
+			} else
+				state.stringValue(tokenizer.getString());
+			break;
+		case WORD:
+			if(state.top() != null && state.top().token == ParseToken.OBJECT) {
+				if(useFormalJson)
+					state.error("Property names must be quoted in formal JSON");
+				state.startProperty(intern(tokenizer.getWord(), state));
+			} else if(state.theRawNumber.set(tokenizer.getWordBuffer(), tokenizer.getWordStart(), tokenizer.getWordLength()))
+				state.rawNumber(state.theRawNumber);
+			else
+				state.setPrimitive(parseWord(state, tokenizer));
+			break;
+		}
+		return true;
+	}
+
+	/**
+	 * Skips over the next value in content parsed from UTF-8 bytes without decoding it or notifying the state's handlers of its content.
+	 * A separator before the value is parsed normally. Comments between the current position and the value are skipped.
+	 *
+	 * @param state The parsing state, which must have been created for a {@link Utf8JsonTokenizer}
+	 * @throws IOException If an error occurs reading the data
+	 * @throws ParseException If a value cannot be skipped at the current position
+	 */
+	void skipValue(ParseState state) throws IOException, ParseException {
+		Utf8JsonTokenizer tokenizer = state.getTokenizer();
+		int next = tokenizer.peek(allowComments);
+		while(next == ',' || next == ':') {
+			parseNextToken(state, tokenizer);
+			next = tokenizer.peek(allowComments);
+		}
+		if(next < 0)
+			state.error("Unexpected end of content");
+		else if(next == '}' || next == ']')
+			state.error("Expected value but found '" + (char) next + "'");
+		state.spoofValue();
+		tokenizer.skipValue(allowComments);
+	}
+
+	/**
+	 * Skips to the end of the object or array at the top of the state in content parsed from UTF-8 bytes, without decoding the content or
+	 * notifying the state's handlers of it. The handlers are notified of the end of the structure.
+	 *
+	 * @param state The parsing state, which must have been created for a {@link Utf8JsonTokenizer}
+	 * @return The number of properties or elements that were skipped
+	 * @throws IOException If an error occurs reading the data
+	 * @throws ParseException If the content cannot be skipped
+	 */
+	int skipToEnd(ParseState state) throws IOException, ParseException {
+		ParseNode top = state.top();
+		if(top == null)
+			state.error("Not in an object or array");
+		if(top.token == ParseToken.PROPERTY && !top.hasContent())
+			skipValue(state);
+		int count = state.getTokenizer().skipToEnd(allowComments);
+		state.pop(top.token == ParseToken.ARRAY ? ParseToken.ARRAY : ParseToken.OBJECT);
+		return count;
+	}
+
+	/**
+	 * Decodes a literal value scanned by a {@link Utf8JsonTokenizer} that is not a {@link RawNumber plain number}. Booleans and null are
+	 * decoded directly from the tokenizer's bytes. Anything else is handed to the character-based parsing so that the same set of values is
+	 * accepted.
+	 */
+	private Object parseWord(ParseState state, Utf8JsonTokenizer tokenizer) throws IOException, ParseException {
+		byte first = tokenizer.getWordByte(0);
+		if(first == 't' && tokenizer.isWord("true"))
+			return Boolean.TRUE;
+		else if(first == 'f' && tokenizer.isWord("false"))
+			return Boolean.FALSE;
+		else if(first == 'n' && tokenizer.isWord("null"))
+			return null;
+
+		// Octal, hex, infinities, typed numbers, etc.
+		String word = tokenizer.getWord();
+		ParseState wordState = new ParseState(new java.io.StringReader(word));
+		Object wordValue;
+		String problem;
+		try {
+			wordState.nextChar();
+			wordValue = parsePrimitive(new StringBuilder(), wordState);
+			problem = wordState.nextChar() < 0 ? null : "Unrecognized value: " + word;
+		} catch(ParseException e) {
+			wordValue = null;
+			problem = e.getProblem();
+		}
+		if(problem != null)
+			state.error(problem);
+		return wordValue;
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
 	/**
 	 * @param ch The character to test
 	 * @return Whether the character qualifies as white space
@@ -1111,9 +1693,7 @@ public class SAJParser {
 			}
 			state.backUp();
 			String comment = sb.toString();
-			sb.delete(0, 2);
-			state.comment(comment, sb.toString().trim());
-			sb.setLength(0);
+			state.comment(comment, getCommentContent(comment));
 		} else if(ch == '*') { // Block comment
 			sb.append('*');
 			boolean lastStar = false;
@@ -1131,16 +1711,32 @@ public class SAJParser {
 			else
 				sb.append((char) ch);
 			String comment = sb.toString();
+			state.comment(comment, getCommentContent(comment));
+		} else
+			state.error("Invalid comment");
+		sb.setLength(0);
+	}
+
+	/**
+	 * @param comment The full text of a line- or block-style comment
+	 * @return The content of the comment
+	 */
+	static String getCommentContent(String comment) {
+		if(comment.startsWith("//"))
+			return comment.substring(2).trim();
+		else {
+			StringBuilder sb = new StringBuilder(comment);
 			sb.delete(0, 2);
-			sb.delete(sb.length() - 2, sb.length());
+			if(sb.length() >= 2 && comment.endsWith("*/"))
+				sb.delete(sb.length() - 2, sb.length());
 			/* Now we "clean up" the comment to deliver just the content. This involves removing
 			 * initial and terminal white space on each line, and the initial asterisks--
 			 * specifically the first continuous set of asterisks that occur. */
 			boolean newLine = true;
 			boolean lineHadStar = false;
-			lastStar = false;
+			boolean lastStar = false;
 			for(int c = 0; c < sb.length(); c++) {
-				ch = sb.charAt(c);
+				char ch = sb.charAt(c);
 				if(newLine) {
 					if(isWhiteSpace(ch)) {
 						lastStar = false;
@@ -1170,10 +1766,8 @@ public class SAJParser {
 			}
 			for(int c = sb.length() - 1; c >= 0 && isWhiteSpace(sb.charAt(c)); c--)
 				sb.deleteCharAt(c);
-			state.comment(comment, sb.toString());
-		} else
-			state.error("Invalid comment");
-		sb.setLength(0);
+			return sb.toString();
+		}
 	}
 
 	Object parsePrimitive(StringBuilder sb, ParseState state) throws IOException, ParseException {
@@ -1632,7 +2226,7 @@ public class SAJParser {
 		if(ch == '"')
 			isQuoted = 2;
 		if(isQuoted > 0)
-			return parseString(sb, state);
+			return intern(parseString(sb, state), state);
 		else if(useFormalJson)
 			state.error("Property names must be quoted in formal JSON");
 		boolean escaped = false;
@@ -1700,7 +2294,7 @@ public class SAJParser {
 			ch = state.nextChar();
 		}
 		state.backUp();
-		String ret = sb.toString();
+		String ret = intern(sb, state);
 		sb.setLength(0);
 		return ret;
 	}
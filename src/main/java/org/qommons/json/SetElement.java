@@ -21,13 +21,28 @@ public class SetElement extends DefaultJsonElement {
 		theMaxSize = -1;
 		JsonObject constraints = getConstraints();
 		if (constraints != null) {
-			if (constraints.get("min") != null)
+			if (constraints.getOrDefault("min", null) != null)
 				theMinSize = ((Number) constraints.get("min")).intValue();
-			if (constraints.get("max") != null)
+			if (constraints.getOrDefault("max", null) != null)
 				theMaxSize = ((Number) constraints.get("max")).intValue();
 		}
 	}
 
+	/** @return The schema element that each element in the set must match */
+	public JsonElement getElementSchema() {
+		return theChild;
+	}
+
+	/** @return The minimum number of elements in the set, or -1 if there is no minimum */
+	public int getMinSize() {
+		return theMinSize;
+	}
+
+	/** @return The maximum number of elements in the set, or -1 if there is no maximum */
+	public int getMaxSize() {
+		return theMaxSize;
+	}
+
 	@Override
 	public float doesValidate(Object jsonValue) {
 		float ret = super.doesValidate(jsonValue);
@@ -53,12 +68,21 @@ public class SetElement extends DefaultJsonElement {
 		if (!(jsonValue instanceof List))
 			throw new JsonSchemaException("Element must be a set", this, jsonValue);
 		List<Object> set = (List<Object>) jsonValue;
-		if (theMinSize >= 0 && set.size() < theMinSize)
-			throw new JsonSchemaException("Set must have at least " + theMinSize + " elements", this, jsonValue);
-		if (theMaxSize >= 0 && set.size() > theMaxSize)
-			throw new JsonSchemaException("Set must have at most " + theMaxSize + " elements", this, jsonValue);
+		checkSize(set.size(), jsonValue);
 		for (Object el : set)
 			theChild.validate(el);
 		return true;
 	}
+
+	/**
+	 * @param size The size of a set
+	 * @param jsonValue The set
+	 * @throws JsonSchemaException If the set's size is not within this element's constraints
+	 */
+	void checkSize(int size, Object jsonValue) throws JsonSchemaException {
+		if (theMinSize >= 0 && size < theMinSize)
+			throw new JsonSchemaException("Set must have at least " + theMinSize + " elements", this, jsonValue);
+		if (theMaxSize >= 0 && size > theMaxSize)
+			throw new JsonSchemaException("Set must have at most " + theMaxSize + " elements", this, jsonValue);
+	}
 }
@@ -0,0 +1,755 @@
+package org.qommons.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.qommons.json.SAJParser.ParseException;
+import org.qommons.json.SAJParser.ParseState;
+
+/**
+ * <p>
+ * Scans JSON tokens directly from UTF-8 bytes. This class is used by {@link SAJParser#parse(InputStream, SAJParser.ParseHandler...)},
+ * {@link SAJParser#parse(ByteBuffer, SAJParser.ParseHandler...)} and the byte-based {@link JsonSerialReader} constructors.
+ * </p>
+ * <p>
+ * Content is scanned in large windows of bytes instead of one character at a time through a {@link java.io.Reader}. White space is skipped
+ * in a tight loop, strings that contain only ASCII characters and no escapes are copied directly from the window into a String, and
+ * literals (numbers, booleans, null) are left in the window where they can be decoded without copying.
+ * </p>
+ * <p>
+ * White space is not reported by this tokenizer. Line numbers are tracked, but {@link ParseState#getIndex() indexes} and
+ * {@link ParseState#getCharNumber() column numbers} are in bytes.
+ * </p>
+ */
+public class Utf8JsonTokenizer {
+	/** The default size of the byte window for streamed content */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/** The types of tokens that can be scanned */
+	public enum TokenType {
+		/** '{' */
+		OBJECT_START,
+		/** '}' */
+		OBJECT_END,
+		/** '[' */
+		ARRAY_START,
+		/** ']' */
+		ARRAY_END,
+		/** ',' */
+		COMMA,
+		/** ':' */
+		COLON,
+		/** A quoted string */
+		STRING,
+		/** An unquoted literal, e.g. a number, boolean, null, or an unquoted property name */
+		WORD,
+		/** A line- or block-style comment */
+		COMMENT,
+		/** The end of the content */
+		END;
+	}
+
+	private final InputStream theInput;
+	private final ByteBuffer theSource;
+	private ParseState theState;
+	private byte[] theBuffer;
+	private int thePosition;
+	private int theLimit;
+	/** The absolute offset of index 0 in the buffer */
+	private long theBufferOffset;
+	/** The start of the current token, which must be retained in the buffer when it is refilled, or -1 */
+	private int theMark;
+
+	private int theLineNumber;
+	private long theLineStart;
+	private long theTokenStart;
+
+	private int theWordStart;
+	private int theWordEnd;
+	private char theQuote;
+	private String theString;
+	/** Whether the current string token's content is an unescaped ASCII run in the window, starting at {@link #theWordStart} */
+	private boolean isStringInWindow;
+	private char[] theChars;
+	private int theCharLength;
+
+	/**
+	 * @param input The stream to read UTF-8 JSON content from
+	 * @param bufferSize The initial size for the byte window
+	 */
+	public Utf8JsonTokenizer(InputStream input, int bufferSize) {
+		theInput = input;
+		theSource = null;
+		theBuffer = new byte[bufferSize];
+		init();
+	}
+
+	/**
+	 * Creates a tokenizer to parse the remaining content in a byte buffer. If the buffer is backed by an array, the array is read directly.
+	 * The buffer's position is not modified.
+	 *
+	 * @param buffer The buffer containing the UTF-8 JSON content to parse
+	 */
+	public Utf8JsonTokenizer(ByteBuffer buffer) {
+		theInput = null;
+		if (buffer.hasArray()) {
+			theSource = null;
+			theBuffer = buffer.array();
+			thePosition = buffer.arrayOffset() + buffer.position();
+			theLimit = buffer.arrayOffset() + buffer.limit();
+			theBufferOffset = -thePosition;
+		} else {
+			theSource = buffer.duplicate();
+			theBuffer = new byte[Math.min(DEFAULT_BUFFER_SIZE, Math.max(16, buffer.remaining()))];
+		}
+		init();
+	}
+
+	/**
+	 * @param bytes The array containing the UTF-8 JSON content to parse
+	 * @param offset The offset in the array of the start of the content
+	 * @param length The length of the content in the array
+	 */
+	public Utf8JsonTokenizer(byte[] bytes, int offset, int length) {
+		this(ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	private void init() {
+		theMark = -1;
+		theLineNumber = 1;
+		theChars = new char[64];
+	}
+
+	/**
+	 * Causes this tokenizer to report line numbers and offsets as if its content began partway through a larger document. This must be
+	 * called before any content is read.
+	 *
+	 * @param lineNumber The line number of the start of this tokenizer's content
+	 * @param lineStart The byte offset of the start of the line containing the start of this tokenizer's content
+	 * @param offset The byte offset of the start of this tokenizer's content
+	 */
+	void setPosition(int lineNumber, long lineStart, long offset) {
+		theLineNumber = lineNumber;
+		theBufferOffset += offset;
+		theLineStart = lineStart;
+		theTokenStart = offset;
+	}
+
+	/** @return The byte offset of the start of the current line from the start of the content */
+	long getLineStart() {
+		return theLineStart;
+	}
+
+	void setState(ParseState state) {
+		theState = state;
+	}
+
+	/** @return The state to report errors to, created if this tokenizer is being used on its own */
+	private ParseState getState() {
+		if (theState == null)
+			theState = new ParseState(this);
+		return theState;
+	}
+
+	/** @return The line number of the current token, starting at 1 */
+	public int getLineNumber() {
+		return theLineNumber;
+	}
+
+	/** @return The byte offset of the start of the current token from the start of its line */
+	public int getColumn() {
+		return (int) (theTokenStart - theLineStart);
+	}
+
+	/** @return The byte offset of the start of the current token from the start of the content */
+	public long getOffset() {
+		return theTokenStart;
+	}
+
+	/**
+	 * Scans the next token
+	 *
+	 * @param allowComments Whether comments are permitted in the content
+	 * @return The type of the token that was scanned
+	 * @throws IOException If the content could not be read
+	 * @throws ParseException If a string or comment in the content is not terminated
+	 */
+	public TokenType next(boolean allowComments) throws IOException, ParseException {
+		theString = null;
+		isStringInWindow = false;
+		theMark = -1;
+		byte b;
+		while (true) {
+			if (thePosition == theLimit && !fill()) {
+				theTokenStart = theBufferOffset + thePosition;
+				return TokenType.END;
+			}
+			b = theBuffer[thePosition];
+			if (b < 0 || b > ' ') {
+				if (b == (byte) 0xEF && theBufferOffset + thePosition == 0 && skipByteOrderMark())
+					continue;
+				break;
+			}
+			thePosition++;
+			if (b == '\n') {
+				theLineNumber++;
+				theLineStart = theBufferOffset + thePosition;
+			}
+		}
+		theTokenStart = theBufferOffset + thePosition;
+		thePosition++;
+		switch (b) {
+		case '{':
+			return TokenType.OBJECT_START;
+		case '}':
+			return TokenType.OBJECT_END;
+		case '[':
+			return TokenType.ARRAY_START;
+		case ']':
+			return TokenType.ARRAY_END;
+		case ',':
+			return TokenType.COMMA;
+		case ':':
+			return TokenType.COLON;
+		case '"':
+		case '\'':
+			scanString(b);
+			return TokenType.STRING;
+		case '/':
+			if (allowComments) {
+				scanComment();
+				return TokenType.COMMENT;
+			}
+			break;
+		default:
+		}
+		thePosition--;
+		scanWord();
+		return TokenType.WORD;
+	}
+
+	private boolean skipByteOrderMark() throws IOException {
+		theMark = thePosition;
+		while (theLimit - thePosition < 3) {
+			if (!fill())
+				break;
+		}
+		theMark = -1;
+		if (theLimit - thePosition >= 3 && theBuffer[thePosition + 1] == (byte) 0xBB && theBuffer[thePosition + 2] == (byte) 0xBF) {
+			thePosition += 3;
+			theBufferOffset -= 3; // Don't count the mark in offsets
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return The value of the current {@link TokenType#STRING string} token, or the full text of the current {@link TokenType#COMMENT
+	 *         comment} token
+	 */
+	public String getString() {
+		if (theString == null) {
+			if (isStringInWindow)
+				theString = new String(theBuffer, theWordStart, theCharLength, StandardCharsets.ISO_8859_1);
+			else
+				theString = new String(theChars, 0, theCharLength);
+		}
+		return theString;
+	}
+
+	/**
+	 * @param symbols The symbol table to canonicalize the name with
+	 * @return The value of the current {@link TokenType#STRING string} token, as a property name canonicalized by the symbol table
+	 */
+	public String getName(JsonSymbolTable symbols) {
+		if (theString == null) {
+			if (isStringInWindow)
+				theString = symbols.intern(theBuffer, theWordStart, theCharLength);
+			else
+				theString = symbols.intern(theChars, 0, theCharLength);
+		}
+		return theString;
+	}
+
+	/** @return The quote character (' or ") that enclosed the current {@link TokenType#STRING string} token */
+	public char getQuote() {
+		return theQuote;
+	}
+
+	/** @return The number of bytes in the current {@link TokenType#WORD word} token */
+	public int getWordLength() {
+		return theWordEnd - theWordStart;
+	}
+
+	/**
+	 * @param index The index of the byte to get
+	 * @return The byte at the given index in the current {@link TokenType#WORD word} token
+	 */
+	public byte getWordByte(int index) {
+		return theBuffer[theWordStart + index];
+	}
+
+	byte[] getWordBuffer() {
+		return theBuffer;
+	}
+
+	int getWordStart() {
+		return theWordStart;
+	}
+
+	/** @return The text of the current {@link TokenType#WORD word} token */
+	public String getWord() {
+		return new String(theBuffer, theWordStart, theWordEnd - theWordStart, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param text The ASCII text to compare
+	 * @return Whether the current {@link TokenType#WORD word} token is the given text
+	 */
+	public boolean isWord(String text) {
+		int len = text.length();
+		if (theWordEnd - theWordStart != len)
+			return false;
+		for (int i = 0; i < len; i++) {
+			if (theBuffer[theWordStart + i] != text.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Skips white space and comments, returning the next significant byte without consuming it
+	 *
+	 * @param allowComments Whether comments are permitted in the content
+	 * @return The next significant byte in the content, or -1 if the end of the content has been reached
+	 * @throws IOException If the content could not be read
+	 * @throws ParseException If a comment in the content is not valid
+	 */
+	public int peek(boolean allowComments) throws IOException, ParseException {
+		theString = null;
+		isStringInWindow = false;
+		theMark = -1;
+		while (true) {
+			if (thePosition == theLimit && !fill()) {
+				theTokenStart = theBufferOffset + thePosition;
+				return -1;
+			}
+			byte b = theBuffer[thePosition];
+			if (b == '/' && allowComments) {
+				theTokenStart = theBufferOffset + thePosition;
+				thePosition++;
+				skipComment();
+				continue;
+			} else if (b < 0 || b > ' ') {
+				if (b == (byte) 0xEF && theBufferOffset + thePosition == 0 && skipByteOrderMark())
+					continue;
+				theTokenStart = theBufferOffset + thePosition;
+				return b & 0xFF;
+			}
+			thePosition++;
+			if (b == '\n') {
+				theLineNumber++;
+				theLineStart = theBufferOffset + thePosition;
+			}
+		}
+	}
+
+	/**
+	 * Skips over the next value in the content without decoding it. Objects and arrays are skipped by counting brackets outside of strings
+	 * and comments, so malformed content inside a skipped structure is not detected unless the brackets are unbalanced.
+	 *
+	 * @param allowComments Whether comments are permitted in the content
+	 * @throws IOException If the content could not be read
+	 * @throws ParseException If the content ends before the value does
+	 */
+	public void skipValue(boolean allowComments) throws IOException, ParseException {
+		int b = peek(allowComments);
+		switch (b) {
+		case -1:
+			getState().error("Unexpected end of content");
+			break;
+		case '{':
+		case '[':
+			thePosition++;
+			skipToEnd(allowComments);
+			break;
+		case '"':
+		case '\'':
+			thePosition++;
+			skipString((byte) b);
+			break;
+		case '}':
+		case ']':
+		case ',':
+		case ':':
+			getState().error("Expected value but found '" + (char) b + "'");
+			break;
+		default:
+			scanWord();
+		}
+	}
+
+	/**
+	 * Skips to the end of the object or array that the content is currently in, without decoding the content. The closing bracket is
+	 * consumed.
+	 *
+	 * @param allowComments Whether comments are permitted in the content
+	 * @return The number of top-level properties or elements that were skipped over
+	 * @throws IOException If the content could not be read
+	 * @throws ParseException If the content ends before the structure does
+	 */
+	public int skipToEnd(boolean allowComments) throws IOException, ParseException {
+		int depth = 0;
+		int count = 0;
+		boolean content = false;
+		while (true) {
+			if (thePosition == theLimit && !fill())
+				getState().error("Unexpected end of content");
+			byte b = theBuffer[thePosition++];
+			switch (b) {
+			case '\n':
+				theLineNumber++;
+				theLineStart = theBufferOffset + thePosition;
+				break;
+			case '"':
+			case '\'':
+				skipString(b);
+				content = true;
+				break;
+			case '/':
+				if (allowComments) {
+					skipComment();
+					break;
+				}
+				content = true;
+				break;
+			case '{':
+			case '[':
+				depth++;
+				content = true;
+				break;
+			case '}':
+			case ']':
+				if (depth == 0) {
+					if (content)
+						count++;
+					return count;
+				}
+				depth--;
+				break;
+			case ',':
+				if (depth == 0 && content) {
+					count++;
+					content = false;
+				}
+				break;
+			default:
+				if (b < 0 || b > ' ')
+					content = true;
+			}
+		}
+	}
+
+	private void skipString(byte quote) throws IOException, ParseException {
+		while (true) {
+			if (thePosition == theLimit && !fill())
+				getState().error("Unexpected end of content in string");
+			byte b = theBuffer[thePosition++];
+			if (b == quote)
+				return;
+			else if (b == '\\') {
+				if (thePosition == theLimit && !fill())
+					getState().error("Unexpected end of content in string");
+				thePosition++;
+			} else if (b == '\n') {
+				theLineNumber++;
+				theLineStart = theBufferOffset + thePosition;
+			}
+		}
+	}
+
+	/** Skips a comment whose initial '/' has been consumed */
+	private void skipComment() throws IOException, ParseException {
+		int b = nextByte();
+		if (b == '/') {
+			while (true) {
+				if (thePosition == theLimit && !fill())
+					return;
+				b = theBuffer[thePosition];
+				if (b == '\n' || b == '\r')
+					return;
+				thePosition++;
+			}
+		} else if (b == '*') {
+			boolean lastStar = false;
+			while (true) {
+				b = nextByte();
+				if (b < 0 || (lastStar && b == '/'))
+					return;
+				else if (b == '\n') {
+					theLineNumber++;
+					theLineStart = theBufferOffset + thePosition;
+				}
+				lastStar = b == '*';
+			}
+		} else
+			getState().error("Invalid comment");
+	}
+
+	private void scanWord() throws IOException {
+		theMark = thePosition;
+		while (true) {
+			if (thePosition == theLimit && !fill())
+				break;
+			byte b = theBuffer[thePosition];
+			if (b >= 0 && (b <= ' ' || isWordTerminator(b)))
+				break;
+			thePosition++;
+		}
+		if (thePosition == theMark && thePosition < theLimit)
+			thePosition++; // A terminator in an illegal place, e.g. a '/' when comments are not allowed. Let the parser report it.
+		theWordStart = theMark;
+		theWordEnd = thePosition;
+	}
+
+	private static boolean isWordTerminator(byte b) {
+		switch (b) {
+		case '{':
+		case '}':
+		case '[':
+		case ']':
+		case ',':
+		case ':':
+		case '"':
+		case '\'':
+		case '/':
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private void scanString(byte quote) throws IOException, ParseException {
+		theQuote = (char) quote;
+		// Fast path: an unescaped ASCII string entirely within the window
+		byte[] buffer = theBuffer;
+		int start = thePosition, limit = theLimit;
+		int i = start;
+		for (; i < limit; i++) {
+			byte b = buffer[i];
+			if (b == quote) {
+				// Leave the content in the window until it's asked for, possibly as a symbol
+				isStringInWindow = true;
+				theWordStart = start;
+				theCharLength = i - start;
+				thePosition = i + 1;
+				return;
+			} else if (b < ' ' || b == '\\') // Control characters, escapes, or multi-byte characters
+				break;
+		}
+		theCharLength = 0;
+		for (int j = start; j < i; j++)
+			appendChar((char) buffer[j]);
+		thePosition = i;
+		while (true) {
+			int b = nextByte();
+			if (b < 0)
+				getState().error("Unexpected end of content in string");
+			else if (b == quote)
+				break;
+			else if (b == '\\')
+				appendEscape();
+			else if (b == '\n' || b == '\r') {
+				// New lines are ignored, as they are with the character-based parser
+				if (b == '\n') {
+					theLineNumber++;
+					theLineStart = theBufferOffset + thePosition;
+				}
+			} else if (b < 0x80)
+				appendChar((char) b);
+			else
+				appendMultiByte(b);
+		}
+	}
+
+	private void appendEscape() throws IOException, ParseException {
+		int b = nextByte();
+		switch (b) {
+		case '"':
+		case '\'':
+		case '\\':
+			appendChar((char) b);
+			break;
+		case '/':
+			// Solidus
+			appendChar('\u2044');
+			break;
+		case 'n':
+			appendChar('\n');
+			break;
+		case 'r':
+			appendChar('\r');
+			break;
+		case 't':
+			appendChar('\t');
+			break;
+		case 'b':
+			appendChar('\b');
+			break;
+		case 'f':
+			appendChar('\f');
+			break;
+		case 'u':
+			int unicode = 0;
+			for (int i = 0; i < 4; i++) {
+				b = nextByte();
+				if (b >= '0' && b <= '9')
+					unicode = (unicode << 4) | (b - '0');
+				else if (b >= 'a' && b <= 'f')
+					unicode = (unicode << 4) | (b - 'a' + 10);
+				else if (b >= 'A' && b <= 'F')
+					unicode = (unicode << 4) | (b - 'A' + 10);
+				else
+					getState().error("Invalid unicode escape sequence");
+			}
+			appendChar((char) unicode);
+			break;
+		default:
+			getState().error((b < 0 ? "EOF" : String.valueOf((char) b)) + " is not escapable");
+		}
+	}
+
+	private void appendMultiByte(int lead) throws IOException {
+		int extra;
+		int codePoint;
+		if ((lead & 0xE0) == 0xC0) {
+			extra = 1;
+			codePoint = lead & 0x1F;
+		} else if ((lead & 0xF0) == 0xE0) {
+			extra = 2;
+			codePoint = lead & 0x0F;
+		} else if ((lead & 0xF8) == 0xF0) {
+			extra = 3;
+			codePoint = lead & 0x07;
+		} else {
+			appendChar('\uFFFD');
+			return;
+		}
+		for (int i = 0; i < extra; i++) {
+			if (thePosition == theLimit && !fill()) {
+				appendChar('\uFFFD');
+				return;
+			}
+			int b = theBuffer[thePosition];
+			if ((b & 0xC0) != 0x80) { // Malformed--don't consume the byte
+				appendChar('\uFFFD');
+				return;
+			}
+			thePosition++;
+			codePoint = (codePoint << 6) | (b & 0x3F);
+		}
+		if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT)
+			appendChar((char) codePoint);
+		else if (codePoint <= Character.MAX_CODE_POINT) {
+			appendChar(Character.highSurrogate(codePoint));
+			appendChar(Character.lowSurrogate(codePoint));
+		} else
+			appendChar('\uFFFD');
+	}
+
+	private void scanComment() throws IOException, ParseException {
+		theCharLength = 0;
+		appendChar('/');
+		int b = nextByte();
+		if (b == '/') {
+			appendChar('/');
+			while (true) {
+				if (thePosition == theLimit && !fill())
+					break;
+				b = theBuffer[thePosition];
+				if (b == '\n' || b == '\r')
+					break; // Leave the new line to be skipped as white space
+				thePosition++;
+				if (b >= 0)
+					appendChar((char) b);
+				else
+					appendMultiByte(b & 0xFF);
+			}
+		} else if (b == '*') {
+			appendChar('*');
+			boolean lastStar = false;
+			while (true) {
+				b = nextByte();
+				if (b < 0)
+					break;
+				if (b == '\n') {
+					theLineNumber++;
+					theLineStart = theBufferOffset + thePosition;
+				}
+				if (b == '\r') {
+					lastStar = false;
+					continue;
+				} else if (b < 0x80)
+					appendChar((char) b);
+				else
+					appendMultiByte(b);
+				if (lastStar && b == '/')
+					break;
+				lastStar = b == '*';
+			}
+		} else
+			getState().error("Invalid comment");
+	}
+
+	private int nextByte() throws IOException {
+		if (thePosition == theLimit && !fill())
+			return -1;
+		return theBuffer[thePosition++] & 0xFF;
+	}
+
+	private void appendChar(char ch) {
+		if (theCharLength == theChars.length)
+			theChars = Arrays.copyOf(theChars, theChars.length * 2);
+		theChars[theCharLength++] = ch;
+	}
+
+	/**
+	 * Reads more content into the window, retaining the content after the {@link #theMark mark}, if set
+	 *
+	 * @return Whether any more content was read
+	 * @throws IOException If the content could not be read
+	 */
+	private boolean fill() throws IOException {
+		if (theInput == null && theSource == null)
+			return false;
+		int keep = theMark >= 0 ? theMark : theLimit;
+		if (keep > 0) {
+			int kept = theLimit - keep;
+			System.arraycopy(theBuffer, keep, theBuffer, 0, kept);
+			theBufferOffset += keep;
+			thePosition -= keep;
+			theLimit = kept;
+			if (theMark >= 0)
+				theMark = 0;
+		}
+		if (theLimit == theBuffer.length)
+			theBuffer = Arrays.copyOf(theBuffer, theBuffer.length * 2);
+		int read;
+		if (theInput != null)
+			read = theInput.read(theBuffer, theLimit, theBuffer.length - theLimit);
+		else {
+			read = Math.min(theSource.remaining(), theBuffer.length - theLimit);
+			if (read == 0)
+				read = -1;
+			else
+				theSource.get(theBuffer, theLimit, read);
+		}
+		if (read <= 0)
+			return false;
+		theLimit += read;
+		return true;
+	}
+}
@@ -110,6 +110,65 @@ public class ClassMapTest {
 		check(null, classMap.get(D.class, TypeMatch.SUB_TYPE));
 	}
 
+	/**
+	 * Queries a {@link ClassMap} from many threads while another thread modifies it, ensuring that cached query results are never stale
+	 * after a modification
+	 * 
+	 * @throws InterruptedException If the test is interrupted
+	 */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testConcurrentQueries() throws InterruptedException {
+		ClassMap<Integer> classMap = new ClassMap<>();
+		classMap.with(A.class, 0);
+		Class<?>[] queries = { A.class, B.class, C.class, D.class, Object.class, Integer.class };
+		int threadCount = 8;
+		int iterations = 20_000;
+		Throwable[] error = new Throwable[1];
+		Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			threads[t] = new Thread(() -> {
+				try {
+					for (int i = 0; i < iterations; i++) {
+						Class<?> query = queries[i % queries.length];
+						// A is always present and Object never is, so these are stable regardless of modification
+						if (query == Object.class)
+							Assert.assertNull(classMap.get(query, TypeMatch.SUPER_TYPE));
+						else if (query != Integer.class) {
+							Assert.assertNotNull(classMap.get(query, TypeMatch.SUPER_TYPE));
+							Assert.assertFalse(classMap.getAll(query, TypeMatch.SUPER_TYPE).isEmpty());
+						} else
+							classMap.getEntry(query, TypeMatch.SUPER_TYPE); // Changes when Number is added
+					}
+				} catch (Throwable e) {
+					synchronized (error) {
+						error[0] = e;
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (int i = 1; i <= 1000; i++) {
+			classMap.with(B.class, i);
+			Assert.assertEquals(Integer.valueOf(i), classMap.get(C.class, TypeMatch.SUPER_TYPE));
+			Assert.assertEquals(2, classMap.getAll(C.class, TypeMatch.SUPER_TYPE).size());
+			Assert.assertEquals(Integer.valueOf(0), classMap.get(D.class, TypeMatch.SUPER_TYPE));
+		}
+		classMap.compute(B.class, old -> null);
+		classMap.with(Number.class, 7);
+		for (Thread thread : threads)
+			thread.join();
+		if (error[0] != null)
+			throw new AssertionError(error[0]);
+		check(0, classMap.get(C.class, TypeMatch.SUPER_TYPE));
+		check(7, classMap.get(Integer.class, TypeMatch.SUPER_TYPE));
+		check(null, classMap.get(B.class, TypeMatch.EXACT));
+		Assert.assertEquals(1, classMap.getAllEntries(C.class, TypeMatch.SUPER_TYPE).size());
+		classMap.clear();
+		check(null, classMap.get(C.class, TypeMatch.SUPER_TYPE));
+		check(null, classMap.get(Integer.class, TypeMatch.SUPER_TYPE));
+	}
+
 	static void check(Integer expected, Integer actual) {
 		Assert.assertEquals(expected, actual);
 	}
@@ -0,0 +1,67 @@
+package org.qommons;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests {@link ConcurrentRunningStatistic} and {@link QuantileSketch} */
+public class ConcurrentRunningStatisticTest {
+	/**
+	 * Records values from several threads at once and ensures that the merged statistics and quantiles are correct
+	 * 
+	 * @throws InterruptedException If the test is interrupted
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testConcurrentRecording() throws InterruptedException {
+		ConcurrentRunningStatistic stat = new ConcurrentRunningStatistic();
+		int threadCount = 8;
+		int perThread = 100_000;
+		Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 1; i <= perThread; i++)
+					stat.add(i);
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		stat.add(Double.NaN);
+		stat.add(Double.POSITIVE_INFINITY);
+
+		ConcurrentRunningStatistic snapshot = stat.snapshot();
+		Assert.assertEquals(threadCount * perThread + 2, snapshot.getCount());
+		Assert.assertEquals(1, snapshot.getNaNCount());
+		Assert.assertEquals(1, snapshot.getPosInfCount());
+		Assert.assertEquals((perThread + 1) / 2.0, snapshot.getMean(), 1E-6);
+		Assert.assertEquals(1, snapshot.getMin(), 0);
+		Assert.assertEquals(perThread, snapshot.getMax(), 0);
+		double error = 1.0 / (1 << QuantileSketch.DEFAULT_PRECISION);
+		Assert.assertEquals(perThread * 0.5, snapshot.getQuantile(0.5), perThread * 0.5 * error);
+		Assert.assertEquals(perThread * 0.99, snapshot.getQuantile(0.99), perThread * 0.99 * error);
+		Assert.assertEquals(perThread * 0.999, snapshot.getQuantile(0.999), perThread * 0.999 * error);
+
+		ConcurrentRunningStatistic deserialized = ConcurrentRunningStatistic.fromJson(stat.toJson());
+		Assert.assertEquals(snapshot.toString(), deserialized.toString());
+	}
+
+	/** Tests {@link QuantileSketch} with negative values and collapsed buckets */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSketch() {
+		QuantileSketch sketch = new QuantileSketch(7, 16);
+		for (int i = -50; i < 1000; i++)
+			sketch.add(i * 1.5);
+		Assert.assertEquals(1050, sketch.getCount());
+		Assert.assertTrue(sketch.getQuantile(0) < 0);
+		Assert.assertEquals(1500, sketch.getQuantile(1), 1500 * sketch.getRelativeError());
+
+		QuantileSketch other = new QuantileSketch();
+		for (int i = 0; i < 1000; i++)
+			other.add(i);
+		QuantileSketch merged = new QuantileSketch().merge(other).merge(other);
+		Assert.assertEquals(2000, merged.getCount());
+		Assert.assertEquals(500, merged.getQuantile(0.5), 500 * merged.getRelativeError());
+		Assert.assertEquals(merged.toString(), QuantileSketch.fromJson(merged.toJson()).toString());
+	}
+}
@@ -2,9 +2,11 @@ package org.qommons;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Arrays;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.qommons.io.CsvColumnReader;
 import org.qommons.io.CsvParser;
 import org.qommons.io.TextParseException;
 
@@ -125,4 +127,87 @@ public class CsvParserTest {
 
 		Assert.assertFalse("Empty line parsed as content", parser.parseNextLine(columns));
 	}
+
+	/**
+	 * Tests parsing columns as views with a buffer much smaller than the content, so that lines and columns span refills of the buffer
+	 * 
+	 * @throws TextParseException Shouldn't happen
+	 * @throws IOException Shouldn't happen
+	 */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testColumnViews() throws TextParseException, IOException {
+		StringBuilder csv = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			csv.append("row ").append(i).append(",\"quoted\r\n\"\"").append(i).append("\"\"\",");
+			for (int j = 0; j < i; j++)
+				csv.append('x');
+			csv.append("\r\n");
+			if (i % 10 == 0)
+				csv.append('\n');
+		}
+		CsvParser parser = new CsvParser(new StringReader(csv.toString()), ',', 16);
+		int lineNumber = 0;
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals(3, parser.parseNextColumns());
+			Assert.assertEquals(i % 10 == 1 ? 1 : 0, parser.getPassedBlankLines());
+			lineNumber += parser.getPassedBlankLines();
+			Assert.assertEquals(i, parser.getEntryNumber());
+			Assert.assertEquals(lineNumber, parser.getLastLineNumber());
+			Assert.assertEquals(csv.indexOf("row " + i + ","), parser.getLastLineOffset());
+			Assert.assertEquals(parser.getLastLineOffset() + 4 + Integer.toString(i).length() + 2, parser.getColumnOffset(1));
+
+			CharSequence column = parser.getColumn(0);
+			Assert.assertEquals(4 + Integer.toString(i).length(), column.length());
+			Assert.assertEquals('r', column.charAt(0));
+			Assert.assertEquals("row " + i, column.toString());
+			Assert.assertEquals("quoted\r\n\"" + i + "\"", parser.getColumn(1).toString());
+			Assert.assertEquals(i, parser.getColumn(2).length());
+			lineNumber += 2;
+			Assert.assertEquals(lineNumber, parser.getCurrentLineNumber());
+		}
+		Assert.assertEquals(0, parser.parseNextColumns());
+		Assert.assertNull(parser.parseNextLine());
+	}
+
+	/**
+	 * Tests reading typed columns with {@link CsvColumnReader}
+	 * 
+	 * @throws TextParseException Shouldn't happen
+	 * @throws IOException Shouldn't happen
+	 */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testColumnReader() throws TextParseException, IOException {
+		String csv = "id,name,time,score,active,ignored\n"//
+			+ "1,Bob,9223372036854775807,2.5,true,x\n"//
+			+ "-2,\"Al\"\"ice\", -9223372036854775808 ,1e3,FALSE,\"y\"\n"//
+			+ "3,Bob,0,0.1,false,z\n";
+		CsvColumnReader reader = new CsvColumnReader(new CsvParser(new StringReader(csv), ','));
+		Assert.assertEquals(6, reader.readHeader().length);
+		IntList ids = reader.intColumn("id");
+		CsvColumnReader.DictionaryColumn names = reader.stringColumn("name");
+		LongList times = reader.longColumn(2);
+		FloatList scores = reader.floatColumn("score");
+		BooleanList active = reader.booleanColumn("active");
+		Assert.assertEquals(3, reader.readAll());
+
+		Assert.assertArrayEquals(new int[] { 1, -2, 3 }, ids.toArray());
+		Assert.assertEquals(Arrays.asList("Bob", "Al\"ice"), names.getDictionary());
+		Assert.assertArrayEquals(new int[] { 0, 1, 0 }, names.getCodes().toArray());
+		Assert.assertEquals("Al\"ice", names.get(1));
+		Assert.assertArrayEquals(new long[] { Long.MAX_VALUE, Long.MIN_VALUE, 0 }, times.toArray());
+		Assert.assertArrayEquals(new float[] { 2.5f, 1000f, 0.1f }, scores.toArray(), 0f);
+		Assert.assertArrayEquals(new boolean[] { true, false, false }, active.toArray());
+
+		reader = new CsvColumnReader(new CsvParser(new StringReader("1,2\n3,x4\n"), ','));
+		reader.intColumn(1);
+		try {
+			reader.readAll();
+			Assert.fail("Bad integer should be reported");
+		} catch (TextParseException e) {
+			Assert.assertEquals(1, e.getLineNumber());
+			Assert.assertEquals(2, e.getColumnNumber());
+		}
+	}
 }
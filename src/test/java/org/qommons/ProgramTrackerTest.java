@@ -0,0 +1,137 @@
+package org.qommons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.ProgramTracker.RoutineId;
+import org.qommons.ProgramTracker.TrackNode;
+
+/** Tests {@link ProgramTracker} */
+public class ProgramTrackerTest {
+	/** Tests {@link ProgramTracker#setSampleRate(int) sampling}, including skipped routines whose subroutines are never ended */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testSampling() {
+		ProgramTracker tracker = new ProgramTracker("test").setSampleRate(3);
+		for (int i = 0; i < 9; i++) {
+			TrackNode root = tracker.start("root");
+			tracker.start("child");
+			if (i % 2 == 0)
+				tracker.start("grandchild"); // Never ended, along with child on odd iterations
+			else
+				tracker.end(tracker.getCurrentTask());
+			tracker.end(root);
+			Assert.assertNull(tracker.getCurrentTask());
+		}
+		TrackNode[] roots = tracker.getData();
+		Assert.assertEquals(1, roots.length);
+		Assert.assertEquals("root", roots[0].getName());
+		Assert.assertEquals(3, roots[0].getCount());
+		Assert.assertEquals(1, roots[0].getChildren().length);
+		Assert.assertEquals(3, roots[0].getChildren()[0].getCount());
+
+		// Tracking must resume fully after sampling is turned off
+		tracker.clear().setSampleRate(1);
+		for (int i = 0; i < 4; i++)
+			tracker.end(tracker.start("root"));
+		Assert.assertEquals(4, tracker.getData()[0].getCount());
+	}
+
+	/** Tests starting routines by {@link RoutineId} */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testRoutineIds() {
+		RoutineId rootId = RoutineId.of("root");
+		RoutineId childId = RoutineId.of("child");
+		RoutineId otherChildId = RoutineId.of("child"); // Not the same ID, but the same routine
+		ProgramTracker tracker = new ProgramTracker("test");
+		for (int i = 0; i < 5; i++) {
+			try (TrackNode root = tracker.start(rootId)) {
+				tracker.start(childId).end();
+				tracker.start("other").end();
+				tracker.start(i % 2 == 0 ? childId : otherChildId).end();
+			}
+		}
+		tracker.end(tracker.start("root"));
+		TrackNode[] roots = tracker.getData();
+		Assert.assertEquals(1, roots.length);
+		Assert.assertEquals(6, roots[0].getCount());
+		TrackNode[] children = roots[0].getChildren();
+		Assert.assertEquals(2, children.length);
+		Assert.assertEquals("child", children[0].getName());
+		Assert.assertEquals(10, children[0].getCount());
+		Assert.assertEquals("other", children[1].getName());
+		Assert.assertEquals(5, children[1].getCount());
+	}
+
+	/** Tests {@link ProgramTracker#printCollapsedStacks(StringBuilder)} */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testCollapsedStacks() {
+		ProgramTracker tracker = new ProgramTracker("test");
+		TrackNode main = tracker.start("main");
+		TrackNode parse = tracker.start("parse");
+		TrackNode read = tracker.start("read;file");
+		tracker.end(read);
+		tracker.end(parse);
+		TrackNode write = tracker.start("write");
+		tracker.end(write);
+		tracker.end(main);
+		TrackNode idle = tracker.start("idle");
+		tracker.end(idle);
+
+		// Replace the measured times so the output is exact
+		main.runLength = 10; // Milliseconds only. Exclusive time is negative, so it is not printed.
+		main.runLengthNanos = 0;
+		parse.runLength = 6;
+		parse.runLengthNanos = 6_500_000; // Nanoseconds are used when available
+		read.runLength = 2;
+		read.runLengthNanos = 0;
+		write.runLength = 4;
+		write.runLengthNanos = 0;
+		idle.runLength = 0; // No time, so not printed
+		idle.runLengthNanos = 0;
+
+		Assert.assertEquals(//
+			"main;parse 4500\n"//
+				+ "main;parse;read:file 2000\n"//
+				+ "main;write 4000\n", //
+			tracker.printCollapsedStacks(new StringBuilder()).toString());
+	}
+
+	/** Tests the notifications of a {@link ProgramTracker.RoutineListener}, including for routines skipped by sampling */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testListener() {
+		List<String> ended = new ArrayList<>();
+		ProgramTracker tracker = new ProgramTracker("test").setSampleRate(2);
+		tracker.setListener((routine, startTime, length, lengthNanos) -> {
+			Assert.assertEquals(routine.getLatestStart(), startTime);
+			Assert.assertTrue(length >= 0);
+			Assert.assertEquals(-1, lengthNanos);
+			ended.add(routine.getName());
+		});
+		for (int i = 0; i < 4; i++) {
+			TrackNode root = tracker.start("root");
+			tracker.end(tracker.start("child"));
+			tracker.start("unfinished"); // Ended implicitly with the root, without a notification
+			tracker.end(root);
+		}
+		// Only every other root is tracked
+		Assert.assertEquals(Arrays.asList("child", "root", "child", "root"), ended);
+
+		ended.clear();
+		tracker = new ProgramTracker("test", true);
+		tracker.setListener((routine, startTime, length, lengthNanos) -> {
+			Assert.assertTrue(lengthNanos >= 0);
+			ended.add(routine.getName());
+		});
+		tracker.end(tracker.start("root"));
+		tracker.setListener(null);
+		tracker.end(tracker.start("root"));
+		Assert.assertEquals(Arrays.asList("root"), ended);
+	}
+}
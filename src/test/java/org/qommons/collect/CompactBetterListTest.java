@@ -0,0 +1,67 @@
+package org.qommons.collect;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.ThreadConstraint;
+import org.qommons.testing.QommonsTestUtils;
+import org.qommons.testing.TestHelper;
+
+/** Tests {@link CompactBetterList} and multi-maps using it */
+public class CompactBetterListTest {
+	/** Tests {@link CompactBetterList} with thresholds small enough that it transitions between its inline and tree storage */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testCompactList() {
+		TestHelper.createTester(CompactListTester.class).withDebug(true).withFailurePersistence(true).withRandomCases(1).execute()
+			.throwErrorIfFailed();
+	}
+
+	static class CompactListTester implements TestHelper.Testable {
+		@Override
+		public void accept(TestHelper helper) {
+			for (int threshold : new int[] { 2, CompactBetterList.DEFAULT_THRESHOLD }) {
+				QommonsTestUtils.testCollection(
+					new CompactBetterList<Integer>(new FastFailLockingStrategy(ThreadConstraint.ANY), threshold, null), null, null,
+					helper);
+			}
+		}
+	}
+
+	/** Ensures that element IDs from a compact list remain valid after the list is upgraded to a tree */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testUpgrade() {
+		CompactBetterList<Integer> list = new CompactBetterList<>(new FastFailLockingStrategy(ThreadConstraint.ANY), 2, null);
+		ElementId first = list.addElement(1, false).getElementId();
+		ElementId second = list.addElement(2, false).getElementId();
+		Assert.assertTrue(list.isCompact());
+		list.addElement(0, null, first, true);
+		Assert.assertFalse(list.isCompact());
+		Assert.assertEquals(1, list.getElementsBefore(first));
+		Assert.assertTrue(first.compareTo(second) < 0);
+		Assert.assertEquals(Integer.valueOf(2), list.getAdjacentElement(first, true).get());
+		list.mutableElement(first).remove();
+		Assert.assertFalse(first.isPresent());
+		Assert.assertEquals(java.util.Arrays.asList(0, 2), list);
+		list.clear();
+		Assert.assertTrue(list.isCompact());
+		Assert.assertFalse(second.isPresent());
+	}
+
+	/** Tests a multi-map with {@link AbstractBetterMultiMap.Builder#withCompactValues(int) compact values} */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testCompactMultiMap() {
+		BetterMultiMap<String, Integer> map = BetterHashMultiMap.<String, Integer> build().withCompactValues(2).buildMultiMap();
+		for (int i = 0; i < 10; i++)
+			map.add("key" + (i % 3), i);
+		Assert.assertEquals(3, map.keySet().size());
+		Assert.assertEquals(10, map.valueSize());
+		Assert.assertEquals(java.util.Arrays.asList(0, 3, 6, 9), map.get("key0"));
+		map.get("key1").clear();
+		Assert.assertEquals(2, map.keySet().size());
+		Assert.assertEquals(7, map.valueSize());
+		map.get("key2").remove(Integer.valueOf(5));
+		Assert.assertEquals(java.util.Arrays.asList(2, 8), map.get("key2"));
+	}
+}
@@ -0,0 +1,113 @@
+package org.qommons.collect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.StringUtils;
+import org.qommons.collect.QuickSet.QuickMap;
+
+/** Tests {@link QuickSet}, particularly its {@link QuickSet#withPerfectHash() perfect hash} option */
+public class QuickSetTest {
+	/** Tests that every member of a perfectly-hashed set is found at the same index as in the plain set */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testPerfectHashMembership() {
+		for (int size : new int[] { 1, 2, 3, 10, 100, 5000 }) {
+			List<String> keys = randomKeys(size, new Random(size));
+			QuickSet<String> plain = QuickSet.of(keys);
+			QuickSet<String> hashed = plain.withPerfectHash();
+			Assert.assertTrue(hashed.isPerfectlyHashed());
+			Assert.assertEquals(plain.size(), hashed.size());
+			for (int i = 0; i < plain.size(); i++) {
+				Assert.assertEquals(plain.get(i), hashed.get(i));
+				// Use a copy so the key can't be found by identity
+				Assert.assertEquals(i, hashed.indexOf(new String(plain.get(i))));
+				Assert.assertTrue(hashed.contains(new String(plain.get(i))));
+			}
+		}
+	}
+
+	/** Tests that values that are not members of a perfectly-hashed set are reported correctly */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testPerfectHashNonMembers() {
+		Random random = new Random(30);
+		for (int size : new int[] { 1, 2, 10, 100, 5000 }) {
+			List<String> keys = randomKeys(size, random);
+			QuickSet<String> plain = QuickSet.of(keys);
+			QuickSet<String> hashed = plain.withPerfectHash();
+			Assert.assertTrue(hashed.isPerfectlyHashed());
+			for (int i = 0; i < 1000; i++) {
+				String value = Integer.toString(random.nextInt(), 36) + "-not";
+				int index = hashed.indexOf(value);
+				Assert.assertTrue(index < 0);
+				Assert.assertEquals(plain.indexOf(value), index);
+				Assert.assertFalse(hashed.contains(value));
+			}
+			Assert.assertFalse(hashed.contains(Integer.valueOf(5)));
+			Assert.assertEquals(-1, hashed.indexOfTolerant(Integer.valueOf(5)));
+		}
+		// Keys that can't be separated by their hash codes
+		QuickSet<String> colliding = QuickSet.of("Aa", "BB", "C");
+		Assert.assertFalse(colliding.withPerfectHash().isPerfectlyHashed());
+		Assert.assertEquals(1, colliding.withPerfectHash().indexOf("BB"));
+	}
+
+	/** Tests a perfect hash over all the time zone IDs, the way {@link org.qommons.TimeUtils} uses it */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testTimeZones() {
+		TreeSet<String> tzIds = new TreeSet<>();
+		tzIds.add("Z");
+		tzIds.addAll(Arrays.asList(TimeZone.getAvailableIDs()));
+		QuickSet<String> plain = QuickSet.of(String::compareToIgnoreCase, tzIds);
+		QuickSet<String> hashed = plain.withPerfectHash(StringUtils::hashCodeIgnoreCase);
+		Assert.assertTrue(hashed.isPerfectlyHashed());
+		Assert.assertTrue(hashed.size() > 500);
+		QuickMap<String, Integer> map = hashed.createMap();
+		for (int i = 0; i < hashed.size(); i++)
+			map.put(i, i);
+		for (int i = 0; i < plain.size(); i++) {
+			String id = plain.get(i);
+			Assert.assertEquals(i, hashed.indexOf(id));
+			Assert.assertEquals(i, hashed.indexOf(id.toUpperCase()));
+			Assert.assertEquals(i, hashed.indexOf(id.toLowerCase()));
+			Assert.assertEquals(Integer.valueOf(i), map.get(id.toLowerCase()));
+		}
+		Assert.assertEquals(plain.indexOf("Not/A_Zone"), hashed.indexOf("Not/A_Zone"));
+		Assert.assertTrue(hashed.indexOf("Not/A_Zone") < 0);
+	}
+
+	/** Tests {@link QuickSet#withPerfectHash(java.util.function.ToIntFunction)} with a hasher consistent with a custom comparator */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testCustomHasher() {
+		// Compare and hash integers by their last 2 digits only
+		QuickSet<Integer> plain = QuickSet.of((Integer a, Integer b) -> Integer.compare(a % 100, b % 100), 5, 17, 42, 99, 0, 63);
+		QuickSet<Integer> hashed = plain.withPerfectHash(i -> (i % 100) * 31);
+		Assert.assertTrue(hashed.isPerfectlyHashed());
+		for (int i = 0; i < plain.size(); i++) {
+			int key = plain.get(i);
+			Assert.assertEquals(i, hashed.indexOf(key));
+			Assert.assertEquals(i, hashed.indexOf(key + 100));
+			Assert.assertEquals(i, hashed.indexOf(key + 1200));
+		}
+		for (int i = 0; i < 100; i++) {
+			if (!plain.contains(i))
+				Assert.assertEquals(plain.indexOf(i), hashed.indexOf(i));
+		}
+	}
+
+	private static List<String> randomKeys(int size, Random random) {
+		TreeSet<String> keys = new TreeSet<>();
+		while (keys.size() < size)
+			keys.add(Integer.toString(random.nextInt(Integer.MAX_VALUE), 36));
+		return new ArrayList<>(keys);
+	}
+}
@@ -0,0 +1,124 @@
+package org.qommons.collect;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.collect.BetterSortedList.SortedSearchFilter;
+
+/** Tests {@link SortedArraySet} and {@link SortedArrayMap} */
+public class SortedArraySetTest {
+	/** Tests searches in sets using each of the lookup strategies against a {@link TreeSet} */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testSearches() {
+		Random random = new Random(29);
+		for (int size : new int[] { 0, 1, 2, 7, 100, 1000 }) {
+			TreeSet<Integer> reference = new TreeSet<>();
+			while (reference.size() < size)
+				reference.add(random.nextInt(size * 10 + 1) - size * 5);
+			List<Integer> shuffled = new ArrayList<>(reference);
+			java.util.Collections.shuffle(shuffled, random);
+			testSet(reference, SortedArraySet.<Integer> build(Integer::compare).addAll(shuffled).build(), size, random);
+			testSet(reference, SortedArraySet.<Integer> build(Integer::compare).addAll(shuffled).withEytzingerThreshold(1).build(), size,
+				random);
+			testSet(reference, SortedArraySet.<Integer> build(Integer::compare).addAll(shuffled).withNumericKey(Integer::doubleValue).build(),
+				size, random);
+			// A coarse numeric key, so that many values share a key
+			testSet(reference, SortedArraySet.<Integer> build(Integer::compare).addAll(shuffled)//
+				.withNumericKey(i -> Math.floorDiv(i, 16)).build(), size, random);
+		}
+	}
+
+	private static void testSet(TreeSet<Integer> reference, SortedArraySet<Integer> set, int size, Random random) {
+		Assert.assertEquals(reference.size(), set.size());
+		Assert.assertEquals(new ArrayList<>(reference), new ArrayList<>(set));
+		int i = 0;
+		for (Integer value : reference) {
+			CollectionElement<Integer> el = set.getElement(value, true);
+			Assert.assertNotNull(el);
+			Assert.assertEquals(value, el.get());
+			Assert.assertEquals(i, set.getElementsBefore(el.getElementId()));
+			Assert.assertEquals(i, set.indexOfValue(value));
+			Assert.assertTrue(set.isConsistent(el.getElementId()));
+			i++;
+		}
+		for (int j = 0; j < 200; j++) {
+			int value = random.nextInt(size * 12 + 3) - size * 6 - 1;
+			Assert.assertEquals(reference.contains(value), set.contains(value));
+			Comparable<Integer> search = v -> Integer.compare(value, v);
+			Assert.assertEquals(reference.floor(value), get(set.search(search, SortedSearchFilter.Less)));
+			Assert.assertEquals(reference.ceiling(value), get(set.search(search, SortedSearchFilter.Greater)));
+			Assert.assertEquals(reference.contains(value) ? Integer.valueOf(value) : null,
+				get(set.search(search, SortedSearchFilter.OnlyMatch)));
+			Integer preferLess = reference.floor(value);
+			if (preferLess == null)
+				preferLess = reference.ceiling(value);
+			Assert.assertEquals(preferLess, get(set.search(search, SortedSearchFilter.PreferLess)));
+			Integer preferGreater = reference.ceiling(value);
+			if (preferGreater == null)
+				preferGreater = reference.floor(value);
+			Assert.assertEquals(preferGreater, get(set.search(search, SortedSearchFilter.PreferGreater)));
+			int index = set.indexFor(search);
+			int expected = reference.headSet(value).size();
+			Assert.assertEquals(reference.contains(value) ? expected : -expected - 1, index);
+		}
+		Assert.assertFalse(set.checkConsistency());
+		if (size > 2) {
+			int low = set.get(1), high = set.get(size - 2);
+			Assert.assertEquals(new ArrayList<>(reference.subSet(low, true, high, false)), new ArrayList<>(set.subSet(low, high)));
+		}
+	}
+
+	private static <T> T get(CollectionElement<T> element) {
+		return element == null ? null : element.get();
+	}
+
+	/** Tests {@link SortedArrayMap} against a {@link TreeMap} */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testMap() {
+		Random random = new Random(290);
+		TreeMap<String, Integer> reference = new TreeMap<>();
+		SortedArrayMap.Builder<String, Integer> builder = SortedArrayMap.build(Comparator.naturalOrder());
+		for (int i = 0; i < 500; i++) {
+			String key = Integer.toString(random.nextInt(1000), 36);
+			reference.put(key, i);
+			builder.put(key, i);
+		}
+		SortedArrayMap<String, Integer> map = builder.withEytzingerThreshold(64).build();
+		Assert.assertEquals(new ArrayList<>(reference.entrySet()), new ArrayList<>(map.entrySet()));
+		Assert.assertEquals(new ArrayList<>(reference.keySet()), new ArrayList<>(map.keySet()));
+		for (int i = 0; i < 1000; i++) {
+			String key = Integer.toString(i, 36);
+			Assert.assertEquals(reference.get(key), map.get(key));
+			MapEntryHandle<String, Integer> entry = map.getEntry(key);
+			if (entry == null)
+				Assert.assertFalse(reference.containsKey(key));
+			else {
+				Assert.assertEquals(entry, map.getEntryById(entry.getElementId()));
+				Assert.assertEquals(reference.headMap(key).size(), map.keySet().getElementsBefore(entry.getElementId()));
+			}
+			MapEntryHandle<String, Integer> floor = map.searchEntries(e -> key.compareTo(e.getKey()), SortedSearchFilter.Less);
+			Assert.assertEquals(reference.floorKey(key), floor == null ? null : floor.getKey());
+		}
+		String from = reference.firstKey(), to = reference.lastKey();
+		Assert.assertEquals(new ArrayList<>(reference.subMap(from, true, to, false).entrySet()),
+			new ArrayList<>(map.subMap(from, true, to, false).entrySet()));
+		try {
+			map.put("a", 1);
+			Assert.assertTrue("Map should be immutable", false);
+		} catch (UnsupportedOperationException e) {}
+
+		QuickSet<String> quickSet = QuickSet.of(reference.keySet());
+		QuickSet.QuickMap<String, Integer> quickMap = quickSet.createMap();
+		for (int i = 0; i < quickSet.size(); i++)
+			quickMap.put(i, reference.get(quickSet.get(i)));
+		Assert.assertEquals(new ArrayList<>(reference.entrySet()), new ArrayList<>(SortedArrayMap.of(quickMap).entrySet()));
+	}
+}
@@ -0,0 +1,143 @@
+package org.qommons.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.io.SimpleXMLParser;
+import org.qommons.io.SimpleXMLParser.XmlParseException;
+import org.qommons.io.XmlTree;
+
+/** Tests {@link DefaultQonfigParser} */
+public class DefaultQonfigParserTest {
+	/**
+	 * Tests {@link DefaultQonfigParser#parseToolkits(ForkJoinPool, Map)} with a toolkit given before the toolkit it depends on
+	 *
+	 * @throws IOException If a toolkit is missing from the classpath or cannot be read
+	 * @throws XmlParseException If a toolkit cannot be parsed as XML
+	 * @throws QonfigParseException If a toolkit cannot be parsed as Qonfig
+	 */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testParallelToolkits() throws IOException, XmlParseException, QonfigParseException {
+		URL ext = DefaultQonfigParserTest.class.getResource("parallel-ext.qtd");
+		URL base = DefaultQonfigParserTest.class.getResource("parallel-base.qtd");
+		Map<URL, CustomValueType[]> toolkits = new LinkedHashMap<>();
+		toolkits.put(ext, new CustomValueType[0]);
+		toolkits.put(base, new CustomValueType[0]);
+		DefaultQonfigParser parser = new DefaultQonfigParser();
+		List<QonfigToolkit> parsed = parser.parseToolkits(ForkJoinPool.commonPool(), toolkits);
+
+		Assert.assertEquals("Parallel-Ext", parsed.get(0).getName());
+		Assert.assertEquals("Parallel-Base", parsed.get(1).getName());
+		Assert.assertSame(parsed.get(1), parsed.get(0).getDependencies().get("base"));
+		Assert.assertSame(parsed.get(1).getElement("thing"), parsed.get(0).getElement("special-thing").getSuperElement());
+		Assert.assertTrue(parser.usesToolkit("Parallel-Base", 0));
+		Assert.assertTrue(parser.usesToolkit("Parallel-Ext", 0));
+	}
+
+	/**
+	 * Tests that {@link DefaultQonfigParser#parseToolkits(ForkJoinPool, Map)} reports which toolkit could not be read
+	 *
+	 * @throws IOException If the missing toolkit's location cannot be created
+	 * @throws XmlParseException If a toolkit cannot be parsed as XML
+	 * @throws QonfigParseException If a toolkit cannot be parsed as Qonfig
+	 */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testParallelReadFailure() throws IOException, XmlParseException, QonfigParseException {
+		Path dir = Files.createTempDirectory("qonfig-missing");
+		Files.delete(dir);
+		URL missing = dir.resolve("missing.qtd").toUri().toURL();
+		Map<URL, CustomValueType[]> toolkits = new LinkedHashMap<>();
+		toolkits.put(DefaultQonfigParserTest.class.getResource("parallel-base.qtd"), new CustomValueType[0]);
+		toolkits.put(missing, new CustomValueType[0]);
+		try {
+			new DefaultQonfigParser().parseToolkits(ForkJoinPool.commonPool(), toolkits);
+			Assert.fail("A missing toolkit should be reported");
+		} catch (DefaultQonfigParser.ToolkitReadException e) {
+			Assert.assertEquals(missing, e.getLocation());
+			Assert.assertTrue(e.getMessage().contains(missing.toString()));
+			Assert.assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	/**
+	 * Tests the {@link DefaultQonfigParser#withToolkitCache(File) toolkit cache}, including a corrupt cache file and a cache that cannot be
+	 * written
+	 *
+	 * @throws IOException If a toolkit is missing from the classpath or cannot be read
+	 * @throws XmlParseException If a toolkit cannot be parsed as XML
+	 * @throws QonfigParseException If a toolkit cannot be parsed as Qonfig
+	 */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testToolkitCache() throws IOException, XmlParseException, QonfigParseException {
+		URL base = DefaultQonfigParserTest.class.getResource("parallel-base.qtd");
+		byte[] content;
+		try (InputStream in = base.openStream()) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			int read;
+			while ((read = in.read(buffer)) >= 0)
+				bytes.write(buffer, 0, read);
+			content = bytes.toByteArray();
+		}
+		Path cache = Files.createTempDirectory("qonfig-cache");
+		try {
+			// The first parse populates the cache
+			QonfigToolkit toolkit = parseCached(cache.toFile(), base);
+			Assert.assertNotNull(toolkit.getElement("thing"));
+			File[] cached = cache.toFile().listFiles();
+			Assert.assertEquals(1, cached.length);
+			Assert.assertTrue(cached[0].getName().endsWith(DefaultQonfigParser.TOOLKIT_CACHE_EXTENSION));
+
+			// Replace the cached tree with a different one to show that a parse of the same content reads the cache, not the XML
+			XmlTree altered = new SimpleXMLParser().parseTree(null,
+				new StringReader(new String(content, StandardCharsets.UTF_8).replace("\"thing\"", "\"cached-thing\"")));
+			try (OutputStream out = Files.newOutputStream(cached[0].toPath())) {
+				altered.write(out);
+			}
+			toolkit = parseCached(cache.toFile(), base);
+			Assert.assertNull(toolkit.getElement("thing"));
+			Assert.assertNotNull(toolkit.getElement("cached-thing"));
+
+			// A corrupt cache file is ignored and replaced
+			Files.write(cached[0].toPath(), new byte[] { 1, 2, 3 });
+			toolkit = parseCached(cache.toFile(), base);
+			Assert.assertNotNull(toolkit.getElement("thing"));
+			try (InputStream in = Files.newInputStream(cached[0].toPath())) {
+				XmlTree tree = XmlTree.read(in);
+				Assert.assertEquals("Parallel-Base", tree.getAttributeValue(tree.getAttribute(tree.getRoot(), //
+					tree.indexOfAttribute(tree.getRoot(), "name"))));
+			}
+
+			// A cache that cannot be written does not prevent parsing
+			toolkit = parseCached(cached[0], base);
+			Assert.assertNotNull(toolkit.getElement("thing"));
+		} finally {
+			for (File file : cache.toFile().listFiles())
+				Files.delete(file.toPath());
+			Files.delete(cache);
+		}
+	}
+
+	private static QonfigToolkit parseCached(File cache, URL location) throws IOException, XmlParseException, QonfigParseException {
+		try (InputStream in = location.openStream()) {
+			return new DefaultQonfigParser().withToolkitCache(cache).parseToolkit(location, in);
+		}
+	}
+}
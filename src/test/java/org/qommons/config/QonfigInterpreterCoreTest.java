@@ -0,0 +1,114 @@
+package org.qommons.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.config.QonfigInterpreterCore.CoreSession;
+import org.qommons.config.QonfigInterpreterCore.QonfigValueModifier;
+import org.qommons.io.ErrorReporting;
+import org.qommons.io.SimpleXMLParser.XmlParseException;
+
+/** Tests the creators and modifiers that {@link QonfigInterpreterCore} resolves and caches for each type of element */
+public class QonfigInterpreterCoreTest {
+	/**
+	 * Tests interpretation of elements with modifiers on some but not all of a sequence of add-ons, so that a modifier which does not apply
+	 * falls between ones that do
+	 *
+	 * @throws IOException If the toolkit is missing from the classpath or cannot be read
+	 * @throws XmlParseException If the toolkit or document cannot be parsed as XML
+	 * @throws QonfigParseException If the toolkit or document cannot be parsed as Qonfig
+	 * @throws QonfigInterpretationException If the document cannot be interpreted
+	 */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testSkippedModifier() throws IOException, XmlParseException, QonfigParseException, QonfigInterpretationException {
+		DefaultQonfigParser parser = new DefaultQonfigParser();
+		QonfigToolkit toolkit = parseToolkit(parser);
+		QonfigInterpreterCore interpreter = QonfigInterpreterCore.build(new ErrorReporting.Default(null), toolkit).forToolkit(toolkit)//
+			.createWith("item", String.class, session -> "item")//
+			.modifyWith("first", String.class, new NamingModifier())//
+			.modifyWith("second", String.class, new NamingModifier())//
+			.modifyWith("third", String.class, new NamingModifier())//
+			.build();
+		List<String> values = interpretItems(parser, interpreter, toolkit, //
+			"<item with-extension=\"first,third\" />", //
+			"<item with-extension=\"first,second,third\" />", //
+			"<item with-extension=\"first,third\" />", //
+			"<item />");
+		Assert.assertEquals("item:first:third", values.get(0));
+		Assert.assertEquals("item:first:second:third", values.get(1));
+		Assert.assertEquals("item:first:third", values.get(2));
+		Assert.assertEquals("item", values.get(3));
+	}
+
+	/**
+	 * Tests interpretation of elements of different types which share a creator, but inherit different add-ons
+	 *
+	 * @throws IOException If the toolkit is missing from the classpath or cannot be read
+	 * @throws XmlParseException If the toolkit or document cannot be parsed as XML
+	 * @throws QonfigParseException If the toolkit or document cannot be parsed as Qonfig
+	 * @throws QonfigInterpretationException If the document cannot be interpreted
+	 */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testSharedCreator() throws IOException, XmlParseException, QonfigParseException, QonfigInterpretationException {
+		DefaultQonfigParser parser = new DefaultQonfigParser();
+		QonfigToolkit toolkit = parseToolkit(parser);
+		QonfigInterpreterCore interpreter = QonfigInterpreterCore.build(new ErrorReporting.Default(null), toolkit).forToolkit(toolkit)//
+			.createWith("item", String.class, session -> "item")//
+			.modifyWith("second", String.class, new NamingModifier())//
+			.build();
+		List<String> values = interpretItems(parser, interpreter, toolkit, //
+			"<plain-item />", //
+			"<second-item />", //
+			"<plain-item />", //
+			"<second-item with-extension=\"first\" />");
+		Assert.assertEquals("item", values.get(0));
+		Assert.assertEquals("item:second", values.get(1));
+		Assert.assertEquals("item", values.get(2));
+		Assert.assertEquals("item:second", values.get(3));
+	}
+
+	/** Appends the name of the add-on it modifies for, passed through its prepared value */
+	static class NamingModifier implements QonfigValueModifier<String> {
+		@Override
+		public Object prepareSession(CoreSession session) throws QonfigInterpretationException {
+			return session.getFocusType().getName();
+		}
+
+		@Override
+		public String modifyValue(String value, CoreSession session, Object prepared) throws QonfigInterpretationException {
+			Assert.assertEquals(session.getFocusType().getName(), prepared);
+			return value + ":" + prepared;
+		}
+	}
+
+	private static QonfigToolkit parseToolkit(DefaultQonfigParser parser) throws IOException, XmlParseException, QonfigParseException {
+		URL location = QonfigInterpreterCoreTest.class.getResource("plan-test.qtd");
+		try (InputStream in = location.openStream()) {
+			return parser.parseToolkit(location, in);
+		}
+	}
+
+	private static List<String> interpretItems(DefaultQonfigParser parser, QonfigInterpreterCore interpreter, QonfigToolkit toolkit,
+		String... items) throws IOException, XmlParseException, QonfigParseException, QonfigInterpretationException {
+		StringBuilder xml = new StringBuilder("<plan-root xmlns:pt=\"Plan-Test v0.1\">\n");
+		for (String item : items)
+			xml.append('\t').append(item).append('\n');
+		xml.append("</plan-root>\n");
+		QonfigDocument doc = parser.parseDocument(false, "plan-test.qml",
+			new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8)));
+		QonfigElementDef itemDef = toolkit.getElement("item");
+		List<String> values = new ArrayList<>();
+		for (CoreSession item : interpreter.interpret(doc.getRoot()).forChildren("item"))
+			values.add(item.interpret(itemDef, String.class));
+		return values;
+	}
+}
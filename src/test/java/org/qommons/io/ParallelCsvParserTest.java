@@ -0,0 +1,81 @@
+package org.qommons.io;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests {@link ParallelCsvParser} */
+public class ParallelCsvParserTest {
+	/**
+	 * Tests parsing a file with quoted multi-line columns, blank lines, and multi-byte characters in chunks of various sizes, comparing the
+	 * results against {@link CsvParser}
+	 *
+	 * @throws IOException If the file cannot be written or read
+	 * @throws TextParseException Shouldn't happen
+	 */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testChunks() throws IOException, TextParseException {
+		Random random = new Random(0);
+		StringBuilder csv = new StringBuilder("\uFEFF");
+		String[] values = { "plain", "", "\"quoted, with\n\"\"newlines\"\"\n\"", "\"\"", "café 😀", "\"\r\n\"", "a\"b" };
+		for (int i = 0; i < 500; i++) {
+			int columns = 1 + random.nextInt(4);
+			for (int c = 0; c < columns; c++) {
+				if (c > 0)
+					csv.append(',');
+				csv.append(values[random.nextInt(values.length)]);
+			}
+			csv.append(random.nextInt(5) == 0 ? "\r\n" : "\n");
+			if (random.nextInt(10) == 0)
+				csv.append("\n\r\n");
+		}
+		List<String> expected = new ArrayList<>();
+		CsvParser sequential = new CsvParser(new StringReader(csv.substring(1)), ',').withCharset(StandardCharsets.UTF_8);
+		String[] line;
+		while ((line = sequential.parseNextLine()) != null)
+			expected.add(sequential.getLastLineNumber() + "@" + (sequential.getLastLineByteOffset() + 3) + Arrays.toString(line));
+
+		Path file = Files.createTempFile("parallel", ".csv");
+		try {
+			Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+			ForkJoinPool pool = new ForkJoinPool(4);
+			try {
+				for (int chunkSize : new int[] { 1, 2, 7, 100, 4096, ParallelCsvParser.DEFAULT_CHUNK_SIZE }) {
+					List<String> parsed = new ArrayList<>();
+					long count = new ParallelCsvParser(',', pool).setChunkSize(chunkSize).parse(file,
+						(lineNumber, byteOffset, columns) -> parsed.add(lineNumber + "@" + byteOffset + Arrays.toString(columns)));
+					Assert.assertEquals(expected.size(), count);
+					Assert.assertEquals(expected, parsed);
+				}
+
+				// Errors should be reported at their position in the file
+				Files.write(file, "a,b\n\"c\nd\",e\nf,\"g\"h\n".getBytes(StandardCharsets.UTF_8));
+				for (int chunkSize : new int[] { 1, 5, 100 }) {
+					try {
+						new ParallelCsvParser(',', pool).setChunkSize(chunkSize).parse(file, (lineNumber, byteOffset, columns) -> {});
+						Assert.fail("Content after an end quote should be reported");
+					} catch (TextParseException e) {
+						Assert.assertEquals(3, e.getLineNumber());
+						Assert.assertEquals(5, e.getColumnNumber());
+						Assert.assertEquals(17, e.getErrorOffset());
+					}
+				}
+			} finally {
+				pool.shutdown();
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -28,6 +28,22 @@ public class SimpleXMLParserTest {
 	 */
 	@Test
 	public void testSimpleXmlParser() throws IOException, XmlParseException {
+		testSimpleXmlParser(false);
+	}
+
+	/**
+	 * Tests against a small XML file with {@link SimpleXMLParser#setLazyPositions(boolean) lazy positions}, which should report the same
+	 * positions
+	 * 
+	 * @throws IOException If the file is missing from the classpath or cannot be read
+	 * @throws XmlParseException If the file cannot be parsed as XML at all
+	 */
+	@Test
+	public void testLazyPositions() throws IOException, XmlParseException {
+		testSimpleXmlParser(true);
+	}
+
+	private static void testSimpleXmlParser(boolean lazy) throws IOException, XmlParseException {
 		try (InputStream in = SimpleXMLParserTest.class.getResourceAsStream("SimpleXmlTest.xml")) {
 			SequenceTester tester = new SequenceTester(//
 				new ExpectedXmlDeclaration()//
@@ -77,7 +93,7 @@ public class SimpleXMLParserTest {
 				new ExpectedComment(" This is a footer comment with special characters &<'\nblah ", 505, 26, 4), //
 				new ExpectedWhitespace("\n", 567, 27, 8)//
 			);
-			new SimpleXMLParser().setTabLength(4).parseXml(null, in, tester);
+			new SimpleXMLParser().setTabLength(4).setLazyPositions(lazy).parseXml(null, in, tester);
 			tester.done();
 		}
 	}
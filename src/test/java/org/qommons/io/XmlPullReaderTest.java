@@ -0,0 +1,131 @@
+package org.qommons.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.io.SimpleXMLParser.XmlAttribute;
+import org.qommons.io.SimpleXMLParser.XmlCdata;
+import org.qommons.io.SimpleXMLParser.XmlComment;
+import org.qommons.io.SimpleXMLParser.XmlElementTerminal;
+import org.qommons.io.SimpleXMLParser.XmlParseException;
+import org.qommons.io.SimpleXMLParser.XmlProcessingInstruction;
+import org.qommons.io.XmlPullReader.Event;
+
+/** Tests {@link XmlPullReader} */
+public class XmlPullReaderTest {
+	/**
+	 * Tests that the pull reader reports the same structures at the same positions as the push parser
+	 *
+	 * @throws IOException If the file is missing from the classpath or cannot be read
+	 * @throws XmlParseException If the file cannot be parsed as XML at all
+	 */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testSameAsPush() throws IOException, XmlParseException {
+		List<String> pushed = new ArrayList<>();
+		try (InputStream in = XmlPullReaderTest.class.getResourceAsStream("SimpleXmlTest.xml")) {
+			new SimpleXMLParser().parseXml(null, in, new SimpleXMLParser.ParseHandler() {
+				@Override
+				public void handleProcessingInstruction(XmlProcessingInstruction pi) {
+					pushed.add(describe(Event.PROCESSING_INSTRUCTION, pi.getTargetName(), pi.getContent()));
+				}
+
+				@Override
+				public void handleComment(XmlComment comment) {
+					pushed.add(describe(Event.COMMENT, null, comment.getContent()));
+				}
+
+				@Override
+				public void handleElementStart(XmlElementTerminal element) {
+					pushed.add(describe(Event.ELEMENT_START, element.getName(), element.getContent()));
+				}
+
+				@Override
+				public void handleAttribute(XmlAttribute attribute) {
+					pushed.add(describe(Event.ATTRIBUTE, attribute.getName(), attribute.getValueContent()));
+				}
+
+				@Override
+				public void handleElementContent(String elementName, PositionedContent elementValue) {
+					pushed.add(describe(Event.TEXT, elementName, elementValue));
+				}
+
+				@Override
+				public void handleCDataContent(String elementName, XmlCdata cdata) {
+					pushed.add(describe(Event.CDATA, elementName, cdata.getValueContent()));
+				}
+
+				@Override
+				public void handleElementEnd(XmlElementTerminal element, boolean selfClosing) {
+					pushed.add(describe(Event.ELEMENT_END, element.getName(), element.getContent()));
+				}
+			});
+		}
+		List<String> pulled = new ArrayList<>();
+		try (InputStream in = XmlPullReaderTest.class.getResourceAsStream("SimpleXmlTest.xml");
+			XmlPullReader reader = new SimpleXMLParser().pullXml(null, in)) {
+			Event event;
+			while ((event = reader.next()) != Event.END) {
+				if (event == Event.DECLARATION)
+					continue;
+				PositionedContent content = event == Event.COMMENT || event == Event.PROCESSING_INSTRUCTION
+					? reader.getComponent().getContent() : reader.getContent();
+				pulled.add(describe(event, reader.getName(), content));
+			}
+		}
+		Assert.assertEquals(pushed, pulled);
+	}
+
+	/**
+	 * Tests skipping elements and reading text
+	 *
+	 * @throws IOException Shouldn't happen
+	 * @throws XmlParseException Shouldn't happen
+	 */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testSkipping() throws IOException, XmlParseException {
+		String xml = "<root>\n<skip a=\"1\"><deep><deeper/>text</deep></skip>\n"//
+			+ "<record id=\"1\"><name>A &amp; B</name><other><x/></other></record>\n"//
+			+ "<record id=\"2\"><name><![CDATA[<C>]]></name></record>\n"//
+			+ "<record id=\"3\"><name>D</name><bad></record></root>";
+		List<String> names = new ArrayList<>();
+		try (XmlPullReader reader = new SimpleXMLParser().pullXml(null, new StringReader(xml))) {
+			Assert.assertTrue(reader.nextElement());
+			Assert.assertEquals("root", reader.getName());
+			while (reader.nextElement(1)) {
+				if (!reader.getName().equals("record"))
+					continue; // nextElement will skip it
+				Assert.assertEquals(Event.ATTRIBUTE, reader.next());
+				String id = reader.getValue();
+				Assert.assertTrue(reader.nextElement(2));
+				names.add(id + ":" + reader.readText());
+				if (id.equals("2"))
+					break; // Stop early
+			}
+			Assert.assertEquals(2, reader.getDepth());
+		}
+		Assert.assertEquals("[1:A & B, 2:<C>]", names.toString());
+
+		try (XmlPullReader reader = new SimpleXMLParser().pullXml(null, new StringReader(xml))) {
+			reader.nextElement();
+			while (reader.next() != Event.END) {}
+			Assert.fail("Unclosed element should be reported");
+		} catch (XmlParseException e) {
+			Assert.assertEquals(4, e.getLineNumber());
+			Assert.assertEquals(36, e.getColumnNumber());
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("Closing element for 'bad' expected"));
+		}
+	}
+
+	static String describe(Event event, String name, PositionedContent content) {
+		FilePosition start = content.getPosition(0);
+		FilePosition end = content.getPosition(content.length());
+		return event + " " + name + "=" + content + "@" + start + "-" + end;
+	}
+}
@@ -0,0 +1,152 @@
+package org.qommons.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.io.SimpleXMLParser.XmlParseException;
+import org.qommons.io.XmlTree.NodeType;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/** Tests {@link XmlTree} */
+public class XmlTreeTest {
+	/**
+	 * Tests that a parsed tree and a tree copied from a DOM both have the same structure, content, and positions as the DOM parsed from
+	 * the same file
+	 *
+	 * @throws IOException If the file is missing from the classpath or cannot be read
+	 * @throws XmlParseException If the file cannot be parsed as XML at all
+	 */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testSameAsDom() throws IOException, XmlParseException {
+		Document doc;
+		try (InputStream in = XmlTreeTest.class.getResourceAsStream("SimpleXmlTest.xml")) {
+			doc = new SimpleXMLParser().parseDocument(null, in);
+		}
+		XmlTree tree;
+		try (InputStream in = XmlTreeTest.class.getResourceAsStream("SimpleXmlTest.xml")) {
+			tree = new SimpleXMLParser().parseTree(null, in);
+		}
+		Assert.assertEquals(doc.getDocumentElement().getNodeName(), tree.getName(tree.getRoot()));
+		compare(doc, tree, XmlTree.DOCUMENT);
+		compare(doc.getDocumentElement(), XmlTree.of(doc.getDocumentElement()), 1);
+	}
+
+	/**
+	 * Tests that a DOM {@link XmlTree#toDom(int) copied} from a tree has the same structure, content, and positions as the tree
+	 *
+	 * @throws IOException If the file is missing from the classpath or cannot be read
+	 * @throws XmlParseException If the file cannot be parsed as XML at all
+	 */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testToDom() throws IOException, XmlParseException {
+		XmlTree tree;
+		try (InputStream in = XmlTreeTest.class.getResourceAsStream("SimpleXmlTest.xml")) {
+			tree = new SimpleXMLParser().parseTree(null, in);
+		}
+		Element root = tree.toDom(tree.getRoot());
+		Assert.assertSame(root, root.getOwnerDocument().getDocumentElement());
+		compare(root, tree, tree.getRoot());
+	}
+
+	/**
+	 * Tests that a tree written in binary form and read back is the same as the DOM parsed from the same file
+	 *
+	 * @throws IOException If the file is missing from the classpath or cannot be read
+	 * @throws XmlParseException If the file cannot be parsed as XML at all
+	 */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testBinary() throws IOException, XmlParseException {
+		Document doc;
+		try (InputStream in = XmlTreeTest.class.getResourceAsStream("SimpleXmlTest.xml")) {
+			doc = new SimpleXMLParser().parseDocument(null, in);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (InputStream in = XmlTreeTest.class.getResourceAsStream("SimpleXmlTest.xml")) {
+			new SimpleXMLParser().parseTree(null, in).write(bytes);
+		}
+		XmlTree tree = XmlTree.read(new ByteArrayInputStream(bytes.toByteArray()));
+		compare(doc, tree, XmlTree.DOCUMENT);
+
+		byte[] corrupt = bytes.toByteArray();
+		corrupt[0]++;
+		try {
+			XmlTree.read(new ByteArrayInputStream(corrupt));
+			Assert.fail("Bad binary tree should be rejected");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	private static void compare(Node node, XmlTree tree, int treeNode) {
+		switch (node.getNodeType()) {
+		case Node.DOCUMENT_NODE:
+			Assert.assertEquals(NodeType.DOCUMENT, tree.getType(treeNode));
+			break;
+		case Node.ELEMENT_NODE:
+			Assert.assertEquals(NodeType.ELEMENT, tree.getType(treeNode));
+			Assert.assertEquals(node.getNodeName(), tree.getName(treeNode));
+			assertSame(SimpleXMLParser.getNamePosition(node), tree.getNamePosition(treeNode));
+			Assert.assertEquals(node.getAttributes().getLength(), tree.getAttributeCount(treeNode));
+			for (int a = 0; a < node.getAttributes().getLength(); a++) {
+				Attr attr = (Attr) node.getAttributes().item(a);
+				int index = tree.indexOfAttribute(treeNode, attr.getName());
+				Assert.assertTrue(index >= 0);
+				int treeAtt = tree.getAttribute(treeNode, index);
+				Assert.assertEquals(attr.getValue(), tree.getAttributeValue(treeAtt));
+				assertSame(SimpleXMLParser.getNamePosition(attr), tree.getAttributeNamePosition(treeAtt));
+				assertSame(SimpleXMLParser.getPositionContent(attr), tree.getAttributeValuePosition(treeAtt));
+			}
+			Assert.assertEquals(-1, tree.indexOfAttribute(treeNode, "not-an-attribute"));
+			break;
+		case Node.TEXT_NODE:
+			Assert.assertEquals(NodeType.TEXT, tree.getType(treeNode));
+			break;
+		case Node.CDATA_SECTION_NODE:
+			Assert.assertEquals(NodeType.CDATA, tree.getType(treeNode));
+			break;
+		case Node.COMMENT_NODE:
+			Assert.assertEquals(NodeType.COMMENT, tree.getType(treeNode));
+			break;
+		case Node.PROCESSING_INSTRUCTION_NODE:
+			Assert.assertEquals(NodeType.PROCESSING_INSTRUCTION, tree.getType(treeNode));
+			Assert.assertEquals(node.getNodeName(), tree.getName(treeNode));
+			assertSame(SimpleXMLParser.getNamePosition(node), tree.getNamePosition(treeNode));
+			break;
+		default:
+			Assert.fail("Unexpected node type " + node.getNodeType());
+		}
+		if (node.getNodeType() != Node.DOCUMENT_NODE && node.getNodeType() != Node.ELEMENT_NODE) {
+			Assert.assertEquals(node.getNodeValue(), tree.getValue(treeNode));
+			assertSame(SimpleXMLParser.getPositionContent(node), tree.getValuePosition(treeNode));
+		}
+		Assert.assertEquals(node.getChildNodes().getLength(), tree.getChildCount(treeNode));
+		int child = tree.getFirstChild(treeNode);
+		for (int c = 0; c < node.getChildNodes().getLength(); c++, child = tree.getNextSibling(child)) {
+			Assert.assertEquals(treeNode, tree.getParent(child));
+			compare(node.getChildNodes().item(c), tree, child);
+		}
+		Assert.assertEquals(-1, child);
+	}
+
+	private static void assertSame(PositionedContent expected, PositionedContent actual) {
+		if (expected == null) {
+			Assert.assertNull(actual);
+			return;
+		}
+		Assert.assertEquals(expected.toString(), actual.toString());
+		for (int i = 0; i <= expected.length(); i++)
+			Assert.assertEquals(expected.getPosition(i), actual.getPosition(i));
+		for (int i = 0; i < expected.length(); i++)
+			Assert.assertEquals(expected.getSourceContent(i, i + 1).toString(), actual.getSourceContent(i, i + 1).toString());
+	}
+}
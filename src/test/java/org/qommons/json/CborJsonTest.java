@@ -0,0 +1,125 @@
+package org.qommons.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.json.JsonSerialReader.JsonParseItem;
+import org.qommons.json.JsonSerialReader.ObjectItem;
+import org.qommons.json.JsonSerialReader.PrimitiveItem;
+import org.qommons.json.JsonSerialReader.PropertyItem;
+import org.qommons.json.SAJParser.ParseException;
+
+/** Tests {@link CborJsonWriter} and {@link CborJsonReader} */
+public class CborJsonTest {
+	private static final JsonObject DOCUMENT = new JsonObject()//
+		.with("string", "value")//
+		.with("unicode", "é中😀")//
+		.with("ints", Arrays.asList(0, 23, 24, -24, -25, 255, 256, 65536, Integer.MAX_VALUE, -Integer.MAX_VALUE))//
+		.with("longs", Arrays.asList(Long.MAX_VALUE, Long.MIN_VALUE, 1L << 40))//
+		.with("doubles", Arrays.asList(0.5, -2.0, 0.1, 1E300, Double.NaN))//
+		.with("big", Arrays.asList(BigInteger.ONE.shiftLeft(70), BigInteger.ONE.shiftLeft(64).negate(), new BigDecimal("-123.456")))//
+		.with("nested", new JsonObject().with("empty", new JsonObject()).with("list", Arrays.asList(true, false, null, new ArrayList<>())))//
+		.with("null", null);
+
+	/** Tests writing content and reading it back with each of the reader's methods */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testRoundTrip() throws IOException, ParseException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CborJsonWriter writer = new CborJsonWriter(bytes, 16);
+		writer.writeThing(DOCUMENT);
+		writer.writeString("second");
+		writer.close();
+		byte[] content = bytes.toByteArray();
+
+		CborJsonReader reader = new CborJsonReader(new ByteArrayInputStream(content), 16);
+		Assert.assertEquals(DOCUMENT, reader.parseNext());
+		Assert.assertEquals("second", reader.parseNext());
+		Assert.assertNull(reader.parseNext());
+		Assert.assertEquals(content.length, reader.getOffset());
+
+		reader = new CborJsonReader(ByteBuffer.wrap(content));
+		Assert.assertEquals(DOCUMENT, reader.parse(new SAJParser.DefaultHandler()));
+		Assert.assertEquals("second", reader.parse(new SAJParser.DefaultHandler()));
+
+		// Pull items, mixed with complete values
+		reader = new CborJsonReader(content, 0, content.length);
+		Assert.assertTrue(((ObjectItem) reader.getNextItem()).isBegin());
+		Assert.assertEquals("string", ((PropertyItem) reader.getNextItem()).getName());
+		Assert.assertEquals("value", ((PrimitiveItem) reader.getNextItem()).getValue());
+		try {
+			reader.parseNext();
+			Assert.fail("A property name should be expected");
+		} catch (ParseException e) {}
+		reader = new CborJsonReader(content, 0, content.length);
+		reader.getNextItem();
+		List<String> names = new ArrayList<>();
+		JsonParseItem item;
+		while ((item = reader.getNextItem()) instanceof PropertyItem) {
+			names.add(((PropertyItem) item).getName());
+			Assert.assertEquals(DOCUMENT.get(names.get(names.size() - 1)), unwrap(reader.parseNext()));
+		}
+		Assert.assertEquals(new ArrayList<>(DOCUMENT.keySet()), names);
+		Assert.assertFalse(((ObjectItem) item).isBegin());
+		Assert.assertEquals(0, reader.getDepth());
+
+		// The binary form should be much smaller than the text
+		java.io.StringWriter text = new java.io.StringWriter();
+		new JsonStreamWriter(text).writeThing(DOCUMENT);
+		Assert.assertTrue(content.length < text.toString().length() * 3 / 4);
+	}
+
+	/** Tests reading examples from RFC 8949, appendix A */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testStandardEncodings() throws IOException, ParseException {
+		Assert.assertEquals(1000000, read("1a000f4240"));
+		Assert.assertEquals(1000000000000L, read("1b000000e8d4a51000"));
+		Assert.assertEquals(new BigInteger("18446744073709551615"), read("1bffffffffffffffff"));
+		Assert.assertEquals(new BigInteger("18446744073709551616"), read("c249010000000000000000"));
+		Assert.assertEquals(new BigInteger("-18446744073709551616"), read("3bffffffffffffffff"));
+		Assert.assertEquals(-1000, read("3903e7"));
+		Assert.assertEquals(1.0, read("f93c00"));
+		Assert.assertEquals(-4.0, read("f9c400"));
+		Assert.assertEquals(5.960464477539063e-8, read("f90001"));
+		Assert.assertEquals(100000.0, read("fa47c35000"));
+		Assert.assertEquals(-4.1, read("fbc010666666666666"));
+		Assert.assertEquals("streaming", read("7f657374726561646d696e67ff"));
+		Assert.assertEquals("水", read("63e6b0b4"));
+		Assert.assertEquals(new JsonObject().with("a", 1).with("b", Arrays.asList(2, 3)), read("a26161016162820203"));
+		Assert.assertEquals(Arrays.asList(1, Arrays.asList(2, 3), Arrays.asList(4, 5)), read("9f018202039f0405ffff"));
+		// Tag 1 (epoch time) is ignored
+		Assert.assertEquals(1363896240, read("c11a514b67b0"));
+		Assert.assertEquals(JsonSerialReader.NULL, read("f7"));
+		Assert.assertEquals("AQID", read("43010203"));
+
+		try {
+			read("a1016161");
+			Assert.fail("Non-string keys should be rejected");
+		} catch (ParseException e) {}
+		try {
+			read("9f0102");
+			Assert.fail("Truncated content should be reported");
+		} catch (ParseException e) {}
+	}
+
+	private static Object read(String hex) throws IOException, ParseException {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+		return new CborJsonReader(new ByteArrayInputStream(bytes), 16).parseNext();
+	}
+
+	private static Object unwrap(Object value) {
+		return value == JsonSerialReader.NULL ? null : value;
+	}
+}
@@ -0,0 +1,130 @@
+package org.qommons.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.json.SAJParser.ParseException;
+
+/** Tests {@link JsonCodec} and {@link JsonObjectCodec} */
+public class JsonCodecTest {
+	static class Address {
+		String street;
+		int zip;
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Address && Objects.equals(street, ((Address) obj).street) && zip == ((Address) obj).zip;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(street, zip);
+		}
+	}
+
+	static class Person {
+		String name;
+		int age;
+		long id;
+		double score;
+		boolean active;
+		Address address;
+		List<Address> previous;
+		List<Integer> numbers;
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Person))
+				return false;
+			Person other = (Person) obj;
+			return Objects.equals(name, other.name) && age == other.age && id == other.id && score == other.score && active == other.active
+				&& Objects.equals(address, other.address) && Objects.equals(previous, other.previous) && Objects.equals(numbers, other.numbers);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(name, age, id);
+		}
+	}
+
+	private static final JsonCodec<Address> ADDRESS = JsonCodec.forObject(Address::new)//
+		.withString("street", a -> a.street, (a, v) -> a.street = v)//
+		.withInt("zip", a -> a.zip, (a, v) -> a.zip = v)//
+		.build();
+
+	private static final JsonCodec<Person> PERSON = JsonCodec.forObject(Person::new)//
+		.withString("name", p -> p.name, (p, v) -> p.name = v)//
+		.withInt("age", p -> p.age, (p, v) -> p.age = v)//
+		.withLong("id", p -> p.id, (p, v) -> p.id = v)//
+		.withDouble("score", p -> p.score, (p, v) -> p.score = v)//
+		.withBoolean("active", p -> p.active, (p, v) -> p.active = v)//
+		.with("address", ADDRESS, p -> p.address, (p, v) -> p.address = v)//
+		.with("previous", JsonCodec.listOf(ADDRESS), p -> p.previous, (p, v) -> p.previous = v)//
+		.with("numbers", JsonCodec.listOf(JsonCodec.INT), p -> p.numbers, (p, v) -> p.numbers = v)//
+		.build();
+
+	/** Tests writing objects with a codec and reading them back from text and bytes */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testRoundTrip() throws IOException, ParseException {
+		Person person = new Person();
+		person.name = "Bob";
+		person.age = 31;
+		person.id = 1L << 40;
+		person.score = 2.5;
+		person.active = true;
+		person.address = new Address();
+		person.address.street = "Main";
+		person.address.zip = 12345;
+		Address old = new Address();
+		old.street = "Elm";
+		person.previous = Arrays.asList(old, null);
+		person.numbers = Arrays.asList(1, null, 3);
+
+		StringWriter text = new StringWriter();
+		JsonStreamWriter writer = new JsonStreamWriter(text);
+		writer.startArray();
+		PERSON.write(person, writer);
+		PERSON.write(null, writer);
+		writer.endArray();
+		String json = text.toString();
+		// The codec's output should be the same as the equivalent JSON object's
+		JsonObject expected = new JsonObject().with("name", "Bob").with("age", 31).with("id", 1L << 40).with("score", 2.5)
+			.with("active", true).with("address", new JsonObject().with("street", "Main").with("zip", 12345))//
+			.with("previous", Arrays.asList(new JsonObject().with("street", "Elm").with("zip", 0), null))//
+			.with("numbers", Arrays.asList(1, null, 3));
+		Assert.assertEquals(Arrays.asList(expected, null), SAJParser.parse(json));
+
+		// Extra properties, integral values for doubles, and missing properties
+		String input = "[" + json.substring(1, json.length() - 1).replace("\"score\":2.5", "\"score\":2, \"extra\":{\"a\":[1,2]}")
+			.replace("\"name\":\"Bob\",", "") + ", {\"name\":\"Bob\"}]";
+		person.score = 2;
+		Person named = new Person();
+		named.name = "Bob";
+		for (JsonSerialReader reader : new JsonSerialReader[] { new JsonSerialReader(new StringReader(input)),
+			new JsonSerialReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))) }) {
+			person.name = null;
+			reader.startArray();
+			Assert.assertEquals(person, PERSON.read(reader));
+			Assert.assertNull(PERSON.read(reader));
+			Assert.assertEquals(named, PERSON.read(reader));
+			Assert.assertNull(reader.startValue());
+			reader.endArray(null);
+		}
+
+		try {
+			PERSON.read(new JsonSerialReader(new StringReader("{\"age\":\"old\"}")));
+			Assert.fail("Mismatched type should be reported");
+		} catch (IllegalStateException e) {
+			Assert.assertEquals("Value is a string, not an integer", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package org.qommons.json;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.json.SAJParser.ParseException;
+
+/** Tests {@link JsonObject}'s compact storage and {@link JsonSymbolTable} */
+public class JsonObjectTest {
+	/** Tests that homogeneous parsed objects share canonical property names and are stored compactly */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testSharedShapes() throws IOException, ParseException {
+		String doc = "[{\"id\":1, \"name\":\"a\", \"tags\":[]}, {\"id\":2, \"name\":\"b\", \"tags\":[\"x\"]}, {id:3, 'name':null, \"tags\":[]}]";
+		List<Object> fromChars = (List<Object>) SAJParser.parse(doc);
+		List<Object> fromBytes = (List<Object>) new SAJParser().parse(ByteBuffer.wrap(doc.getBytes(StandardCharsets.UTF_8)),
+			new SAJParser.DefaultHandler());
+		Assert.assertEquals(fromChars, fromBytes);
+		for (List<Object> parsed : Arrays.asList(fromChars, fromBytes)) {
+			List<String> firstKeys = new ArrayList<>(((JsonObject) parsed.get(0)).keySet());
+			for (Object element : parsed) {
+				JsonObject obj = (JsonObject) element;
+				Assert.assertTrue(obj.isCompact());
+				Iterator<String> keys = obj.keySet().iterator();
+				for (String key : firstKeys)
+					Assert.assertSame(key, keys.next());
+			}
+		}
+		Assert.assertNull(((JsonObject) fromBytes.get(2)).get("name"));
+		Assert.assertEquals(3, ((JsonObject) fromBytes.get(2)).get("id"));
+	}
+
+	/** Tests {@link JsonObject} operations across its storage modes */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testModes() {
+		JsonObject compact = new JsonObject().with("a", 1).with("b", "two").with("c", null);
+		JsonObject other = new JsonObject().with("a", 1).with("b", "two").with("c", null).with("d", true).remove("d");
+		Assert.assertTrue(compact.isCompact());
+		Assert.assertFalse(other.isCompact());
+		Assert.assertEquals(compact, other);
+		Assert.assertEquals(compact.hashCode(), other.hashCode());
+		Assert.assertEquals(other.toString(), compact.toString());
+		Assert.assertEquals(new ArrayList<>(other.keySet()), new ArrayList<>(compact.keySet()));
+		Assert.assertEquals(new ArrayList<>(other.entrySet()).toString(), new ArrayList<>(compact.entrySet()).toString());
+		Assert.assertEquals(other.getMap(), compact.getMap());
+
+		compact.with("b", 2);
+		Assert.assertEquals(2, compact.get("b"));
+		Assert.assertEquals("x", compact.getOrDefault("z", "x"));
+		Assert.assertNull(compact.getOrDefault("c", "x"));
+		try {
+			compact.get("z");
+			Assert.fail("Missing properties should throw");
+		} catch (IllegalArgumentException e) {}
+
+		// Too many properties for a shape
+		JsonObject big = new JsonObject();
+		for (int i = 0; i < JsonObject.Shape.MAX_SIZE + 5; i++)
+			big.with("p" + i, i);
+		Assert.assertFalse(big.isCompact());
+		Assert.assertEquals(JsonObject.Shape.MAX_SIZE + 5, big.keySet().size());
+		Assert.assertEquals(17, big.get("p17"));
+	}
+
+	/** Tests that a single parser, which canonicalizes names by default, may be used by several threads at once */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testConcurrentParsing() throws InterruptedException, ParseException {
+		SAJParser parser = new SAJParser();
+		StringBuilder doc = new StringBuilder("[");
+		for (int i = 0; i < 500; i++)
+			doc.append(i == 0 ? "" : ",").append("{\"name").append(i % 50).append("\":").append(i).append(", \"other\":true}");
+		byte[] bytes = doc.append(']').toString().getBytes(StandardCharsets.UTF_8);
+		Object expected = SAJParser.parse(doc.toString());
+		Throwable[] error = new Throwable[1];
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				try {
+					for (int i = 0; i < 50; i++) {
+						List<Object> parsed = (List<Object>) parser.parse(ByteBuffer.wrap(bytes), new SAJParser.DefaultHandler());
+						Assert.assertEquals(expected, parsed);
+						Assert.assertSame(((JsonObject) parsed.get(0)).keySet().iterator().next(),
+							((JsonObject) parsed.get(50)).keySet().iterator().next());
+					}
+				} catch (Throwable e) {
+					error[0] = e;
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		if (error[0] != null)
+			throw new AssertionError("Concurrent parsing failed", error[0]);
+	}
+
+	/** Tests that the views of a {@link JsonObject} reflect changes to it, including changes to its storage mode */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testViews() {
+		JsonObject obj = new JsonObject().with("a", 1).with("b", 2);
+		Set<String> keys = obj.keySet();
+		Map<String, Object> map = obj.getMap();
+		Collection<Map.Entry<String, Object>> entries = obj.entrySet();
+		obj.with("c", 3);
+		Assert.assertTrue(obj.isCompact());
+		Assert.assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(keys));
+		Assert.assertTrue(keys.contains("c"));
+		Assert.assertEquals("{a=1, b=2, c=3}", map.toString());
+		Assert.assertEquals(3, entries.size());
+
+		obj.remove("a");
+		Assert.assertFalse(obj.isCompact());
+		Assert.assertEquals("{b=2, c=3}", map.toString());
+		Assert.assertEquals(Arrays.asList("b", "c"), new ArrayList<>(keys));
+		Assert.assertEquals(2, entries.size());
+		Assert.assertEquals(2, map.size());
+		Assert.assertNull(map.get("a"));
+		try {
+			map.put("d", 4);
+			Assert.fail("The map should be unmodifiable");
+		} catch (UnsupportedOperationException e) {}
+
+		// Removal through the key set, in either mode
+		JsonObject compact = new JsonObject().with("a", 1).with("b", 2).with("c", 3);
+		Iterator<String> keyIter = compact.keySet().iterator();
+		keyIter.next();
+		keyIter.next();
+		keyIter.remove();
+		Assert.assertEquals("c", keyIter.next());
+		Assert.assertFalse(keyIter.hasNext());
+		Assert.assertEquals("{\"a\":1,\"c\":3}", compact.toString());
+		Assert.assertTrue(compact.keySet().remove("a"));
+		Assert.assertEquals("{\"c\":3}", compact.toString());
+	}
+
+	/** Tests that shapes are not limited in number and are released when no longer used */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testShapeRetention() throws InterruptedException {
+		// Many distinct shapes, including more distinct first properties than the transition limit for other shapes
+		for (int i = 0; i < JsonObject.Shape.MAX_TRANSITIONS; i++) {
+			for (int j = 0; j < JsonObject.Shape.MAX_TRANSITIONS; j++) {
+				for (int k = 0; k < 20; k++)
+					Assert.assertTrue(new JsonObject().with("a" + i, i).with("b" + j, j).with("c" + k, k).isCompact());
+			}
+		}
+
+		JsonObject.Shape shape = JsonObject.Shape.EMPTY.with("retention-test").with("child");
+		Assert.assertSame(shape, JsonObject.Shape.EMPTY.with("retention-test").with("child"));
+		WeakReference<JsonObject.Shape> ref = new WeakReference<>(shape.getParent());
+		shape = null;
+		for (int i = 0; i < 20 && ref.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		Assert.assertNull("Unused shape was not released", ref.get());
+	}
+
+	/** Tests {@link JsonSymbolTable} */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testSymbols() {
+		JsonSymbolTable symbols = new JsonSymbolTable(100);
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < 100; i++)
+			names.add(symbols.intern("name" + i));
+		for (int i = 0; i < 100; i++) {
+			String name = "name" + i;
+			Assert.assertSame(names.get(i), symbols.intern(new StringBuilder(name)));
+			Assert.assertSame(names.get(i), symbols.intern(name.toCharArray(), 0, name.length()));
+			byte[] bytes = ("\"" + name + "\"").getBytes(StandardCharsets.US_ASCII);
+			Assert.assertSame(names.get(i), symbols.intern(bytes, 1, name.length()));
+		}
+		Assert.assertEquals(100, symbols.size());
+		// Full
+		Assert.assertEquals("more", symbols.intern("more"));
+		Assert.assertEquals(100, symbols.size());
+	}
+}
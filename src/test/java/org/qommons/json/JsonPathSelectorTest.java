@@ -0,0 +1,89 @@
+package org.qommons.json;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.json.SAJParser.ParseException;
+
+/** Tests {@link JsonPathSelector} and skipping in {@link JsonSerialReader} */
+public class JsonPathSelectorTest {
+	private static final String DOCUMENT = "{\"meta\":{\"skip\":[1,{\"a\":\"}]\\\"\"},[]], /* comment { */ \"n\":null},\n"//
+		+ "\"items\":[{\"id\":1,\"tags\":[\"x\",\"y\"]}, {\"name\":\"no id\"}, {\"id\":\"two\",\"tags\":[]}, {\"id\":{\"deep\":3}}, 7],\n"//
+		+ "\"count\":4, \"last\":[null, true]}";
+
+	private static JsonSerialReader bytes(String doc) {
+		return new JsonSerialReader(ByteBuffer.wrap(doc.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/** Tests skipping values with {@link JsonSerialReader#goToProperty(String)} and {@link JsonSerialReader#endObject(JsonSerialReader.StructState)} */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testSkipping() throws IOException, ParseException {
+		JsonSerialReader reader = bytes(DOCUMENT);
+		JsonSerialReader.StructState root = reader.startObject();
+		Assert.assertTrue(reader.goToProperty("count"));
+		Assert.assertEquals(4, reader.parseInt());
+		Assert.assertEquals(1, reader.endObject(root));
+		Assert.assertNull(reader.getNextItem(true, false));
+
+		reader = bytes(DOCUMENT);
+		root = reader.startObject();
+		Assert.assertTrue(reader.goToProperty("items"));
+		reader.startArray();
+		JsonSerialReader.StructState item = reader.startObject();
+		Assert.assertEquals("id", reader.getNextProperty());
+		Assert.assertEquals(1, reader.endObject(item));
+		reader.skipNext();
+		Assert.assertEquals(new JsonObject().with("id", "two").with("tags", new ArrayList<>()), reader.parseObject());
+		Assert.assertEquals(2, reader.endArray(null));
+		Assert.assertEquals("count", reader.getNextProperty());
+		Assert.assertFalse(reader.goToProperty("items"));
+
+		// Unbalanced content
+		reader = bytes("{\"a\":[1, {\"b\":2]");
+		reader.startObject();
+		try {
+			reader.goToProperty("c");
+			Assert.fail("Unterminated content should be reported");
+		} catch (ParseException e) {}
+	}
+
+	/** Tests selection against both streamed bytes and parsed values */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testSelection() throws IOException, ParseException {
+		testSelect("$.items[*].id", 1, "two", new JsonObject().with("deep", 3));
+		testSelect("$.items[2].id", "two");
+		testSelect("$.items[*].tags[1]", "y");
+		testSelect("$['items'][0].tags[*]", "x", "y");
+		testSelect("$.meta.*", Arrays.asList(1, new JsonObject().with("a", "}]\""), new ArrayList<>()), null);
+		testSelect("$.last[*]", null, true);
+		testSelect("$.count", 4);
+		testSelect("$.count.x");
+		testSelect("$.missing[*]");
+		testSelect("$.items[9]");
+
+		try {
+			JsonPathSelector.compile("items.id");
+			Assert.fail("Paths must start with $");
+		} catch (IllegalArgumentException e) {}
+	}
+
+	private static void testSelect(String path, Object... expected) throws IOException, ParseException {
+		JsonPathSelector selector = JsonPathSelector.compile(path);
+		List<Object> streamed = new ArrayList<>();
+		Assert.assertEquals(expected.length, selector.select(bytes(DOCUMENT), streamed::add));
+		Assert.assertEquals(path, Arrays.asList(expected), streamed);
+
+		List<Object> read = new ArrayList<>();
+		selector.select(new JsonSerialReader(new StringReader(DOCUMENT)), read::add);
+		Assert.assertEquals(path, Arrays.asList(expected), read);
+	}
+}
@@ -0,0 +1,70 @@
+package org.qommons.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.json.SAJParser.ParseException;
+
+/** Tests {@link JsonPushParser} */
+public class JsonPushParserTest {
+	private static final String DOCUMENT = "\uFEFF{\"name\": \"Bob\", \"escaped\": \"a\\\"b\\u00e9\\n\", \"unicode\": \"é中😀\",\n"//
+		+ " // A comment\n"//
+		+ " \"numbers\": [0, -12, 3.5e10, 12345678901234, 1.0E-5], /* another\n comment */\n"//
+		+ " \"nested\": {\"a\": [true, false, null, {}], 'tick': []}, \"last\": 7}";
+
+	/** Tests parsing content split into chunks of various sizes, including single bytes */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testChunks() throws IOException, ParseException {
+		byte[] bytes = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+		SAJParser loose = new SAJParser();
+		loose.setFormal(false);
+		Object expected = loose.parse(ByteBuffer.wrap(bytes), new SAJParser.DefaultHandler());
+
+		Random random = new Random(0);
+		for (int maxChunk : new int[] { 1, 2, 3, 7, 50, bytes.length }) {
+			JsonPushParser parser = new JsonPushParser(loose, new SAJParser.DefaultHandler());
+			for (int i = 0; i < bytes.length;) {
+				int chunk = Math.min(bytes.length - i, 1 + random.nextInt(maxChunk));
+				parser.feed(ByteBuffer.wrap(bytes, i, chunk));
+				i += chunk;
+			}
+			Assert.assertEquals(expected, parser.finish());
+			Assert.assertEquals(0, parser.getPending());
+		}
+
+		// Tokens should be reported as soon as they are complete
+		SAJParser.DefaultHandler handler = new SAJParser.DefaultHandler();
+		JsonPushParser parser = new JsonPushParser(handler);
+		parser.feed(ByteBuffer.wrap("[\"ab".getBytes(StandardCharsets.UTF_8)));
+		Assert.assertEquals(1, parser.getState().getDepth());
+		parser.feed(ByteBuffer.wrap("c\", 12".getBytes(StandardCharsets.UTF_8)));
+		Assert.assertEquals(2, parser.getPending()); // The number may not be complete
+		parser.feed(ByteBuffer.wrap("3]".getBytes(StandardCharsets.UTF_8)));
+		Assert.assertEquals(0, parser.getState().getDepth());
+		Assert.assertEquals(java.util.Arrays.asList("abc", 123), parser.finish());
+
+		// Errors should be reported at their position in the entire content
+		byte[] bad = "{\"a\": [1, 2],\n \"b\": [3 4]}".getBytes(StandardCharsets.UTF_8);
+		parser = new JsonPushParser(new SAJParser.DefaultHandler());
+		try {
+			for (int i = 0; i < bad.length; i += 3)
+				parser.feed(bad, i, Math.min(3, bad.length - i));
+			parser.finish();
+			Assert.fail("Missing comma should be reported");
+		} catch (ParseException e) {
+			Assert.assertEquals(2, e.getParseState().getLineNumber());
+			Assert.assertEquals(9, e.getParseState().getCharNumber());
+		}
+		parser = new JsonPushParser(new SAJParser.DefaultHandler());
+		parser.feed(ByteBuffer.wrap("{\"a\": [1".getBytes(StandardCharsets.UTF_8)));
+		try {
+			parser.finish();
+			Assert.fail("Truncated content should be reported");
+		} catch (ParseException e) {}
+	}
+}
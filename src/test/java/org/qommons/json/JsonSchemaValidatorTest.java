@@ -0,0 +1,91 @@
+package org.qommons.json;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.json.SAJParser.ParseException;
+
+/** Tests {@link JsonSchemaValidator} */
+public class JsonSchemaValidatorTest {
+	private static final String SCHEMA = "{\"schemaConstraints\":{\"allowExtras\":\"error\"},"//
+		+ "\"kind\":\"person\","//
+		+ "\"name\":{\"valueType\":\"string\"},"//
+		+ "\"age\":{\"valueType\":\"number\",\"nullable\":true},"//
+		+ "\"active\":{\"valueType\":\"boolean\"},"//
+		+ "\"tags\":{\"valueType\":\"set\",\"values\":{\"valueType\":\"string\"},\"schemaConstraints\":{\"min\":1,\"max\":3}},"//
+		+ "\"id\":{\"valueType\":\"oneOf\",\"values\":[{\"valueType\":\"number\"},{\"valueType\":\"set\",\"values\":{\"valueType\":\"number\"}}]},"//
+		+ "\"address\":{\"street\":{\"valueType\":\"string\"},\"extra\":{\"valueType\":\"oneOf\",\"nullable\":true,"//
+		+ "\"values\":[{\"a\":{\"valueType\":\"number\"}},{\"a\":{\"valueType\":\"string\"},\"b\":{\"valueType\":\"boolean\"}}]}}"//
+		+ "}";
+
+	private static final String VALID = "{\"kind\":\"person\",\"name\":\"Bob\",\"age\":null,\"active\":true,\"tags\":[\"a\",\"b\"],"//
+		+ "\"id\":[1,2,3],\"address\":{\"street\":\"Main\",\"extra\":{\"a\":\"x\",\"b\":false}}}";
+
+	/** Tests that streaming validation agrees with validation of parsed values */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testValidation() throws IOException, ParseException, JsonSchemaException {
+		JsonElement schema = new JsonSchemaParser().parseSchema(null, "person", SAJParser.parse(SCHEMA));
+		JsonSchemaValidator validator = JsonSchemaValidator.compile(schema);
+
+		testDocument(schema, validator, VALID, null);
+		testDocument(schema, validator, VALID.replace("\"id\":[1,2,3]", "\"id\":5"), null);
+		testDocument(schema, validator, VALID.replace("\"age\":null", "\"age\":31"), null);
+		testDocument(schema, validator, VALID.replace("\"extra\":{\"a\":\"x\",\"b\":false}", "\"extra\":{\"a\":1}"), null);
+		testDocument(schema, validator, VALID.replace("\"person\"", "\"animal\""), "person expected, but value is animal");
+		testDocument(schema, validator, VALID.replace("\"Bob\"", "5"), "Value must be a string");
+		testDocument(schema, validator, VALID.replace("\"Bob\"", "{\"first\":\"Bob\"}"), "Value must be a string");
+		testDocument(schema, validator, VALID.replace("true", "null"), "Null or missing value not allowed");
+		testDocument(schema, validator, VALID.replace("[\"a\",\"b\"]", "[]"), "Set must have at least 1 elements");
+		testDocument(schema, validator, VALID.replace("[\"a\",\"b\"]", "[\"a\",\"b\",\"c\",\"d\"]"), "Set must have at most 3 elements");
+		testDocument(schema, validator, VALID.replace("[\"a\",\"b\"]", "[\"a\",2]"), "Value must be a string");
+		testDocument(schema, validator, VALID.replace("[1,2,3]", "\"one\""), "Element does not match any schema option: one");
+		testDocument(schema, validator, VALID.replace("[1,2,3]", "[1,\"two\"]"), "Value must be a number");
+		testDocument(schema, validator, VALID.replace("\"b\":false", "\"b\":0"), "Value must be a boolean");
+		testDocument(schema, validator, VALID.replace("\"street\":\"Main\",", "\"street\":\"Main\",\"zip\":1,"),
+			"Extra element zip in JSON object");
+
+		// Missing properties are validated as null
+		try {
+			validator.validate(new StringReader(VALID.replace("\"name\":\"Bob\",", "")));
+			Assert.fail("Missing name should be reported");
+		} catch (JsonSchemaException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Null or missing value not allowed"));
+		}
+		validator.validate(new StringReader(VALID.replace("\"age\":null,", "")));
+
+		// Validation fails on the first violation, before any later malformed content is parsed
+		try {
+			validator.validate(new StringReader("{\"kind\":\"animal\", \"name\": ]]]"));
+			Assert.fail("Invalid kind should be reported");
+		} catch (JsonSchemaException e) {
+			Assert.assertEquals("person expected, but value is animal", e.getMessage());
+		}
+	}
+
+	private static void testDocument(JsonElement schema, JsonSchemaValidator validator, String doc, String error)
+		throws IOException, ParseException {
+		String materializedError = null;
+		try {
+			schema.validate(SAJParser.parse(doc));
+		} catch (JsonSchemaException e) {
+			materializedError = e.getMessage();
+		}
+		String streamedError = null;
+		try {
+			validator.validate(new java.io.ByteArrayInputStream(doc.getBytes(java.nio.charset.StandardCharsets.UTF_8)));
+		} catch (JsonSchemaException e) {
+			streamedError = e.getMessage();
+		}
+		if (error == null) {
+			Assert.assertNull(doc, materializedError);
+			Assert.assertNull(doc, streamedError);
+		} else {
+			Assert.assertNotNull(doc, materializedError);
+			Assert.assertNotNull(doc, streamedError);
+			Assert.assertTrue(streamedError, streamedError.startsWith(error));
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package org.qommons.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.json.SAJParser.ParseException;
+
+/** Tests {@link JsonStreamWriter} */
+public class JsonStreamWriterTest {
+	private static final JsonObject DOCUMENT = new JsonObject()//
+		.with("plain", "value")//
+		.with("escapes \"\\\n\r\t\f\b", "quote \" backslash \\ controls \n\r\t\f\b solidus ⁄")//
+		.with("unicode é", "é中😀 end")//
+		.with("ints", Arrays.asList(0, 7, -7, 999, 1000, -1000, Integer.MAX_VALUE, Integer.MIN_VALUE + 1))//
+		.with("longs", Arrays.asList(Long.MAX_VALUE, Long.MIN_VALUE, 1L << 40))//
+		.with("doubles", Arrays.asList(0.0, -0.0, 1.5, -2.0, 0.1, 1E7, 9999999.0, 1.25E-10, Double.MAX_VALUE))//
+		.with("floats", Arrays.asList(0.1f))//
+		.with("nested", new JsonObject().with("empty", new JsonObject()).with("list", Arrays.asList(true, false, null)))//
+		.with("null", null);
+
+	/** Tests that writing bytes produces the same content as writing characters, in each of the writer's modes */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testByteParity() throws IOException, ParseException {
+		for (boolean formal : new boolean[] { true, false }) {
+			for (boolean unicode : new boolean[] { true, false }) {
+				for (String indent : new String[] { null, "\t" }) {
+					StringWriter chars = new StringWriter();
+					write(new JsonStreamWriter(chars), formal, unicode, indent);
+
+					ByteArrayOutputStream stream = new ByteArrayOutputStream();
+					write(new JsonStreamWriter(stream, 16), formal, unicode, indent);
+					Assert.assertEquals(chars.toString(), new String(stream.toByteArray(), StandardCharsets.UTF_8));
+
+					ByteArrayOutputStream channel = new ByteArrayOutputStream();
+					write(new JsonStreamWriter(Channels.newChannel(channel)), formal, unicode, indent);
+					Assert.assertEquals(chars.toString(), new String(channel.toByteArray(), StandardCharsets.UTF_8));
+
+					if (formal) {
+						JsonObject parsed = (JsonObject) new JsonSerialReader(ByteBuffer.wrap(stream.toByteArray())).parseNext(false);
+						Assert.assertEquals(DOCUMENT.keySet(), parsed.keySet());
+						Assert.assertEquals(DOCUMENT.get("unicode é"), parsed.get("unicode é"));
+						Assert.assertEquals(((Number) ((java.util.List<?>) DOCUMENT.get("longs")).get(1)).longValue(),
+							((Number) ((java.util.List<?>) parsed.get("longs")).get(1)).longValue());
+					}
+				}
+			}
+		}
+	}
+
+	/** Tests primitive numbers and strings written in pieces */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testContent() throws IOException {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		JsonStreamWriter writer = new JsonStreamWriter(stream, 16).setUnicodeEncoded(false);
+		writer.startArray();
+		writer.writeNumber(-0.0).writeNumber(12.0).writeNumber(0.5).writeNumber(Long.MIN_VALUE).writeNumber(42);
+		java.io.Writer str = writer.writeStringAsWriter();
+		// A surrogate pair split between writes
+		str.write("a\ud83d");
+		str.write("\ude00\"b\ud83d");
+		str.close();
+		writer.close();
+		Assert.assertEquals("[-0.0,12.0,0.5,-9223372036854775808,42,\"a😀\\\"b?\"]",
+			new String(stream.toByteArray(), StandardCharsets.UTF_8));
+
+		StringWriter chars = new StringWriter();
+		new JsonStreamWriter(chars).setFormal(false).startArray().writeNumber(Long.MIN_VALUE).writeNumber(-4096).writeNumber(5.0);
+		Assert.assertEquals("[-0x8000000000000000,-0x1000,5.0", chars.toString());
+	}
+
+	private static void write(JsonStreamWriter writer, boolean formal, boolean unicode, String indent) throws IOException {
+		writer.setFormal(formal).setUnicodeEncoded(unicode).setFormatIndent(indent);
+		writer.writeThing(DOCUMENT);
+		writer.close();
+	}
+}
@@ -0,0 +1,78 @@
+package org.qommons.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.json.SAJParser.ParseException;
+
+/** Tests {@link NdJsonParser} */
+public class NdJsonParserTest {
+	/** Tests parsing many records split into small chunks, ordered and unordered */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testParse() throws IOException, ParseException {
+		StringBuilder content = new StringBuilder();
+		List<Object> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			JsonObject record = new JsonObject().with("id", i).with("name", "record" + i).with("tags", Arrays.asList("a", i % 7 == 0));
+			expected.add(record);
+			content.append("{\"id\":").append(i).append(", \"name\":\"record").append(i).append("\",\"tags\":[\"a\",").append(i % 7 == 0)
+				.append("]}");
+			content.append(i % 3 == 0 ? "\r\n" : "\n");
+			if (i % 100 == 0)
+				content.append('\n'); // Blank lines are skipped
+		}
+		byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			NdJsonParser parser = new NdJsonParser(pool);
+			parser.setChunkSize(256);
+			List<Object> values = new ArrayList<>();
+			List<Integer> lines = new ArrayList<>();
+			Assert.assertEquals(1000, parser.parse(new ByteArrayInputStream(bytes), (line, value) -> {
+				lines.add(line);
+				values.add(value);
+			}));
+			Assert.assertEquals(expected, values);
+			int line = 1;
+			for (int i = 0; i < 1000; i++) {
+				Assert.assertEquals(line, lines.get(i).intValue());
+				line += i % 100 == 0 ? 2 : 1;
+			}
+
+			parser.setOrdered(false);
+			values.clear();
+			Assert.assertEquals(1000, parser.parse(new ByteArrayInputStream(bytes), (l, value) -> values.add(value)));
+			Assert.assertEquals(expected.size(), values.size());
+			Assert.assertTrue(values.containsAll(expected));
+
+			// Errors should be reported with the line number in the entire content
+			parser.setOrdered(true);
+			String bad = content.toString().replace("\"record512\"", "\"record512");
+			values.clear();
+			try {
+				parser.parse(new ByteArrayInputStream(bad.getBytes(StandardCharsets.UTF_8)), (l, value) -> values.add(value));
+				Assert.fail("Unterminated string should be reported");
+			} catch (ParseException e) {
+				Assert.assertEquals(519, e.getParseState().getLineNumber());
+			}
+			Assert.assertEquals(expected.subList(0, 512), values);
+			try {
+				parser.parse(new ByteArrayInputStream("1\n2 3\n".getBytes(StandardCharsets.UTF_8)), (l, value) -> {});
+				Assert.fail("Multiple values on a line should be reported");
+			} catch (ParseException e) {
+				Assert.assertEquals(2, e.getParseState().getLineNumber());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package org.qommons.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.qommons.json.SAJParser.ParseException;
+
+/** Tests {@link Utf8JsonTokenizer} and its use by {@link SAJParser} and {@link JsonSerialReader} */
+public class Utf8JsonTokenizerTest {
+	private static final String[] DOCUMENTS = { //
+		"{\"a\":1, \"b\":[true, false, null], \"c\":\"text\"}", //
+		"[0, -1, 2147483647, -2147483648, 9223372036854775807, 1.5, -0.25, 2e3, 1.5E-2, 0x1F, 017, 3f, Infinity, -Inf, NaN]", //
+		"{unquoted: \"v\", 'tick': 2, \"escapes\":\"a\\\"b\\\\c\\nd\\u00e9\\u2603\", \"unicode\":\"café ☃ 😀\"}", //
+		"// A line comment\n{\"a\" : /* a block\n * comment */ [ {}, [], {\"x\":{\"y\":[[1],[2,3]]}} ],\r\n\t\"b\":undefined}", //
+		"\uFEFF  [\"after a byte order mark\"]  " //
+	};
+
+	/** Tests that parsing UTF-8 bytes produces the same values as parsing characters */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testParity() throws IOException, ParseException {
+		for (String doc : DOCUMENTS) {
+			Object expected = new SAJParser().parse(new StringReader(doc.replace("\uFEFF", "")), // The character parser does not skip BOMs
+				new SAJParser.DefaultHandler());
+			byte[] bytes = doc.getBytes(StandardCharsets.UTF_8);
+			Assert.assertEquals(doc, expected, new SAJParser().parse(ByteBuffer.wrap(bytes), new SAJParser.DefaultHandler()));
+			// A direct buffer is copied into the tokenizer's window
+			ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+			direct.put(bytes).flip();
+			Assert.assertEquals(doc, expected, new SAJParser().parse(direct, new SAJParser.DefaultHandler()));
+			// A tiny window forces tokens to span refills
+			Assert.assertEquals(doc, expected, new SAJParser().parse(new Utf8JsonTokenizerTestStream(bytes), new SAJParser.DefaultHandler()));
+		}
+	}
+
+	/** Tests line numbers and error reporting from byte parsing */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testErrors() throws IOException {
+		SAJParser parser = new SAJParser();
+		parser.setFormal(true);
+		try {
+			parser.parse(ByteBuffer.wrap("{\n\"a\":1,\n 'b':2}".getBytes(StandardCharsets.UTF_8)), new SAJParser.DefaultHandler());
+			Assert.fail("Formal parsing should not accept tick strings");
+		} catch (ParseException e) {
+			Assert.assertEquals(3, e.getParseState().getLineNumber());
+			Assert.assertEquals(1, e.getParseState().getCharNumber());
+		}
+		try {
+			new SAJParser().parse(ByteBuffer.wrap("[1, 2 3]".getBytes(StandardCharsets.UTF_8)), new SAJParser.DefaultHandler());
+			Assert.fail("Missing separators should be reported");
+		} catch (ParseException e) {
+			Assert.assertEquals("Missing comma separator in array", e.getProblem());
+		}
+		try {
+			new SAJParser().parse(ByteBuffer.wrap("[1, 0x1G]".getBytes(StandardCharsets.UTF_8)), new SAJParser.DefaultHandler());
+			Assert.fail("Bad numbers should be reported");
+		} catch (ParseException e) {}
+		// A tokenizer used on its own
+		Utf8JsonTokenizer tokenizer = new Utf8JsonTokenizer("\"abc".getBytes(StandardCharsets.UTF_8), 0, 4);
+		try {
+			tokenizer.next(false);
+			Assert.fail("Unterminated string should be reported");
+		} catch (ParseException e) {
+			Assert.assertEquals("Unexpected end of content in string", e.getProblem());
+			Assert.assertEquals(1, e.getParseState().getLineNumber());
+		}
+	}
+
+	/** Tests {@link JsonSerialReader} over UTF-8 bytes */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testSerialReader() throws IOException, ParseException {
+		String doc = "{\"skip\":{\"deep\":[1,2,{\"x\":\"y\"}]}, \"name\":\"näme\", \"values\":[1, 2.5, \"three\"], \"last\":true}";
+		JsonSerialReader reader = new JsonSerialReader(new ByteArrayInputStream(doc.getBytes(StandardCharsets.UTF_8)));
+		reader.startObject();
+		Assert.assertTrue(reader.goToProperty("name"));
+		Assert.assertEquals("näme", reader.parseString());
+		Assert.assertEquals("values", reader.getNextProperty());
+		Assert.assertEquals(Arrays.asList(1, 2.5, "three"), reader.parseArray());
+		Assert.assertTrue(reader.goToProperty("last"));
+		Assert.assertTrue(reader.parseBoolean());
+		reader.endObject(null);
+	}
+
+	/** Tests the primitive and raw number callbacks */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testNumbers() throws IOException, ParseException {
+		List<Object> values = new ArrayList<>();
+		SAJParser.DefaultHandler handler = new SAJParser.DefaultHandler() {
+			@Override
+			public void valueLong(SAJParser.ParseState state, long value) {
+				values.add("L" + value);
+			}
+
+			@Override
+			public void valueDouble(SAJParser.ParseState state, double value) {
+				values.add("D" + value);
+			}
+
+			@Override
+			public void valueRawNumber(SAJParser.ParseState state, SAJParser.RawNumber value) throws ParseException {
+				if (value.isIntegral() && !value.fitsInLong())
+					values.add(new java.math.BigInteger(value.toString()));
+				else
+					super.valueRawNumber(state, value);
+			}
+
+			@Override
+			public void valueNumber(SAJParser.ParseState state, Number value) {
+				values.add(value);
+			}
+		};
+		new SAJParser().parse(ByteBuffer.wrap("[1, -9223372036854775808, 0.5, 25e-1, 123456789012345678901234, 0x10]"//
+			.getBytes(StandardCharsets.UTF_8)), handler);
+		Assert.assertEquals(Arrays.asList("L1", "L" + Long.MIN_VALUE, "D0.5", "D2.5", new java.math.BigInteger("123456789012345678901234"), 16),
+			values);
+
+		// Decoding of doubles must match Double.parseDouble exactly
+		Random random = new Random(32);
+		StringBuilder doc = new StringBuilder("[");
+		List<Double> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			String text;
+			switch (i % 3) {
+			case 0:
+				text = Double.toString(random.nextDouble() * 1000);
+				break;
+			case 1:
+				text = random.nextInt(1000000) + "." + random.nextInt(1000) + "e" + (random.nextInt(40) - 20);
+				break;
+			default:
+				text = Double.toString(Double.longBitsToDouble(random.nextLong()));
+				if (text.contains("N") || text.contains("I"))
+					text = "1.0";
+			}
+			if (i > 0)
+				doc.append(',');
+			doc.append(text);
+			expected.add(Double.parseDouble(text));
+		}
+		doc.append(']');
+		JsonSerialReader reader = new JsonSerialReader(ByteBuffer.wrap(doc.toString().getBytes(StandardCharsets.UTF_8)));
+		reader.startArray();
+		for (Double value : expected)
+			Assert.assertEquals(value.doubleValue(), reader.parseDouble(), 0.0);
+
+		reader = new JsonSerialReader(ByteBuffer.wrap("{\"i\":7, \"l\":-3000000000, \"d\":1.25}".getBytes(StandardCharsets.UTF_8)));
+		reader.startObject();
+		Assert.assertTrue(reader.goToProperty("i"));
+		Assert.assertEquals(7, reader.parseInt());
+		Assert.assertTrue(reader.goToProperty("l"));
+		Assert.assertEquals(-3000000000L, reader.parseLong());
+		Assert.assertTrue(reader.goToProperty("d"));
+		try {
+			reader.parseInt();
+			Assert.fail("A double should not be parsed as an int");
+		} catch (IllegalStateException e) {}
+	}
+
+	/** Returns at most 3 bytes per read */
+	private static class Utf8JsonTokenizerTestStream extends ByteArrayInputStream {
+		Utf8JsonTokenizerTestStream(byte[] bytes) {
+			super(bytes);
+		}
+
+		@Override
+		public synchronized int read(byte[] b, int off, int len) {
+			return super.read(b, off, Math.min(len, 3));
+		}
+	}
+}